@@ -303,9 +303,12 @@ stjs.extend=function(_constructor, _super, _implements, _initializer, _typeDescr
 		// without parameters (it might throw an exception).
 		// Basically, the following 3 lines are a safe equivalent for
 		// _constructor.prototype = new _super();
-		var I = function(){};
-		I.prototype	= _super.prototype;
-		_constructor.prototype	= new I();
+		// ES2015 classes (class ... extends _super) are already linked to _super and their prototype is read-only
+		if (!_super.prototype.isPrototypeOf(_constructor.prototype)) {
+			var I = function(){};
+			I.prototype	= _super.prototype;
+			_constructor.prototype	= new I();
+		}
 
 		// copy static properties for super
 		// assign every method from proto instance
@@ -507,6 +510,15 @@ stjs.serializers = {
 	}
 };
 
+(function(){
+	// JSON.stringify would serialize the typed arrays as objects with an index as key
+	function typedArray(a, type){
+		return a != null ? Array.prototype.slice.call(a) : null;
+	}
+	stjs.serializers.Float64Array = stjs.serializers.Float32Array = typedArray;
+	stjs.serializers.Int32Array = stjs.serializers.Int8Array = typedArray;
+})();
+
 /**
  * Used to be able to send method references and lambdas that capture 'this' as callbacks.
  * This method has a bunch of different usage patterns:
@@ -753,6 +765,121 @@ stjs.parseJSON = (function () {
 })();
 
 
+/**
+ * decode a MessagePack message, as written by the MessagePackFactory of stjs-server.
+ * buffer is an ArrayBuffer or an Uint8Array. The bin values are returned as Uint8Array.
+ */
+stjs.decodeMessagePack = (function () {
+	  function readString(bytes, pos, length) {
+	    var end = pos + length;
+	    var codes = [];
+	    var chunks = [];
+	    while (pos < end) {
+	      var c = bytes[pos++];
+	      if (c >= 0xf0) {
+	        c = ((c & 0x07) << 18 | (bytes[pos++] & 0x3f) << 12 | (bytes[pos++] & 0x3f) << 6 | (bytes[pos++] & 0x3f)) - 0x10000;
+	        codes.push(0xd800 | (c >> 10), 0xdc00 | (c & 0x3ff));
+	      } else if (c >= 0xe0) {
+	        codes.push((c & 0x0f) << 12 | (bytes[pos++] & 0x3f) << 6 | (bytes[pos++] & 0x3f));
+	      } else if (c >= 0xc0) {
+	        codes.push((c & 0x1f) << 6 | (bytes[pos++] & 0x3f));
+	      } else {
+	        codes.push(c);
+	      }
+	      // String.fromCharCode.apply is limited by the maximum number of arguments
+	      if (codes.length >= 4096) {
+	        chunks.push(String.fromCharCode.apply(null, codes));
+	        codes = [];
+	      }
+	    }
+	    chunks.push(String.fromCharCode.apply(null, codes));
+	    return chunks.join("");
+	  }
+
+	  return function (buffer) {
+	    var bytes = buffer instanceof Uint8Array ? buffer : new Uint8Array(buffer);
+	    var view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+	    var pos = 0;
+
+	    function string(length) {
+	      var s = readString(bytes, pos, length);
+	      pos += length;
+	      return s;
+	    }
+	    function binary(length) {
+	      var b = bytes.subarray(pos, pos + length);
+	      pos += length;
+	      return b;
+	    }
+	    function array(length) {
+	      var a = new Array(length);
+	      for (var i = 0; i < length; i++) {
+	        a[i] = value();
+	      }
+	      return a;
+	    }
+	    function map(length) {
+	      var m = {};
+	      for (var i = 0; i < length; i++) {
+	        var key = value();
+	        m[key] = value();
+	      }
+	      return m;
+	    }
+	    function read(size, getter) {
+	      var v = view[getter](pos);
+	      pos += size;
+	      return v;
+	    }
+	    function value() {
+	      var type = bytes[pos++];
+	      if (type <= 0x7f) { return type; }
+	      if (type >= 0xe0) { return type - 0x100; }
+	      if (type <= 0x8f) { return map(type & 0x0f); }
+	      if (type <= 0x9f) { return array(type & 0x0f); }
+	      if (type <= 0xbf) { return string(type & 0x1f); }
+	      switch (type) {
+	        case 0xc0: return null;
+	        case 0xc2: return false;
+	        case 0xc3: return true;
+	        case 0xc4: return binary(read(1, "getUint8"));
+	        case 0xc5: return binary(read(2, "getUint16"));
+	        case 0xc6: return binary(read(4, "getUint32"));
+	        case 0xca: return read(4, "getFloat32");
+	        case 0xcb: return read(8, "getFloat64");
+	        case 0xcc: return read(1, "getUint8");
+	        case 0xcd: return read(2, "getUint16");
+	        case 0xce: return read(4, "getUint32");
+	        // the 64 bit integers lose their precision above 2^53, like in JSON
+	        case 0xcf: return read(4, "getUint32") * 0x100000000 + read(4, "getUint32");
+	        case 0xd0: return read(1, "getInt8");
+	        case 0xd1: return read(2, "getInt16");
+	        case 0xd2: return read(4, "getInt32");
+	        case 0xd3: return read(4, "getInt32") * 0x100000000 + read(4, "getUint32");
+	        case 0xd9: return string(read(1, "getUint8"));
+	        case 0xda: return string(read(2, "getUint16"));
+	        case 0xdb: return string(read(4, "getUint32"));
+	        case 0xdc: return array(read(2, "getUint16"));
+	        case 0xdd: return array(read(4, "getUint32"));
+	        case 0xde: return map(read(2, "getUint16"));
+	        case 0xdf: return map(read(4, "getUint32"));
+	      }
+	      throw new Error("Unsupported MessagePack type 0x" + type.toString(16) + " at " + (pos - 1));
+	    }
+
+	    var result = value();
+	    if (pos !== bytes.length) { throw new Error("Unexpected data after the MessagePack value at " + pos); }
+	    return result;
+	  };
+})();
+
+/**
+ * decode a MessagePack message using the type definition to build a typed object hierarchy, like parseJSON
+ */
+stjs.parseBinary = function (buffer, cls) {
+	var result = stjs.decodeMessagePack(buffer);
+	return cls ? stjs.typefy(result, cls) : result;
+};
 
 
 stjs.isArray=function( obj ) {
@@ -765,6 +892,10 @@ stjs.isArray=function( obj ) {
  * TODO - for other collections and classes is not done yet
  */
 stjs.typefy=function(obj, cls){
+	if (stjs.isArray(obj) && cls && cls.BYTES_PER_ELEMENT){
+		// typed arrays are built directly from the array of numbers
+		return new cls(obj);
+	}
 	if (stjs.isArray(obj)){
 		var result = [];
 		for(var idx = 0; idx < obj.length; idx++){
@@ -820,6 +951,24 @@ stjs.typefy=function(obj, cls){
 	  if (obj == null)
 		  return null;
 
+	  if (typeof cls == "object" && cls.name == "Map") {
+		  // the values of a map are typed by the second argument of its type description
+		  var map = {};
+		  var valueType = cls.arguments[1];
+		  for(var k in obj){
+			  var v = obj[k];
+			  if (v == null || !valueType)
+				  map[k] = v;
+			  else if (typeof v == "string")
+				  map[k] = convert(valueType, v);
+			  else if (typeof v == "object")
+				  map[k] = stjs.typefy(v, typeof valueType == "string" ? eval(valueType) : valueType);
+			  else
+				  map[k] = v;
+		  }
+		  return map;
+	  }
+
 	  var ret = new cls();
 	  for(var key in obj){
 		  var prop = obj[key];
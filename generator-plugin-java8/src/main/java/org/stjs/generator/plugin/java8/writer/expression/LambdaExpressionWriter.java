@@ -41,6 +41,8 @@ import com.sun.source.util.TreeScanner;
  * 	return x + y;
  * }
  * </pre>
+ *
+ * or, for ES2015, the arrow function (x, y) =&gt; x + y, that needs no binding to access the outer scope.
  * @author acraciun
  * @param <JS>
  */
@@ -106,6 +108,12 @@ public class LambdaExpressionWriter<JS> implements WriterContributor<LambdaExpre
 		List<JS> params = MethodWriter.getParams(tree.getParameters(), context);
 		JavaScriptBuilder<JS> js = context.js();
 		JS body = visitor.scan(tree.getBody(), context);
+		int specialThisParamPos = MethodWriter.getTHISParamPos(tree.getParameters());
+
+		if (context.getConfiguration().getJavaScriptTarget().isES2015() && specialThisParamPos < 0) {
+			// the arrow functions keep the this of the outer scope
+			return js.arrowFunction(params, body);
+		}
 
 		if (tree.getBodyKind() == BodyKind.EXPRESSION) {
 			body = js.returnStatement(body);
@@ -115,7 +123,6 @@ public class LambdaExpressionWriter<JS> implements WriterContributor<LambdaExpre
 			body = js.block(Collections.singleton(body));
 		}
 		JS lambdaFunc = js.function(null, params, body);
-		int specialThisParamPos = MethodWriter.getTHISParamPos(tree.getParameters());
 
 		if (accessOuterScope(tree) || specialThisParamPos >= 0) {
 			// bind for lamdas accessing the outher scope
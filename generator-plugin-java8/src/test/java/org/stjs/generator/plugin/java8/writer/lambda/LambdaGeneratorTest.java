@@ -3,6 +3,9 @@ package org.stjs.generator.plugin.java8.writer.lambda;
 import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.JavaScriptTarget;
 import org.stjs.generator.JavascriptFileGenerationException;
 import org.stjs.generator.utils.AbstractStjsTest;
 
@@ -42,6 +45,21 @@ public class LambdaGeneratorTest extends AbstractStjsTest {
 		assertCodeContains(Lambda6.class, "var c = stjs.bind(this, function() {return this.outerMethod() + 1;});");
 	}
 
+	@Test
+	public void testES2015ArrowFunction() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(Lambda1.class, "method((x) => x + 1)", config);
+		assertCodeContains(Lambda3.class, "method((x) => {let y = x;})", config);
+	}
+
+	@Test
+	public void testES2015ArrowFunctionAccessOuterScope() {
+		// the arrow functions need no binding
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(Lambda6.class, "let c = () => this.outerMethod() + 1;", config);
+		assertCodeDoesNotContain(Lambda6.class, "stjs.bind", config);
+	}
+
 	@Test
 	public void testLambaAccessMethodOuterScopeExecute() {
 		assertEquals(4, ((Number)execute(Lambda6b.class)).intValue());
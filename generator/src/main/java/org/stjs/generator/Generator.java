@@ -181,6 +181,11 @@ public class Generator {
 		TypeElement classElement = context.getElements().getTypeElement(clazz.getCanonicalName());
 		stjsClass.setJavascriptNamespace(context.wrap(classElement).getNamespace());
 
+		if (config.isGenerateEsModules()) {
+			javascriptRoot = new ModuleDeclarationWriter<Object>(config, context.js()).addModuleDeclarations(javascriptRoot, stjsClass,
+					resolvedClasses);
+		}
+
 		// dump the ast to a file
 		taskExecutor.execute(new DumpFilesTask<>(outputFile, context, javascriptRoot, stjsClass));
 
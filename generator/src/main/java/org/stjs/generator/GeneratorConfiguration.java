@@ -21,6 +21,11 @@ public class GeneratorConfiguration {
 	private final Set<String> allowedJavaLangClasses;
 	private final boolean generateArrayHasOwnProperty;
 	private final boolean generateSourceMap;
+	private final boolean generateFieldsInConstructor;
+	private final boolean directFieldAccess;
+	private final JavaScriptTarget javaScriptTarget;
+	private final boolean generateEsModules;
+	private final boolean typedArrays;
 	private final String sourceEncoding;
 	private final Set<String> annotations;
 	private final ClassLoader stjsClassLoader;
@@ -31,12 +36,18 @@ public class GeneratorConfiguration {
 	// We actually have a builder for that, so the number of parameters warning doesn't apply
 	@SuppressWarnings("PMD.ExcessiveParameterList")
 	GeneratorConfiguration(Collection<String> allowedPackages, Set<String> allowedJavaLangClasses, boolean generateArrayHasOwnProperty,
-			boolean generateSourceMap, String sourceEncoding, Set<String> annotations, ClassLoader stjsClassLoader, File targetFolder,
-			GenerationDirectory generationFolder, ClassResolver classResolver) {
+			boolean generateSourceMap, boolean generateFieldsInConstructor, boolean directFieldAccess, JavaScriptTarget javaScriptTarget,
+			boolean generateEsModules, boolean typedArrays, String sourceEncoding, Set<String> annotations, ClassLoader stjsClassLoader,
+			File targetFolder, GenerationDirectory generationFolder, ClassResolver classResolver) {
 		this.allowedPackages = allowedPackages;
 		this.allowedJavaLangClasses = allowedJavaLangClasses;
 		this.generateArrayHasOwnProperty = generateArrayHasOwnProperty;
 		this.generateSourceMap = generateSourceMap;
+		this.generateFieldsInConstructor = generateFieldsInConstructor;
+		this.directFieldAccess = directFieldAccess;
+		this.javaScriptTarget = javaScriptTarget;
+		this.generateEsModules = generateEsModules;
+		this.typedArrays = typedArrays;
 		this.sourceEncoding = sourceEncoding;
 		this.annotations = annotations;
 		this.stjsClassLoader = stjsClassLoader;
@@ -65,6 +76,45 @@ public class GeneratorConfiguration {
 		return generateSourceMap;
 	}
 
+	/**
+	 * @return true if the instance fields are initialized in the constructor, in declaration order, instead of on the prototype. This
+	 *         way all the instances of a class keep the same shape (hidden class) in the JavaScript engines.
+	 */
+	public boolean isGenerateFieldsInConstructor() {
+		return generateFieldsInConstructor;
+	}
+
+	/**
+	 * @return true if the fields with the "gproperty" template are accessed directly instead of going through stjs.getField and
+	 *         stjs.setField. A type can override this setting with {@link org.stjs.javascript.annotation.DirectFieldAccess}.
+	 */
+	public boolean isDirectFieldAccess() {
+		return directFieldAccess;
+	}
+
+	/**
+	 * @return the version of JavaScript to generate
+	 */
+	public JavaScriptTarget getJavaScriptTarget() {
+		return javaScriptTarget;
+	}
+
+	/**
+	 * @return true if each generated file is an ES2015 module that imports the classes it depends on and exports its own class. The
+	 *         classes annotated with {@link org.stjs.javascript.annotation.GlobalScope} are still generated as plain scripts.
+	 */
+	public boolean isGenerateEsModules() {
+		return generateEsModules;
+	}
+
+	/**
+	 * @return true if the Java arrays of double, float, int and byte are allowed and generated as the corresponding JavaScript typed
+	 *         arrays (Float64Array, Float32Array, Int32Array and Int8Array)
+	 */
+	public boolean isTypedArrays() {
+		return typedArrays;
+	}
+
 	public String getSourceEncoding() {
 		return sourceEncoding;
 	}
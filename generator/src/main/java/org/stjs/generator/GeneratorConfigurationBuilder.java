@@ -31,6 +31,11 @@ public class GeneratorConfigurationBuilder {
 	private final Set<String> annotations = new HashSet<String>();
 	private boolean generateArrayHasOwnProperty = true;
 	private boolean generateSourceMap;
+	private boolean generateFieldsInConstructor;
+	private boolean directFieldAccess;
+	private JavaScriptTarget javaScriptTarget = JavaScriptTarget.ES5;
+	private boolean generateEsModules;
+	private boolean typedArrays;
 	private String sourceEncoding = Charset.defaultCharset().name();
 	private ClassLoader stjsClassLoader;
 	private File targetFolder;
@@ -50,6 +55,11 @@ public class GeneratorConfigurationBuilder {
 			annotations(baseConfig.getAnnotations());
 			generateArrayHasOwnProperty(baseConfig.isGenerateArrayHasOwnProperty());
 			generateSourceMap(baseConfig.isGenerateSourceMap());
+			generateFieldsInConstructor(baseConfig.isGenerateFieldsInConstructor());
+			directFieldAccess(baseConfig.isDirectFieldAccess());
+			javaScriptTarget(baseConfig.getJavaScriptTarget());
+			generateEsModules(baseConfig.isGenerateEsModules());
+			typedArrays(baseConfig.isTypedArrays());
 			sourceEncoding(baseConfig.getSourceEncoding());
 			stjsClassLoader(baseConfig.getStjsClassLoader());
 			targetFolder(baseConfig.getTargetFolder());
@@ -88,6 +98,31 @@ public class GeneratorConfigurationBuilder {
 		return this;
 	}
 
+	public GeneratorConfigurationBuilder generateFieldsInConstructor(boolean b) {
+		generateFieldsInConstructor = b;
+		return this;
+	}
+
+	public GeneratorConfigurationBuilder directFieldAccess(boolean b) {
+		directFieldAccess = b;
+		return this;
+	}
+
+	public GeneratorConfigurationBuilder javaScriptTarget(JavaScriptTarget javaScriptTarget) {
+		this.javaScriptTarget = javaScriptTarget;
+		return this;
+	}
+
+	public GeneratorConfigurationBuilder generateEsModules(boolean b) {
+		generateEsModules = b;
+		return this;
+	}
+
+	public GeneratorConfigurationBuilder typedArrays(boolean b) {
+		typedArrays = b;
+		return this;
+	}
+
 	public GeneratorConfigurationBuilder sourceEncoding(String sourceEncoding) {
 		this.sourceEncoding = sourceEncoding;
 		return this;
@@ -154,6 +189,11 @@ public class GeneratorConfigurationBuilder {
 				allowedJavaLangClasses, //
 				generateArrayHasOwnProperty, //
 				generateSourceMap, //
+				generateFieldsInConstructor, //
+				directFieldAccess, //
+				javaScriptTarget, //
+				generateEsModules, //
+				typedArrays, //
 				sourceEncoding,  //
 				annotations,  //
 				stjsClassLoader,  //
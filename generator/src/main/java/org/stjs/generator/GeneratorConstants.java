@@ -37,6 +37,11 @@ public final class GeneratorConstants {
 
 	public static final String TYPE_DESCRIPTION_PROPERTY = "$typeDescription";
 
+	/**
+	 * the field template that reads and writes the field through stjs.getField and stjs.setField
+	 */
+	public static final String GLOBAL_PROPERTY_TEMPLATE = "gproperty";
+
 	public static final Pattern NAMESPACE_PATTERN = Pattern.compile("([A-Za-z_][A-Za-z_0-9]*)(?:\\.([A-Za-z_][A-Za-z_0-9]*))*");
 
 	/**
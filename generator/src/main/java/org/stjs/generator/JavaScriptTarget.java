@@ -0,0 +1,33 @@
+/**
+ * Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stjs.generator;
+
+/**
+ * the version of JavaScript the generator produces.
+ */
+public enum JavaScriptTarget {
+	/**
+	 * constructor functions wired by stjs.extend, var declarations and functions for lambdas. This is the default.
+	 */
+	ES5,
+
+	/**
+	 * native classes (class ... extends ...) with their methods and static methods in the class body, let/const for the local variables
+	 * and arrow functions for the lambdas.
+	 */
+	ES2015;
+
+	public boolean isES2015() {
+		return this == ES2015;
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stjs.generator;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.stjs.generator.javascript.JavaScriptBuilder;
+import org.stjs.generator.name.DependencyType;
+import org.stjs.generator.utils.ClassUtils;
+import org.stjs.javascript.annotation.GlobalScope;
+
+/**
+ * This class adds the ES2015 module declarations to the JavaScript generated for a class: an import for each generated class it depends
+ * on and the export of its constructor. <br>
+ * The dependencies needed to define the class (the parent class and the classes used by the static initializers) are imported first, so
+ * they are evaluated before the ones that are only used later, at runtime. The bridges and the classes with a global scope are not
+ * modules, so they are not imported.
+ */
+public class ModuleDeclarationWriter<JS> {
+	private static final String JS_EXTENSION = ".js";
+
+	private final GeneratorConfiguration config;
+	private final JavaScriptBuilder<JS> js;
+
+	public ModuleDeclarationWriter(GeneratorConfiguration config, JavaScriptBuilder<JS> js) {
+		this.config = config;
+		this.js = js;
+	}
+
+	/**
+	 * @param root
+	 *            the generated JavaScript of the class
+	 * @param stjsClass
+	 *            the generated class
+	 * @param dependencies
+	 *            the direct dependencies of the class - the ones that back {@link ClassWithJavascript#getDirectDependencyMap()}. They are
+	 *            not resolved here as resolving a class may trigger its generation.
+	 * @return the root with the module declarations
+	 */
+	public JS addModuleDeclarations(JS root, STJSClass stjsClass, Map<String, DependencyType> dependencies) {
+		if (isGlobal(stjsClass.getJavaClass())) {
+			return root;
+		}
+
+		List<Map.Entry<String, DependencyType>> imports = getImportedDependencies(dependencies);
+		JS moduleRoot = root;
+		for (int i = imports.size() - 1; i >= 0; --i) {
+			moduleRoot = js.addStatementBeginning(moduleRoot, getImport(stjsClass.getJavaClassName(), imports.get(i).getKey()));
+		}
+
+		boolean namespaced = hasNamespace(stjsClass.getJavascriptNamespace());
+		return js.addStatement(moduleRoot, js.exportDeclaration(js.name(stjsClass.getJavascriptClassName()), namespaced));
+	}
+
+	private List<Map.Entry<String, DependencyType>> getImportedDependencies(Map<String, DependencyType> dependencies) {
+		List<Map.Entry<String, DependencyType>> imports = new ArrayList<Map.Entry<String, DependencyType>>();
+		for (Map.Entry<String, DependencyType> entry : dependencies.entrySet()) {
+			Class<?> clazz = config.getClassResolver().resolveJavaClass(entry.getKey());
+			if (!ClassUtils.isBridge(config.getStjsClassLoader(), clazz) && !isGlobal(clazz)) {
+				imports.add(entry);
+			}
+		}
+		Collections.sort(imports, new ImportOrder());
+		return imports;
+	}
+
+	/**
+	 * a class from a namespace is assigned to its namespace by its own module, so it is only imported for this side effect.
+	 */
+	private JS getImport(String fromClassName, String className) {
+		Class<?> clazz = config.getClassResolver().resolveJavaClass(className);
+		String module = getModulePath(fromClassName, className);
+		if (hasNamespace(NamespaceUtil.resolveNamespace(clazz))) {
+			return js.importDeclaration(null, module);
+		}
+		return js.importDeclaration(clazz.getSimpleName(), module);
+	}
+
+	private static boolean hasNamespace(String namespace) {
+		return namespace != null && !namespace.isEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean isGlobal(Class<?> clazz) {
+		Class<? extends Annotation> globalScope =
+				(Class<? extends Annotation>) ClassUtils.getClazz(config.getStjsClassLoader(), GlobalScope.class.getName());
+		return ClassUtils.hasAnnotation(clazz, globalScope);
+	}
+
+	/**
+	 * @return the path of the JavaScript file of the given class, relative to the file of the importing class, e.g. ./Child.js or
+	 *         ../other/Parent.js
+	 */
+	public static String getModulePath(String fromClassName, String toClassName) {
+		String[] from = fromClassName.split("\\.");
+		String[] to = toClassName.split("\\.");
+		int common = getCommonPackageLength(from, to);
+
+		StringBuilder path = new StringBuilder();
+		if (common == from.length - 1) {
+			path.append("./");
+		}
+		for (int i = common; i < from.length - 1; ++i) {
+			path.append("../");
+		}
+		for (int i = common; i < to.length - 1; ++i) {
+			path.append(to[i]).append('/');
+		}
+		return path.append(to[to.length - 1]).append(JS_EXTENSION).toString();
+	}
+
+	private static int getCommonPackageLength(String[] from, String[] to) {
+		int maxLength = Math.min(from.length, to.length) - 1;
+		int common = 0;
+		while (common < maxLength && from[common].equals(to[common])) {
+			common++;
+		}
+		return common;
+	}
+
+	/**
+	 * the dependencies needed when the class is defined come first, then the others, each group sorted by name to have a stable output.
+	 */
+	@edu.umd.cs.findbugs.annotations.SuppressWarnings(//
+			value = "SE_COMPARATOR_SHOULD_BE_SERIALIZABLE", //
+			justification = "This comparator will not be used with Serializable lists" //
+	)
+	private static class ImportOrder implements Comparator<Map.Entry<String, DependencyType>> {
+		@Override
+		public int compare(Map.Entry<String, DependencyType> a, Map.Entry<String, DependencyType> b) {
+			boolean hoistedA = a.getValue() != DependencyType.OTHER;
+			boolean hoistedB = b.getValue() != DependencyType.OTHER;
+			if (hoistedA != hoistedB) {
+				return hoistedA ? -1 : 1;
+			}
+			return a.getKey().compareTo(b.getKey());
+		}
+	}
+}
@@ -4,6 +4,7 @@ import org.stjs.generator.GenerationContext;
 import org.stjs.generator.check.CheckContributor;
 import org.stjs.generator.check.CheckVisitor;
 import org.stjs.generator.javac.InternalUtils;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.declaration.ClassWriter;
 
 import com.sun.source.tree.ArrayTypeTree;
@@ -13,7 +14,8 @@ import com.sun.source.util.TreePath;
 
 /**
  * this class checks that you don't use java arrays in the code (the only exception is the main method - but maybe this
- * only should also be forbidden). You should use {@link org.stjs.javascript.Array instead}.
+ * only should also be forbidden). You should use {@link org.stjs.javascript.Array instead}. The arrays of numbers are allowed when
+ * they are generated as typed arrays.
  * 
  * @author acraciun
  */
@@ -21,7 +23,7 @@ public class ArrayTypeForbiddenCheck implements CheckContributor<ArrayTypeTree>
 
 	@Override
 	public Void visit(CheckVisitor visitor, ArrayTypeTree tree, GenerationContext<Void> context) {
-		if (!argOfMainMethod(context) && !isVarArg(context)) {
+		if (!argOfMainMethod(context) && !isVarArg(context) && !isTypedArray(tree, context)) {
 			context.addError(tree, "You cannot use Java arrays because they are incompatible with Javascript arrays. "
 					+ "Use org.stjs.javascript.Array<T> instead. "
 					+ "You can use also the method org.stjs.javascript.Global.$castArray to convert an "
@@ -30,6 +32,10 @@ public class ArrayTypeForbiddenCheck implements CheckContributor<ArrayTypeTree>
 		return null;
 	}
 
+	private boolean isTypedArray(ArrayTypeTree tree, GenerationContext<Void> context) {
+		return JavaNodes.getTypedArrayName(context, InternalUtils.typeOf(tree)) != null;
+	}
+
 	private boolean isVarArg(GenerationContext<Void> context) {
 		TreePath path = context.getCurrentPath();
 		if (!(path.getParentPath().getLeaf() instanceof VariableTree)) {
@@ -0,0 +1,26 @@
+package org.stjs.generator.check.expression;
+
+import org.stjs.generator.GenerationContext;
+import org.stjs.generator.check.CheckContributor;
+import org.stjs.generator.check.CheckVisitor;
+import org.stjs.generator.javac.InternalUtils;
+import org.stjs.generator.utils.JavaNodes;
+
+import com.sun.source.tree.MemberSelectTree;
+
+/**
+ * this checks that only the length of the Java arrays generated as typed arrays is used, as the other members of a Java array (like
+ * clone) do not exist in JavaScript.
+ */
+public class MemberSelectTypedArrayCheck implements CheckContributor<MemberSelectTree> {
+
+	@Override
+	public Void visit(CheckVisitor visitor, MemberSelectTree tree, GenerationContext<Void> context) {
+		if (JavaNodes.getTypedArrayName(context, InternalUtils.typeOf(tree.getExpression())) != null
+				&& !"length".equals(tree.getIdentifier().toString())) {
+			context.addError(tree, "Only the length of an array can be accessed, as the arrays are generated as JavaScript typed arrays");
+		}
+		return null;
+	}
+
+}
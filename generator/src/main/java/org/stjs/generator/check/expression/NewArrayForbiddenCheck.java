@@ -3,13 +3,16 @@ package org.stjs.generator.check.expression;
 import org.stjs.generator.GenerationContext;
 import org.stjs.generator.check.CheckContributor;
 import org.stjs.generator.check.CheckVisitor;
+import org.stjs.generator.javac.InternalUtils;
+import org.stjs.generator.utils.JavaNodes;
 
 import com.sun.source.tree.AnnotationTree;
 import com.sun.source.tree.NewArrayTree;
 import com.sun.source.util.TreePath;
 
 /**
- * this checks that no java array is used. You should use {@link org.stjs.javascript.Array} instead.
+ * this checks that no java array is used. You should use {@link org.stjs.javascript.Array} instead. The arrays of numbers are allowed
+ * when they are generated as typed arrays.
  * 
  * @author acraciun
  */
@@ -17,7 +20,7 @@ public class NewArrayForbiddenCheck implements CheckContributor<NewArrayTree> {
 
 	@Override
 	public Void visit(CheckVisitor visitor, NewArrayTree tree, GenerationContext<Void> context) {
-		if (isAnnotationParam(context.getCurrentPath())) {
+		if (isAnnotationParam(context.getCurrentPath()) || JavaNodes.getTypedArrayName(context, InternalUtils.typeOf(tree)) != null) {
 			return null;
 		}
 		context.addError(tree, "You cannot use Java arrays because they are incompatible with Javascript arrays. "
@@ -0,0 +1,26 @@
+package org.stjs.generator.check.statement;
+
+import org.stjs.generator.GenerationContext;
+import org.stjs.generator.check.CheckContributor;
+import org.stjs.generator.check.CheckVisitor;
+import org.stjs.generator.javac.InternalUtils;
+import org.stjs.generator.utils.JavaNodes;
+
+import com.sun.source.tree.EnhancedForLoopTree;
+
+/**
+ * this checks that the arrays generated as typed arrays are not iterated with an enhanced for loop: it would be generated as a for-in
+ * loop that iterates on the indexes, while the Java loop iterates on the values.
+ */
+public class EnhancedForLoopTypedArrayCheck implements CheckContributor<EnhancedForLoopTree> {
+
+	@Override
+	public Void visit(CheckVisitor visitor, EnhancedForLoopTree tree, GenerationContext<Void> context) {
+		if (JavaNodes.getTypedArrayName(context, InternalUtils.typeOf(tree.getExpression())) != null) {
+			context.addError(tree, "You cannot iterate an array with an enhanced for loop, as it iterates on the indexes in JavaScript. "
+					+ "Use a for loop with an index instead.");
+		}
+		return null;
+	}
+
+}
@@ -16,60 +16,113 @@
 package org.stjs.generator.executor;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.stjs.generator.Generator;
 
 import com.google.common.base.Charsets;
-import com.google.common.io.Closeables;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
+import com.google.common.io.Resources;
 
+/**
+ * Executes the generated files with the Javascript engine of the JDK. The engine and the scripts it compiles are reused by
+ * the executions: each execution gets new global bindings, and a script is compiled again only if the content of its file
+ * changed since it was last compiled.<br>
+ * <br>
+ * An engine is shared by all the threads only if its factory declares a THREADING parameter. Nashorn declares none, as it
+ * is not thread-safe: each thread then gets its own engine and its own compiled scripts.
+ */
 public class RhinoExecutor {
-	private Object addScript(ScriptEngine engine, File scriptFile) throws ScriptException {
-		Reader input = null;
-		try {
-			// XXX: here i may need to get the charset from configuration
-			input = Files.newReader(scriptFile, Charsets.UTF_8);
-			return engine.eval(input);
-		}
-		catch (FileNotFoundException e) {
-			throw new ScriptException(e);
-		}
-		finally {
-			Closeables.closeQuietly(input);
+	private static final ScriptEngineFactory FACTORY = new ScriptEngineManager().getEngineByName("JavaScript").getFactory();
+
+	private static final CachingEngine SHARED_ENGINE = FACTORY.getParameter("THREADING") == null ? null : new CachingEngine();
+
+	private static final ThreadLocal<CachingEngine> THREAD_ENGINE = new ThreadLocal<CachingEngine>() {
+		@Override
+		protected CachingEngine initialValue() {
+			return new CachingEngine();
 		}
+	};
+
+	/**
+	 * @return the engine used by the executions of the current thread
+	 */
+	@SuppressWarnings("PMD.DefaultPackage")
+	static CachingEngine getEngine() {
+		return SHARED_ENGINE == null ? THREAD_ENGINE.get() : SHARED_ENGINE;
 	}
 
 	public ExecutionResult run(Collection<File> srcFiles, boolean mainClassDisabled) throws ScriptException {
-		ScriptEngineManager factory = new ScriptEngineManager();
-		ScriptEngine engine = factory.getEngineByName("JavaScript");
-		Reader reader = null;
+		CachingEngine engine = getEngine();
+		Bindings bindings = engine.engine.createBindings();
 		try {
-			reader = new InputStreamReader(Thread.currentThread().getContextClassLoader().getResourceAsStream(Generator.STJS_PATH), "UTF-8");
-			engine.eval(reader);
+			engine.eval(bindings, Generator.STJS_PATH, Resources.toString(Resources.getResource(Generator.STJS_PATH), Charsets.UTF_8));
 			if (mainClassDisabled) {
-				engine.eval("stjs.mainCallDisabled=true;");
+				engine.engine.eval("stjs.mainCallDisabled=true;", bindings);
 			}
 			Object result = null;
 			for (File srcFile : srcFiles) {
 				// keep the result of last evaluation
-				result = addScript(engine, srcFile);
+				// XXX: here i may need to get the charset from configuration
+				result = engine.eval(bindings, srcFile.getAbsolutePath(), Files.toString(srcFile, Charsets.UTF_8));
 			}
 			return new ExecutionResult(result, null, null, 0);
 		}
-		catch (UnsupportedEncodingException e) {
+		catch (IOException e) {
 			throw new ScriptException(e);
 		}
-		finally {
-			Closeables.closeQuietly(reader);
+	}
+
+	/**
+	 * A script engine with the last compiled version of each script it executed, by path.
+	 */
+	@SuppressWarnings("PMD.DefaultPackage")
+	static final class CachingEngine {
+		private final ScriptEngine engine = FACTORY.getScriptEngine();
+		private final ConcurrentMap<String, CachedScript> compiledScripts = new ConcurrentHashMap<String, CachedScript>();
+
+		Object eval(Bindings bindings, String path, String source) throws ScriptException {
+			if (!(engine instanceof Compilable)) {
+				return engine.eval(source, bindings);
+			}
+			HashCode hash = Hashing.murmur3_128().hashString(source, Charsets.UTF_8);
+			CachedScript cached = compiledScripts.get(path);
+			if (cached == null || !cached.hash.equals(hash)) {
+				cached = new CachedScript(hash, ((Compilable) engine).compile(source));
+				compiledScripts.put(path, cached);
+			}
+			return cached.script.eval(bindings);
+		}
+
+		/**
+		 * @return the last compiled version of the script of the given path, or null
+		 */
+		CompiledScript getCompiledScript(String path) {
+			CachedScript cached = compiledScripts.get(path);
+			return cached == null ? null : cached.script;
+		}
+	}
+
+	private static final class CachedScript {
+		private final HashCode hash;
+		private final CompiledScript script;
+
+		CachedScript(HashCode hash, CompiledScript script) {
+			this.hash = hash;
+			this.script = script;
 		}
 	}
 }
@@ -489,6 +489,24 @@ public final class TreeUtils {
 		return "this".contentEquals(TreeUtils.methodName(invocation));
 	}
 
+	/**
+	 * @return true if the first statement in the body is a super constructor invocation within a constructor
+	 */
+	public static final boolean containsSuperConstructorInvocation(MethodTree node) {
+		if (!TreeUtils.isConstructor(node) || node.getBody().getStatements().isEmpty()) {
+			return false;
+		}
+
+		StatementTree st = node.getBody().getStatements().get(0);
+		if (!(st instanceof ExpressionStatementTree) || !(((ExpressionStatementTree) st).getExpression() instanceof MethodInvocationTree)) {
+			return false;
+		}
+
+		MethodInvocationTree invocation = (MethodInvocationTree) ((ExpressionStatementTree) st).getExpression();
+
+		return "super".contentEquals(TreeUtils.methodName(invocation));
+	}
+
 	public static final Tree firstStatement(Tree tree) {
 		Tree first;
 		if (tree.getKind() == Tree.Kind.BLOCK) {
@@ -15,6 +15,7 @@ import org.stjs.generator.GeneratorConstants;
 import org.stjs.generator.NamespaceUtil;
 import org.stjs.generator.name.DependencyType;
 import org.stjs.javascript.annotation.DataType;
+import org.stjs.javascript.annotation.DirectFieldAccess;
 import org.stjs.javascript.annotation.GlobalScope;
 import org.stjs.javascript.annotation.JSXPlaceholder;
 import org.stjs.javascript.annotation.JavascriptFunction;
@@ -214,6 +215,15 @@ public class TreeWrapper<T extends Tree, JS> {
 		return getAnnotation(SyntheticType.class) != null || getAnnotation(DataType.class) != null;
 	}
 
+	/**
+	 * @return true if this type is generated as an ES2015 class (class ... extends ...) instead of a constructor function. Interfaces,
+	 *         enums and global types keep the ES5 form.
+	 */
+	public boolean isGeneratedAsClass() {
+		return context.getConfiguration().getJavaScriptTarget().isES2015() && element != null && element.getKind() == ElementKind.CLASS
+				&& !isGlobal();
+	}
+
 	public boolean isNative() {
 		return element.getModifiers().contains(Modifier.NATIVE) || element.getAnnotation(Native.class) != null;
 	}
@@ -267,7 +277,20 @@ public class TreeWrapper<T extends Tree, JS> {
 		if (element == null || element.getKind() != ElementKind.FIELD) {
 			return null;
 		}
-		return stripParameters(getTemplateValue());
+		String template = stripParameters(getTemplateValue());
+		if (GeneratorConstants.GLOBAL_PROPERTY_TEMPLATE.equals(template) && isDirectFieldAccess()) {
+			// the field handlers are not needed for this field
+			return null;
+		}
+		return template;
+	}
+
+	private boolean isDirectFieldAccess() {
+		DirectFieldAccess directAccess = context.getAnnotation(element.getEnclosingElement(), DirectFieldAccess.class);
+		if (directAccess != null) {
+			return directAccess.value();
+		}
+		return context.getConfiguration().isDirectFieldAccess();
 	}
 
 	public String[] getFieldTemplateParameters() {
@@ -38,6 +38,32 @@ public interface JavaScriptBuilder<T> {
 
 	T function(@Nullable String name, @Nonnull Iterable<T> params, @Nullable T body);
 
+	/**
+	 * (params) =&gt; body, where the body is either a block or an expression
+	 */
+	T arrowFunction(@Nonnull Iterable<T> params, @Nonnull T body);
+
+	/**
+	 * class [name] [extends superClass] { members }, where the members are built with
+	 * {@link #classMethod(boolean, String, Object)}
+	 */
+	T classExpression(@Nullable String name, @Nullable T superClass, @Nonnull Iterable<T> members);
+
+	/**
+	 * [static] name(params) body - the method of a class built with {@link #classExpression(String, Object, Iterable)}
+	 */
+	T classMethod(boolean isStatic, @Nonnull String name, @Nonnull T function);
+
+	/**
+	 * import { name } from "module" - or import "module" when the name is null, to import the module only for its side effects
+	 */
+	T importDeclaration(@Nullable String name, @Nonnull String module);
+
+	/**
+	 * export default expression - or export { expression } for a named export, in which case the expression must be a name
+	 */
+	T exportDeclaration(@Nonnull T expression, boolean defaultExport);
+
 	T functionCall(@Nonnull T target, @Nonnull Iterable<T> arguments);
 
 	T keyword(@Nonnull Keyword token);
@@ -64,6 +90,10 @@ public interface JavaScriptBuilder<T> {
 
 	T variableDeclaration(boolean statement, @Nonnull CharSequence name, @Nullable T init);
 
+	T variableDeclaration(boolean statement, @Nonnull VariableKind kind, @Nonnull Iterable<NameValue<T>> vars);
+
+	T variableDeclaration(boolean statement, @Nonnull VariableKind kind, @Nonnull CharSequence name, @Nullable T init);
+
 	T doLoop(@Nonnull T condition, @Nonnull T body);
 
 	T emptyStatement();
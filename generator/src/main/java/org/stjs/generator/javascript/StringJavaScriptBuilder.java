@@ -188,6 +188,18 @@ public class StringJavaScriptBuilder implements JavaScriptBuilder<String> {
 		return null;
 	}
 
+	@Override
+	public String variableDeclaration(boolean statement, VariableKind kind, Iterable<NameValue<String>> vars) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	@Override
+	public String variableDeclaration(boolean statement, VariableKind kind, CharSequence name, String init) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	@Override
 	public String tryStatement(String tryBlock, Iterable<String> catchClauses, String finallyBlock) {
 		// TODO Auto-generated method stub
@@ -301,4 +313,34 @@ public class StringJavaScriptBuilder implements JavaScriptBuilder<String> {
 		// TODO Auto-generated method stub
 		return null;
 	}
+
+	@Override
+	public String arrowFunction(Iterable<String> params, String body) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	@Override
+	public String classExpression(String name, String superClass, Iterable<String> members) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	@Override
+	public String classMethod(boolean isStatic, String name, String function) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	@Override
+	public String importDeclaration(String name, String module) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	@Override
+	public String exportDeclaration(String expression, boolean defaultExport) {
+		// TODO Auto-generated method stub
+		return null;
+	}
 }
@@ -0,0 +1,21 @@
+package org.stjs.generator.javascript;
+
+import org.mozilla.javascript.Token;
+
+/**
+ * the keyword used to declare a variable.
+ */
+public enum VariableKind {
+	VAR(Token.VAR), LET(Token.LET), CONST(Token.CONST);
+
+	private final int javaScript;
+
+	private VariableKind(int javaScript) {
+		this.javaScript = javaScript;
+	}
+
+	public int getJavaScript() {
+		return javaScript;
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.stjs.generator.javascript.rhino;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.NodeVisitor;
+
+/**
+ * an ES2015 arrow function. The body is either a block or an expression.
+ *
+ * <pre>
+ * (params) =&gt; body
+ * </pre>
+ */
+class ArrowFunction extends AstNode {
+	private final List<AstNode> params = new ArrayList<AstNode>();
+	private AstNode body;
+
+	public List<AstNode> getParams() {
+		return params;
+	}
+
+	public void addParam(AstNode param) {
+		params.add(param);
+		param.setParent(this);
+	}
+
+	public AstNode getBody() {
+		return body;
+	}
+
+	public void setBody(AstNode body) {
+		this.body = body;
+		body.setParent(this);
+	}
+
+	@Override
+	public String toSource(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(makeIndent(depth));
+		sb.append('(');
+		printList(params, sb);
+		sb.append(") => ");
+		sb.append(body.toSource(0));
+		return sb.toString();
+	}
+
+	@Override
+	public void visit(NodeVisitor visitor) {
+		if (visitor.visit(this)) {
+			for (AstNode param : params) {
+				param.visit(visitor);
+			}
+			body.visit(visitor);
+		}
+	}
+}
@@ -40,6 +40,7 @@ import org.mozilla.javascript.ast.VariableDeclaration;
 import org.mozilla.javascript.ast.VariableInitializer;
 import org.mozilla.javascript.ast.WhileLoop;
 
+@SuppressWarnings("PMD.ExcessivePublicCount")
 public interface AstVisitor<T> {
 	void visitName(Name name, T param);
 
@@ -124,4 +125,14 @@ public interface AstVisitor<T> {
 	void visitCodeFragment(CodeFragment c, T param);
 
 	void visitJsxExpression(JsxExpression node, T param);
+
+	void visitArrowFunction(ArrowFunction f, T param);
+
+	void visitClassExpression(ClassExpression c, T param);
+
+	void visitClassMethod(ClassMethod m, T param);
+
+	void visitImportDeclaration(ImportDeclaration i, T param);
+
+	void visitExportDeclaration(ExportDeclaration e, T param);
 }
@@ -0,0 +1,88 @@
+package org.stjs.generator.javascript.rhino;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.Name;
+import org.mozilla.javascript.ast.NodeVisitor;
+
+/**
+ * an ES2015 class. The members are {@link ClassMethod} nodes.
+ *
+ * <pre>
+ * class [name] [extends superClass] {
+ *     members
+ * }
+ * </pre>
+ */
+class ClassExpression extends AstNode {
+	private Name className;
+	private AstNode superClass;
+	private final List<ClassMethod> members = new ArrayList<ClassMethod>();
+
+	public Name getClassName() {
+		return className;
+	}
+
+	public void setClassName(Name className) {
+		this.className = className;
+		if (className != null) {
+			className.setParent(this);
+		}
+	}
+
+	public AstNode getSuperClass() {
+		return superClass;
+	}
+
+	public void setSuperClass(AstNode superClass) {
+		this.superClass = superClass;
+		if (superClass != null) {
+			superClass.setParent(this);
+		}
+	}
+
+	public List<ClassMethod> getMembers() {
+		return members;
+	}
+
+	public void addMember(ClassMethod member) {
+		members.add(member);
+		member.setParent(this);
+	}
+
+	@Override
+	public String toSource(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(makeIndent(depth));
+		sb.append("class");
+		if (className != null) {
+			sb.append(' ').append(className.toSource(0));
+		}
+		if (superClass != null) {
+			sb.append(" extends ").append(superClass.toSource(0));
+		}
+		sb.append(" {\n");
+		for (ClassMethod member : members) {
+			sb.append(member.toSource(depth + 1)).append('\n');
+		}
+		sb.append(makeIndent(depth)).append('}');
+		return sb.toString();
+	}
+
+	@Override
+	public void visit(NodeVisitor visitor) {
+		if (visitor.visit(this)) {
+			if (className != null) {
+				className.visit(visitor);
+			}
+			if (superClass != null) {
+				superClass.visit(visitor);
+			}
+			for (ClassMethod member : members) {
+				member.visit(visitor);
+			}
+		}
+	}
+}
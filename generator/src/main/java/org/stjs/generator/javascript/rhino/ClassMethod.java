@@ -0,0 +1,63 @@
+package org.stjs.generator.javascript.rhino;
+
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.FunctionNode;
+import org.mozilla.javascript.ast.Name;
+import org.mozilla.javascript.ast.NodeVisitor;
+
+/**
+ * a method declared in the body of a {@link ClassExpression}. The constructor is the method called "constructor".
+ *
+ * <pre>
+ * [static] name(params) body
+ * </pre>
+ */
+class ClassMethod extends AstNode {
+	private final boolean staticMethod;
+	private final Name methodName;
+	private final FunctionNode function;
+
+	public ClassMethod(boolean staticMethod, Name methodName, FunctionNode function) {
+		super();
+		this.staticMethod = staticMethod;
+		this.methodName = methodName;
+		this.function = function;
+		methodName.setParent(this);
+		function.setParent(this);
+	}
+
+	public boolean isStatic() {
+		return staticMethod;
+	}
+
+	public Name getMethodName() {
+		return methodName;
+	}
+
+	public FunctionNode getFunction() {
+		return function;
+	}
+
+	@Override
+	public String toSource(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(makeIndent(depth));
+		if (staticMethod) {
+			sb.append("static ");
+		}
+		sb.append(methodName.toSource(0));
+		sb.append('(');
+		printList(function.getParams(), sb);
+		sb.append(") ");
+		sb.append(function.getBody().toSource(depth).trim());
+		return sb.toString();
+	}
+
+	@Override
+	public void visit(NodeVisitor visitor) {
+		if (visitor.visit(this)) {
+			methodName.visit(visitor);
+			function.visit(visitor);
+		}
+	}
+}
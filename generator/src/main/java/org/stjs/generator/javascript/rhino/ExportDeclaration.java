@@ -0,0 +1,52 @@
+package org.stjs.generator.javascript.rhino;
+
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.NodeVisitor;
+
+/**
+ * an ES2015 module export. A default export can export any expression, a named export only exports a local name.
+ *
+ * <pre>
+ * export { name };
+ * export default expression;
+ * </pre>
+ */
+class ExportDeclaration extends AstNode {
+	private final AstNode exported;
+	private final boolean defaultExport;
+
+	public ExportDeclaration(AstNode exported, boolean defaultExport) {
+		super();
+		this.exported = exported;
+		this.defaultExport = defaultExport;
+		exported.setParent(this);
+	}
+
+	public AstNode getExported() {
+		return exported;
+	}
+
+	public boolean isDefault() {
+		return defaultExport;
+	}
+
+	@Override
+	public String toSource(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(makeIndent(depth));
+		if (defaultExport) {
+			sb.append("export default ").append(exported.toSource(0));
+		} else {
+			sb.append("export { ").append(exported.toSource(0)).append(" }");
+		}
+		sb.append(";\n");
+		return sb.toString();
+	}
+
+	@Override
+	public void visit(NodeVisitor visitor) {
+		if (visitor.visit(this)) {
+			exported.visit(visitor);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.stjs.generator.javascript.rhino;
+
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.Name;
+import org.mozilla.javascript.ast.NodeVisitor;
+
+/**
+ * an ES2015 module import. Without an imported name, the module is only imported for its side effects.
+ *
+ * <pre>
+ * import { importedName } from "module";
+ * import "module";
+ * </pre>
+ */
+class ImportDeclaration extends AstNode {
+	private final Name importedName;
+	private final String module;
+
+	public ImportDeclaration(Name importedName, String module) {
+		super();
+		this.importedName = importedName;
+		this.module = module;
+		if (importedName != null) {
+			importedName.setParent(this);
+		}
+	}
+
+	public Name getImportedName() {
+		return importedName;
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	@Override
+	public String toSource(int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(makeIndent(depth));
+		sb.append("import ");
+		if (importedName != null) {
+			sb.append("{ ").append(importedName.toSource(0)).append(" } from ");
+		}
+		sb.append('"').append(module).append("\";\n");
+		return sb.toString();
+	}
+
+	@Override
+	public void visit(NodeVisitor visitor) {
+		if (visitor.visit(this) && importedName != null) {
+			importedName.visit(visitor);
+		}
+	}
+}
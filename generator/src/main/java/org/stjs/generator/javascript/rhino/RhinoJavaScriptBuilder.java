@@ -54,6 +54,7 @@ import org.stjs.generator.javascript.JavaScriptBuilder;
 import org.stjs.generator.javascript.Keyword;
 import org.stjs.generator.javascript.NameValue;
 import org.stjs.generator.javascript.UnaryOperator;
+import org.stjs.generator.javascript.VariableKind;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -239,6 +240,44 @@ public class RhinoJavaScriptBuilder implements JavaScriptBuilder<AstNode> {
 		return func;
 	}
 
+	@Override
+	public AstNode arrowFunction(Iterable<AstNode> params, AstNode body) {
+		ArrowFunction func = new ArrowFunction();
+		for (AstNode param : params) {
+			func.addParam(param);
+		}
+		func.setBody(body);
+		return func;
+	}
+
+	@Override
+	public AstNode classExpression(String name, AstNode superClass, Iterable<AstNode> members) {
+		ClassExpression clazz = new ClassExpression();
+		if (name != null) {
+			clazz.setClassName((Name) name(name));
+		}
+		clazz.setSuperClass(superClass);
+		for (AstNode member : members) {
+			clazz.addMember(cast(member, ClassMethod.class));
+		}
+		return clazz;
+	}
+
+	@Override
+	public AstNode classMethod(boolean isStatic, String name, AstNode function) {
+		return new ClassMethod(isStatic, (Name) name(name), cast(function, FunctionNode.class));
+	}
+
+	@Override
+	public AstNode importDeclaration(String name, String module) {
+		return new ImportDeclaration(name == null ? null : (Name) name(name), module);
+	}
+
+	@Override
+	public AstNode exportDeclaration(AstNode expression, boolean defaultExport) {
+		return new ExportDeclaration(expression, defaultExport);
+	}
+
 	private ObjectProperty objectProperty(CharSequence name, AstNode value) {
 		ObjectProperty prop = new ObjectProperty();
 		prop.setLeft(name(name));
@@ -307,6 +346,12 @@ public class RhinoJavaScriptBuilder implements JavaScriptBuilder<AstNode> {
 			((Block) blockOrStatement).addStatement(statement);
 			return blockOrStatement;
 		}
+		if (blockOrStatement instanceof AstRoot) {
+			if (statement != null) {
+				blockOrStatement.addChild(statement);
+			}
+			return blockOrStatement;
+		}
 		Block block = new Block();
 		if (blockOrStatement != null) {
 			block.addStatement(blockOrStatement);
@@ -319,7 +364,7 @@ public class RhinoJavaScriptBuilder implements JavaScriptBuilder<AstNode> {
 
 	@Override
 	public AstNode addStatementBeginning(AstNode blockOrStatement, AstNode statement) {
-		if (blockOrStatement instanceof Block) {
+		if (blockOrStatement instanceof Block || blockOrStatement instanceof AstRoot) {
 			if (statement != null) {
 				blockOrStatement.addChildrenToFront(statement);
 				statement.setParent(blockOrStatement);
@@ -386,8 +431,19 @@ public class RhinoJavaScriptBuilder implements JavaScriptBuilder<AstNode> {
 
 	@Override
 	public AstNode variableDeclaration(boolean statement, Iterable<NameValue<AstNode>> vars) {
+		return variableDeclaration(statement, VariableKind.VAR, vars);
+	}
+
+	@Override
+	public AstNode variableDeclaration(boolean statement, CharSequence name, AstNode init) {
+		return variableDeclaration(statement, VariableKind.VAR, name, init);
+	}
+
+	@Override
+	public AstNode variableDeclaration(boolean statement, VariableKind kind, Iterable<NameValue<AstNode>> vars) {
 		VariableDeclaration varDecl = new VariableDeclaration();
 		varDecl.setIsStatement(statement);
+		varDecl.setType(kind.getJavaScript());
 		for (NameValue<AstNode> v : vars) {
 			VariableInitializer var = new VariableInitializer();
 			var.setTarget(name(v.getName()));
@@ -398,9 +454,10 @@ public class RhinoJavaScriptBuilder implements JavaScriptBuilder<AstNode> {
 	}
 
 	@Override
-	public AstNode variableDeclaration(boolean statement, CharSequence name, AstNode init) {
+	public AstNode variableDeclaration(boolean statement, VariableKind kind, CharSequence name, AstNode init) {
 		VariableDeclaration vars = new VariableDeclaration();
 		vars.setIsStatement(statement);
+		vars.setType(kind.getJavaScript());
 		VariableInitializer var = new VariableInitializer();
 		var.setTarget(name(name));
 		var.setInitializer(init);
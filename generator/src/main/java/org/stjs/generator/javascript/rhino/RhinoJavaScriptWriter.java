@@ -412,6 +412,82 @@ public class RhinoJavaScriptWriter implements AstVisitor<Boolean> {
 		// }
 	}
 
+	@Override
+	public void visitArrowFunction(ArrowFunction f, Boolean param) {
+		print("(");
+		printList(f.getParams(), param);
+		print(") => ");
+		if (f.getBody() instanceof ObjectLiteral) {
+			// the braces of an object literal would be taken for a block
+			print("(");
+			visitorSupport.accept(f.getBody(), this, param);
+			print(")");
+		} else {
+			visitorSupport.accept(f.getBody(), this, param);
+		}
+	}
+
+	@Override
+	public void visitClassExpression(ClassExpression c, Boolean param) {
+		print("class");
+		if (c.getClassName() != null) {
+			print(" ");
+			visitorSupport.accept(c.getClassName(), this, param);
+		}
+		if (c.getSuperClass() != null) {
+			print(" extends ");
+			visitorSupport.accept(c.getSuperClass(), this, param);
+		}
+		if (c.getMembers().isEmpty()) {
+			print(" {}");
+			return;
+		}
+		println(" {").indent();
+		for (ClassMethod member : c.getMembers()) {
+			visitorSupport.accept(member, this, param);
+			println();
+		}
+		unindent().print("}");
+	}
+
+	@Override
+	public void visitClassMethod(ClassMethod m, Boolean param) {
+		printComments(m);
+		if (m.isStatic()) {
+			print("static ");
+		}
+		visitorSupport.accept(m.getMethodName(), this, param);
+		FunctionNode f = m.getFunction();
+		print("(");
+		printList(f.getParams(), param);
+		print(") ");
+		visitorSupport.accept(f.getBody(), this, param);
+	}
+
+	@Override
+	public void visitImportDeclaration(ImportDeclaration i, Boolean param) {
+		print("import ");
+		if (i.getImportedName() != null) {
+			print("{ ");
+			visitorSupport.accept(i.getImportedName(), this, param);
+			print(" } from ");
+		}
+		print("\"").print(ScriptRuntime.escapeString(i.getModule(), '"')).println("\";");
+	}
+
+	@Override
+	public void visitExportDeclaration(ExportDeclaration e, Boolean param) {
+		if (e.isDefault()) {
+			print("export default ");
+			visitorSupport.accept(e.getExported(), this, param);
+		} else {
+			print("export { ");
+			visitorSupport.accept(e.getExported(), this, param);
+			print(" }");
+		}
+		println(";");
+	}
+
 	@Override
 	public void visitIfStatement(IfStatement ifs, Boolean param) {
 		startPosition(ifs);
@@ -631,7 +707,7 @@ public class RhinoJavaScriptWriter implements AstVisitor<Boolean> {
 		if (v.isStatement()) {
 			startPosition(v);
 		}
-		print("var ");
+		print(variableKeyword(v));
 		printList(v.getVariables(), param);
 		if (v.isStatement()) {
 			println(";");
@@ -639,6 +715,16 @@ public class RhinoJavaScriptWriter implements AstVisitor<Boolean> {
 		}
 	}
 
+	private String variableKeyword(VariableDeclaration v) {
+		if (v.getType() == Token.LET) {
+			return "let ";
+		}
+		if (v.getType() == Token.CONST) {
+			return "const ";
+		}
+		return "var ";
+	}
+
 	@Override
 	public void visitVariableInitializer(VariableInitializer v, Boolean param) {
 		visitorSupport.accept(v.getTarget(), this, param);
@@ -51,7 +51,7 @@ import org.mozilla.javascript.ast.WhileLoop;
  * @author acraciun
  */
 @edu.umd.cs.findbugs.annotations.SuppressWarnings(justification = "The type check is done by looking in the map", value = "BC_UNCONFIRMED_CAST")
-@SuppressWarnings("PMD.CouplingBetweenObjects")
+@SuppressWarnings({ "PMD.CouplingBetweenObjects", "PMD.ExcessivePublicCount" })
 public class RhinoNodeVisitorSupport {
 	private static Map<Class<?>, Caller> callers = new HashMap<Class<?>, Caller>();
 
@@ -316,6 +316,36 @@ public class RhinoNodeVisitorSupport {
 				visitor.visitJsxExpression((JsxExpression) node, param);
 			}
 		});
+		addCaller(ArrowFunction.class, new Caller() {
+			@Override
+			public <T> void call(Node node, AstVisitor<T> visitor, T param) {
+				visitor.visitArrowFunction((ArrowFunction) node, param);
+			}
+		});
+		addCaller(ClassExpression.class, new Caller() {
+			@Override
+			public <T> void call(Node node, AstVisitor<T> visitor, T param) {
+				visitor.visitClassExpression((ClassExpression) node, param);
+			}
+		});
+		addCaller(ClassMethod.class, new Caller() {
+			@Override
+			public <T> void call(Node node, AstVisitor<T> visitor, T param) {
+				visitor.visitClassMethod((ClassMethod) node, param);
+			}
+		});
+		addCaller(ImportDeclaration.class, new Caller() {
+			@Override
+			public <T> void call(Node node, AstVisitor<T> visitor, T param) {
+				visitor.visitImportDeclaration((ImportDeclaration) node, param);
+			}
+		});
+		addCaller(ExportDeclaration.class, new Caller() {
+			@Override
+			public <T> void call(Node node, AstVisitor<T> visitor, T param) {
+				visitor.visitExportDeclaration((ExportDeclaration) node, param);
+			}
+		});
 	}
 
 	public <T> void accept(Node node, AstVisitor<T> visitor, T param) {
@@ -1,6 +1,7 @@
 package org.stjs.generator.plugin;
 
 import org.stjs.generator.GenerationContext;
+import org.stjs.generator.GeneratorConstants;
 import org.stjs.generator.check.CheckVisitor;
 import org.stjs.generator.check.declaration.ArrayTypeForbiddenCheck;
 import org.stjs.generator.check.declaration.ClassDuplicateMemberNameCheck;
@@ -21,6 +22,7 @@ import org.stjs.generator.check.expression.IdentifierGlobalScopeNameClashCheck;
 import org.stjs.generator.check.expression.MemberSelectGlobalScopeNameClashCheck;
 import org.stjs.generator.check.expression.MemberSelectOuterScopeCheck;
 import org.stjs.generator.check.expression.MemberSelectServerSideCheck;
+import org.stjs.generator.check.expression.MemberSelectTypedArrayCheck;
 import org.stjs.generator.check.expression.MethodInvocationMapConstructorCheck;
 import org.stjs.generator.check.expression.MethodInvocationOuterScopeCheck;
 import org.stjs.generator.check.expression.MethodInvocationServerSideCheck;
@@ -30,6 +32,7 @@ import org.stjs.generator.check.expression.NewClassInlineFunctionCheck;
 import org.stjs.generator.check.expression.NewClassObjectInitCheck;
 import org.stjs.generator.check.statement.AssertCheck;
 import org.stjs.generator.check.statement.BlockInstanceCheck;
+import org.stjs.generator.check.statement.EnhancedForLoopTypedArrayCheck;
 import org.stjs.generator.check.statement.SynchronizedCheck;
 import org.stjs.generator.check.statement.VariableFinalInLoopCheck;
 import org.stjs.generator.check.statement.VariableWrongNameCheck;
@@ -140,6 +143,8 @@ public class MainGenerationPlugin<JS> implements STJSGenerationPlugin<JS> {
 		visitor.contribute(new ArrayTypeForbiddenCheck());
 		visitor.contribute(new ClassEnumWithoutMembersCheck());
 		visitor.contribute(new NewArrayForbiddenCheck());
+		visitor.contribute(new MemberSelectTypedArrayCheck());
+		visitor.contribute(new EnhancedForLoopTypedArrayCheck());
 
 		visitor.contribute(new BlockInstanceCheck());
 		visitor.contribute(new MethodInvocationMapConstructorCheck());
@@ -269,7 +274,7 @@ public class MainGenerationPlugin<JS> implements STJSGenerationPlugin<JS> {
 	protected void addFieldTemplates(WriterVisitor<JS> visitor) {
 		String none = "none";
 		String property = "property";
-		String gproperty = "gproperty";
+		String gproperty = GeneratorConstants.GLOBAL_PROPERTY_TEMPLATE;
 		String path = "path";
 
 		visitor.contribute(assignTemplate(none), new DefaultAssignmentTemplate<JS>());
@@ -195,18 +195,30 @@ public abstract class AbstractStjsTest {
 		return executeOrGenerate(clazz, execute, withSourceMap, null);
 	}
 
+	private static String getGenerationVariant(GeneratorConfiguration extraConfig) {
+		if (extraConfig == null) {
+			return "";
+		}
+		String variant = extraConfig.getJavaScriptTarget().isES2015() ? "-es2015" : "";
+		return extraConfig.isGenerateEsModules() ? variant + "-modules" : variant;
+	}
+
 	/**
 	 * @return the javascript code generator from the given class
 	 */
 	private Object executeOrGenerate(Class<?> clazz, boolean execute, boolean withSourceMap, GeneratorConfiguration extraConfig) {
 
-		File generationPath = new File("target", TEMP_GENERATION_PATH);
+		// the files generated for ES2015 or as modules must not be reused as dependencies by the ES5 tests
+		String variant = getGenerationVariant(extraConfig);
+		String generationDir = TEMP_GENERATION_PATH + variant;
+		String targetDir = "test-classes" + variant;
+		File generationPath = new File("target", generationDir);
 		// We must create the output directory before building paths, or file.toURI will not include a trailing slash,
 		// which fucks up URI.resolve
 		if (!generationPath.exists() && !generationPath.mkdirs()) {
 			throw new STJSRuntimeException("Unable to create generation directory");
 		}
-		GenerationDirectory generationFolder = new GenerationDirectory(generationPath, new File(TEMP_GENERATION_PATH), generationPath.toURI());
+		GenerationDirectory generationFolder = new GenerationDirectory(generationPath, new File(generationDir), generationPath.toURI());
 		final File sourcePath = new File("src/test/java");
 		File resourcePath = new File("src/test/resources");
 		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
@@ -218,7 +230,7 @@ public abstract class AbstractStjsTest {
 				.generateSourceMap(withSourceMap) //
 				.stjsClassLoader(classLoader) //
 				.generationFolder(generationFolder)
-				.targetFolder(new File("target", "test-classes"))
+				.targetFolder(new File("target", targetDir))
 				.classResolver(new LazyGenerationClassResolver(classLoader, new LazyGenerator() {
 					@Override
 					public ClassWithJavascript generateJavaScript(String className) {
@@ -247,6 +259,10 @@ public abstract class AbstractStjsTest {
 					}
 				}
 			}
+			if (!execute && !variant.isEmpty()) {
+				// the JavaScript engine of the JDK can only check ES5 scripts
+				return content;
+			}
 			ExecutionResult execResult = new RhinoExecutor().run(javascriptFiles, !execute);
 			if (execute) {
 				return execResult.getResult();
@@ -1,14 +1,19 @@
 package org.stjs.generator.utils;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 
+import org.stjs.generator.GenerationContext;
 import org.stjs.generator.GeneratorConstants;
 import org.stjs.generator.JavascriptClassGenerationException;
 import org.stjs.generator.javac.TreeUtils;
@@ -23,6 +28,14 @@ import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 
 public final class JavaNodes {
+	private static final Map<TypeKind, String> TYPED_ARRAYS = new EnumMap<TypeKind, String>(TypeKind.class);
+
+	static {
+		TYPED_ARRAYS.put(TypeKind.DOUBLE, "Float64Array");
+		TYPED_ARRAYS.put(TypeKind.FLOAT, "Float32Array");
+		TYPED_ARRAYS.put(TypeKind.INT, "Int32Array");
+		TYPED_ARRAYS.put(TypeKind.BYTE, "Int8Array");
+	}
 
 	private JavaNodes() {
 		// private
@@ -94,6 +107,17 @@ public final class JavaNodes {
 		return TypesUtils.isPrimitive(type) || TypesUtils.isBoxedPrimitive(type) || TypesUtils.isString(type);
 	}
 
+	/**
+	 * @return the name of the JavaScript typed array that is generated for the given Java array type, or null if the type is not an
+	 *         array of double, float, int or byte or if the typed arrays are not enabled in the configuration
+	 */
+	public static String getTypedArrayName(GenerationContext<?> context, TypeMirror type) {
+		if (!context.getConfiguration().isTypedArrays() || !(type instanceof ArrayType)) {
+			return null;
+		}
+		return TYPED_ARRAYS.get(((ArrayType) type).getComponentType().getKind());
+	}
+
 	public static Element elementFromDeclaration(Tree tree) {
 		if (tree instanceof MethodTree) {
 			return TreeUtils.elementFromDeclaration((MethodTree) tree);
@@ -20,6 +20,7 @@ import org.stjs.generator.GenerationContext;
 import org.stjs.generator.GeneratorConstants;
 import org.stjs.generator.javac.AnnotationHelper;
 import org.stjs.generator.javac.ElementUtils;
+import org.stjs.generator.javac.InternalUtils;
 import org.stjs.generator.javac.TreeUtils;
 import org.stjs.generator.javac.TreeWrapper;
 import org.stjs.generator.javac.TypesUtils;
@@ -48,6 +49,7 @@ import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 
 public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
+	private final FieldWriter<JS> fieldWriter = new FieldWriter<JS>();
 
 	/**
 	 * generate the namespace declaration stjs.ns("namespace") if needed
@@ -70,19 +72,30 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 	 * @return the node to put in the super class. for intefaces, the super class goes also in the interfaces list
 	 */
 	private JS getSuperClass(ClassTree clazz, GenerationContext<JS> context) {
-		Element type = TreeUtils.elementFromDeclaration(clazz);
-		if (clazz.getExtendsClause() == null || type.getKind() == ElementKind.INTERFACE) {
+		String superClassName = getSuperClassName(clazz, context);
+		if (superClassName == null) {
 			// no super class found
 			return context.js().keyword(Keyword.NULL);
 		}
+		return context.js().name(superClassName);
+	}
+
+	/**
+	 * @return the name of the super class or null if the type has no (non-synthetic) super class
+	 */
+	private String getSuperClassName(ClassTree clazz, GenerationContext<JS> context) {
+		Element type = TreeUtils.elementFromDeclaration(clazz);
+		if (clazz.getExtendsClause() == null || type.getKind() == ElementKind.INTERFACE) {
+			return null;
+		}
 
 		TreeWrapper<Tree, JS> superType = context.getCurrentWrapper().child(clazz.getExtendsClause());
 		if (superType.isSyntheticType()) {
-			return context.js().keyword(Keyword.NULL);
+			return null;
 		}
 
 		DependencyType depType = getDependencyTypeForClassDef(type);
-		return context.js().name(superType.getTypeName(depType));
+		return superType.getTypeName(depType);
 	}
 
 	private DependencyType getDependencyTypeForClassDef(Element type) {
@@ -130,8 +143,69 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 				}
 			}
 		}
-		// no constructor found : interfaces, return an empty function
-		return context.js().function(null, Collections.<JS> emptyList(), null);
+		// no constructor found : interfaces, return an empty function (that may still initialize the fields)
+		List<JS> fieldInitializers = fieldWriter.getConstructorInitializers(visitor, context.getCurrentPath(), context);
+		JS body = fieldInitializers.isEmpty() ? null : context.js().block(fieldInitializers);
+		return context.js().function(null, Collections.<JS> emptyList(), body);
+	}
+
+	/**
+	 * @return the ES2015 class for the types generated as classes. The constructor and the methods are declared in the class' body,
+	 *         while the fields and the inner types are still assigned by the initializer function.
+	 */
+	private JS getClassExpression(WriterVisitor<JS> visitor, ClassTree clazz, GenerationContext<JS> context) {
+		JavaScriptBuilder<JS> js = context.js();
+		TypeElement type = TreeUtils.elementFromDeclaration(clazz);
+		// the call to the Object constructor is not generated, so Object cannot be extended explicitly
+		String superClassName = JavaNodes.sameRawType(type.getSuperclass(), Object.class) ? null : getSuperClassName(clazz, context);
+		List<JS> methods = getClassMethods(visitor, clazz, superClassName != null, context);
+
+		// anonymous classes keep their Type$1 name
+		boolean anonymousClass = clazz.getSimpleName().length() == 0;
+		String name = anonymousClass ? InternalUtils.getSimpleName(type) : null;
+		return js.classExpression(name, superClassName == null ? null : js.name(superClassName), methods);
+	}
+
+	private List<JS> getClassMethods(WriterVisitor<JS> visitor, ClassTree clazz, boolean hasSuperClass, GenerationContext<JS> context) {
+		List<JS> methods = new ArrayList<JS>();
+		boolean hasConstructor = false;
+		for (Tree member : clazz.getMembers()) {
+			JS node = member instanceof MethodTree ? visitor.scan(member, context) : null;
+			if (node != null) {
+				methods.add(node);
+				hasConstructor |= JavaNodes.isConstructor(member);
+			}
+		}
+		if (!hasConstructor) {
+			addDefaultClassConstructor(visitor, hasSuperClass, context, methods);
+		}
+		return methods;
+	}
+
+	/**
+	 * no constructor was generated: add one if the fields must still be initialized
+	 */
+	private void addDefaultClassConstructor(WriterVisitor<JS> visitor, boolean hasSuperClass, GenerationContext<JS> context, List<JS> methods) {
+		List<JS> fieldInitializers = fieldWriter.getConstructorInitializers(visitor, context.getCurrentPath(), context);
+		if (fieldInitializers.isEmpty()) {
+			return;
+		}
+		JavaScriptBuilder<JS> js = context.js();
+		if (hasSuperClass) {
+			fieldInitializers.add(0, js.expressionStatement(js.functionCall(js.name(GeneratorConstants.SUPER), Collections.<JS> emptyList())));
+		}
+		JS constructor = js.function(null, Collections.<JS> emptyList(), js.block(fieldInitializers));
+		methods.add(0, js.classMethod(false, JavascriptKeywords.CONSTRUCTOR, constructor));
+	}
+
+	/**
+	 * @return the JavaScript node for the type: the constructor function or, for the types generated as classes, the class itself
+	 */
+	private JS getTypeConstructor(WriterVisitor<JS> visitor, ClassTree clazz, GenerationContext<JS> context) {
+		if (context.getCurrentWrapper().isGeneratedAsClass()) {
+			return getClassExpression(visitor, clazz, context);
+		}
+		return getConstructor(visitor, clazz, context);
 	}
 
 	private List<Tree> getAllMembersExceptConstructors(ClassTree clazz) {
@@ -144,6 +218,16 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 		return nonConstructors;
 	}
 
+	private List<Tree> getAllMembersExceptMethods(List<Tree> members) {
+		List<Tree> nonMethods = new ArrayList<Tree>();
+		for (Tree member : members) {
+			if (!(member instanceof MethodTree)) {
+				nonMethods.add(member);
+			}
+		}
+		return nonMethods;
+	}
+
 	/**
 	 * @return the JavaScript node for the class' members
 	 */
@@ -153,6 +237,10 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 		// - abstract methods (they should be omitted)
 
 		List<Tree> nonConstructors = getAllMembersExceptConstructors(clazz);
+		if (context.getCurrentWrapper().isGeneratedAsClass()) {
+			// the methods are declared in the class' body
+			nonConstructors = getAllMembersExceptMethods(nonConstructors);
+		}
 
 		if (nonConstructors.isEmpty()) {
 			return context.js().keyword(Keyword.NULL);
@@ -224,7 +312,7 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 		if (JavaNodes.isJavaScriptPrimitive(type)) {
 			return js.keyword(Keyword.NULL);
 		}
-		JS typeName = js.string(context.getNames().getTypeName(context, type, DependencyType.OTHER));
+		JS typeName = js.string(getFieldTypeName(type, context));
 
 		if (type instanceof DeclaredType) {
 			DeclaredType declaredType = (DeclaredType) type;
@@ -248,6 +336,14 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 		return typeName;
 	}
 
+	private String getFieldTypeName(TypeMirror type, GenerationContext<JS> context) {
+		String typedArrayName = JavaNodes.getTypedArrayName(context, type);
+		if (typedArrayName != null) {
+			return typedArrayName;
+		}
+		return context.getNames().getTypeName(context, type, DependencyType.OTHER);
+	}
+
 	@SuppressWarnings("unused")
 	private JS getTypeDescription(WriterVisitor<JS> visitor, ClassTree tree, GenerationContext<JS> context) {
 		// if (isGlobal(type)) {
@@ -470,11 +566,12 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 		if (typeName.contains(".")) {
 			// inner class or namespace
 			// generate [ns.]typeName = function() {...}
-			stmts.add(js.expressionStatement(js.assignment(AssignOperator.ASSIGN, getClassName(tree, context), getConstructor(visitor, tree, context))));
+			stmts.add(js.expressionStatement(js.assignment(AssignOperator.ASSIGN, getClassName(tree, context),
+					getTypeConstructor(visitor, tree, context))));
 		} else {
 			// regular class
 			// generate var typeName = function() {...}
-			stmts.add(js.variableDeclaration(true, typeName, getConstructor(visitor, tree, context)));
+			stmts.add(js.variableDeclaration(true, typeName, getTypeConstructor(visitor, tree, context)));
 		}
 	}
 
@@ -521,7 +618,7 @@ public class ClassWriter<JS> implements WriterContributor<ClassTree, JS> {
 
 		if (anonymousClass) {
 			// anonymous class
-			name = getConstructor(visitor, tree, context);
+			name = getTypeConstructor(visitor, tree, context);
 		}
 		addConstructorStatement(visitor, tree, context, stmts);
 
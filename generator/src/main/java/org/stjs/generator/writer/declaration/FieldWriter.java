@@ -1,9 +1,12 @@
 package org.stjs.generator.writer.declaration;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.type.TypeMirror;
 
 import org.stjs.generator.GenerationContext;
@@ -18,7 +21,10 @@ import org.stjs.generator.writer.WriterVisitor;
 
 import com.google.common.base.Defaults;
 import com.google.common.primitives.Primitives;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
 
 /**
  * This will add the declaration of a field. This contributor is not added directly, but redirect from
@@ -56,6 +62,54 @@ public class FieldWriter<JS> extends AbstractMemberWriter<JS> implements WriterC
 		return context.js().keyword(Keyword.NULL);
 	}
 
+	private JS getInitializer(WriterVisitor<JS> visitor, VariableTree tree, TreeWrapper<VariableTree, JS> tw, GenerationContext<JS> context) {
+		if (tree.getInitializer() != null) {
+			return visitor.scan(tree.getInitializer(), context);
+		}
+		if (tw.isPrimitiveType()) {
+			return getPrimitiveDefaultValue(tw.getElement(), context);
+		}
+		return context.js().keyword(Keyword.NULL);
+	}
+
+	/**
+	 * @return true if the field is initialized by the constructor instead of the prototype
+	 */
+	private boolean isInitializedInConstructor(TreeWrapper<VariableTree, JS> tw, GenerationContext<JS> context) {
+		return context.getConfiguration().isGenerateFieldsInConstructor() && tw.getElement().getKind() == ElementKind.FIELD
+				&& !tw.isStatic() && !tw.getEnclosingType().isGlobal();
+	}
+
+	/**
+	 * @return the statements this.field = init; for each instance field of the given class, in the declaration order. Used by the
+	 *         constructors when {@link org.stjs.generator.GeneratorConfiguration#isGenerateFieldsInConstructor()} is set.
+	 */
+	public List<JS> getConstructorInitializers(WriterVisitor<JS> visitor, TreePath classPath, GenerationContext<JS> context) {
+		List<JS> stmts = new ArrayList<JS>();
+		TreePath prevPath = context.getCurrentPath();
+		try {
+			for (Tree member : ((ClassTree) classPath.getLeaf()).getMembers()) {
+				if (!(member instanceof VariableTree)) {
+					continue;
+				}
+				context.setCurrentPath(new TreePath(classPath, member));
+				TreeWrapper<VariableTree, JS> tw = context.getCurrentWrapper();
+				if (MemberWriters.shouldSkip(tw) || !isInitializedInConstructor(tw, context)) {
+					continue;
+				}
+				VariableTree field = (VariableTree) member;
+				JS target = context.js().property(context.js().keyword(Keyword.THIS), field.getName().toString());
+				JS init = getInitializer(visitor, field, tw, context);
+				stmts.add(context.withPosition(field,
+						context.js().expressionStatement(context.js().assignment(AssignOperator.ASSIGN, target, init))));
+			}
+		}
+		finally {
+			context.setCurrentPath(prevPath);
+		}
+		return stmts;
+	}
+
 	@Override
 	public JS visit(WriterVisitor<JS> visitor, VariableTree tree, GenerationContext<JS> context) {
 		TreeWrapper<VariableTree, JS> tw = context.getCurrentWrapper();
@@ -65,17 +119,13 @@ public class FieldWriter<JS> extends AbstractMemberWriter<JS> implements WriterC
 		// load the type of the variable
 		context.getCurrentWrapper().child(tree.getType()).getTypeName(DependencyType.OTHER);
 
-		JS initializer = null;
-		if (tree.getInitializer() == null) {
-			if (tw.isPrimitiveType()) {
-				initializer = getPrimitiveDefaultValue(tw.getElement(), context);
-			} else {
-				initializer = context.js().keyword(Keyword.NULL);
-			}
-		} else {
-			initializer = visitor.scan(tree.getInitializer(), context);
+		if (isInitializedInConstructor(tw, context)) {
+			// this.field = init; is added by the constructor
+			return null;
 		}
 
+		JS initializer = getInitializer(visitor, tree, tw, context);
+
 		String fieldName = tree.getName().toString();
 		if (tw.getEnclosingType().isGlobal()) {
 			// var field = init; //for global types
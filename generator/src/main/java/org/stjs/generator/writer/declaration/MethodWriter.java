@@ -12,6 +12,7 @@ import org.stjs.generator.javac.TreeUtils;
 import org.stjs.generator.javac.TreeWrapper;
 import org.stjs.generator.javascript.AssignOperator;
 import org.stjs.generator.utils.JavaNodes;
+import org.stjs.generator.writer.JavascriptKeywords;
 import org.stjs.generator.writer.MemberWriters;
 import org.stjs.generator.writer.WriterContributor;
 import org.stjs.generator.writer.WriterVisitor;
@@ -43,6 +44,23 @@ public class MethodWriter<JS> extends AbstractMemberWriter<JS> implements Writer
 		return false;
 	}
 
+	/**
+	 * @return true if the method is declared in the body of an ES2015 class
+	 */
+	private boolean isClassMethod(TreeWrapper<Tree, JS> treeWrapper) {
+		return treeWrapper.getEnclosingType().isGeneratedAsClass() && !isMethodOfJavascriptFunction(treeWrapper);
+	}
+
+	/**
+	 * [static] name(params) {...} in the body of the class. The constructor is called "constructor"
+	 */
+	private JS getClassMethod(TreeWrapper<MethodTree, JS> tw, List<JS> params, JS body) {
+		GenerationContext<JS> context = tw.getContext();
+		String methodName = JavaNodes.isConstructor(tw.getTree()) ? JavascriptKeywords.CONSTRUCTOR : context.getNames().getMethodName(context,
+				tw.getTree(), context.getCurrentPath());
+		return context.js().classMethod(tw.isStatic(), methodName, context.js().function(null, params, body));
+	}
+
 	private String getAnonymousTypeConstructorName(MethodTree tree, GenerationContext<JS> context) {
 		if (!JavaNodes.isConstructor(tree)) {
 			return null;
@@ -97,6 +115,10 @@ public class MethodWriter<JS> extends AbstractMemberWriter<JS> implements Writer
 
 		JS body = visitor.scan(tree.getBody(), context);
 
+		if (isClassMethod(context.getCurrentWrapper())) {
+			return getClassMethod(tw, params, body);
+		}
+
 		// set if needed Type$1 name, if this is an anonymous type constructor
 		String name = getAnonymousTypeConstructorName(tree, context);
 
@@ -7,7 +7,8 @@ import org.stjs.generator.writer.WriterVisitor;
 import com.sun.source.tree.ArrayAccessTree;
 
 /**
- * array access -> used only in very specific case, otherwise the arrays are forbidden
+ * array access -> used only in very specific case (like the arrays of numbers generated as typed arrays), otherwise the arrays are
+ * forbidden
  * 
  * @author acraciun
  * 
@@ -1,20 +1,49 @@
 package org.stjs.generator.writer.expression;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.stjs.generator.GenerationContext;
+import org.stjs.generator.javac.InternalUtils;
+import org.stjs.generator.javascript.JavaScriptBuilder;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.WriterContributor;
 import org.stjs.generator.writer.WriterVisitor;
 
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.NewArrayTree;
 
 /**
- * useless as arrays are supposed to be checked before
- * 
+ * the arrays are supposed to be checked before, only the arrays of numbers generated as typed arrays arrive here:
+ *
+ * <pre>
+ * new double[n] -&gt; new Float64Array(n)
+ * new double[] {1, 2} -&gt; new Float64Array([1, 2])
+ * </pre>
+ *
  * @author acraciun
  */
 public class NewArrayWriter<JS> implements WriterContributor<NewArrayTree, JS> {
 
 	@Override
 	public JS visit(WriterVisitor<JS> visitor, NewArrayTree tree, GenerationContext<JS> context) {
-		throw context.addError(tree, "Java arrays are not supported. This is a ST-JS bug.");
+		String typedArrayName = JavaNodes.getTypedArrayName(context, InternalUtils.typeOf(tree));
+		if (typedArrayName == null) {
+			throw context.addError(tree, "Java arrays are not supported. This is a ST-JS bug.");
+		}
+
+		JavaScriptBuilder<JS> js = context.js();
+		JS arg;
+		if (tree.getInitializers() == null) {
+			arg = visitor.scan(tree.getDimensions().get(0), context);
+		} else {
+			List<JS> values = new ArrayList<JS>();
+			for (ExpressionTree init : tree.getInitializers()) {
+				values.add(visitor.scan(init, context));
+			}
+			arg = js.array(values);
+		}
+		return js.newExpression(js.name(typedArrayName), Collections.singleton(arg));
 	}
 }
@@ -5,13 +5,18 @@ import java.util.Collections;
 import java.util.List;
 
 import org.stjs.generator.GenerationContext;
+import org.stjs.generator.javac.TreeUtils;
 import org.stjs.generator.javascript.JavaScriptBuilder;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.WriterContributor;
 import org.stjs.generator.writer.WriterVisitor;
+import org.stjs.generator.writer.declaration.FieldWriter;
 
 import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.StatementTree;
 import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
 
 /**
  * regular blocks. The static blocks are wrapped in a anonymous function to prevent global scope pollution.
@@ -20,6 +25,7 @@ import com.sun.source.tree.VariableTree;
  */
 public class BlockWriter<JS> implements WriterContributor<BlockTree, JS> {
 	private final MultipleVariableWriter<JS> multipleVariableWriter = new MultipleVariableWriter<JS>();
+	private final FieldWriter<JS> fieldWriter = new FieldWriter<JS>();
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -42,6 +48,7 @@ public class BlockWriter<JS> implements WriterContributor<BlockTree, JS> {
 			}
 			jsStatements.add(jsNodes);
 		}
+		addFieldInitializers(visitor, tree, context, jsStatements);
 		JS block = js.block(jsStatements);
 
 		if (tree.isStatic()) {
@@ -53,6 +60,26 @@ public class BlockWriter<JS> implements WriterContributor<BlockTree, JS> {
 		return context.withPosition(tree, block);
 	}
 
+	/**
+	 * when the fields are generated in the constructor, they are initialized right after the call to the super constructor, so the
+	 * inherited fields come always first. Constructors calling this(...) leave the initialization to the called constructor.
+	 */
+	private void addFieldInitializers(WriterVisitor<JS> visitor, BlockTree tree, GenerationContext<JS> context, List<JS> jsStatements) {
+		if (!context.getConfiguration().isGenerateFieldsInConstructor()) {
+			return;
+		}
+		TreePath methodPath = context.getCurrentPath().getParentPath();
+		if (!JavaNodes.isConstructor(methodPath.getLeaf())) {
+			return;
+		}
+		MethodTree constructor = (MethodTree) methodPath.getLeaf();
+		if (constructor.getBody() != tree || TreeUtils.containsThisConstructorInvocation(constructor)) {
+			return;
+		}
+		int pos = TreeUtils.containsSuperConstructorInvocation(constructor) ? 1 : 0;
+		jsStatements.addAll(pos, fieldWriter.getConstructorInitializers(visitor, methodPath.getParentPath(), context));
+	}
+
 	/**
 	 * @return the
 	 */
@@ -7,6 +7,8 @@ import org.stjs.generator.javac.InternalUtils;
 import org.stjs.generator.javac.TypesUtils;
 import org.stjs.generator.javascript.JavaScriptBuilder;
 import org.stjs.generator.javascript.UnaryOperator;
+import org.stjs.generator.javascript.VariableKind;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.WriterContributor;
 import org.stjs.generator.writer.WriterVisitor;
 import org.stjs.javascript.Array;
@@ -117,11 +119,12 @@ public class EnhancedForLoopWriter<JS> implements WriterContributor<EnhancedForL
 
 		String newIteratorName = "iterator$" + initialForLoopVariableName;
 		JS forLoopIterator = js.name(newIteratorName);
-		JS init = js.variableDeclaration(false, newIteratorName, iteratorMethodCall);
+		JS init = js.variableDeclaration(false, VariableWriter.getVariableKind(context, true), newIteratorName, iteratorMethodCall);
 		JS condition = js.functionCall(js.property(forLoopIterator, "hasNext"), Collections.<JS>emptyList());
 		JS update = js.emptyExpression();
 
-		JS iteratorNextStatement = js.variableDeclaration(true, initialForLoopVariableName,
+		VariableKind kind = VariableWriter.getVariableKind(context, JavaNodes.isFinal(tree.getVariable()));
+		JS iteratorNextStatement = js.variableDeclaration(true, kind, initialForLoopVariableName,
 			js.functionCall(js.property(forLoopIterator, "next"), Collections.<JS>emptyList()));
 		JS newBody = js.addStatementBeginning(body, iteratorNextStatement);
 
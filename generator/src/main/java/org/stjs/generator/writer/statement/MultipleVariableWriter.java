@@ -5,6 +5,8 @@ import java.util.List;
 
 import org.stjs.generator.GenerationContext;
 import org.stjs.generator.javascript.NameValue;
+import org.stjs.generator.javascript.VariableKind;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.WriterVisitor;
 
 import com.sun.source.tree.VariableTree;
@@ -23,13 +25,16 @@ public class MultipleVariableWriter<JS> {
 			return context.js().emptyStatement();
 		}
 		List<NameValue<JS>> vars = new ArrayList<NameValue<JS>>();
+		boolean constant = true;
 		for (VariableTree tree : trees) {
 			JS init = null;
 			if (tree.getInitializer() != null) {
 				init = visitor.scan(tree.getInitializer(), context);
 			}
 			vars.add(NameValue.of(tree.getName(), init));
+			constant &= init != null && JavaNodes.isFinal(tree);
 		}
-		return context.withPosition(trees.get(0), context.js().variableDeclaration(isStatement, vars));
+		VariableKind kind = VariableWriter.getVariableKind(context, constant);
+		return context.withPosition(trees.get(0), context.js().variableDeclaration(isStatement, kind, vars));
 	}
 }
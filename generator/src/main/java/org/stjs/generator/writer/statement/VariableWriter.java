@@ -1,11 +1,14 @@
 package org.stjs.generator.writer.statement;
 
 import org.stjs.generator.GenerationContext;
+import org.stjs.generator.javascript.VariableKind;
 import org.stjs.generator.name.DependencyType;
+import org.stjs.generator.utils.JavaNodes;
 import org.stjs.generator.writer.WriterContributor;
 import org.stjs.generator.writer.WriterVisitor;
 import org.stjs.generator.writer.declaration.FieldWriter;
 
+import com.sun.source.tree.CaseTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.EnhancedForLoopTree;
 import com.sun.source.tree.ForLoopTree;
@@ -32,6 +35,26 @@ public class VariableWriter<JS> implements WriterContributor<VariableTree, JS> {
 		return false;
 	}
 
+	/**
+	 * @return var for ES5. For ES2015 const if the variable is never re-assigned, let otherwise
+	 */
+	public static VariableKind getVariableKind(GenerationContext<?> context, boolean constant) {
+		if (!context.getConfiguration().getJavaScriptTarget().isES2015()) {
+			return VariableKind.VAR;
+		}
+		return constant ? VariableKind.CONST : VariableKind.LET;
+	}
+
+	private VariableKind getVariableKind(VariableTree tree, GenerationContext<JS> context) {
+		Tree parent = context.getCurrentPath().getParentPath().getLeaf();
+		if (parent instanceof CaseTree) {
+			// the cases share the same scope, but a variable declared in a case may be used by the next ones
+			return VariableKind.VAR;
+		}
+		boolean initialized = tree.getInitializer() != null || parent instanceof EnhancedForLoopTree;
+		return getVariableKind(context, initialized && JavaNodes.isFinal(tree));
+	}
+
 	@Override
 	public JS visit(WriterVisitor<JS> visitor, VariableTree tree, GenerationContext<JS> context) {
 		if (isFieldDeclaration(context)) {
@@ -46,6 +69,6 @@ public class VariableWriter<JS> implements WriterContributor<VariableTree, JS> {
 		if (tree.getInitializer() != null) {
 			init = visitor.scan(tree.getInitializer(), context);
 		}
-		return context.withPosition(tree, context.js().variableDeclaration(isStatement, tree.getName(), init));
+		return context.withPosition(tree, context.js().variableDeclaration(isStatement, getVariableKind(tree, context), tree.getName(), init));
 	}
 }
@@ -47,14 +47,17 @@ public class DefaultTemplate<JS> implements WriterContributor<MethodInvocationTr
 
 		String methodName = MethodInvocationWriter.buildMethodName(tree);
 
-		// avoid useless call to super() when the super class is Object
-		if (GeneratorConstants.SUPER.equals(methodName) && JavaNodes.sameRawType(typeElement.asType(), Object.class)) {
-			return null;
-		}
-
-		// avoid call to super for synthetic types
-		if (GeneratorConstants.SUPER.equals(methodName) && context.getCurrentWrapper().getEnclosingType().isSyntheticType()) {
-			return null;
+		if (GeneratorConstants.SUPER.equals(methodName)) {
+			// avoid useless call to super() when the super class is Object and the call to super for synthetic types
+			if (JavaNodes.sameRawType(typeElement.asType(), Object.class) || context.getCurrentWrapper().getEnclosingType().isSyntheticType()) {
+				return null;
+			}
+
+			// super(args) stays as it is in the types generated as ES2015 classes
+			if (context.getCurrentWrapper().getCurrentType().isGeneratedAsClass()) {
+				List<JS> arguments = MethodInvocationWriter.buildArguments(visitor, tree, context);
+				return context.js().functionCall(context.js().name(GeneratorConstants.SUPER), arguments);
+			}
 		}
 
 		// transform it into superType.[prototype.method].call(this, args..);
@@ -0,0 +1,119 @@
+package org.stjs.generator.exec.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.stjs.javascript.JSCollections.$array;
+import static org.stjs.javascript.JSCollections.$map;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.stjs.generator.utils.AbstractStjsTest;
+import org.stjs.javascript.Array;
+import org.stjs.javascript.Map;
+import org.stjs.server.json.jackson.STJSModule;
+import org.stjs.server.json.msgpack.MessagePackFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * decodes with stjs.parseBinary the MessagePack messages written by the server.
+ */
+public class ParseBinaryTest extends AbstractStjsTest {
+	private final ObjectMapper mapper;
+
+	public ParseBinaryTest() {
+		MessagePackFactory factory = new MessagePackFactory();
+		mapper = new ObjectMapper(factory);
+		factory.setCodec(mapper);
+		mapper.registerModule(STJSModule.getModule());
+	}
+
+	/**
+	 * runs the generated code of the given classes followed by stjs.parseBinary on the bytes written by the server
+	 */
+	private Object parseBinary(Object value, Class<?>... fieldClasses) throws IOException {
+		byte[] message = mapper.writeValueAsBytes(value);
+		StringBuilder js = new StringBuilder();
+		for (Class<?> clazz : fieldClasses) {
+			js.append(generate(clazz)).append('\n');
+		}
+		js.append(generate(value.getClass()));
+		js.append("\nstjs.parseBinary([");
+		for (int i = 0; i < message.length; i++) {
+			if (i > 0) {
+				js.append(',');
+			}
+			js.append(message[i] & 0xff);
+		}
+		js.append("], ").append(value.getClass().getSimpleName()).append(");\n");
+
+		File jsFile = File.createTempFile("parseBinary", ".js");
+		try {
+			Files.write(js, jsFile, Charsets.UTF_8);
+			return execute(jsFile.getPath());
+		}
+		finally {
+			jsFile.delete();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object getProperty(Object obj, String... props) {
+		Object bean = obj;
+		for (String p : props) {
+			assertNotNull(bean);
+			if (bean instanceof Map) {
+				bean = ((Map<String, ?>) bean).$get(p);
+			} else if (bean instanceof Array) {
+				bean = ((Array<?>) bean).$get(p);
+			} else {
+				fail(bean + " is not a map or array. Type is:" + bean.getClass().getName());
+				return null;
+			}
+		}
+		return bean;
+	}
+
+	private void assertProperty(Object expected, Object obj, String... props) {
+		Object bean = getProperty(obj, props);
+		if (bean instanceof Number) {
+			bean = new Double(((Number) bean).doubleValue());
+		}
+		assertEquals(expected, bean);
+	}
+
+	private static Class1 class1(int a, int childI, String childType) {
+		Class1 c = new Class1();
+		c.a = a;
+		Class1.Inner child = new Class1.Inner();
+		child.i = childI;
+		child.type = childType;
+		c.children = $array(child);
+		return c;
+	}
+
+	@Test
+	public void testSimple() throws IOException {
+		Object result = parseBinary(class1(100000, -200, "Inner é€😀"));
+		assertProperty("Class1", result, "type");
+		assertProperty(100000.0, result, "a");
+		assertProperty(-200.0, result, "children", "0", "i");
+		assertProperty("Inner é€😀", result, "children", "0", "type");
+	}
+
+	@Test
+	public void testMap() throws IOException {
+		Class2 c = new Class2();
+		c.map = $map("key", class1(1, 2, "Inner"));
+		Object result = parseBinary(c, Class1.class);
+		assertProperty("Class2", result, "type");
+		assertProperty(1.0, result, "map", "key", "a");
+		assertProperty("Class1", result, "map", "key", "type");
+		assertProperty(2.0, result, "map", "key", "children", "0", "i");
+	}
+}
@@ -0,0 +1,89 @@
+package org.stjs.generator.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngineManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class RhinoExecutorTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+	private File script;
+
+	@Before
+	public void setUp() throws Exception {
+		script = folder.newFile("script.js");
+	}
+
+	@After
+	public void tearDown() {
+		otherThread.shutdownNow();
+	}
+
+	private Object run(String source) throws Exception {
+		Files.write(source, script, Charsets.UTF_8);
+		return new RhinoExecutor().run(Collections.singletonList(script), false).getResult();
+	}
+
+	private CompiledScript getCompiledScript() {
+		return RhinoExecutor.getEngine().getCompiledScript(script.getAbsolutePath());
+	}
+
+	@Test
+	public void testUnchangedScriptIsReused() throws Exception {
+		assertEquals("a", run("'a'"));
+		CompiledScript compiled = getCompiledScript();
+		assertNotNull(compiled);
+
+		assertEquals("a", run("'a'"));
+		assertSame(compiled, getCompiledScript());
+	}
+
+	@Test
+	public void testChangedScriptIsCompiledAgain() throws Exception {
+		assertEquals("a", run("'a'"));
+		CompiledScript compiled = getCompiledScript();
+
+		assertEquals("b", run("'b'"));
+		assertNotSame(compiled, getCompiledScript());
+	}
+
+	@Test
+	public void testExecutionsDoNotShareTheirGlobals() throws Exception {
+		assertEquals("undefined", run("var x = typeof y; var y = 1; x"));
+		assertEquals("undefined", run("var x = typeof y; var y = 1; x"));
+	}
+
+	@Test
+	public void testThreadsWithoutThreadingSupportHaveTheirOwnEngine() throws Exception {
+		boolean threadSafe = new ScriptEngineManager().getEngineByName("JavaScript").getFactory().getParameter("THREADING") != null;
+		RhinoExecutor.CachingEngine engine = RhinoExecutor.getEngine();
+		RhinoExecutor.CachingEngine otherEngine = otherThread.submit(new Callable<RhinoExecutor.CachingEngine>() {
+			@Override
+			public RhinoExecutor.CachingEngine call() {
+				return RhinoExecutor.getEngine();
+			}
+		}).get();
+		assertEquals(threadSafe, engine == otherEngine);
+	}
+}
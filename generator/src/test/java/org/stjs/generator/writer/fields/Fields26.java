@@ -0,0 +1,10 @@
+package org.stjs.generator.writer.fields;
+
+public class Fields26 extends Fields3 {
+	public int a = 1;
+	public String b;
+
+	public Fields26() {
+		a = 4;
+	}
+}
@@ -0,0 +1,10 @@
+package org.stjs.generator.writer.fields;
+
+public class Fields27 extends Fields3 {
+	public int z = 5;
+
+	public static int main(String[] args) {
+		Fields27 f = new Fields27();
+		return f.x + f.y + f.z;
+	}
+}
@@ -0,0 +1,16 @@
+package org.stjs.generator.writer.fields;
+
+import org.stjs.javascript.annotation.DirectFieldAccess;
+import org.stjs.javascript.annotation.Template;
+
+@DirectFieldAccess
+public class Fields28 {
+
+	@Template("gproperty")
+	public String field;
+
+	public void method(String n) {
+		field = n;
+		String m = this.field;
+	}
+}
@@ -0,0 +1,15 @@
+package org.stjs.generator.writer.fields;
+
+import org.stjs.javascript.annotation.DirectFieldAccess;
+import org.stjs.javascript.annotation.Template;
+
+@DirectFieldAccess(false)
+public class Fields29 {
+
+	@Template("gproperty")
+	public String field;
+
+	public void method(String n) {
+		field = n;
+	}
+}
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
 import org.stjs.generator.utils.AbstractStjsTest;
 import org.stjs.generator.JavascriptFileGenerationException;
 
@@ -149,4 +151,44 @@ public class FieldsGeneratorTest extends AbstractStjsTest {
 	public void testTemplateMemberSelect() {
 		assertCodeContains(Fields25.class, "obj.get(\"field\")");
 	}
+
+	private GeneratorConfiguration fieldsInConstructor() {
+		return new GeneratorConfigurationBuilder().generateFieldsInConstructor(true).build();
+	}
+
+	@Test
+	public void testFieldsInConstructor() {
+		assertCodeContains(Fields3.class, "var Fields3 = function() { this.x = 2; this.y = 3; };", fieldsInConstructor());
+		assertCodeDoesNotContain(Fields3.class, "prototype.x", fieldsInConstructor());
+	}
+
+	@Test
+	public void testFieldsInConstructorAfterSuperCall() {
+		assertCodeContains(Fields26.class, "var Fields26 = function() { Fields3.call(this); this.a = 1; this.b = null; this.a = 4; };",
+				fieldsInConstructor());
+	}
+
+	@Test
+	public void testDirectFieldAccessAnnotation() {
+		assertCodeContains(Fields28.class, "this.field = n; var m = this.field;");
+		assertCodeDoesNotContain(Fields28.class, "stjs.setField");
+	}
+
+	@Test
+	public void testDirectFieldAccessConfiguration() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().directFieldAccess(true).build();
+		assertCodeContains(Fields17.class, "this.field = n", config);
+		assertCodeContains(Fields21.class, "this.field++", config);
+	}
+
+	@Test
+	public void testDirectFieldAccessDisabledByAnnotation() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().directFieldAccess(true).build();
+		assertCodeContains(Fields29.class, "stjs.setField(this, \"field\", n)", config);
+	}
+
+	@Test
+	public void testFieldsInConstructorExecution() {
+		assertEquals(10, executeAndReturnNumber(Fields27.class, fieldsInConstructor()), 0);
+	}
 }
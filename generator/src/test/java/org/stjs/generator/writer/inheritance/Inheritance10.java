@@ -0,0 +1,26 @@
+package org.stjs.generator.writer.inheritance;
+
+public class Inheritance10 extends MySuperClass {
+	private int value = 1;
+
+	public Inheritance10(int value) {
+		this.value = value;
+	}
+
+	public int getValue() {
+		return value + field;
+	}
+
+	public MySuperClass anonymous() {
+		return new MySuperClass() {
+			@Override
+			public String toString() {
+				return "anonymous";
+			}
+		};
+	}
+
+	public static int main(String[] args) {
+		return new Inheritance10(2).getValue();
+	}
+}
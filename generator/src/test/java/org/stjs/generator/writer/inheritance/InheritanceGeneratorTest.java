@@ -1,6 +1,9 @@
 package org.stjs.generator.writer.inheritance;
 
 import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.JavaScriptTarget;
 import org.stjs.generator.utils.AbstractStjsTest;
 
 public class InheritanceGeneratorTest extends AbstractStjsTest {
@@ -51,4 +54,28 @@ public class InheritanceGeneratorTest extends AbstractStjsTest {
 	public void testExtendsInnerClass() {
 		assertCodeContains(Inheritance8.class, "stjs.extend(Inheritance8, MyClass1.MyInnerClass, [],");
 	}
+
+	@Test
+	public void testES2015Class() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(Inheritance10.class, "var Inheritance10 = class extends MySuperClass {", config);
+		assertCodeContains(Inheritance10.class, "constructor(value) {super(); this.value = value;}", config);
+		assertCodeContains(Inheritance10.class, "getValue() {return this.value + this.field;}", config);
+		assertCodeContains(Inheritance10.class, "static main(args) {", config);
+		assertCodeContains(Inheritance10.class, "Inheritance10 = stjs.extend(Inheritance10, MySuperClass, [], function(constructor, prototype) {"
+				+ "prototype.value = 1;}", config);
+	}
+
+	@Test
+	public void testES2015AnonymousClass() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(Inheritance10.class, "new (stjs.extend(class Inheritance10$1 extends MySuperClass {", config);
+	}
+
+	@Test
+	public void testES2015ClassWithoutSuperClass() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(MySuperClass.class, "var MySuperClass = class {", config);
+		assertCodeDoesNotContain(MySuperClass.class, "super(", config);
+	}
 }
@@ -0,0 +1,10 @@
+package org.stjs.generator.writer.modules;
+
+import org.stjs.generator.writer.inheritance.MySuperClass;
+import org.stjs.generator.writer.namespace.Namespace1;
+
+public class Modules1 extends MySuperClass {
+	public static Namespace1 defaultValue = new Namespace1();
+
+	public Modules2 other;
+}
@@ -0,0 +1,5 @@
+package org.stjs.generator.writer.modules;
+
+public class Modules2 {
+	public int value;
+}
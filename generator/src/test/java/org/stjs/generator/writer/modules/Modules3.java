@@ -0,0 +1,9 @@
+package org.stjs.generator.writer.modules;
+
+import org.stjs.generator.writer.globalScope.Globals;
+
+public class Modules3 {
+	public int test() {
+		return Globals.method();
+	}
+}
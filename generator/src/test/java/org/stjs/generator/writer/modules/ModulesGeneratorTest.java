@@ -0,0 +1,51 @@
+package org.stjs.generator.writer.modules;
+
+import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.ModuleDeclarationWriter;
+import org.stjs.generator.utils.AbstractStjsTest;
+import org.stjs.generator.writer.globalScope.Globals;
+import org.stjs.generator.writer.namespace.Namespace1;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModulesGeneratorTest extends AbstractStjsTest {
+	private final GeneratorConfiguration config = new GeneratorConfigurationBuilder().generateEsModules(true).build();
+
+	@Test
+	public void testImportsBeforeClass() {
+		// the parent class and the classes used to build the class come before the ones used only by its methods
+		assertCodeContains(Modules1.class, "import { MySuperClass } from \"../inheritance/MySuperClass.js\";"
+				+ "import \"../namespace/Namespace1.js\";"
+				+ "import { Modules2 } from \"./Modules2.js\";"
+				+ "var Modules1 = function()", config);
+	}
+
+	@Test
+	public void testExport() {
+		assertCodeContains(Modules1.class, "export { Modules1 };", config);
+		assertCodeContains(Modules2.class, "export { Modules2 };", config);
+		assertCodeDoesNotContain(Modules2.class, "import", config);
+	}
+
+	@Test
+	public void testExportNamespace() {
+		assertCodeContains(Namespace1.class, "export default a.b.Namespace1;", config);
+	}
+
+	@Test
+	public void testGlobalScope() {
+		assertCodeDoesNotContain(Modules3.class, "import", config);
+		assertCodeDoesNotContain(Globals.class, "export", config);
+	}
+
+	@Test
+	public void testModulePath() {
+		assertEquals("./B.js", ModuleDeclarationWriter.getModulePath("a.A", "a.B"));
+		assertEquals("../c/D.js", ModuleDeclarationWriter.getModulePath("a.b.A", "a.c.D"));
+		assertEquals("./c/D.js", ModuleDeclarationWriter.getModulePath("a.A", "a.c.D"));
+		assertEquals("../../D.js", ModuleDeclarationWriter.getModulePath("a.b.A", "D"));
+		assertEquals("./a/D.js", ModuleDeclarationWriter.getModulePath("A", "a.D"));
+	}
+}
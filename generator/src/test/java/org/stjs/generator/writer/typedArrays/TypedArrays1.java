@@ -0,0 +1,18 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays1 {
+	public static double main(String[] args) {
+		double[] values = new double[3];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = i * 1.5;
+		}
+		int[] counts = { 1, 2, 3 };
+		counts[1] += 10;
+
+		double sum = 0;
+		for (int i = 0; i < values.length; ++i) {
+			sum += values[i] * counts[i];
+		}
+		return sum;
+	}
+}
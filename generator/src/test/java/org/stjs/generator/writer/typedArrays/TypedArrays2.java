@@ -0,0 +1,13 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays2 {
+	public float[] samples;
+
+	public byte[] bytes;
+
+	public static byte[] defaultBytes = new byte[] { 1, -1 };
+
+	public int method(byte[] b) {
+		return b[1];
+	}
+}
@@ -0,0 +1,7 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays3 {
+	public double[] method(double[] values) {
+		return values.clone();
+	}
+}
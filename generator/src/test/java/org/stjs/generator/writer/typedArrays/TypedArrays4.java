@@ -0,0 +1,11 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays4 {
+	public double method(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,8 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays5 {
+	public double method() {
+		double[][] matrix = new double[2][2];
+		return matrix[0][0];
+	}
+}
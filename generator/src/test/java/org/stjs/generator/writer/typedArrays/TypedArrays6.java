@@ -0,0 +1,8 @@
+package org.stjs.generator.writer.typedArrays;
+
+public class TypedArrays6 {
+	public long method() {
+		long[] values = new long[2];
+		return values[0];
+	}
+}
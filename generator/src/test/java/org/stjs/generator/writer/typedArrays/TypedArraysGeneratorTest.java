@@ -0,0 +1,59 @@
+package org.stjs.generator.writer.typedArrays;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.JavascriptFileGenerationException;
+import org.stjs.generator.utils.AbstractStjsTest;
+
+public class TypedArraysGeneratorTest extends AbstractStjsTest {
+	private static GeneratorConfiguration typedArrays() {
+		return new GeneratorConfigurationBuilder().typedArrays(true).build();
+	}
+
+	@Test
+	public void testNewArray() {
+		assertCodeContains(TypedArrays1.class, "var values = new Float64Array(3);", typedArrays());
+		assertCodeContains(TypedArrays1.class, "var counts = new Int32Array([1, 2, 3]);", typedArrays());
+		assertCodeContains(TypedArrays1.class, "values[i] = i * 1.5;", typedArrays());
+	}
+
+	@Test
+	public void testExecute() {
+		assertEquals(27, executeAndReturnNumber(TypedArrays1.class, typedArrays()), 0);
+	}
+
+	@Test
+	public void testFieldsAndParameters() {
+		assertCodeContains(TypedArrays2.class, "constructor.defaultBytes = new Int8Array([1, -1]);", typedArrays());
+		assertCodeContains(TypedArrays2.class, "samples: \"Float32Array\", bytes: \"Int8Array\", defaultBytes: \"Int8Array\"", typedArrays());
+		assertCodeContains(TypedArrays2.class, "return b[1];", typedArrays());
+	}
+
+	@Test(expected = JavascriptFileGenerationException.class)
+	public void testForbiddenWithoutOption() {
+		generate(TypedArrays1.class);
+	}
+
+	@Test(expected = JavascriptFileGenerationException.class)
+	public void testOnlyLength() {
+		generate(TypedArrays3.class, typedArrays());
+	}
+
+	@Test(expected = JavascriptFileGenerationException.class)
+	public void testEnhancedFor() {
+		generate(TypedArrays4.class, typedArrays());
+	}
+
+	@Test(expected = JavascriptFileGenerationException.class)
+	public void testMultiDimension() {
+		generate(TypedArrays5.class, typedArrays());
+	}
+
+	@Test(expected = JavascriptFileGenerationException.class)
+	public void testOtherPrimitives() {
+		generate(TypedArrays6.class, typedArrays());
+	}
+}
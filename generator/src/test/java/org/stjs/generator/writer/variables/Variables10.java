@@ -0,0 +1,19 @@
+package org.stjs.generator.writer.variables;
+
+public class Variables10 {
+	public int method(int n) {
+		final int x = 2;
+		int y = 3;
+		for (int i = 0; i < n; i++) {
+			y += x;
+		}
+		switch (n) {
+		case 1:
+			int z = 1;
+			y += z;
+			break;
+		default:
+		}
+		return y;
+	}
+}
@@ -1,6 +1,9 @@
 package org.stjs.generator.writer.variables;
 
 import org.junit.Test;
+import org.stjs.generator.GeneratorConfiguration;
+import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.JavaScriptTarget;
 import org.stjs.generator.utils.AbstractStjsTest;
 import org.stjs.generator.JavascriptFileGenerationException;
 
@@ -20,6 +23,16 @@ public class VariablesGeneratorTest extends AbstractStjsTest {
 		assertCodeContains(Variables3.class, "var x = 2, y = 3;");
 	}
 
+	@Test
+	public void testES2015Variables() {
+		GeneratorConfiguration config = new GeneratorConfigurationBuilder().javaScriptTarget(JavaScriptTarget.ES2015).build();
+		assertCodeContains(Variables10.class, "const x = 2; let y = 3;", config);
+		assertCodeContains(Variables10.class, "for (let i = 0;", config);
+		// the cases share the same scope
+		assertCodeContains(Variables10.class, "var z = 1;", config);
+		assertCodeContains(Variables3.class, "let x = 2, y = 3;", config);
+	}
+
 	@Test(
 			expected = JavascriptFileGenerationException.class)
 	public void testVariableWrongName() {
@@ -56,6 +56,7 @@ import org.stjs.generator.GenerationDirectory;
 import org.stjs.generator.Generator;
 import org.stjs.generator.GeneratorConfiguration;
 import org.stjs.generator.GeneratorConfigurationBuilder;
+import org.stjs.generator.JavaScriptTarget;
 import org.stjs.generator.JavascriptFileGenerationException;
 import org.stjs.generator.MultipleFileGenerationException;
 import org.stjs.generator.STJSClass;
@@ -125,6 +126,41 @@ abstract public class AbstractSTJSMojo extends AbstractMojo {
 	 */
 	protected boolean generateSourceMap;
 
+	/**
+	 * If true, the instance fields are initialized in the constructor, in declaration order, instead of on the prototype. This keeps the
+	 * same shape for all the instances of a class in the JavaScript engines.
+	 * @parameter expression="${generateFieldsInConstructor}" default-value="false"
+	 */
+	protected boolean generateFieldsInConstructor;
+
+	/**
+	 * If true, the fields with the "gproperty" template are accessed directly instead of going through stjs.getField and stjs.setField.
+	 * Types annotated with @DirectFieldAccess(false) keep the calls to the field handlers.
+	 * @parameter expression="${directFieldAccess}" default-value="false"
+	 */
+	protected boolean directFieldAccess;
+
+	/**
+	 * The version of JavaScript to generate: ES5 (the default) or ES2015. ES2015 generates native classes, let/const declarations and
+	 * arrow functions.
+	 * @parameter expression="${javaScriptTarget}" default-value="ES5"
+	 */
+	protected String javaScriptTarget;
+
+	/**
+	 * If true, each generated file is an ES2015 module: it imports the generated classes it depends on and exports its own class. The
+	 * stjs runtime and the classes annotated with @GlobalScope are still loaded as plain scripts.
+	 * @parameter expression="${generateEsModules}" default-value="false"
+	 */
+	protected boolean generateEsModules;
+
+	/**
+	 * If true, the Java arrays of double, float, int and byte can be used and they are generated as the JavaScript typed arrays
+	 * Float64Array, Float32Array, Int32Array and Int8Array. The other Java arrays are still forbidden.
+	 * @parameter expression="${typedArrays}" default-value="false"
+	 */
+	protected boolean typedArrays;
+
 	/**
 	 * If true, it packs all the generated Javascript file (using the correct dependency order) into a single file named
 	 * ${project.artifactName}.js
@@ -181,6 +217,13 @@ abstract public class AbstractSTJSMojo extends AbstractMojo {
 		GeneratorConfigurationBuilder configBuilder = new GeneratorConfigurationBuilder();
 		configBuilder.generateArrayHasOwnProperty(generateArrayHasOwnProperty);
 		configBuilder.generateSourceMap(generateSourceMap);
+		configBuilder.generateFieldsInConstructor(generateFieldsInConstructor);
+		configBuilder.directFieldAccess(directFieldAccess);
+		if (javaScriptTarget != null) {
+			configBuilder.javaScriptTarget(JavaScriptTarget.valueOf(javaScriptTarget));
+		}
+		configBuilder.generateEsModules(generateEsModules);
+		configBuilder.typedArrays(typedArrays);
 		if (sourceEncoding != null) {
 			configBuilder.sourceEncoding(sourceEncoding);
 		}
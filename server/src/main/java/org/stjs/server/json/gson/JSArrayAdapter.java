@@ -19,9 +19,7 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
 
-import org.codehaus.jackson.JsonGenerationException;
 import org.stjs.javascript.Array;
-import org.stjs.javascript.JSCollections;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
@@ -41,12 +39,12 @@ public class JSArrayAdapter implements JsonSerializer<Array<?>>, JsonDeserialize
 		}
 		JsonArray js = elem.getAsJsonArray();
 		Type elementType = (type instanceof ParameterizedType) ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
-		Array<Object> array = JSCollections.$array();
+		Array.Builder<Object> builder = Array.builder(js.size());
 		for (int i = 0; i < js.size(); ++i) {
-			array.push(ctx.deserialize(js.get(i), elementType));
+			builder.add(ctx.deserialize(js.get(i), elementType));
 		}
 
-		return array;
+		return builder.build();
 	}
 
 	@Override
@@ -54,13 +52,16 @@ public class JSArrayAdapter implements JsonSerializer<Array<?>>, JsonDeserialize
 		if (array == null) {
 			return new JsonNull();
 		}
-		JsonArray js = new JsonArray();
-
 		// validate that we have a packed array (no unset elements) and that we do not
-		// have any non-array indices. JSON supports none of these features, and toList()
+		// have any non-array indices. JSON supports none of these features, and asList()
 		// detects them and rejects them too.
-		List<?> list = array.toList();
-		return ctx.serialize(list);
+		List<?> elements = array.asList();
+		JsonArray js = new JsonArray();
+		for (int i = 0, size = elements.size(); i < size; ++i) {
+			Object element = elements.get(i);
+			js.add(element == null ? new JsonNull() : ctx.serialize(element, element.getClass()));
+		}
+		return js;
 	}
 
 }
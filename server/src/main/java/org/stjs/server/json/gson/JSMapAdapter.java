@@ -17,8 +17,8 @@ package org.stjs.server.json.gson;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Set;
 
-import org.stjs.javascript.JSCollections;
 import org.stjs.javascript.Map;
 
 import com.google.gson.JsonDeserializationContext;
@@ -39,8 +39,9 @@ public class JSMapAdapter implements JsonSerializer<Map<?, ?>>, JsonDeserializer
 		}
 		JsonObject js = elem.getAsJsonObject();
 		Type valueType = (type instanceof ParameterizedType) ? ((ParameterizedType) type).getActualTypeArguments()[1] : Object.class;
-		Map<String, Object> map = JSCollections.$map();
-		for (java.util.Map.Entry<String, JsonElement> entry : js.entrySet()) {
+		Set<java.util.Map.Entry<String, JsonElement>> entries = js.entrySet();
+		Map<String, Object> map = Map.withExpectedSize(entries.size());
+		for (java.util.Map.Entry<String, JsonElement> entry : entries) {
 			map.$put(entry.getKey(), ctx.deserialize(entry.getValue(), valueType));
 		}
 
@@ -27,7 +27,6 @@ import org.codehaus.jackson.map.TypeDeserializer;
 import org.codehaus.jackson.map.deser.ContainerDeserializer;
 import org.codehaus.jackson.type.JavaType;
 import org.stjs.javascript.Array;
-import org.stjs.javascript.JSCollections;
 
 public class JSArrayDeserializer extends ContainerDeserializer<Array<Object>> {
 
@@ -76,9 +75,19 @@ public class JSArrayDeserializer extends ContainerDeserializer<Array<Object>> {
 	@Override
 	public Array<Object> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
 			JsonProcessingException {
-		Array<Object> result = JSCollections.$array();
+		// Ok: must point to START_ARRAY (or equivalent)
+		if (!jp.isExpectedStartArrayToken()) {
+			return handleNonArray(jp, ctxt, null);
+		}
 
-		return deserialize(jp, ctxt, result);
+		// the elements are appended directly to the store of a new Array. The length is not known before the end of the
+		// array, so the store grows with the elements read
+		Array.Builder<Object> builder = Array.builder(0);
+		JsonToken t;
+		while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+			builder.add(readElement(jp, ctxt, t));
+		}
+		return builder.build();
 	}
 
 	@Override
@@ -89,25 +98,24 @@ public class JSArrayDeserializer extends ContainerDeserializer<Array<Object>> {
 			return handleNonArray(jp, ctxt, result);
 		}
 
-		JsonDeserializer<Object> valueDes = _valueDeserializer;
 		JsonToken t;
-		final TypeDeserializer typeDeser = _valueTypeDeserializer;
-
 		while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
-			Object value;
-
-			if (t == JsonToken.VALUE_NULL) {
-				value = null;
-			} else if (typeDeser == null) {
-				value = valueDes.deserialize(jp, ctxt);
-			} else {
-				value = valueDes.deserializeWithType(jp, ctxt, typeDeser);
-			}
-			result.push(value);
+			result.push(readElement(jp, ctxt, t));
 		}
 		return result;
 	}
 
+	private Object readElement(JsonParser jp, DeserializationContext ctxt, JsonToken t) throws IOException,
+			JsonProcessingException {
+		if (t == JsonToken.VALUE_NULL) {
+			return null;
+		} else if (_valueTypeDeserializer == null) {
+			return _valueDeserializer.deserialize(jp, ctxt);
+		} else {
+			return _valueDeserializer.deserializeWithType(jp, ctxt, _valueTypeDeserializer);
+		}
+	}
+
 	@Override
 	public Object deserializeWithType(JsonParser jp, DeserializationContext ctxt, TypeDeserializer typeDeserializer)
 			throws IOException, JsonProcessingException {
@@ -117,7 +125,7 @@ public class JSArrayDeserializer extends ContainerDeserializer<Array<Object>> {
 
 	/**
 	 * Helper method called when current token is no START_ARRAY. Will either throw an exception, or try to handle value
-	 * as if member of implicit array, depending on configuration.
+	 * as if member of implicit array, depending on configuration. A new Array is created when result is null.
 	 */
 	private final Array<Object> handleNonArray(JsonParser jp, DeserializationContext ctxt, Array<Object> result)
 			throws IOException, JsonProcessingException {
@@ -125,18 +133,9 @@ public class JSArrayDeserializer extends ContainerDeserializer<Array<Object>> {
 		if (!ctxt.isEnabled(DeserializationConfig.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)) {
 			throw ctxt.mappingException(_collectionType.getRawClass());
 		}
-		JsonDeserializer<Object> valueDes = _valueDeserializer;
-		final TypeDeserializer typeDeser = _valueTypeDeserializer;
-		JsonToken t = jp.getCurrentToken();
-
-		Object value;
-
-		if (t == JsonToken.VALUE_NULL) {
-			value = null;
-		} else if (typeDeser == null) {
-			value = valueDes.deserialize(jp, ctxt);
-		} else {
-			value = valueDes.deserializeWithType(jp, ctxt, typeDeser);
+		Object value = readElement(jp, ctxt, jp.getCurrentToken());
+		if (result == null) {
+			return Array.builder(1).add(value).build();
 		}
 		result.push(value);
 		return result;
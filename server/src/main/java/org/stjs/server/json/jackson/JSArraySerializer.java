@@ -25,6 +25,10 @@ import org.codehaus.jackson.map.JsonSerializer;
 import org.codehaus.jackson.map.SerializerProvider;
 import org.stjs.javascript.Array;
 
+/**
+ * Writes the elements of an Array straight to the generator, without copying them first. The serializer of the elements is looked up
+ * only when the class of the element changes, as the arrays are usually homogeneous.
+ */
 public class JSArraySerializer extends JsonSerializer<Array<?>> {
 
 	@SuppressWarnings({"rawtypes", "unchecked"})
@@ -40,18 +44,34 @@ public class JSArraySerializer extends JsonSerializer<Array<?>> {
 			return;
 		}
 
-		List<?> list;
+		List<?> elements;
 		// validate that we have a packed array (no unset elements) and that we do not
-		// have any non-array indices. JSON supports none of these features, and toList()
+		// have any non-array indices. JSON supports none of these features, and asList()
 		// detects them and rejects them too.
 		try {
-			list = array.toList();
+			elements = array.asList();
 		}
 		catch (IllegalStateException ise) {
 			throw new JsonGenerationException("Could not serialize Array", ise);
 		}
 
-		provider.defaultSerializeValue(list, gen);
+		gen.writeStartArray();
+		Class<?> lastClass = null;
+		JsonSerializer<Object> lastSerializer = null;
+		for (int i = 0, size = elements.size(); i < size; ++i) {
+			Object element = elements.get(i);
+			if (element == null) {
+				provider.defaultSerializeNull(gen);
+				continue;
+			}
+			Class<?> elementClass = element.getClass();
+			if (elementClass != lastClass) {
+				lastClass = elementClass;
+				lastSerializer = provider.findValueSerializer(elementClass, null);
+			}
+			lastSerializer.serialize(element, gen, provider);
+		}
+		gen.writeEndArray();
 	}
 
 }
@@ -0,0 +1,155 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.jackson;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.codehaus.jackson.JsonGenerationException;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.JsonDeserializer;
+import org.codehaus.jackson.map.JsonSerializer;
+import org.codehaus.jackson.map.SerializerProvider;
+import org.stjs.javascript.Array;
+
+/**
+ * Reads and writes the JSON of one class with Jackson's streaming API, without reflection. The implementations are
+ * generated by {@link JSDataTypeCodecProcessor} for the data type classes, and {@link STJSModule} registers the ones
+ * it finds on the class path. The fields are written with their Java name, like the generated JavaScript does.
+ */
+public abstract class JSDataTypeCodec<T> {
+	private final Class<T> type;
+
+	protected JSDataTypeCodec(Class<T> type) {
+		this.type = type;
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	public void write(T value, JsonGenerator gen) throws IOException {
+		if (value == null) {
+			gen.writeNull();
+			return;
+		}
+		gen.writeStartObject();
+		writeFields(value, gen);
+		gen.writeEndObject();
+	}
+
+	public T read(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		JsonToken t = jp.getCurrentToken();
+		if (t == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (t == JsonToken.START_OBJECT) {
+			t = jp.nextToken();
+		} else if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+			throw new JsonParseException("Expected an object for " + type.getName() + ", got " + t, jp.getCurrentLocation());
+		}
+
+		T value = newInstance();
+		for (; t == JsonToken.FIELD_NAME; t = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			jp.nextToken();
+			if (!readField(field, value, jp, ctxt)) {
+				jp.skipChildren();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * writes the fields of the value, between the start and the end of the object
+	 */
+	protected abstract void writeFields(T value, JsonGenerator gen) throws IOException;
+
+	protected abstract T newInstance();
+
+	/**
+	 * the parser points to the value of the field
+	 *
+	 * @return false if the field is unknown, and its value must be skipped
+	 */
+	protected abstract boolean readField(String field, T value, JsonParser jp, DeserializationContext ctxt) throws IOException;
+
+	public JsonSerializer<T> getSerializer() {
+		return new JsonSerializer<T>() {
+			@Override
+			public Class<T> handledType() {
+				return type;
+			}
+
+			@Override
+			public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException,
+					JsonProcessingException {
+				write(value, gen);
+			}
+		};
+	}
+
+	public JsonDeserializer<T> getDeserializer() {
+		return new JsonDeserializer<T>() {
+			@Override
+			public T deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
+				return read(jp, ctxt);
+			}
+		};
+	}
+
+	/**
+	 * @return the elements of the array, that must be packed like in {@link JSArraySerializer}
+	 */
+	protected static <E> List<E> checkPacked(Array<E> array) throws JsonGenerationException {
+		try {
+			return array.asList();
+		}
+		catch (IllegalStateException ise) {
+			throw new JsonGenerationException("Could not serialize Array", ise);
+		}
+	}
+
+	/**
+	 * reads a char like Jackson does: from a string of one character, or from its code
+	 */
+	protected static char readChar(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		JsonToken t = jp.getCurrentToken();
+		if (t == JsonToken.VALUE_STRING) {
+			String text = jp.getText();
+			if (text.length() == 1) {
+				return text.charAt(0);
+			}
+		} else if (t == JsonToken.VALUE_NUMBER_INT) {
+			int value = jp.getIntValue();
+			if (value >= Character.MIN_VALUE && value <= Character.MAX_VALUE) {
+				return (char) value;
+			}
+		}
+		throw ctxt.mappingException(Character.TYPE);
+	}
+
+	protected static void expect(JsonParser jp, JsonToken token) throws JsonParseException {
+		if (jp.getCurrentToken() != token) {
+			throw new JsonParseException("Expected " + token + ", got " + jp.getCurrentToken(), jp.getCurrentLocation());
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.jackson;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@link JSDataTypeCodec} for each class annotated with {@link org.stjs.javascript.annotation.DataType} or
+ * {@link org.stjs.javascript.annotation.SyntheticType}, and lists them in a service file so {@link STJSModule} finds
+ * them. The codec of the class a.b.Type is a.b.TypeJsonCodec.
+ * <p>
+ * Only the concrete, non generic classes that have a no-argument constructor get a codec. Their non static, non
+ * transient fields that are not {@link org.stjs.javascript.annotation.ServerSide} are read and written directly, or
+ * through their getter and setter when they are not accessible from the package of the class.
+ * <p>
+ * The processor is not registered as a service, as the classes of the libraries using these annotations do not need
+ * a codec. It must be enabled explicitly, with javac's -processor option or the annotationProcessors parameter of
+ * the maven-compiler-plugin.
+ */
+@SupportedAnnotationTypes({ "org.stjs.javascript.annotation.DataType", "org.stjs.javascript.annotation.SyntheticType" })
+public class JSDataTypeCodecProcessor extends AbstractProcessor {
+	static final String CODEC_SUFFIX = "JsonCodec";
+	private static final String SERVICE_FILE = "META-INF/services/" + JSDataTypeCodec.class.getName();
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Set<String> codecs = new TreeSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+
+		Set<TypeElement> dataTypes = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.PACKAGE) {
+					// all the classes of an annotated package are data types
+					for (TypeElement type : ElementFilter.typesIn(element.getEnclosedElements())) {
+						addIfSupported(type, dataTypes);
+					}
+				} else if (element instanceof TypeElement) {
+					addIfSupported((TypeElement) element, dataTypes);
+				}
+			}
+		}
+
+		for (TypeElement type : dataTypes) {
+			writeCodec(type, dataTypes);
+		}
+		// the annotations are not claimed, other processors may need them too
+		return false;
+	}
+
+	private void addIfSupported(TypeElement type, Set<TypeElement> dataTypes) {
+		if (type.getKind() != ElementKind.CLASS) {
+			// interfaces, enums and annotations are not instantiated
+			return;
+		}
+		String reason = getUnsupportedReason(type);
+		if (reason != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "No JSON codec generated for " + type + ": " + reason, type);
+			return;
+		}
+		dataTypes.add(type);
+	}
+
+	private String getUnsupportedReason(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			return "the class is abstract";
+		}
+		if (!type.getTypeParameters().isEmpty()) {
+			return "the class is generic";
+		}
+		for (Element t = type; t instanceof TypeElement; t = t.getEnclosingElement()) {
+			TypeElement enclosing = (TypeElement) t;
+			if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+				return "the class is private";
+			}
+			if (enclosing.getNestingKind() != NestingKind.TOP_LEVEL
+					&& (enclosing.getNestingKind() != NestingKind.MEMBER || !enclosing.getModifiers().contains(Modifier.STATIC))) {
+				return "the class is not a top level or static nested class";
+			}
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return null;
+			}
+		}
+		return "the class has no accessible constructor without arguments";
+	}
+
+	/**
+	 * @return the name of the codec class, in the package of the type. The names of the enclosing classes of a nested
+	 *         type are joined with underscores.
+	 */
+	static String getCodecSimpleName(TypeElement type) {
+		StringBuilder name = new StringBuilder(type.getSimpleName());
+		for (Element t = type.getEnclosingElement(); t instanceof TypeElement; t = t.getEnclosingElement()) {
+			name.insert(0, '_').insert(0, t.getSimpleName());
+		}
+		return name.append(CODEC_SUFFIX).toString();
+	}
+
+	private void writeCodec(TypeElement type, Set<TypeElement> dataTypes) {
+		JSDataTypeCodecWriter codecWriter = new JSDataTypeCodecWriter(processingEnv, type, dataTypes);
+		String codecName = codecWriter.getCodecName();
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(codecName, type);
+			Writer writer = file.openWriter();
+			try {
+				writer.write(codecWriter.generate());
+			}
+			finally {
+				writer.close();
+			}
+			codecs.add(codecName);
+		}
+		catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the JSON codec " + codecName + ": " + e, type);
+		}
+	}
+
+	/**
+	 * the codecs listed by a previous compilation are kept, so an incremental compilation does not lose them
+	 */
+	private void writeServiceFile() {
+		if (codecs.isEmpty()) {
+			return;
+		}
+		Set<String> allCodecs = new TreeSet<String>(codecs);
+		readServiceFile(allCodecs);
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			Writer writer = new OutputStreamWriter(file.openOutputStream(), UTF8);
+			try {
+				for (String codec : allCodecs) {
+					writer.write(codec);
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + SERVICE_FILE + ": " + e);
+		}
+	}
+
+	private void readServiceFile(Set<String> allCodecs) {
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), UTF8));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					String codec = line.trim();
+					// drop the codecs of the classes that were removed since
+					if (!codec.isEmpty() && processingEnv.getElementUtils().getTypeElement(codec) != null) {
+						allCodecs.add(codec);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (IOException e) {
+			// no previous service file
+		}
+	}
+}
@@ -0,0 +1,507 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.jackson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.stjs.javascript.Array;
+import org.stjs.javascript.Date;
+import org.stjs.javascript.annotation.ServerSide;
+
+/**
+ * Writes the source of the {@link JSDataTypeCodec} of one class. The values of the fields are written and read inline
+ * for the primitives, the Strings, the Dates and the enums, with a generated helper method for the Arrays and the
+ * Maps, with the codec of the class for the other data types of the same compilation, and with the ObjectMapper of the
+ * parser or generator for any other type.
+ */
+class JSDataTypeCodecWriter {
+	private static final String INDENT = "\t";
+
+	private static final Map<TypeKind, String> PRIMITIVE_READERS = new EnumMap<TypeKind, String>(TypeKind.class);
+	private static final Map<String, TypeKind> BOXED_TYPES = new HashMap<String, TypeKind>();
+
+	static {
+		PRIMITIVE_READERS.put(TypeKind.BOOLEAN, "jp.getBooleanValue()");
+		PRIMITIVE_READERS.put(TypeKind.BYTE, "jp.getByteValue()");
+		PRIMITIVE_READERS.put(TypeKind.SHORT, "jp.getShortValue()");
+		PRIMITIVE_READERS.put(TypeKind.INT, "jp.getIntValue()");
+		PRIMITIVE_READERS.put(TypeKind.LONG, "jp.getLongValue()");
+		PRIMITIVE_READERS.put(TypeKind.FLOAT, "jp.getFloatValue()");
+		PRIMITIVE_READERS.put(TypeKind.DOUBLE, "jp.getDoubleValue()");
+		PRIMITIVE_READERS.put(TypeKind.CHAR, "readChar(jp, ctxt)");
+
+		BOXED_TYPES.put(Boolean.class.getName(), TypeKind.BOOLEAN);
+		BOXED_TYPES.put(Byte.class.getName(), TypeKind.BYTE);
+		BOXED_TYPES.put(Short.class.getName(), TypeKind.SHORT);
+		BOXED_TYPES.put(Integer.class.getName(), TypeKind.INT);
+		BOXED_TYPES.put(Long.class.getName(), TypeKind.LONG);
+		BOXED_TYPES.put(Float.class.getName(), TypeKind.FLOAT);
+		BOXED_TYPES.put(Double.class.getName(), TypeKind.DOUBLE);
+		BOXED_TYPES.put(Character.class.getName(), TypeKind.CHAR);
+	}
+
+	private enum ValueKind {
+		PRIMITIVE, BOXED, STRING, DATE, ENUM, ARRAY, MAP, DATA_TYPE, OTHER
+	}
+
+	private final ProcessingEnvironment processingEnv;
+	private final Types types;
+	private final Elements elements;
+	private final TypeElement type;
+	private final Set<TypeElement> dataTypes;
+	private final String packageName;
+	private final String codecSimpleName;
+
+	private final StringBuilder constants = new StringBuilder();
+	private final StringBuilder helpers = new StringBuilder();
+	private final Map<String, String> helperNames = new HashMap<String, String>();
+	private int nextId;
+
+	JSDataTypeCodecWriter(ProcessingEnvironment processingEnv, TypeElement type, Set<TypeElement> dataTypes) {
+		this.processingEnv = processingEnv;
+		this.types = processingEnv.getTypeUtils();
+		this.elements = processingEnv.getElementUtils();
+		this.type = type;
+		this.dataTypes = dataTypes;
+		this.packageName = elements.getPackageOf(type).getQualifiedName().toString();
+		this.codecSimpleName = JSDataTypeCodecProcessor.getCodecSimpleName(type);
+	}
+
+	String getCodecName() {
+		return packageName.isEmpty() ? codecSimpleName : packageName + "." + codecSimpleName;
+	}
+
+	String generate() {
+		String typeName = type.getQualifiedName().toString();
+		StringBuilder writeFields = new StringBuilder();
+		StringBuilder readFields = new StringBuilder();
+		for (VariableElement field : getFields()) {
+			addField(field, writeFields, readFields);
+		}
+
+		StringBuilder src = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			src.append("package ").append(packageName).append(";\n\n");
+		}
+		src.append("import java.io.IOException;\n\n");
+		src.append("import org.codehaus.jackson.JsonGenerator;\n");
+		src.append("import org.codehaus.jackson.JsonParser;\n");
+		src.append("import org.codehaus.jackson.JsonToken;\n");
+		src.append("import org.codehaus.jackson.io.SerializedString;\n");
+		src.append("import org.codehaus.jackson.map.DeserializationContext;\n");
+		src.append("import org.stjs.server.json.jackson.JSDataTypeCodec;\n\n");
+		src.append("/**\n * JSON codec of {@link ").append(typeName).append("}, generated by ")
+				.append(JSDataTypeCodecProcessor.class.getSimpleName()).append(".\n */\n");
+		src.append("public final class ").append(codecSimpleName).append(" extends JSDataTypeCodec<").append(typeName).append("> {\n");
+		src.append("\tpublic static final ").append(codecSimpleName).append(" INSTANCE = new ").append(codecSimpleName).append("();\n");
+		src.append(constants).append('\n');
+
+		src.append("\tpublic ").append(codecSimpleName).append("() {\n");
+		src.append("\t\tsuper(").append(typeName).append(".class);\n");
+		src.append("\t}\n\n");
+
+		src.append("\t@Override\n");
+		src.append("\tprotected ").append(typeName).append(" newInstance() {\n");
+		src.append("\t\treturn new ").append(typeName).append("();\n");
+		src.append("\t}\n\n");
+
+		src.append("\t@Override\n");
+		src.append("\tprotected void writeFields(").append(typeName).append(" value, JsonGenerator gen) throws IOException {\n");
+		src.append(writeFields);
+		src.append("\t}\n\n");
+
+		src.append("\t@Override\n");
+		src.append("\tprotected boolean readField(String field, ").append(typeName).append(" value, JsonParser jp, DeserializationContext ctxt)\n");
+		src.append("\t\t\tthrows IOException {\n");
+		src.append(readFields);
+		src.append("\t\treturn false;\n");
+		src.append("\t}\n");
+		src.append(helpers);
+		src.append("}\n");
+		return src.toString();
+	}
+
+	/**
+	 * @return the serialized fields, the ones of the super classes first. A field hidden by a field of a subclass is
+	 *         skipped.
+	 */
+	private List<VariableElement> getFields() {
+		List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+		for (TypeElement t = type; t != null; t = getSuperclass(t)) {
+			hierarchy.add(t);
+		}
+
+		Map<String, VariableElement> visibleFields = new HashMap<String, VariableElement>();
+		for (TypeElement t : hierarchy) {
+			for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+				if (!visibleFields.containsKey(field.getSimpleName().toString())) {
+					visibleFields.put(field.getSimpleName().toString(), field);
+				}
+			}
+		}
+
+		Collections.reverse(hierarchy);
+		List<VariableElement> fields = new ArrayList<VariableElement>();
+		for (TypeElement t : hierarchy) {
+			for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+				if (visibleFields.get(field.getSimpleName().toString()) == field && isSerialized(field)) {
+					fields.add(field);
+				}
+			}
+		}
+		return fields;
+	}
+
+	private TypeElement getSuperclass(TypeElement t) {
+		TypeMirror superclass = t.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+		return Object.class.getName().equals(superElement.getQualifiedName().toString()) ? null : superElement;
+	}
+
+	private static boolean isSerialized(VariableElement field) {
+		Set<Modifier> modifiers = field.getModifiers();
+		return !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)
+				&& field.getAnnotation(ServerSide.class) == null;
+	}
+
+	private void addField(VariableElement field, StringBuilder writeFields, StringBuilder readFields) {
+		String name = field.getSimpleName().toString();
+		TypeMirror fieldType = field.asType();
+		String getter = getReadAccess(field);
+		String setter = getWriteAccess(field);
+		if (getter == null && setter == null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+					"The field " + name + " is not accessible from the JSON codec, and has no getter or setter", field);
+			return;
+		}
+
+		if (getter != null) {
+			String constant = "FIELD_" + name;
+			constants.append("\tprivate static final SerializedString ").append(constant).append(" = new SerializedString(\"")
+					.append(name).append("\");\n");
+			writeFields.append("\t\tgen.writeFieldName(").append(constant).append(");\n");
+			appendWrite(writeFields, "\t\t", fieldType, getter);
+		}
+
+		if (setter != null) {
+			readFields.append("\t\tif (\"").append(name).append("\".equals(field)) {\n");
+			String value = getReadExpression(fieldType);
+			if (fieldType.getKind().isPrimitive()) {
+				// null leaves the default value of the field
+				readFields.append("\t\t\tif (jp.getCurrentToken() != JsonToken.VALUE_NULL) {\n");
+				readFields.append("\t\t\t\t").append(String.format(setter, value)).append(";\n");
+				readFields.append("\t\t\t}\n");
+			} else {
+				readFields.append("\t\t\t").append(String.format(setter, value)).append(";\n");
+			}
+			readFields.append("\t\t\treturn true;\n");
+			readFields.append("\t\t}\n");
+		}
+	}
+
+	/**
+	 * @return the expression reading the field from the variable "value", or null
+	 */
+	private String getReadAccess(VariableElement field) {
+		if (isAccessible(field)) {
+			return "value." + field.getSimpleName();
+		}
+		String suffix = capitalize(field.getSimpleName().toString());
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+			String methodName = method.getSimpleName().toString();
+			boolean getterName = methodName.equals("get" + suffix)
+					|| methodName.equals("is" + suffix) && field.asType().getKind() == TypeKind.BOOLEAN;
+			if (getterName && method.getParameters().isEmpty() && isAccessibleMethod(method)
+					&& types.isSameType(method.getReturnType(), field.asType())) {
+				return "value." + methodName + "()";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the format of the statement assigning the value given as argument to the field, or null
+	 */
+	private String getWriteAccess(VariableElement field) {
+		if (isAccessible(field) && !field.getModifiers().contains(Modifier.FINAL)) {
+			return "value." + field.getSimpleName() + " = %s";
+		}
+		String setterName = "set" + capitalize(field.getSimpleName().toString());
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+			if (method.getSimpleName().contentEquals(setterName) && method.getParameters().size() == 1 && isAccessibleMethod(method)
+					&& types.isSameType(method.getParameters().get(0).asType(), field.asType())) {
+				return "value." + setterName + "(%s)";
+			}
+		}
+		return null;
+	}
+
+	private boolean isAccessibleMethod(ExecutableElement method) {
+		return !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method);
+	}
+
+	/**
+	 * @return true if the member can be used from the codec, that is in the package of the data type
+	 */
+	private boolean isAccessible(Element member) {
+		Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		boolean samePackage = elements.getPackageOf(member).getQualifiedName().contentEquals(packageName);
+		if (!modifiers.contains(Modifier.PUBLIC)) {
+			return samePackage;
+		}
+		return samePackage || member.getEnclosingElement().getModifiers().contains(Modifier.PUBLIC);
+	}
+
+	private static String capitalize(String name) {
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private ValueKind getKind(TypeMirror t) {
+		if (t.getKind().isPrimitive()) {
+			return ValueKind.PRIMITIVE;
+		}
+		if (t.getKind() != TypeKind.DECLARED) {
+			return ValueKind.OTHER;
+		}
+		DeclaredType declaredType = (DeclaredType) t;
+		TypeElement element = (TypeElement) declaredType.asElement();
+		String name = getQualifiedName(t);
+		if (BOXED_TYPES.containsKey(name)) {
+			return ValueKind.BOXED;
+		}
+		if (String.class.getName().equals(name)) {
+			return ValueKind.STRING;
+		}
+		if (Date.class.getName().equals(name)) {
+			return ValueKind.DATE;
+		}
+		if (element.getKind() == ElementKind.ENUM) {
+			return ValueKind.ENUM;
+		}
+		if (dataTypes.contains(element)) {
+			return ValueKind.DATA_TYPE;
+		}
+		List<? extends TypeMirror> args = declaredType.getTypeArguments();
+		if (Array.class.getName().equals(name) && args.size() == 1 && args.get(0).getKind() == TypeKind.DECLARED) {
+			return ValueKind.ARRAY;
+		}
+		if (org.stjs.javascript.Map.class.getName().equals(name) && args.size() == 2 && getKind(args.get(0)) == ValueKind.STRING
+				&& args.get(1).getKind() == TypeKind.DECLARED) {
+			return ValueKind.MAP;
+		}
+		return ValueKind.OTHER;
+	}
+
+	private static String getQualifiedName(TypeMirror t) {
+		return ((TypeElement) ((DeclaredType) t).asElement()).getQualifiedName().toString();
+	}
+
+	private String getCodecReference(TypeMirror t) {
+		TypeElement element = (TypeElement) ((DeclaredType) t).asElement();
+		String elementPackage = elements.getPackageOf(element).getQualifiedName().toString();
+		String codec = JSDataTypeCodecProcessor.getCodecSimpleName(element);
+		return elementPackage.isEmpty() ? codec : elementPackage + "." + codec;
+	}
+
+	/**
+	 * appends the statements writing the value of the expression, that is evaluated only once
+	 */
+	private void appendWrite(StringBuilder out, String indent, TypeMirror t, String expression) {
+		ValueKind kind = getKind(t);
+		if (kind == ValueKind.PRIMITIVE) {
+			out.append(indent).append(getNonNullWrite(t, kind, expression)).append(";\n");
+			return;
+		}
+		String var = "v" + nextId++;
+		out.append(indent).append(t).append(' ').append(var).append(" = ").append(expression).append(";\n");
+		out.append(indent).append("if (").append(var).append(" == null) {\n");
+		out.append(indent).append(INDENT).append("gen.writeNull();\n");
+		if (kind == ValueKind.DATA_TYPE && !isFinal(t)) {
+			// the codec only knows the fields of the declared class: an instance of a subclass is written by the ObjectMapper
+			out.append(indent).append("} else if (").append(var).append(".getClass() != ").append(t).append(".class) {\n");
+			out.append(indent).append(INDENT).append(getNonNullWrite(t, ValueKind.OTHER, var)).append(";\n");
+		}
+		out.append(indent).append("} else {\n");
+		out.append(indent).append(INDENT).append(getNonNullWrite(t, kind, var)).append(";\n");
+		out.append(indent).append("}\n");
+	}
+
+	private static boolean isFinal(TypeMirror t) {
+		return ((DeclaredType) t).asElement().getModifiers().contains(Modifier.FINAL);
+	}
+
+	private String getNonNullWrite(TypeMirror t, ValueKind kind, String var) {
+		switch (kind) {
+		case PRIMITIVE:
+		case BOXED:
+			TypeKind primitive = kind == ValueKind.PRIMITIVE ? t.getKind() : BOXED_TYPES.get(getQualifiedName(t));
+			if (primitive == TypeKind.BOOLEAN) {
+				return "gen.writeBoolean(" + var + ")";
+			}
+			if (primitive == TypeKind.CHAR) {
+				return "gen.writeString(String.valueOf(" + var + "))";
+			}
+			return "gen.writeNumber(" + var + ")";
+		case STRING:
+			return "gen.writeString(" + var + ")";
+		case DATE:
+			return "gen.writeString(org.stjs.server.json.JSDateUtils.toNormalizedString(" + var + "))";
+		case ENUM:
+			return "gen.writeString(" + var + ".name())";
+		case ARRAY:
+		case MAP:
+			return getWriteHelper(t, kind) + "(" + var + ", gen)";
+		case DATA_TYPE:
+			return getCodecReference(t) + ".INSTANCE.write(" + var + ", gen)";
+		default:
+			return "gen.writeObject(" + var + ")";
+		}
+	}
+
+	private String getWriteHelper(TypeMirror t, ValueKind kind) {
+		String key = "write " + t;
+		String helper = helperNames.get(key);
+		if (helper != null) {
+			return helper;
+		}
+		helper = "write" + (kind == ValueKind.ARRAY ? "Array" : "Map") + nextId++;
+		helperNames.put(key, helper);
+
+		List<? extends TypeMirror> args = ((DeclaredType) t).getTypeArguments();
+		StringBuilder method = new StringBuilder();
+		method.append("\n\tprivate static void ").append(helper).append("(").append(t).append(" value, JsonGenerator gen) throws IOException {\n");
+		if (kind == ValueKind.ARRAY) {
+			TypeMirror elementType = args.get(0);
+			method.append("\t\tjava.util.List<").append(elementType).append("> elements = checkPacked(value);\n");
+			method.append("\t\tgen.writeStartArray();\n");
+			method.append("\t\tfor (int i = 0, n = elements.size(); i < n; i++) {\n");
+			appendWrite(method, "\t\t\t", elementType, "elements.get(i)");
+			method.append("\t\t}\n");
+			method.append("\t\tgen.writeEndArray();\n");
+		} else {
+			method.append("\t\tgen.writeStartObject();\n");
+			method.append("\t\tfor (String key : value) {\n");
+			method.append("\t\t\tgen.writeFieldName(key);\n");
+			appendWrite(method, "\t\t\t", args.get(1), "value.$get(key)");
+			method.append("\t\t}\n");
+			method.append("\t\tgen.writeEndObject();\n");
+		}
+		method.append("\t}\n");
+		helpers.append(method);
+		return helper;
+	}
+
+	/**
+	 * @return the expression reading the value the parser points to
+	 */
+	private String getReadExpression(TypeMirror t) {
+		ValueKind kind = getKind(t);
+		switch (kind) {
+		case PRIMITIVE:
+			return PRIMITIVE_READERS.get(t.getKind());
+		case BOXED:
+			String boxed = getQualifiedName(t);
+			return nullOr(boxed + ".valueOf(" + PRIMITIVE_READERS.get(BOXED_TYPES.get(boxed)) + ")");
+		case STRING:
+			return nullOr("jp.getText()");
+		case DATE:
+			return nullOr("new " + Date.class.getName() + "(jp.getText())");
+		case ENUM:
+			return nullOr(t + ".valueOf(jp.getText())");
+		case ARRAY:
+		case MAP:
+			return getReadHelper(t, kind) + "(jp, ctxt)";
+		case DATA_TYPE:
+			return getCodecReference(t) + ".INSTANCE.read(jp, ctxt)";
+		default:
+			String typeReference = "TYPE_" + nextId++;
+			constants.append("\tprivate static final org.codehaus.jackson.type.TypeReference<").append(t).append("> ")
+					.append(typeReference).append(" = new org.codehaus.jackson.type.TypeReference<").append(t).append(">() {\n\t};\n");
+			return "jp.<" + t + "> readValueAs(" + typeReference + ")";
+		}
+	}
+
+	private static String nullOr(String expression) {
+		return "jp.getCurrentToken() == JsonToken.VALUE_NULL ? null : " + expression;
+	}
+
+	private String getReadHelper(TypeMirror t, ValueKind kind) {
+		String key = "read " + t;
+		String helper = helperNames.get(key);
+		if (helper != null) {
+			return helper;
+		}
+		helper = "read" + (kind == ValueKind.ARRAY ? "Array" : "Map") + nextId++;
+		helperNames.put(key, helper);
+
+		List<? extends TypeMirror> args = ((DeclaredType) t).getTypeArguments();
+		StringBuilder method = new StringBuilder();
+		method.append("\n\tprivate static ").append(t).append(' ').append(helper).append("(JsonParser jp, DeserializationContext ctxt)\n");
+		method.append("\t\t\tthrows IOException {\n");
+		method.append("\t\tif (jp.getCurrentToken() == JsonToken.VALUE_NULL) {\n");
+		method.append("\t\t\treturn null;\n");
+		method.append("\t\t}\n");
+		if (kind == ValueKind.ARRAY) {
+			TypeMirror elementType = args.get(0);
+			method.append("\t\texpect(jp, JsonToken.START_ARRAY);\n");
+			method.append("\t\t").append(Array.class.getName()).append(".Builder<").append(elementType).append("> builder = ")
+					.append(Array.class.getName()).append(".builder(0);\n");
+			method.append("\t\twhile (jp.nextToken() != JsonToken.END_ARRAY) {\n");
+			method.append("\t\t\tbuilder.add(").append(getReadExpression(elementType)).append(");\n");
+			method.append("\t\t}\n");
+			method.append("\t\treturn builder.build();\n");
+		} else {
+			method.append("\t\texpect(jp, JsonToken.START_OBJECT);\n");
+			method.append("\t\t").append(t).append(" map = ").append(org.stjs.javascript.Map.class.getName()).append(".withExpectedSize(0);\n");
+			method.append("\t\twhile (jp.nextToken() == JsonToken.FIELD_NAME) {\n");
+			method.append("\t\t\tString key = jp.getCurrentName();\n");
+			method.append("\t\t\tjp.nextToken();\n");
+			method.append("\t\t\tmap.$put(key, ").append(getReadExpression(args.get(1))).append(");\n");
+			method.append("\t\t}\n");
+			method.append("\t\treturn map;\n");
+		}
+		method.append("\t}\n");
+		helpers.append(method);
+		return helper;
+	}
+}
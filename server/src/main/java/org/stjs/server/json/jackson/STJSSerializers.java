@@ -0,0 +1,48 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.jackson;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.BeanDescription;
+import org.codehaus.jackson.map.BeanProperty;
+import org.codehaus.jackson.map.JsonSerializer;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.module.SimpleSerializers;
+import org.codehaus.jackson.type.JavaType;
+
+/**
+ * The serializers of the module. The serializer of a {@link JSDataTypeCodec} is only used for the exact class of the
+ * codec: the codec does not know the fields of the subclasses, that are introspected like any other bean.
+ */
+public class STJSSerializers extends SimpleSerializers {
+	private final Map<Class<?>, JsonSerializer<?>> codecSerializers = new HashMap<Class<?>, JsonSerializer<?>>();
+
+	public void addCodec(JSDataTypeCodec<?> codec) {
+		codecSerializers.put(codec.getType(), codec.getSerializer());
+	}
+
+	@Override
+	public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc,
+			BeanProperty property) {
+		JsonSerializer<?> codecSerializer = codecSerializers.get(type.getRawClass());
+		if (codecSerializer != null) {
+			return codecSerializer;
+		}
+		return super.findSerializer(config, type, beanDesc, property);
+	}
+}
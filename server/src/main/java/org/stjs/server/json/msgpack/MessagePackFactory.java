@@ -0,0 +1,104 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.msgpack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.ObjectCodec;
+import org.codehaus.jackson.io.IOContext;
+
+/**
+ * A Jackson factory reading and writing MessagePack, a binary equivalent of JSON that is more compact, and much faster
+ * to decode in the browser with stjs.parseBinary. The STJS module, the codecs of the data types and any other
+ * serializer work the same with both formats:
+ *
+ * <pre>
+ * MessagePackFactory factory = new MessagePackFactory();
+ * ObjectMapper mapper = new ObjectMapper(factory);
+ * factory.setCodec(mapper);
+ * mapper.registerModule(STJSModule.getModule());
+ * byte[] message = mapper.writeValueAsBytes(value);
+ * </pre>
+ *
+ * The codec must be set for the values that are read with {@link JsonParser#readValueAs(Class)}, as the generated
+ * codecs do for the fields they do not handle themselves. The dates are written as strings, like in JSON. As MessagePack is binary, the methods using a Reader, a Writer or a
+ * String throw an UnsupportedOperationException. A parser reads all its input in memory.
+ */
+public class MessagePackFactory extends JsonFactory {
+	public static final String FORMAT_NAME_MESSAGE_PACK = "MessagePack";
+
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	public MessagePackFactory() {
+		this(null);
+	}
+
+	public MessagePackFactory(ObjectCodec codec) {
+		super(codec);
+	}
+
+	@Override
+	public String getFormatName() {
+		return FORMAT_NAME_MESSAGE_PACK;
+	}
+
+	@Override
+	protected JsonParser _createJsonParser(InputStream in, IOContext ctxt) throws IOException, JsonParseException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		try {
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+				bytes.write(buffer, 0, n);
+			}
+		}
+		finally {
+			if (ctxt.isResourceManaged() || isEnabled(JsonParser.Feature.AUTO_CLOSE_SOURCE)) {
+				in.close();
+			}
+		}
+		byte[] data = bytes.toByteArray();
+		return new MessagePackParser(_parserFeatures, _objectCodec, data, 0, data.length);
+	}
+
+	@Override
+	protected JsonParser _createJsonParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException, JsonParseException {
+		return new MessagePackParser(_parserFeatures, _objectCodec, data, offset, len);
+	}
+
+	@Override
+	protected JsonParser _createJsonParser(Reader r, IOContext ctxt) throws IOException, JsonParseException {
+		throw new UnsupportedOperationException("MessagePack is a binary format: it cannot be read from a Reader");
+	}
+
+	@Override
+	protected JsonGenerator _createUTF8JsonGenerator(OutputStream out, IOContext ctxt) throws IOException {
+		return new MessagePackGenerator(_generatorFeatures, _objectCodec, out);
+	}
+
+	@Override
+	protected JsonGenerator _createJsonGenerator(Writer out, IOContext ctxt) throws IOException {
+		throw new UnsupportedOperationException("MessagePack is a binary format: it cannot be written to a Writer");
+	}
+}
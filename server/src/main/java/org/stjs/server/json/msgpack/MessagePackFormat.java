@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.msgpack;
+
+/**
+ * The type codes of the MessagePack format used by {@link MessagePackGenerator} and {@link MessagePackParser}. See
+ * https://github.com/msgpack/msgpack/blob/master/spec.md
+ */
+final class MessagePackFormat {
+	static final int POSITIVE_FIXINT_MAX = 0x7f;
+	static final int FIXMAP = 0x80;
+	static final int FIXARRAY = 0x90;
+	static final int FIXSTR = 0xa0;
+	static final int NIL = 0xc0;
+	static final int FALSE = 0xc2;
+	static final int TRUE = 0xc3;
+	static final int BIN8 = 0xc4;
+	static final int BIN16 = 0xc5;
+	static final int BIN32 = 0xc6;
+	static final int FLOAT32 = 0xca;
+	static final int FLOAT64 = 0xcb;
+	static final int UINT8 = 0xcc;
+	static final int UINT16 = 0xcd;
+	static final int UINT32 = 0xce;
+	static final int UINT64 = 0xcf;
+	static final int INT8 = 0xd0;
+	static final int INT16 = 0xd1;
+	static final int INT32 = 0xd2;
+	static final int INT64 = 0xd3;
+	static final int STR8 = 0xd9;
+	static final int STR16 = 0xda;
+	static final int STR32 = 0xdb;
+	static final int ARRAY16 = 0xdc;
+	static final int ARRAY32 = 0xdd;
+	static final int MAP16 = 0xde;
+	static final int MAP32 = 0xdf;
+	static final int NEGATIVE_FIXINT_MIN = -32;
+
+	static final int FIX_LENGTH_MAX = 15;
+	static final int FIXSTR_LENGTH_MAX = 31;
+
+	private MessagePackFormat() {
+		// constants only
+	}
+}
@@ -0,0 +1,475 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.msgpack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.codehaus.jackson.Base64Variant;
+import org.codehaus.jackson.JsonGenerationException;
+import org.codehaus.jackson.ObjectCodec;
+import org.codehaus.jackson.impl.JsonGeneratorBase;
+import org.codehaus.jackson.impl.JsonWriteContext;
+
+/**
+ * Writes MessagePack instead of JSON text. The number of elements of an array or an object is only known at its end, so
+ * the containers are buffered, and always use the 32 bits header that is patched when they are closed. The buffer is
+ * written to the stream when a value of the root level is complete.
+ */
+public class MessagePackGenerator extends JsonGeneratorBase {
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int MAX_DEPTH = 64;
+	private static final long UINT32_MAX = 0xffffffffL;
+
+	private final OutputStream out;
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+	private int length;
+
+	/**
+	 * the positions of the headers of the open containers, and the number of elements written in them so far
+	 */
+	private int[] headers = new int[MAX_DEPTH];
+	private int[] counts = new int[MAX_DEPTH];
+	private int depth;
+
+	public MessagePackGenerator(int features, ObjectCodec codec, OutputStream out) {
+		super(features, codec);
+		this.out = out;
+	}
+
+	@Override
+	protected void _verifyValueWrite(String typeMsg) throws IOException, JsonGenerationException {
+		int status = _writeContext.writeValue();
+		if (status == JsonWriteContext.STATUS_EXPECT_NAME) {
+			_reportError("Can not " + typeMsg + ", expecting field name");
+		}
+		if (depth > 0 && _writeContext.inArray()) {
+			counts[depth - 1]++;
+		}
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length * 2));
+		}
+	}
+
+	private void writeByte(int b) {
+		buffer[length++] = (byte) b;
+	}
+
+	private void writeShort(int s) {
+		buffer[length++] = (byte) (s >> 8);
+		buffer[length++] = (byte) s;
+	}
+
+	private void writeInt(int i) {
+		buffer[length++] = (byte) (i >> 24);
+		buffer[length++] = (byte) (i >> 16);
+		buffer[length++] = (byte) (i >> 8);
+		buffer[length++] = (byte) i;
+	}
+
+	private void writeLong(long l) {
+		writeInt((int) (l >> 32));
+		writeInt((int) l);
+	}
+
+	private void openContainer(int type) throws JsonGenerationException {
+		if (depth == headers.length) {
+			headers = Arrays.copyOf(headers, depth * 2);
+			counts = Arrays.copyOf(counts, depth * 2);
+		}
+		ensureCapacity(5);
+		headers[depth] = length;
+		counts[depth] = 0;
+		depth++;
+		writeByte(type);
+		writeInt(0);
+	}
+
+	private void closeContainer() throws IOException {
+		depth--;
+		int end = length;
+		length = headers[depth] + 1;
+		writeInt(counts[depth]);
+		length = end;
+		if (depth == 0) {
+			flushBuffer();
+		}
+	}
+
+	/**
+	 * writes the buffer to the stream, only when no container is open
+	 */
+	private void flushBuffer() throws IOException {
+		if (depth == 0 && length > 0) {
+			out.write(buffer, 0, length);
+			length = 0;
+		}
+	}
+
+	private void valueWritten() throws IOException {
+		if (depth == 0 && length >= INITIAL_BUFFER_SIZE) {
+			flushBuffer();
+		}
+	}
+
+	@Override
+	public void writeStartArray() throws IOException, JsonGenerationException {
+		_verifyValueWrite("start an array");
+		_writeContext = _writeContext.createChildArrayContext();
+		openContainer(MessagePackFormat.ARRAY32);
+	}
+
+	@Override
+	public void writeEndArray() throws IOException, JsonGenerationException {
+		if (!_writeContext.inArray()) {
+			_reportError("Current context not an ARRAY but " + _writeContext.getTypeDesc());
+		}
+		_writeContext = _writeContext.getParent();
+		closeContainer();
+	}
+
+	@Override
+	public void writeStartObject() throws IOException, JsonGenerationException {
+		_verifyValueWrite("start an object");
+		_writeContext = _writeContext.createChildObjectContext();
+		openContainer(MessagePackFormat.MAP32);
+	}
+
+	@Override
+	public void writeEndObject() throws IOException, JsonGenerationException {
+		if (!_writeContext.inObject()) {
+			_reportError("Current context not an object but " + _writeContext.getTypeDesc());
+		}
+		_writeContext = _writeContext.getParent();
+		closeContainer();
+	}
+
+	@Override
+	public void writeFieldName(String name) throws IOException, JsonGenerationException {
+		if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+			_reportError("Can not write a field name, expecting a value");
+		}
+		counts[depth - 1]++;
+		writeStringValue(name);
+	}
+
+	@Override
+	public void writeString(String text) throws IOException, JsonGenerationException {
+		if (text == null) {
+			writeNull();
+			return;
+		}
+		_verifyValueWrite("write text value");
+		writeStringValue(text);
+		valueWritten();
+	}
+
+	@Override
+	public void writeString(char[] text, int offset, int len) throws IOException, JsonGenerationException {
+		writeString(new String(text, offset, len));
+	}
+
+	@Override
+	public void writeRawUTF8String(byte[] text, int offset, int len) throws IOException, JsonGenerationException {
+		writeUTF8String(text, offset, len);
+	}
+
+	@Override
+	public void writeUTF8String(byte[] text, int offset, int len) throws IOException, JsonGenerationException {
+		_verifyValueWrite("write text value");
+		writeStringHeader(len);
+		ensureCapacity(len);
+		System.arraycopy(text, offset, buffer, length, len);
+		length += len;
+		valueWritten();
+	}
+
+	private void writeStringHeader(int byteLength) {
+		ensureCapacity(5);
+		if (byteLength <= MessagePackFormat.FIXSTR_LENGTH_MAX) {
+			writeByte(MessagePackFormat.FIXSTR | byteLength);
+		} else if (byteLength <= 0xff) {
+			writeByte(MessagePackFormat.STR8);
+			writeByte(byteLength);
+		} else if (byteLength <= 0xffff) {
+			writeByte(MessagePackFormat.STR16);
+			writeShort(byteLength);
+		} else {
+			writeByte(MessagePackFormat.STR32);
+			writeInt(byteLength);
+		}
+	}
+
+	/**
+	 * encodes the string in UTF-8 directly in the buffer
+	 */
+	private void writeStringValue(String text) {
+		int len = text.length();
+		int byteLength = 0;
+		for (int i = 0; i < len; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				byteLength++;
+			} else if (c < 0x800) {
+				byteLength += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+				byteLength += 4;
+				i++;
+			} else {
+				byteLength += 3;
+			}
+		}
+
+		writeStringHeader(byteLength);
+		ensureCapacity(byteLength);
+		for (int i = 0; i < len; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				buffer[length++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[length++] = (byte) (0xc0 | c >> 6);
+				buffer[length++] = (byte) (0x80 | c & 0x3f);
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				buffer[length++] = (byte) (0xf0 | codePoint >> 18);
+				buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+				buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+				buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+			} else {
+				// a lone surrogate is encoded like the other chars of the basic plane
+				buffer[length++] = (byte) (0xe0 | c >> 12);
+				buffer[length++] = (byte) (0x80 | c >> 6 & 0x3f);
+				buffer[length++] = (byte) (0x80 | c & 0x3f);
+			}
+		}
+	}
+
+	@Override
+	public void writeRaw(String text) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRaw(String text, int offset, int len) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRaw(char[] text, int offset, int len) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRaw(char c) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRawValue(String text) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRawValue(String text, int offset, int len) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeRawValue(char[] text, int offset, int len) throws IOException, JsonGenerationException {
+		_reportUnsupportedOperation();
+	}
+
+	@Override
+	public void writeBinary(Base64Variant b64variant, byte[] data, int offset, int len) throws IOException,
+			JsonGenerationException {
+		_verifyValueWrite("write binary value");
+		ensureCapacity(5 + len);
+		if (len <= 0xff) {
+			writeByte(MessagePackFormat.BIN8);
+			writeByte(len);
+		} else if (len <= 0xffff) {
+			writeByte(MessagePackFormat.BIN16);
+			writeShort(len);
+		} else {
+			writeByte(MessagePackFormat.BIN32);
+			writeInt(len);
+		}
+		System.arraycopy(data, offset, buffer, length, len);
+		length += len;
+		valueWritten();
+	}
+
+	@Override
+	public void writeNumber(int i) throws IOException, JsonGenerationException {
+		writeNumber((long) i);
+	}
+
+	/**
+	 * uses the shortest encoding of the value
+	 */
+	@Override
+	public void writeNumber(long l) throws IOException, JsonGenerationException {
+		_verifyValueWrite("write number");
+		ensureCapacity(9);
+		if (l >= MessagePackFormat.NEGATIVE_FIXINT_MIN && l <= MessagePackFormat.POSITIVE_FIXINT_MAX) {
+			writeByte((int) l);
+		} else if (l >= 0) {
+			if (l <= 0xff) {
+				writeByte(MessagePackFormat.UINT8);
+				writeByte((int) l);
+			} else if (l <= 0xffff) {
+				writeByte(MessagePackFormat.UINT16);
+				writeShort((int) l);
+			} else if (l <= UINT32_MAX) {
+				writeByte(MessagePackFormat.UINT32);
+				writeInt((int) l);
+			} else {
+				writeByte(MessagePackFormat.UINT64);
+				writeLong(l);
+			}
+		} else if (l >= Byte.MIN_VALUE) {
+			writeByte(MessagePackFormat.INT8);
+			writeByte((int) l);
+		} else if (l >= Short.MIN_VALUE) {
+			writeByte(MessagePackFormat.INT16);
+			writeShort((int) l);
+		} else if (l >= Integer.MIN_VALUE) {
+			writeByte(MessagePackFormat.INT32);
+			writeInt((int) l);
+		} else {
+			writeByte(MessagePackFormat.INT64);
+			writeLong(l);
+		}
+		valueWritten();
+	}
+
+	@Override
+	public void writeNumber(BigInteger v) throws IOException, JsonGenerationException {
+		if (v == null) {
+			writeNull();
+		} else if (v.bitLength() < Long.SIZE) {
+			writeNumber(v.longValue());
+		} else if (v.signum() > 0 && v.bitLength() == Long.SIZE) {
+			// the unsigned 64 bits integers
+			_verifyValueWrite("write number");
+			ensureCapacity(9);
+			writeByte(MessagePackFormat.UINT64);
+			writeLong(v.longValue());
+			valueWritten();
+		} else {
+			_reportError("MessagePack cannot encode the integer " + v);
+		}
+	}
+
+	@Override
+	public void writeNumber(double d) throws IOException, JsonGenerationException {
+		_verifyValueWrite("write number");
+		ensureCapacity(9);
+		writeByte(MessagePackFormat.FLOAT64);
+		writeLong(Double.doubleToLongBits(d));
+		valueWritten();
+	}
+
+	@Override
+	public void writeNumber(float f) throws IOException, JsonGenerationException {
+		_verifyValueWrite("write number");
+		ensureCapacity(5);
+		writeByte(MessagePackFormat.FLOAT32);
+		writeInt(Float.floatToIntBits(f));
+		valueWritten();
+	}
+
+	/**
+	 * MessagePack has no decimal type: the value is written as a double
+	 */
+	@Override
+	public void writeNumber(BigDecimal dec) throws IOException, JsonGenerationException {
+		if (dec == null) {
+			writeNull();
+		} else {
+			writeNumber(dec.doubleValue());
+		}
+	}
+
+	@Override
+	public void writeNumber(String encodedValue) throws IOException, JsonGenerationException {
+		if (encodedValue == null) {
+			writeNull();
+			return;
+		}
+		try {
+			writeNumber(Long.parseLong(encodedValue));
+		}
+		catch (NumberFormatException e) {
+			writeNumber(Double.parseDouble(encodedValue));
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean state) throws IOException, JsonGenerationException {
+		_verifyValueWrite("write boolean value");
+		ensureCapacity(1);
+		writeByte(state ? MessagePackFormat.TRUE : MessagePackFormat.FALSE);
+		valueWritten();
+	}
+
+	@Override
+	public void writeNull() throws IOException, JsonGenerationException {
+		_verifyValueWrite("write null value");
+		ensureCapacity(1);
+		writeByte(MessagePackFormat.NIL);
+		valueWritten();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		if (isEnabled(Feature.FLUSH_PASSED_TO_STREAM)) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (isEnabled(Feature.AUTO_CLOSE_JSON_CONTENT)) {
+			while (!_writeContext.inRoot()) {
+				if (_writeContext.inArray()) {
+					writeEndArray();
+				} else {
+					writeEndObject();
+				}
+			}
+		}
+		super.close();
+		flushBuffer();
+		if (isEnabled(Feature.AUTO_CLOSE_TARGET)) {
+			out.close();
+		} else {
+			out.flush();
+		}
+	}
+
+	@Override
+	protected void _releaseBuffers() {
+		// the buffer is not recycled
+	}
+}
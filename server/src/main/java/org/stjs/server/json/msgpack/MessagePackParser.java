@@ -0,0 +1,475 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.server.json.msgpack;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.codehaus.jackson.Base64Variant;
+import org.codehaus.jackson.JsonLocation;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonStreamContext;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.ObjectCodec;
+import org.codehaus.jackson.impl.JsonParserMinimalBase;
+import org.codehaus.jackson.impl.JsonReadContext;
+
+/**
+ * Reads MessagePack as a stream of JSON tokens, so the deserializers of Jackson can be used. The maps are read as
+ * objects, their keys must be strings or integers. The binary values are read as embedded objects.
+ */
+public class MessagePackParser extends JsonParserMinimalBase {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int MAX_DEPTH = 64;
+	private static final BigInteger UINT64_OFFSET = BigInteger.ONE.shiftLeft(Long.SIZE);
+
+	private ObjectCodec codec;
+	private final byte[] data;
+	private int position;
+	private final int end;
+	private boolean closed;
+
+	private JsonReadContext parsingContext = JsonReadContext.createRootContext(-1, -1);
+	/**
+	 * the number of values left in the open containers. For the maps, the key and the value are counted separately.
+	 */
+	private int[] remaining = new int[MAX_DEPTH];
+	private int depth;
+	private int tokenPosition;
+
+	private String text;
+	private byte[] binary;
+	private NumberType numberType;
+	private long longValue;
+	private double doubleValue;
+	private BigInteger bigIntegerValue;
+
+	public MessagePackParser(int features, ObjectCodec codec, byte[] data, int offset, int len) {
+		super(features);
+		this.codec = codec;
+		this.data = data;
+		this.position = offset;
+		this.end = offset + len;
+	}
+
+	@Override
+	public ObjectCodec getCodec() {
+		return codec;
+	}
+
+	@Override
+	public void setCodec(ObjectCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	public JsonToken nextToken() throws IOException, JsonParseException {
+		if (closed) {
+			return null;
+		}
+		if (depth > 0) {
+			if (remaining[depth - 1] == 0) {
+				depth--;
+				_currToken = parsingContext.inArray() ? JsonToken.END_ARRAY : JsonToken.END_OBJECT;
+				parsingContext = parsingContext.getParent();
+				return _currToken;
+			}
+			remaining[depth - 1]--;
+			if (parsingContext.inObject() && (remaining[depth - 1] & 1) == 1) {
+				tokenPosition = position;
+				readValue();
+				if (_currToken != JsonToken.VALUE_STRING && _currToken != JsonToken.VALUE_NUMBER_INT) {
+					_reportError("Unsupported map key: " + _currToken);
+				}
+				String name = getText();
+				parsingContext.setCurrentName(name);
+				return _currToken = JsonToken.FIELD_NAME;
+			}
+		} else if (position >= end) {
+			_handleEOF();
+			close();
+			return _currToken = null;
+		}
+		tokenPosition = position;
+		readValue();
+		return _currToken;
+	}
+
+	private int readByte() throws JsonParseException {
+		if (position >= end) {
+			_reportInvalidEOF();
+		}
+		return data[position++] & 0xff;
+	}
+
+	private void require(int len) throws JsonParseException {
+		if (len < 0 || end - position < len) {
+			_reportInvalidEOF();
+		}
+	}
+
+	private int readShort() throws JsonParseException {
+		require(2);
+		return (data[position++] & 0xff) << 8 | data[position++] & 0xff;
+	}
+
+	private int readInt() throws JsonParseException {
+		require(4);
+		return (data[position++] & 0xff) << 24 | (data[position++] & 0xff) << 16 | (data[position++] & 0xff) << 8 | data[position++] & 0xff;
+	}
+
+	private long readLong() throws JsonParseException {
+		long high = readInt();
+		return high << 32 | readInt() & 0xffffffffL;
+	}
+
+	private int readLength32() throws JsonParseException {
+		int len = readInt();
+		if (len < 0) {
+			_reportError("Too long value: " + (len & 0xffffffffL));
+		}
+		return len;
+	}
+
+	/**
+	 * reads the value at the current position, and sets the current token
+	 */
+	private void readValue() throws JsonParseException {
+		int type = readByte();
+		if (type <= MessagePackFormat.POSITIVE_FIXINT_MAX) {
+			setInt(type);
+		} else if (type >= (MessagePackFormat.NEGATIVE_FIXINT_MIN & 0xff)) {
+			setInt((byte) type);
+		} else if (type < MessagePackFormat.FIXARRAY) {
+			startObject(type & MessagePackFormat.FIX_LENGTH_MAX);
+		} else if (type < MessagePackFormat.FIXSTR) {
+			startArray(type & MessagePackFormat.FIX_LENGTH_MAX);
+		} else if (type < MessagePackFormat.NIL) {
+			setString(type & MessagePackFormat.FIXSTR_LENGTH_MAX);
+		} else {
+			readTypedValue(type);
+		}
+	}
+
+	private void readTypedValue(int type) throws JsonParseException {
+		switch (type) {
+		case MessagePackFormat.NIL:
+			_currToken = JsonToken.VALUE_NULL;
+			break;
+		case MessagePackFormat.FALSE:
+			_currToken = JsonToken.VALUE_FALSE;
+			break;
+		case MessagePackFormat.TRUE:
+			_currToken = JsonToken.VALUE_TRUE;
+			break;
+		case MessagePackFormat.BIN8:
+			setBinary(readByte());
+			break;
+		case MessagePackFormat.BIN16:
+			setBinary(readShort());
+			break;
+		case MessagePackFormat.BIN32:
+			setBinary(readLength32());
+			break;
+		case MessagePackFormat.FLOAT32:
+			setDouble(Float.intBitsToFloat(readInt()), NumberType.FLOAT);
+			break;
+		case MessagePackFormat.FLOAT64:
+			setDouble(Double.longBitsToDouble(readLong()), NumberType.DOUBLE);
+			break;
+		case MessagePackFormat.UINT8:
+			setInt(readByte());
+			break;
+		case MessagePackFormat.UINT16:
+			setInt(readShort());
+			break;
+		case MessagePackFormat.UINT32:
+			setInt(readInt() & 0xffffffffL);
+			break;
+		case MessagePackFormat.UINT64:
+			setUnsignedLong(readLong());
+			break;
+		case MessagePackFormat.INT8:
+			setInt((byte) readByte());
+			break;
+		case MessagePackFormat.INT16:
+			setInt((short) readShort());
+			break;
+		case MessagePackFormat.INT32:
+			setInt(readInt());
+			break;
+		case MessagePackFormat.INT64:
+			setInt(readLong());
+			break;
+		case MessagePackFormat.STR8:
+			setString(readByte());
+			break;
+		case MessagePackFormat.STR16:
+			setString(readShort());
+			break;
+		case MessagePackFormat.STR32:
+			setString(readLength32());
+			break;
+		case MessagePackFormat.ARRAY16:
+			startArray(readShort());
+			break;
+		case MessagePackFormat.ARRAY32:
+			startArray(readLength32());
+			break;
+		case MessagePackFormat.MAP16:
+			startObject(readShort());
+			break;
+		case MessagePackFormat.MAP32:
+			startObject(readLength32());
+			break;
+		default:
+			_reportError("Unsupported MessagePack type: 0x" + Integer.toHexString(type));
+		}
+	}
+
+	private void setInt(long value) {
+		_currToken = JsonToken.VALUE_NUMBER_INT;
+		longValue = value;
+		numberType = value == (int) value ? NumberType.INT : NumberType.LONG;
+	}
+
+	private void setUnsignedLong(long value) {
+		if (value >= 0) {
+			setInt(value);
+			return;
+		}
+		_currToken = JsonToken.VALUE_NUMBER_INT;
+		numberType = NumberType.BIG_INTEGER;
+		bigIntegerValue = BigInteger.valueOf(value).add(UINT64_OFFSET);
+		longValue = value;
+	}
+
+	private void setDouble(double value, NumberType type) {
+		_currToken = JsonToken.VALUE_NUMBER_FLOAT;
+		doubleValue = value;
+		numberType = type;
+	}
+
+	private void setString(int len) throws JsonParseException {
+		require(len);
+		_currToken = JsonToken.VALUE_STRING;
+		text = new String(data, position, len, UTF8);
+		position += len;
+	}
+
+	private void setBinary(int len) throws JsonParseException {
+		require(len);
+		_currToken = JsonToken.VALUE_EMBEDDED_OBJECT;
+		binary = Arrays.copyOfRange(data, position, position + len);
+		position += len;
+	}
+
+	private void push(int count) throws JsonParseException {
+		if (depth == remaining.length) {
+			remaining = Arrays.copyOf(remaining, depth * 2);
+		}
+		remaining[depth++] = count;
+	}
+
+	private void startArray(int size) throws JsonParseException {
+		push(size);
+		parsingContext = parsingContext.createChildArrayContext(-1, -1);
+		_currToken = JsonToken.START_ARRAY;
+	}
+
+	private void startObject(int size) throws JsonParseException {
+		if (size > Integer.MAX_VALUE / 2) {
+			_reportError("Too large map: " + size);
+		}
+		push(size * 2);
+		parsingContext = parsingContext.createChildObjectContext(-1, -1);
+		_currToken = JsonToken.START_OBJECT;
+	}
+
+	@Override
+	protected void _handleEOF() throws JsonParseException {
+		if (depth > 0) {
+			_reportInvalidEOF(": expected close marker for " + parsingContext.getTypeDesc());
+		}
+	}
+
+	@Override
+	public String getCurrentName() throws IOException, JsonParseException {
+		if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+			return parsingContext.getParent().getCurrentName();
+		}
+		return parsingContext.getCurrentName();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public JsonStreamContext getParsingContext() {
+		return parsingContext;
+	}
+
+	@Override
+	public JsonLocation getTokenLocation() {
+		return new JsonLocation(data, tokenPosition, -1, -1);
+	}
+
+	@Override
+	public JsonLocation getCurrentLocation() {
+		return new JsonLocation(data, position, -1, -1);
+	}
+
+	@Override
+	public String getText() throws IOException, JsonParseException {
+		if (_currToken == null) {
+			return null;
+		}
+		switch (_currToken) {
+		case FIELD_NAME:
+			return parsingContext.getCurrentName();
+		case VALUE_STRING:
+			return text;
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return getNumberValue().toString();
+		default:
+			return _currToken.asString();
+		}
+	}
+
+	@Override
+	public char[] getTextCharacters() throws IOException, JsonParseException {
+		String t = getText();
+		return t == null ? null : t.toCharArray();
+	}
+
+	@Override
+	public boolean hasTextCharacters() {
+		return false;
+	}
+
+	@Override
+	public int getTextLength() throws IOException, JsonParseException {
+		String t = getText();
+		return t == null ? 0 : t.length();
+	}
+
+	@Override
+	public int getTextOffset() throws IOException, JsonParseException {
+		return 0;
+	}
+
+	@Override
+	public byte[] getBinaryValue(Base64Variant b64variant) throws IOException, JsonParseException {
+		if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
+			return binary;
+		}
+		_reportError("Current token (" + _currToken + ") not binary");
+		return null;
+	}
+
+	@Override
+	public Object getEmbeddedObject() throws IOException, JsonParseException {
+		return _currToken == JsonToken.VALUE_EMBEDDED_OBJECT ? binary : null;
+	}
+
+	private void checkNumber() throws JsonParseException {
+		if (_currToken != JsonToken.VALUE_NUMBER_INT && _currToken != JsonToken.VALUE_NUMBER_FLOAT) {
+			_reportError("Current token (" + _currToken + ") not numeric, can not use numeric value accessors");
+		}
+	}
+
+	@Override
+	public Number getNumberValue() throws IOException, JsonParseException {
+		checkNumber();
+		switch (numberType) {
+		case INT:
+			return (int) longValue;
+		case LONG:
+			return longValue;
+		case BIG_INTEGER:
+			return bigIntegerValue;
+		case FLOAT:
+			return (float) doubleValue;
+		default:
+			return doubleValue;
+		}
+	}
+
+	@Override
+	public NumberType getNumberType() throws IOException, JsonParseException {
+		checkNumber();
+		return numberType;
+	}
+
+	private boolean isFloat() {
+		return _currToken == JsonToken.VALUE_NUMBER_FLOAT;
+	}
+
+	@Override
+	public int getIntValue() throws IOException, JsonParseException {
+		checkNumber();
+		return isFloat() ? (int) doubleValue : (int) longValue;
+	}
+
+	@Override
+	public long getLongValue() throws IOException, JsonParseException {
+		checkNumber();
+		return isFloat() ? (long) doubleValue : longValue;
+	}
+
+	@Override
+	public BigInteger getBigIntegerValue() throws IOException, JsonParseException {
+		checkNumber();
+		if (isFloat()) {
+			return BigDecimal.valueOf(doubleValue).toBigInteger();
+		}
+		return numberType == NumberType.BIG_INTEGER ? bigIntegerValue : BigInteger.valueOf(longValue);
+	}
+
+	@Override
+	public float getFloatValue() throws IOException, JsonParseException {
+		return (float) getDoubleValue();
+	}
+
+	@Override
+	public double getDoubleValue() throws IOException, JsonParseException {
+		checkNumber();
+		if (isFloat()) {
+			return doubleValue;
+		}
+		return numberType == NumberType.BIG_INTEGER ? bigIntegerValue.doubleValue() : longValue;
+	}
+
+	@Override
+	public BigDecimal getDecimalValue() throws IOException, JsonParseException {
+		checkNumber();
+		if (isFloat()) {
+			return BigDecimal.valueOf(doubleValue);
+		}
+		return new BigDecimal(getBigIntegerValue());
+	}
+}
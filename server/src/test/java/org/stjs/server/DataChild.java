@@ -0,0 +1,19 @@
+package org.stjs.server;
+
+import org.stjs.javascript.annotation.DataType;
+
+@SuppressWarnings("deprecation")
+@DataType
+public class DataChild {
+	public int n;
+	public String label;
+
+	public DataChild() {
+		// for the codec
+	}
+
+	public DataChild(int n, String label) {
+		this.n = n;
+		this.label = label;
+	}
+}
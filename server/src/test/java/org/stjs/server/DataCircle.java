@@ -0,0 +1,8 @@
+package org.stjs.server;
+
+/**
+ * a subclass of a data type, without a codec of its own
+ */
+public class DataCircle extends DataShape {
+	public double radius;
+}
@@ -0,0 +1,9 @@
+package org.stjs.server;
+
+import org.stjs.javascript.annotation.SyntheticType;
+
+@SyntheticType
+public class DataHolder {
+	DataShape shape;
+	char initial;
+}
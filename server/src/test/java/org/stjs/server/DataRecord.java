@@ -0,0 +1,43 @@
+package org.stjs.server;
+
+import java.util.List;
+
+import org.stjs.javascript.Array;
+import org.stjs.javascript.Date;
+import org.stjs.javascript.Map;
+import org.stjs.javascript.annotation.ServerSide;
+import org.stjs.javascript.annotation.SyntheticType;
+
+@SyntheticType
+public class DataRecord {
+	public enum Color {
+		RED, GREEN
+	}
+
+	static int instances;
+
+	int id;
+	double ratio;
+	boolean active;
+	Integer count;
+	String name;
+	Date created;
+	Color color;
+	Array<Integer> values;
+	Map<String, Array<String>> tags;
+	DataChild child;
+	Array<DataChild> children;
+	List<String> notes;
+	transient String cache;
+	@ServerSide
+	String secret;
+	private long version;
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+}
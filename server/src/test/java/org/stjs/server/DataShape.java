@@ -0,0 +1,8 @@
+package org.stjs.server;
+
+import org.stjs.javascript.annotation.SyntheticType;
+
+@SyntheticType
+public class DataShape {
+	public String name;
+}
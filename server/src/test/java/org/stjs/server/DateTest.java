@@ -3,7 +3,10 @@ package org.stjs.server;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.junit.Test;
@@ -43,4 +46,138 @@ public class DateTest {
 		assertEquals(10, (int) d.getDate());
 		assertEquals(9, (int) d.getUTCHours());
 	}
+
+	@Test
+	public void testFieldsMatchCalendar() {
+		Random random = new Random(42);
+		TimeZone defaultZone = TimeZone.getDefault();
+		try {
+			for (String zone : new String[] { "UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe" }) {
+				TimeZone.setDefault(TimeZone.getTimeZone(zone));
+				for (int i = 0; i < 2000; i++) {
+					// between 1800 and 2200
+					long time = (long) ((random.nextDouble() - 0.5) * 2 * 7.3e12);
+					assertFieldsMatchCalendar(time);
+				}
+			}
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+
+	private static void assertFieldsMatchCalendar(long time) {
+		Date d = new Date(time);
+		GregorianCalendar local = new GregorianCalendar();
+		local.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
+		local.setTimeInMillis(time);
+		String message = "time " + time + " in " + TimeZone.getDefault().getID();
+		assertEquals(message, local.get(Calendar.YEAR), (int) d.getFullYear());
+		assertEquals(message, local.get(Calendar.MONTH), (int) d.getMonth());
+		assertEquals(message, local.get(Calendar.DAY_OF_MONTH), (int) d.getDate());
+		assertEquals(message, local.get(Calendar.DAY_OF_WEEK) - 1, (int) d.getDay());
+		assertEquals(message, local.get(Calendar.HOUR_OF_DAY), (int) d.getHours());
+		assertEquals(message, local.get(Calendar.MINUTE), (int) d.getMinutes());
+		assertEquals(message, local.get(Calendar.SECOND), (int) d.getSeconds());
+		assertEquals(message, local.get(Calendar.MILLISECOND), (int) d.getMilliseconds());
+
+		// the same fields, set back from the local time, give the same time value
+		Date copy = new Date(local.get(Calendar.YEAR), local.get(Calendar.MONTH), local.get(Calendar.DAY_OF_MONTH),
+				local.get(Calendar.HOUR_OF_DAY), local.get(Calendar.MINUTE), local.get(Calendar.SECOND), local.get(Calendar.MILLISECOND));
+		if (!isAmbiguous(time)) {
+			assertEquals(message, time, (long) copy.getTime());
+		}
+	}
+
+	private static boolean isAmbiguous(long time) {
+		// local times repeated when the clocks go back cannot be mapped back to a single time value
+		TimeZone zone = TimeZone.getDefault();
+		long day = 24 * 60 * 60 * 1000L;
+		return zone.getOffset(time - day) != zone.getOffset(time) || zone.getOffset(time + day) != zone.getOffset(time);
+	}
+
+	@Test
+	public void testUTCFields() {
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+		Date d = new Date(Date.UTC(2000, 1, 29, 23, 59, 58, 999));
+		assertEquals(951868798999.0, d.getTime(), 0);
+		assertEquals(2000, (int) d.getUTCFullYear());
+		assertEquals(1, (int) d.getUTCMonth());
+		assertEquals(29, (int) d.getUTCDate());
+		assertEquals(2, (int) d.getUTCDay());
+		assertEquals(23, (int) d.getUTCHours());
+		// already March 1st in Berlin
+		assertEquals(2, (int) d.getMonth());
+		assertEquals(1, (int) d.getDate());
+		assertEquals(-60, (int) d.getTimezoneOffset());
+
+		// years before 1970
+		Date old = new Date(Date.UTC(1600, 11, 31));
+		assertEquals(1600, (int) old.getUTCFullYear());
+		assertEquals(11, (int) old.getUTCMonth());
+		assertEquals(31, (int) old.getUTCDate());
+	}
+
+	@Test
+	public void testDaylightSavingTime() {
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+		assertEquals(-120, (int) new Date(2014, 6, 1).getTimezoneOffset());
+		assertEquals(-60, (int) new Date(2014, 0, 1).getTimezoneOffset());
+	}
+
+	@Test
+	public void testSetters() {
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+		Date d = new Date(2011, 0, 31, 12, 0, 0, 0);
+		d.setMonth(1);
+		// February 31st overflows into March
+		assertEquals(2, (int) d.getMonth());
+		assertEquals(3, (int) d.getDate());
+
+		d.setDate(0);
+		assertEquals(1, (int) d.getMonth());
+		assertEquals(28, (int) d.getDate());
+
+		d.setMinutes(90);
+		assertEquals(13, (int) d.getHours());
+		assertEquals(30, (int) d.getMinutes());
+
+		d.setUTCFullYear(2012);
+		assertEquals(2012, (int) d.getFullYear());
+		assertEquals(28, (int) d.getDate());
+	}
+
+	@Test
+	public void testSettersKeepTheOtherFields() {
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+		// the clocks go forward on March 30th 2014 at 2:00
+		Date d = new Date(2014, 2, 29, 12, 34, 56, 789);
+		d.setDate(30);
+		d.setHours(18);
+		assertEquals(30, (int) d.getDate());
+		assertEquals(18, (int) d.getHours());
+		assertEquals(34, (int) d.getMinutes());
+		assertEquals(56, (int) d.getSeconds());
+		assertEquals(789, (int) d.getMilliseconds());
+
+		d.setMinutes(5);
+		d.setSeconds(6);
+		assertEquals(18, (int) d.getHours());
+		assertEquals(5, (int) d.getMinutes());
+		assertEquals(6, (int) d.getSeconds());
+		assertEquals(789, (int) d.getMilliseconds());
+		assertEquals(-120, (int) d.getTimezoneOffset());
+	}
+
+	@Test
+	public void testInvalidDateSetters() {
+		Date d = new Date(Double.NaN);
+		d.setHours(10);
+		assertTrue(Double.isNaN(d.getTime()));
+
+		// setting the year of an invalid date starts from the time value +0
+		d.setUTCFullYear(2000);
+		assertEquals(946684800000.0, d.getTime(), 0);
+
+		assertTrue(Double.isNaN(new Date(8.64e15 + 1).getTime()));
+	}
 }
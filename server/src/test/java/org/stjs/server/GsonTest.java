@@ -41,6 +41,12 @@ public class GsonTest {
 		assertEquals("[{\"n\":1},{\"n\":2}]", s);
 	}
 
+	@Test
+	public void testSerializeArrayMixed() {
+		String s = gson.toJson(JSCollections.$array(1, "a", null, new Pojo(2), 3));
+		assertEquals("[1,\"a\",null,{\"n\":2},3]", s);
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testSerializeArraySparse() throws IOException {
 		Array<Integer> holes = new Array<>();
@@ -0,0 +1,146 @@
+package org.stjs.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.stjs.javascript.Array;
+import org.stjs.javascript.Date;
+import org.stjs.javascript.JSCollections;
+import org.stjs.server.json.jackson.STJSModule;
+
+public class JSDataTypeCodecTest {
+
+	private ObjectMapper mapper;
+
+	public JSDataTypeCodecTest() {
+		mapper = new ObjectMapper();
+		mapper.registerModule(STJSModule.getModule());
+	}
+
+	private static DataRecord newRecord() {
+		DataRecord r = new DataRecord();
+		r.id = 1;
+		r.ratio = 0.5;
+		r.active = true;
+		r.count = 3;
+		r.name = "a\"b";
+		r.created = new Date(2011, 10, 9, 17, 10, 0, 0);
+		r.color = DataRecord.Color.GREEN;
+		r.values = JSCollections.$array(1, null, 2);
+		r.tags = JSCollections.$map("x", JSCollections.$array("y"));
+		r.child = new DataChild(4, "c");
+		r.children = JSCollections.$array(new DataChild(5, null));
+		r.notes = Arrays.asList("n");
+		r.cache = "cache";
+		r.secret = "secret";
+		r.setVersion(7);
+		return r;
+	}
+
+	@Test
+	public void testCodecRegistered() {
+		assertSame(DataRecord.class, DataRecordJsonCodec.INSTANCE.getType());
+		assertSame(DataChild.class, DataChildJsonCodec.INSTANCE.getType());
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		String s = mapper.writeValueAsString(newRecord());
+		assertEquals("{\"id\":1,\"ratio\":0.5,\"active\":true,\"count\":3,\"name\":\"a\\\"b\","
+				+ "\"created\":\"2011-11-09 17:10:00\",\"color\":\"GREEN\",\"values\":[1,null,2],\"tags\":{\"x\":[\"y\"]},"
+				+ "\"child\":{\"n\":4,\"label\":\"c\"},\"children\":[{\"n\":5,\"label\":null}],\"notes\":[\"n\"],"
+				+ "\"version\":7}", s);
+	}
+
+	@Test
+	public void testSerializeNulls() throws IOException {
+		String s = mapper.writeValueAsString(new DataRecord());
+		assertEquals("{\"id\":0,\"ratio\":0.0,\"active\":false,\"count\":null,\"name\":null,\"created\":null,"
+				+ "\"color\":null,\"values\":null,\"tags\":null,\"child\":null,\"children\":null,\"notes\":null,"
+				+ "\"version\":0}", s);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		DataRecord r = mapper.readValue(mapper.writeValueAsString(newRecord()), DataRecord.class);
+		assertEquals(1, r.id);
+		assertEquals(0.5, r.ratio, 0);
+		assertEquals(true, r.active);
+		assertEquals(3, (int) r.count);
+		assertEquals("a\"b", r.name);
+		assertEquals(17, (int) r.created.getHours());
+		assertEquals(DataRecord.Color.GREEN, r.color);
+		assertEquals("1,,2", r.values.join());
+		assertEquals("y", r.tags.$get("x").$get(0));
+		assertEquals("c", r.child.label);
+		assertEquals(5, r.children.$get(0).n);
+		assertEquals(Arrays.asList("n"), r.notes);
+		assertNull(r.cache);
+		assertNull(r.secret);
+		assertEquals(7, r.getVersion());
+	}
+
+	@Test
+	public void testDeserializeUnknownAndNullFields() throws IOException {
+		DataRecord r = mapper.readValue("{\"id\":null,\"unknown\":{\"a\":[1,2]},\"cache\":\"x\",\"secret\":\"y\","
+				+ "\"values\":[],\"tags\":{},\"count\":null,\"children\":null}", DataRecord.class);
+		assertEquals(0, r.id);
+		assertEquals(0, r.values.$length());
+		assertFalse(r.tags.iterator().hasNext());
+		assertNull(r.count);
+		assertNull(r.children);
+		assertNull(r.cache);
+		assertNull(r.secret);
+	}
+
+	@Test
+	public void testArrayOfDataTypes() throws IOException {
+		Array<DataChild> a = mapper.readValue("[{\"n\":1},null]",
+				mapper.getTypeFactory().constructCollectionLikeType(Array.class, DataChild.class));
+		assertEquals(2, a.$length());
+		assertEquals(1, a.$get(0).n);
+		assertNull(a.$get(1));
+		assertEquals("[{\"n\":1,\"label\":null},null]", mapper.writeValueAsString(a));
+	}
+
+	@Test
+	public void testSubclassOfDataType() throws IOException {
+		DataCircle circle = new DataCircle();
+		circle.name = "c";
+		circle.radius = 2;
+		DataHolder holder = new DataHolder();
+		holder.shape = circle;
+		holder.initial = 'x';
+		// the codec of DataShape does not know the fields of the subclass
+		assertEquals("{\"shape\":{\"name\":\"c\",\"radius\":2.0},\"initial\":\"x\"}", mapper.writeValueAsString(holder));
+
+		DataShape shape = new DataShape();
+		shape.name = "s";
+		holder.shape = shape;
+		assertEquals("{\"shape\":{\"name\":\"s\"},\"initial\":\"x\"}", mapper.writeValueAsString(holder));
+	}
+
+	@Test
+	public void testDeserializeChar() throws IOException {
+		assertEquals('y', mapper.readValue("{\"initial\":\"y\"}", DataHolder.class).initial);
+		assertEquals('A', mapper.readValue("{\"initial\":65}", DataHolder.class).initial);
+		for (String invalid : new String[] { "\"\"", "\"yz\"", "-1", "true" }) {
+			try {
+				mapper.readValue("{\"initial\":" + invalid + "}", DataHolder.class);
+				fail(invalid + " was read as a char");
+			}
+			catch (JsonMappingException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -37,6 +37,12 @@ public class JacksonTest {
 		assertEquals("[{\"n\":1},{\"n\":2}]", s);
 	}
 
+	@Test
+	public void testSerializeArrayMixed() throws JsonGenerationException, JsonMappingException, IOException {
+		String s = mapper.writeValueAsString(JSCollections.$array(1, "a", null, new Pojo(2), 3));
+		assertEquals("[1,\"a\",null,{\"n\":2},3]", s);
+	}
+
 	@Test(expected = JsonGenerationException.class)
 	public void testSerializeArraySparse() throws IOException {
 		Array<Integer> holes = new Array<>();
@@ -90,6 +96,17 @@ public class JacksonTest {
 		assertEquals(2, (int) a.$get(1));
 	}
 
+	@Test
+	public void testDeserializeArrayLengths() throws JsonParseException, JsonMappingException, IOException {
+		// the same deserializer sizes each array from the previous one
+		Pojo4 p = mapper.readValue("{\"rows\":[[1,2,3,4],[],[5],[6,null,7,8,9,10]]}", Pojo4.class);
+		assertEquals(4, p.getRows().$length());
+		assertEquals("1,2,3,4", p.getRows().$get(0).join());
+		assertEquals(0, p.getRows().$get(1).$length());
+		assertEquals("5", p.getRows().$get(2).join());
+		assertEquals("6,,7,8,9,10", p.getRows().$get(3).join());
+	}
+
 	@Test
 	public void testDeserializeArrayChildren() throws JsonParseException, JsonMappingException, IOException {
 		Pojo2 p = mapper.readValue("{\"children\":[{\"n\":1}]}", Pojo2.class);
@@ -107,6 +124,16 @@ public class JacksonTest {
 		assertEquals(1, (int) m.$get("a"));
 	}
 
+	@Test
+	public void testDeserializeMapSizes() throws JsonParseException, JsonMappingException, IOException {
+		// the same deserializer presizes each map from the previous one
+		Pojo4 p = mapper.readValue("{\"records\":[{\"a\":1,\"b\":2,\"c\":3},{},{\"2\":4,\"1\":5,\"z\":null}]}", Pojo4.class);
+		assertEquals(3, p.getRecords().$length());
+		assertEquals(3, (int) p.getRecords().$get(0).$get("c"));
+		assertEquals("{}", mapper.writeValueAsString(p.getRecords().$get(1)));
+		assertEquals("{\"1\":5,\"2\":4,\"z\":null}", mapper.writeValueAsString(p.getRecords().$get(2)));
+	}
+
 	@Test
 	public void testDeserializeMapChildren() throws JsonParseException, JsonMappingException, IOException {
 		Pojo3 p = mapper.readValue("{\"children\":{\"b\":{\"n\":1}}}", Pojo3.class);
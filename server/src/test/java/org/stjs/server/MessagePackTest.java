@@ -0,0 +1,129 @@
+package org.stjs.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.stjs.javascript.Array;
+import org.stjs.javascript.JSCollections;
+import org.stjs.server.json.jackson.STJSModule;
+import org.stjs.server.json.msgpack.MessagePackFactory;
+
+public class MessagePackTest {
+
+	private ObjectMapper mapper;
+
+	public MessagePackTest() {
+		MessagePackFactory factory = new MessagePackFactory();
+		mapper = new ObjectMapper(factory);
+		factory.setCodec(mapper);
+		mapper.registerModule(STJSModule.getModule());
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			b[i] = (byte) values[i];
+		}
+		return b;
+	}
+
+	@Test
+	public void testWriteScalars() throws IOException {
+		assertArrayEquals(bytes(0x01), mapper.writeValueAsBytes(1));
+		assertArrayEquals(bytes(0xff), mapper.writeValueAsBytes(-1));
+		assertArrayEquals(bytes(0xcd, 0x01, 0x2c), mapper.writeValueAsBytes(300));
+		assertArrayEquals(bytes(0xd0, 0x80), mapper.writeValueAsBytes(-128));
+		assertArrayEquals(bytes(0xcb, 0x3f, 0xf8, 0, 0, 0, 0, 0, 0), mapper.writeValueAsBytes(1.5));
+		assertArrayEquals(bytes(0xa1, 0x61), mapper.writeValueAsBytes("a"));
+		assertArrayEquals(bytes(0xc3), mapper.writeValueAsBytes(true));
+		assertArrayEquals(bytes(0xc0), mapper.writeValueAsBytes(null));
+	}
+
+	@Test
+	public void testWriteContainers() throws IOException {
+		assertArrayEquals(bytes(0xdd, 0, 0, 0, 2, 0x01, 0x02), mapper.writeValueAsBytes(JSCollections.$array(1, 2)));
+		assertArrayEquals(bytes(0xdf, 0, 0, 0, 1, 0xa1, 0x6e, 0x01), mapper.writeValueAsBytes(new Pojo(1)));
+	}
+
+	@Test
+	public void testReadCompactContainers() throws IOException {
+		// the fixmap and fixarray headers written by the other encoders: {"a":1,"b":[true,null,-3]}
+		byte[] message = bytes(0x82, 0xa1, 0x61, 0x01, 0xa1, 0x62, 0x93, 0xc3, 0xc0, 0xfd);
+		Map<?, ?> map = mapper.readValue(message, Map.class);
+		assertEquals(1, map.get("a"));
+		assertEquals(Arrays.asList(true, null, -3), map.get("b"));
+
+		Pojo2 p = mapper.readValue(new ByteArrayInputStream(bytes(0x81, 0xa8, 'c', 'h', 'i', 'l', 'd', 'r', 'e', 'n', 0x91, 0x81, 0xa1,
+				'n', 0xcc, 200)), Pojo2.class);
+		assertEquals(200, p.getChildren().$get(0).getN());
+	}
+
+	@Test
+	public void testRoundTripNumbers() throws IOException {
+		long[] longs = { 0, 127, 128, 255, 256, 65535, 65536, 0xffffffffL, 0x100000000L, Long.MAX_VALUE, -32, -33, -129, -32769,
+				Integer.MIN_VALUE, Long.MIN_VALUE };
+		for (long l : longs) {
+			assertEquals(l, (long) mapper.readValue(mapper.writeValueAsBytes(l), Long.class));
+		}
+		double[] doubles = { 0.1, -1e300, Double.MIN_VALUE, Double.NaN };
+		assertArrayEquals(doubles, mapper.readValue(mapper.writeValueAsBytes(doubles), double[].class), 0);
+		assertEquals(0.25f, mapper.readValue(mapper.writeValueAsBytes(0.25f), Float.class), 0);
+	}
+
+	@Test
+	public void testRoundTripStrings() throws IOException {
+		StringBuilder longString = new StringBuilder();
+		for (int i = 0; i < 70000; i++) {
+			longString.append((char) ('a' + i % 26));
+		}
+		String[] strings = { "", "été", "€", "😀", longString.substring(0, 31), longString.substring(0, 300),
+				longString.toString() };
+		for (String s : strings) {
+			assertEquals(s, mapper.readValue(mapper.writeValueAsBytes(s), String.class));
+		}
+		assertArrayEquals(bytes(0xa4, 0xf0, 0x9f, 0x98, 0x80), mapper.writeValueAsBytes("😀"));
+	}
+
+	@Test
+	public void testRoundTripDataTypes() throws IOException {
+		DataRecord r = new DataRecord();
+		r.id = 1;
+		r.name = "record";
+		r.values = JSCollections.$array(1, null, 3);
+		r.tags = JSCollections.$map("x", JSCollections.$array("y"));
+		r.children = JSCollections.$array(new DataChild(5, "c"));
+
+		DataRecord copy = mapper.readValue(mapper.writeValueAsBytes(r), DataRecord.class);
+		assertEquals(1, copy.id);
+		assertEquals("record", copy.name);
+		assertEquals("1,,3", copy.values.join());
+		assertEquals("y", copy.tags.$get("x").$get(0));
+		assertEquals("c", copy.children.$get(0).label);
+		assertNull(copy.created);
+	}
+
+	@Test
+	public void testRoundTripArrayOfPojos() throws IOException {
+		Array<Pojo> a = JSCollections.$array(new Pojo(1), new Pojo(2));
+		Array<Pojo> copy = mapper.readValue(mapper.writeValueAsBytes(a),
+				mapper.getTypeFactory().constructCollectionLikeType(Array.class, Pojo.class));
+		assertEquals(2, copy.$length());
+		assertEquals(2, copy.$get(1).getN());
+	}
+
+	@Test
+	public void testBinary() throws IOException {
+		byte[] data = { 1, 2, 3 };
+		byte[] message = mapper.writeValueAsBytes(data);
+		assertArrayEquals(bytes(0xc4, 3, 1, 2, 3), message);
+		assertArrayEquals(data, mapper.readValue(message, byte[].class));
+	}
+}
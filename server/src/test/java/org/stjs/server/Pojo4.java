@@ -0,0 +1,26 @@
+package org.stjs.server;
+
+import org.stjs.javascript.Array;
+import org.stjs.javascript.Map;
+
+public class Pojo4 {
+	private Array<Array<Integer>> rows;
+	private Array<Map<String, Integer>> records;
+
+	public Array<Array<Integer>> getRows() {
+		return rows;
+	}
+
+	public void setRows(Array<Array<Integer>> rows) {
+		this.rows = rows;
+	}
+
+	public Array<Map<String, Integer>> getRecords() {
+		return records;
+	}
+
+	public void setRecords(Array<Map<String, Integer>> records) {
+		this.records = records;
+	}
+
+}
@@ -45,6 +45,9 @@ import static org.stjs.javascript.JSGlobal.String;
 public class Array<V> implements Iterable<String> {
 
 	private static final Object UNSET = new Object();
+	private static final Object[] NO_ELEMENTS = new Object[0];
+	private static final long[] NO_KEYS = new long[0];
+	private static final long NO_INDEX = -1;
 
 	private ArrayStore<V> array = new PackedArrayStore<V>();
 	private long length = 0;
@@ -111,6 +114,19 @@ public class Array<V> implements Iterable<String> {
 		}
 	}
 
+	/**
+	 * Returns a builder that appends elements to a new packed Array, without the bookkeeping done by {@link #push}
+	 * for each element. This method can only be used on server side code, typically when the elements are read one by
+	 * one from a stream.
+	 *
+	 * @param expectedSize the number of elements the builder can hold before having to grow
+	 * @return a new builder
+	 */
+	@ServerSide
+	public static <V> Builder<V> builder(int expectedSize) {
+		return new Builder<>(expectedSize);
+	}
+
 	/**
 	 * Returns a java.lang.List that corresponds to this Array. This method can only be called from server side code
 	 * and cannot be used in code that is translated to JavaScript.
@@ -122,6 +138,44 @@ public class Array<V> implements Iterable<String> {
 	 */
 	@ServerSide
 	public List<V> toList() {
+		checkListCompatible();
+
+		ArrayList<V> result = new ArrayList<>((int) length);
+		for (int i = 0; i < this.$length(); i++) {
+			result.add(this.$get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a read-only java.lang.List view of this Array. Unlike {@link #toList()}, no element is copied: the
+	 * returned List reads the elements of this Array, and reflects its later changes. This method can only be called
+	 * from server side code and cannot be used in code that is translated to JavaScript.
+	 *
+	 * @return a read-only List view of this Array
+	 * @throws IllegalStateException in the same cases as {@link #toList()}
+	 */
+	@ServerSide
+	public List<V> asList() {
+		checkListCompatible();
+
+		return new AbstractList<V>() {
+			@Override
+			public V get(int index) {
+				if (index < 0 || index >= length) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+				}
+				return $get(index);
+			}
+
+			@Override
+			public int size() {
+				return $length();
+			}
+		};
+	}
+
+	private void checkListCompatible() {
 		if (this.length > Integer.MAX_VALUE) {
 			throw new IllegalStateException("Array is too long: " + this.length + " > " + Integer.MAX_VALUE);
 
@@ -131,12 +185,6 @@ public class Array<V> implements Iterable<String> {
 		} else if(this.length != this.setElements){
 			throw new IllegalStateException("Array is sparse");
 		}
-
-		ArrayList<V> result = new ArrayList<>((int) length);
-		for (int i = 0; i < this.$length(); i++) {
-			result.add(this.$get(i));
-		}
-		return result;
 	}
 
 	/**
@@ -225,6 +273,14 @@ public class Array<V> implements Iterable<String> {
 		};
 	}
 
+	/**
+	 * Cursor-style alternative to entryIterator for the methods calling back user code: the store is looked up again
+	 * on every step, so it keeps working if the callback makes this Array switch to another type of store.
+	 */
+	private long nextSetIndex(long from, long actualEndExcluded, boolean isForward) {
+		return this.array.nextSetIndex(from, actualEndExcluded, isForward);
+	}
+
 	/**
 	 * Translated to <tt>array[index]</tt> in JavaScript, returns the element at the specified index in this
 	 * <tt>Array</tt>.
@@ -235,6 +291,10 @@ public class Array<V> implements Iterable<String> {
 	 */
 	@Template("get")
 	public V $get(int index) {
+		if (index >= 0) {
+			// an int that is not negative is always an array index
+			return this.array.get(index);
+		}
 		return this.$get((long) index);
 	}
 
@@ -267,9 +327,9 @@ public class Array<V> implements Iterable<String> {
 	 */
 	@Template("get")
 	public V $get(String index) {
-		Long i = toArrayIndex(index);
+		long i = toArrayIndex(index);
 
-		if (i == null) {
+		if (i < 0) {
 			// index is not an array Index , look in the non-array elements
 			return this.nonArrayElements.get(index);
 		}
@@ -277,19 +337,16 @@ public class Array<V> implements Iterable<String> {
 		return array.get(i);
 	}
 
-	private Long toArrayIndex(String index) {
+	/**
+	 * @return the array index represented by the given property name, or -1 if it is not an array index. Like in
+	 *         Javascript, only the canonical representation of an integer between 0 and 2^32 - 2 is an array index:
+	 *         "1" is one, "01" or "1.0" are not.
+	 */
+	private static long toArrayIndex(String index) {
 		if (index == null) {
-			return null;
-		}
-		Double asNum = JSAbstractOperations.ToNumber(index);
-		Double asInt = JSAbstractOperations.ToInteger(asNum);
-
-		if (Double.isNaN(asNum) || asInt < 0 || asInt >= JSAbstractOperations.UINT_MAX_VALUE_D - 1
-				|| !asInt.equals(asNum)) {
-			// index is not an array Index , look in the non-array elements
-			return null;
+			return -1;
 		}
-		return asInt.longValue();
+		return PropertyMap.parseArrayIndex(index);
 	}
 
 	/**
@@ -337,8 +394,8 @@ public class Array<V> implements Iterable<String> {
 	 */
 	@Template("set")
 	public void $set(String index, V value) {
-		Long i = this.toArrayIndex(index);
-		if (i == null) {
+		long i = toArrayIndex(index);
+		if (i < 0) {
 			this.nonArrayElements.put(JSAbstractOperations.ToString(index), value);
 		} else {
 			this.$set(i, value);
@@ -360,8 +417,8 @@ public class Array<V> implements Iterable<String> {
 	 */
 	@Template("delete")
 	public boolean $delete(String index) {
-		Long i = this.toArrayIndex(index);
-		if (i == null) {
+		long i = toArrayIndex(index);
+		if (i < 0) {
 			this.nonArrayElements.remove(index);
 		} else {
 			this.doDelete(i);
@@ -517,21 +574,13 @@ public class Array<V> implements Iterable<String> {
 
 		// Add the elements of this array
 		long i = 0;
-		Iterator<Entry<V>> thisIter = this.entryIterator(0, this.$length(), true);
-		while (thisIter.hasNext()) {
-			Entry<V> entry = thisIter.next();
-			result.$set(i + entry.key, entry.value);
-		}
+		result.appendAll(this, i);
 		i = this.$length();
 
 		if (arrays != null) {
 			// add the elements of all the other specified arrays
 			for (Array<? extends V> arr : arrays) {
-				Iterator<? extends Entry<? extends V>> arrIter = arr.array.entryIterator(0, arr.$length(), true);
-				while (arrIter.hasNext()) {
-					Entry<? extends V> entry = arrIter.next();
-					result.$set(i + entry.key, entry.value);
-				}
+				result.appendAll(arr, i);
 				i += arr.$length();
 			}
 		}
@@ -540,6 +589,13 @@ public class Array<V> implements Iterable<String> {
 		return result;
 	}
 
+	private void appendAll(Array<? extends V> source, long offset) {
+		long end = source.$length();
+		for (long i = source.nextSetIndex(0, end, true); i != NO_INDEX; i = source.nextSetIndex(i + 1, end, true)) {
+			this.$set(offset + i, source.array.get(i));
+		}
+	}
+
 	/**
 	 * Appends all the specified elements in the order they appear in the arguments list to the elements of this
 	 * <tt>Array</tt>. This method does not change the existing arrays, but returns a new array, containing the values
@@ -555,11 +611,7 @@ public class Array<V> implements Iterable<String> {
 
 		// add the elements of this array
 		long i = 0;
-		Iterator<Entry<V>> iter = this.entryIterator(0, this.$length(), true);
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			result.$set(i + entry.key, entry.value);
-		}
+		result.appendAll(this, i);
 		i = this.$length();
 		result.$length(this.$length());
 
@@ -628,25 +680,26 @@ public class Array<V> implements Iterable<String> {
 			actualStart = (long) Math.min(this.$length(), start);
 		}
 
-		Iterator<Entry<V>> iter = this.entryIterator(actualStart, this.$length(), true);
-		return indexOf(element, iter);
+		return indexOf(element, actualStart, this.$length(), true);
 	}
 
-	private int indexOf(V element, Iterator<Entry<V>> iter) {
-		// this method doesn't depend on the order of iteration, and is used both by indexOf and lastIndexOf
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
+	private int indexOf(V element, long actualStart, long actualEndExcluded, boolean isForward) {
+		// this method is used both by indexOf and lastIndexOf
+		int step = isForward ? 1 : -1;
+		for (long i = this.nextSetIndex(actualStart, actualEndExcluded, isForward); i != NO_INDEX; //
+				i = this.nextSetIndex(i + step, actualEndExcluded, isForward)) {
+			V value = this.array.get(i);
 			// Double.equals has an annoying behavior that we must correct for
 			// this implementation to be as close to JS as possible
 			// ie: myDouble.equals(Double.NaN) will return true if myDouble.isNan()
 			// but myDouble == Double.NaN will return false...
 			// In JS, there is no such distinction, and any NaN is not equal to anything
-			boolean isNan = entry.value instanceof Double && Double.isNaN((Double) entry.value);
+			boolean isNan = value instanceof Double && Double.isNaN((Double) value);
 			if (!isNan && //
-					(entry.value != null && entry.value.equals(element) || //
-					entry.value == null && element == null) //
+					(value != null && value.equals(element) || //
+					value == null && element == null) //
 			) {
-				return (int) entry.key;
+				return (int) i;
 			}
 		}
 		return -1;
@@ -1016,10 +1069,9 @@ public class Array<V> implements Iterable<String> {
 		if(callbackfn == null){
 			throw new Error("TypeError", "callbackfn is null");
 		}
-		Iterator<Entry<V>> iter = this.entryIterator(0, $length(), true);
-		while(iter.hasNext()){
-			Entry<V> val = iter.next();
-			callbackfn.$invoke(val.value, val.key, this);
+		long end = this.$length();
+		for (long i = this.nextSetIndex(0, end, true); i != NO_INDEX; i = this.nextSetIndex(i + 1, end, true)) {
+			callbackfn.$invoke(this.array.get(i), i, this);
 		}
 	}
 
@@ -1131,8 +1183,7 @@ public class Array<V> implements Iterable<String> {
 			actualStart = (long) Math.min(this.$length() - 1, fromIndex);
 		}
 
-		Iterator<Entry<V>> iter = this.entryIterator(actualStart, -1, false);
-		return indexOf(searchElement, iter);
+		return indexOf(searchElement, actualStart, -1, false);
 	}
 
 	/**
@@ -1173,10 +1224,9 @@ public class Array<V> implements Iterable<String> {
 		if(callbackfn == null){
 			throw new Error("TypeError", "callbackfn is null");
 		}
-		Iterator<Entry<V>> iter = this.entryIterator(0, this.$length(), true);
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			Boolean result = callbackfn.$invoke(entry.value, entry.key, this);
+		long end = this.$length();
+		for (long i = this.nextSetIndex(0, end, true); i != NO_INDEX; i = this.nextSetIndex(i + 1, end, true)) {
+			Boolean result = callbackfn.$invoke(this.array.get(i), i, this);
 			if (!Boolean.TRUE.equals(result)) {
 				// false or null was returned
 				return false;
@@ -1221,10 +1271,9 @@ public class Array<V> implements Iterable<String> {
 		if(callbackfn == null){
 			throw new Error("TypeError", "callbackfn is null");
 		}
-		Iterator<Entry<V>> iter = this.entryIterator(0, this.$length(), true);
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			Boolean result = callbackfn.$invoke(entry.value, entry.key, this);
+		long end = this.$length();
+		for (long i = this.nextSetIndex(0, end, true); i != NO_INDEX; i = this.nextSetIndex(i + 1, end, true)) {
+			Boolean result = callbackfn.$invoke(this.array.get(i), i, this);
 			if (Boolean.TRUE.equals(result)) {
 				// false or null was returned
 				return true;
@@ -1268,12 +1317,10 @@ public class Array<V> implements Iterable<String> {
 		}
 		int lengthBefore = this.$length();
 
-		Iterator<Entry<V>> iter = this.entryIterator(0, this.$length(), true);
 		Array<T> result = new Array<>();
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			T mapped = callbackfn.$invoke(entry.value, entry.key, this);
-			result.$set(entry.key, mapped);
+		for (long i = this.nextSetIndex(0, lengthBefore, true); i != NO_INDEX; i = this.nextSetIndex(i + 1, lengthBefore, true)) {
+			T mapped = callbackfn.$invoke(this.array.get(i), i, this);
+			result.$set(i, mapped);
 		}
 
 		result.$length(lengthBefore);
@@ -1315,13 +1362,13 @@ public class Array<V> implements Iterable<String> {
 		if(callbackfn == null){
 			throw new Error("TypeError", "callbackfn is null");
 		}
-		Iterator<Entry<V>> iter = this.entryIterator(0, this.$length(), true);
+		long end = this.$length();
 		Array<V> result = new Array<>();
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			boolean selected = callbackfn.$invoke(entry.value, entry.key, this);
+		for (long i = this.nextSetIndex(0, end, true); i != NO_INDEX; i = this.nextSetIndex(i + 1, end, true)) {
+			V value = this.array.get(i);
+			boolean selected = callbackfn.$invoke(value, i, this);
 			if(selected){
-				result.push(entry.value);
+				result.push(value);
 			}
 		}
 		return result;
@@ -1474,23 +1521,21 @@ public class Array<V> implements Iterable<String> {
 			throw new Error("TypeError", "callbackfn is null");
 		}
 
-		Iterator<Entry<V>> iter;
-		if(isForward) {
-			iter = this.entryIterator(0, this.$length(), true);
-		} else {
-			iter = this.entryIterator(this.$length(), -1, false);
-		}
+		long end = isForward ? this.$length() : -1;
+		int step = isForward ? 1 : -1;
+		long i = this.nextSetIndex(isForward ? 0 : this.$length(), end, isForward);
 
 		T accumulator;
 		if(initialValue == UNSET){
 			// when initialValue is UNSET (the parameter was not specified)
 			// then the types T and V are the same.
-			if(!iter.hasNext()){
+			if(i == NO_INDEX){
 				throw new Error("TypeError", "Array is empty and initialValue was not provided");
 			}
 			@SuppressWarnings("unchecked")
-			T temp = (T)iter.next().value;
+			T temp = (T)this.array.get(i);
 			accumulator = temp;
+			i = this.nextSetIndex(i + step, end, isForward);
 
 		} else {
 			// when initialValue is set (ie: not UNSET, the parameter was specified, but may be null)
@@ -1500,9 +1545,8 @@ public class Array<V> implements Iterable<String> {
 			accumulator = temp;
 		}
 
-		while (iter.hasNext()) {
-			Entry<V> entry = iter.next();
-			accumulator = callbackfn.$invoke(accumulator, entry.value, entry.key, this);
+		for (; i != NO_INDEX; i = this.nextSetIndex(i + step, end, isForward)) {
+			accumulator = callbackfn.$invoke(accumulator, this.array.get(i), i, this);
 		}
 
 		return accumulator;
@@ -1519,24 +1563,40 @@ public class Array<V> implements Iterable<String> {
 
 	private abstract class ArrayStore<E> {
 
-		ArrayStore<E> switchStoreType(long newLength) {
-			ArrayStore<E> that;
-			if (this instanceof PackedArrayStore) {
-				that = new SparseArrayStore<>();
-			} else {
-				that = new PackedArrayStore<>();
-			}
+		Iterator<Entry<E>> entryIterator(final long actualStart, final long actualEndExcluded, final boolean isForward) {
+			return new Iterator<Entry<E>>() {
+				private long position = actualStart;
 
-			that.padTo(newLength);
-			Iterator<Entry<E>> entries = this.entryIterator(0, newLength, true);
-			while (entries.hasNext()) {
-				Entry<E> entry = entries.next();
-				that.set(entry.key, entry.value);
-			}
+				@Override
+				public boolean hasNext() {
+					return nextSetIndex(position, actualEndExcluded, isForward) != NO_INDEX;
+				}
 
-			return that;
+				@Override
+				public Entry<E> next() {
+					long index = nextSetIndex(position, actualEndExcluded, isForward);
+					if (index == NO_INDEX) {
+						throw new NoSuchElementException();
+					}
+					Entry<E> entry = new Entry<E>();
+					entry.key = index;
+					entry.value = get(index);
+					position = isForward ? index + 1 : index - 1;
+					return entry;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
 		}
 
+		/**
+		 * Converts this store to the other type of store, copying the elements in bulk.
+		 */
+		abstract ArrayStore<E> switchStoreType(long newLength);
+
 		abstract void truncateFrom(long newLength);
 
 		abstract void padTo(long newLength);
@@ -1545,7 +1605,12 @@ public class Array<V> implements Iterable<String> {
 
 		abstract long getSetElements(long firstIncluded, long lastExcluded);
 
-		abstract Iterator<Entry<E>> entryIterator(long actualStart, long actualEndExcluded, boolean isForward);
+		/**
+		 * Returns the first set index found when walking from <tt>from</tt> (included) towards
+		 * <tt>actualEndExcluded</tt>, or NO_INDEX if there is none. This allows the iteration methods to walk over the
+		 * store without allocating anything per element.
+		 */
+		abstract long nextSetIndex(long from, long actualEndExcluded, boolean isForward);
 
 		abstract boolean isEfficientStoreFor(long newLength, long newElementCount);
 
@@ -1568,16 +1633,47 @@ public class Array<V> implements Iterable<String> {
 
 		/**
 		 * We can't use <E> instead of <Object> here, because we must be able to make a difference between elements set
-		 * to null, and unset elements (represented by UNSET).
+		 * to null, and unset elements (represented by UNSET). Only the first <tt>size</tt> slots are used, the
+		 * remaining ones are kept null so that they don't retain any removed element.
 		 */
-		private ArrayList<Object> elements;
+		private Object[] elements;
+		private int size;
 
 		private PackedArrayStore() {
-			elements = new ArrayList<>();
+			elements = NO_ELEMENTS;
+		}
+
+		private PackedArrayStore(Object[] elements, int size) {
+			this.elements = elements;
+			this.size = size;
 		}
 
 		private PackedArrayStore(List<E> elements) {
-			this.elements = new ArrayList<Object>(elements);
+			// copyOf makes sure we get an Object[], as toArray() may return an array of a more specific type in
+			// which we could not store UNSET
+			this.elements = Arrays.copyOf(elements.toArray(), elements.size(), Object[].class);
+			this.size = this.elements.length;
+		}
+
+		private void ensureCapacity(int minCapacity) {
+			if (minCapacity > this.elements.length) {
+				// grow by 50%, like ArrayList does, so that appending is amortized O(1)
+				int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(minCapacity, this.elements.length * 3L / 2 + 1));
+				this.elements = Arrays.copyOf(this.elements, newCapacity);
+			}
+		}
+
+		@Override
+		ArrayStore<E> switchStoreType(long newLength) {
+			// the indices are visited in ascending order, so they are simply appended to the sparse store
+			SparseArrayStore<E> that = new SparseArrayStore<>(setElements);
+			int end = (int) Math.min(newLength, this.size);
+			for (int i = 0; i < end; i++) {
+				if (this.elements[i] != UNSET) {
+					that.append(i, this.elements[i]);
+				}
+			}
+			return that;
 		}
 
 		@Override
@@ -1604,24 +1700,26 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void set(long index, E value) {
-			this.elements.set((int) index, value);
+			this.elements[(int) index] = value;
 		}
 
 		@Override
 		public void padTo(long newLength) {
-			while (this.elements.size() < newLength) {
-				this.elements.add(UNSET);
+			if (newLength > this.size) {
+				ensureCapacity((int) newLength);
+				Arrays.fill(this.elements, this.size, (int) newLength, UNSET);
+				this.size = (int) newLength;
 			}
 		}
 
 		@SuppressWarnings("unchecked")
 		@Override
 		E get(long index) {
-			if (index > Integer.MAX_VALUE || index >= elements.size()) {
+			if (index >= this.size) {
 				return null;
 			}
 
-			Object value = this.elements.get((int) index);
+			Object value = this.elements[(int) index];
 			if (value == UNSET) {
 				return null;
 			}
@@ -1632,10 +1730,10 @@ public class Array<V> implements Iterable<String> {
 		@Override
 		Array<E> slice(long fromIncluded, long toExcluded) {
 			Array<E> result = new Array<E>();
-			for (int i = (int) fromIncluded, n = 0; i < toExcluded && i < this.elements.size(); i++, n++) {
-				Object value = this.elements.get(i);
+			for (int i = (int) fromIncluded, n = 0; i < toExcluded && i < this.size; i++, n++) {
+				Object value = this.elements[i];
 				if (value != UNSET) {
-					result.$set(n, (E) this.elements.get(i));
+					result.$set(n, (E) value);
 				}
 			}
 			return result;
@@ -1643,7 +1741,11 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void reverse() {
-			Collections.reverse(this.elements);
+			for (int i = 0, j = this.size - 1; i < j; i++, j--) {
+				Object temp = this.elements[i];
+				this.elements[i] = this.elements[j];
+				this.elements[j] = temp;
+			}
 		}
 
 		@Override
@@ -1669,67 +1771,38 @@ public class Array<V> implements Iterable<String> {
 				}
 			};
 
-			Collections.sort(this.elements, comparator);
+			Arrays.sort(this.elements, 0, this.size, comparator);
 		}
 
 		@Override
 		boolean isSet(long index) {
-			return index < this.elements.size() && this.elements.get((int) index) != UNSET;
+			return index < this.size && this.elements[(int) index] != UNSET;
 		}
 
 		@Override
-		Iterator<Entry<E>> entryIterator(final long actualStart, final long actualEndExcluded, final boolean isForward) {
-			return new Iterator<Entry<E>>() {
-				private int nextIndex = (int) actualStart;
-
-				@Override
-				public boolean hasNext() {
-					skipToNext();
-					if (isForward) {
-						return nextIndex < actualEndExcluded;
-					} else {
-						return nextIndex > actualEndExcluded;
-					}
-				}
-
-				@Override
-				public Entry<E> next() {
-					skipToNext();
-					Entry<E> entry = new Entry<E>();
-					entry.key = nextIndex;
-					entry.value = get(nextIndex);
-					if (isForward) {
-						nextIndex++;
-					} else {
-						nextIndex--;
+		long nextSetIndex(long from, long actualEndExcluded, boolean isForward) {
+			if (isForward) {
+				int end = (int) Math.min(actualEndExcluded, this.size);
+				for (int i = (int) from; i < end; i++) {
+					if (this.elements[i] != UNSET) {
+						return i;
 					}
-					return entry;
 				}
-
-				private void skipToNext() {
-					if (isForward) {
-						while (nextIndex < actualEndExcluded && !isSet(nextIndex)) {
-							nextIndex++;
-						}
-					} else {
-						while (nextIndex > actualEndExcluded && !isSet(nextIndex)) {
-							nextIndex--;
-						}
+			} else {
+				for (int i = (int) Math.min(from, this.size - 1); i > actualEndExcluded; i--) {
+					if (this.elements[i] != UNSET) {
+						return i;
 					}
 				}
-
-				@Override
-				public void remove() {
-					throw new UnsupportedOperationException();
-				}
-			};
+			}
+			return NO_INDEX;
 		}
 
 		@Override
 		long getSetElements(long firstIncluded, long lastExcluded) {
 			int setElements = 0;
-			for (int i = (int) firstIncluded; i < this.elements.size() && i < lastExcluded; i++) {
-				if (this.elements.get(i) != UNSET) {
+			for (int i = (int) firstIncluded; i < this.size && i < lastExcluded; i++) {
+				if (this.elements[i] != UNSET) {
 					setElements++;
 				}
 			}
@@ -1738,80 +1811,214 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void splice(long actualStart, long actualDeleteCount, E[] values) {
+			int start = (int) actualStart;
+			int deleteCount = (int) actualDeleteCount;
+			int newSize = this.size - deleteCount + values.length;
+
+			if (values.length != deleteCount) {
+				// shift the trailing elements in a single move, whatever the number of added or removed elements
+				ensureCapacity(newSize);
+				int trailingStart = start + deleteCount;
+				System.arraycopy(this.elements, trailingStart, this.elements, start + values.length, this.size - trailingStart);
+				if (newSize < this.size) {
+					Arrays.fill(this.elements, newSize, this.size, null);
+				}
+			}
+			System.arraycopy(values, 0, this.elements, start, values.length);
+			this.size = newSize;
+		}
+
+		@Override
+		void truncateFrom(long newLength) {
+			if (newLength < this.elements.length / 4) {
+				// if newLength is small enough, give the unused memory back instead of keeping a mostly empty array
+				this.elements = Arrays.copyOf(this.elements, (int) newLength);
+			} else {
+				Arrays.fill(this.elements, (int) newLength, this.size, null);
+			}
+			this.size = (int) newLength;
+		}
+
+		@Override
+		void delete(long index) {
+			this.elements[(int) index] = UNSET;
+		}
+	}
 
-			// we must try to avoid splicing in 0(n^2) if possible
-			// let's compute the cost of two different methods of splicing in number of moves
-			long trailingElements = this.elements.size() - actualStart - actualDeleteCount;
-			long inplaceCost = (long) Math.abs(actualDeleteCount - values.length) * trailingElements;
-			long rebuildCost = this.elements.size() + values.length - actualDeleteCount;
+	private final class SparseArrayStore<E> extends ArrayStore<E> {
 
-			// execute the cheapest strategy. We give an unfair advantage to inplace, because rebuild has
-			// uses more memory (2n), so we only want to pick it when it's really worth it
-			if (inplaceCost > 2 * rebuildCost) {
-				// Rebuild the underlying ArrayList from scratch.
+		/**
+		 * marks the free slots of the hash table: array indices are never negative
+		 */
+		private static final long FREE = -1;
+		private static final int MIN_CAPACITY = 8;
+		private static final int MAX_CAPACITY = 1 << 30;
+		private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
 
-				// add the head untouched elements
-				ArrayList<Object> newElements = new ArrayList<Object>((int) rebuildCost);
-				newElements.addAll(this.elements.subList(0, (int) actualStart));
+		/**
+		 * The set elements are kept in an open-addressing hash table with linear probing: keys[slot] is the index of
+		 * the element stored in elements[slot], or FREE. The table is kept at most half full.
+		 */
+		private long[] keys;
+		private Object[] elements;
+		private int count;
+		private int mask;
 
-				// add the inserted elements
-				newElements.addAll(Arrays.asList(values));
+		/**
+		 * The keys in ascending order, used for the ordered iteration. Keys appended in ascending order (the most
+		 * common case) are added at the end. Any other insertion invalidates it, and it is then rebuilt lazily. Deleted
+		 * keys are left in place and skipped, until they make up half of the index.
+		 */
+		private long[] sortedKeys = NO_KEYS;
+		private int sortedCount;
+		private boolean sortedKeysValid = true;
 
-				// add the trailing untouched elements
-				newElements
-						.addAll(this.elements.subList((int) (actualStart + actualDeleteCount), this.elements.size()));
+		private SparseArrayStore() {
+			this(0);
+		}
 
-				this.elements = newElements;
+		private SparseArrayStore(long expectedElements) {
+			allocate(capacityFor(expectedElements));
+		}
 
-			} else {
-				// add/remove/set the elements in place, trying to add or remove as few elements as possible
+		private int capacityFor(long expectedElements) {
+			int capacity = MIN_CAPACITY;
+			while (capacity < MAX_CAPACITY && capacity < expectedElements * 2) {
+				capacity <<= 1;
+			}
+			return capacity;
+		}
+
+		private void allocate(int capacity) {
+			this.keys = new long[capacity];
+			Arrays.fill(this.keys, FREE);
+			this.elements = new Object[capacity];
+			this.mask = capacity - 1;
+			this.count = 0;
+		}
+
+		private int hash(long key) {
+			long h = key * HASH_MULTIPLIER;
+			// the high bits of the product are the best mixed ones
+			return (int) (h >>> Integer.SIZE) & this.mask;
+		}
 
-				// as long as the deleted and added elements overlap, we can use Set instead of insert + delete
-				// it's a lot cheaper to do it that way on an ArrayList
-				int overlap = (int) Math.min(values.length, actualDeleteCount);
-				for (int i = 0; i < overlap; i++) {
-					this.elements.set((int) actualStart + i, values[i]);
+		/**
+		 * @return the slot of the key if it is present, or the bitwise complement of the free slot where it would be
+		 *         inserted
+		 */
+		private int findSlot(long key) {
+			int slot = hash(key);
+			while (this.keys[slot] != FREE) {
+				if (this.keys[slot] == key) {
+					return slot;
 				}
+				slot = (slot + 1) & this.mask;
+			}
+			return ~slot;
+		}
+
+		private void insert(int freeSlot, long key, Object value) {
+			this.keys[freeSlot] = key;
+			this.elements[freeSlot] = value;
+			this.count++;
+			addSortedKey(key);
+			if (this.count * 2 > this.keys.length && this.keys.length < MAX_CAPACITY) {
+				rehash(this.keys.length * 2);
+			}
+		}
 
-				// more deletions than insertions, we have a few more elements to delete
-				// remove elements starting from the end, so we have to move fewer elements
-				// in the backing array every time one element is removed
-				for (int i = (int) (actualStart + actualDeleteCount - 1); i >= actualStart + overlap; i--) {
-					this.elements.remove(i);
+		private void rehash(int capacity) {
+			long[] oldKeys = this.keys;
+			Object[] oldValues = this.elements;
+			allocate(capacity);
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != FREE) {
+					int freeSlot = ~findSlot(oldKeys[slot]);
+					this.keys[freeSlot] = oldKeys[slot];
+					this.elements[freeSlot] = oldValues[slot];
+					this.count++;
 				}
+			}
+		}
 
-				// more insertions than deletions, we have a few more element to insert
-				// (this loop is mutually exclusive with the loop above)
-				for (int i = overlap; i < values.length; i++) {
-					this.elements.add((int) actualStart + i, values[i]);
+		/**
+		 * removes the entry in the given slot, and moves back the entries that follow it in the same probe sequence, so
+		 * that no tombstone is needed
+		 */
+		private void removeSlot(int slot) {
+			int hole = slot;
+			int next = (slot + 1) & this.mask;
+			while (this.keys[next] != FREE) {
+				int ideal = hash(this.keys[next]);
+				if (((next - ideal) & this.mask) >= ((next - hole) & this.mask)) {
+					this.keys[hole] = this.keys[next];
+					this.elements[hole] = this.elements[next];
+					hole = next;
 				}
+				next = (next + 1) & this.mask;
 			}
+			this.keys[hole] = FREE;
+			this.elements[hole] = null;
+			this.count--;
+		}
 
+		private void addSortedKey(long key) {
+			if (!this.sortedKeysValid) {
+				return;
+			}
+			if (this.sortedCount > 0 && this.sortedKeys[this.sortedCount - 1] >= key) {
+				this.sortedKeysValid = false;
+				return;
+			}
+			if (this.sortedCount == this.sortedKeys.length) {
+				this.sortedKeys = Arrays.copyOf(this.sortedKeys, java.lang.Math.max(MIN_CAPACITY, this.sortedCount * 2));
+			}
+			this.sortedKeys[this.sortedCount++] = key;
 		}
 
-		@Override
-		void truncateFrom(long newLength) {
-			if (newLength < this.elements.size() / 4) {
-				// if newLength is small enough, it's faster to just copy the remaining values instead of deleting the
-				// truncated ones
-				this.elements = new ArrayList<Object>(this.elements.subList(0, (int) newLength));
+		private void invalidateSortedKeys() {
+			this.sortedKeysValid = false;
+			this.sortedCount = 0;
+		}
 
-			} else {
-				for (int i = this.elements.size() - 1; i >= newLength; i--) {
-					this.elements.remove(i);
+		private void ensureSortedKeys() {
+			if (this.sortedKeysValid) {
+				return;
+			}
+			if (this.sortedKeys.length < this.count) {
+				this.sortedKeys = new long[this.count];
+			}
+			int n = 0;
+			for (int slot = 0; slot < this.keys.length; slot++) {
+				if (this.keys[slot] != FREE) {
+					this.sortedKeys[n++] = this.keys[slot];
 				}
 			}
+			Arrays.sort(this.sortedKeys, 0, n);
+			this.sortedCount = n;
+			this.sortedKeysValid = true;
 		}
 
 		@Override
-		void delete(long index) {
-			this.elements.set((int) index, UNSET);
+		ArrayStore<E> switchStoreType(long newLength) {
+			// the packed store is filled by walking the hash table directly: there is no need for the keys to be sorted
+			PackedArrayStore<E> that = new PackedArrayStore<>();
+			that.padTo(newLength);
+			for (int slot = 0; slot < this.keys.length; slot++) {
+				if (this.keys[slot] != FREE && this.keys[slot] < newLength) {
+					that.set(this.keys[slot], this.<E> cast(this.elements[slot]));
+				}
+			}
+			return that;
 		}
-	}
-
-	private final class SparseArrayStore<E> extends ArrayStore<E> {
 
-		TreeMap<Long, E> elements = new TreeMap<Long, E>();
+		/**
+		 * appends an element with an index greater than all the indices already in this store
+		 */
+		void append(long index, Object value) {
+			insert(~findSlot(index), index, value);
+		}
 
 		@Override
 		boolean isEfficientStoreFor(long newLength, long newElementCount) {
@@ -1826,7 +2033,7 @@ public class Array<V> implements Iterable<String> {
 				// between both types of ArrayStore
 				return false;
 			}
-			if ((newLength / newElementCount) < 3) {
+			if (newElementCount != 0 && (newLength / newElementCount) < 3) {
 				// if we have less than 2/3 empty elements, we're better off with PackedArrayStore.
 				// thresholds between the two ArrayStore types don't match: see length condition
 				return false;
@@ -1837,30 +2044,25 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void set(long index, E value) {
-			this.elements.put(index, value);
+			int slot = findSlot(index);
+			if (slot >= 0) {
+				this.elements[slot] = value;
+			} else {
+				insert(~slot, index, value);
+			}
 		}
 
 		@Override
 		E get(long index) {
-			return this.elements.get(index);
+			int slot = findSlot(index);
+			return slot >= 0 ? this.<E> cast(this.elements[slot]) : null;
 		}
 
 		@Override
 		Array<E> slice(long fromIncluded, long toExcluded) {
 			Array<E> result = new Array<E>();
-
-			Long firstKey = this.elements.ceilingKey(fromIncluded);
-			Long lastKey = this.elements.lowerKey(toExcluded);
-
-			if (firstKey != null && lastKey != null) {
-				// only add stuff to the array if the selected range actually contains something
-				// if we don't have a key that is higher than fromIncluded, it means the slice is empty
-				// if we don't have a key that is smaller than toExcluded, it means the slice is empty
-				java.util.Map<Long, E> selected = this.elements.subMap(firstKey, lastKey);
-
-				for (java.util.Map.Entry<Long, E> entry : selected.entrySet()) {
-					result.$set(entry.getKey(), entry.getValue());
-				}
+			for (long i = nextSetIndex(fromIncluded, toExcluded, true); i != NO_INDEX; i = nextSetIndex(i + 1, toExcluded, true)) {
+				result.$set(i - fromIncluded, get(i));
 			}
 
 			// we must also set the length, just in case the last element that was requested was unset
@@ -1870,146 +2072,133 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void reverse() {
-			long lenght = $length();
-			Set<Long> indices = new HashSet<>(this.elements.keySet()); // new instance to avoid concurrent modification
-			Set<Long> alreadySwitched = new HashSet<>();
-			for(Long index : indices){
-				if(alreadySwitched.contains(index)){
-					continue;
-				}
-
-				E value = this.elements.get(index);
-				long newIndex = length - 1 - index;
-				if(this.elements.containsKey(newIndex)){
-					// there is already an element at this index, we must exchange both values
-					// and record the one at that location as already switched
-					E temp = this.elements.get(newIndex);
-					this.elements.put(newIndex, value);
-					this.elements.put(index, temp);
-					alreadySwitched.add(newIndex);
-
-				} else {
-					// we can simply move the value to the new index
-					this.elements.remove(index);
-					this.elements.put(newIndex, value);
+			long[] oldKeys = this.keys;
+			Object[] oldValues = this.elements;
+			allocate(oldKeys.length);
+			invalidateSortedKeys();
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != FREE) {
+					set(length - 1 - oldKeys[slot], this.<E> cast(oldValues[slot]));
 				}
 			}
 		}
 
+		@SuppressWarnings("unchecked")
+		private <T> T cast(Object value) {
+			return (T) value;
+		}
+
 		@Override
 		public void sort(final SortFunction<? super E> comparefn) {
-			ArrayList<E> values = new ArrayList<>(this.elements.values());
-			Comparator<E> comparator = new Comparator<E>(){
+			Object[] sorted = new Object[this.count];
+			int n = 0;
+			for (int slot = 0; slot < this.keys.length; slot++) {
+				if (this.keys[slot] != FREE) {
+					sorted[n++] = this.elements[slot];
+				}
+			}
+			Comparator<Object> comparator = new Comparator<Object>(){
 				@Override
-				public int compare(E x, E y) {
+				@SuppressWarnings("unchecked")
+				public int compare(Object x, Object y) {
 					// We do not have to worry about unset/undefined values, because they are not
-					// present in the TreeMap anyway.
-					return comparefn.$invoke(x, y);
+					// present in the hash table anyway.
+					return comparefn.$invoke((E) x, (E) y);
 				}
 			};
-			Collections.sort(values, comparator);
+			Arrays.sort(sorted, comparator);
 
-			this.elements.clear(); // don't create a new instance, so we don't disrupt any iterators or submaps.
-			for(int i = 0; i < values.size(); i ++){
-				this.elements.put((long)i, values.get(i));
+			allocate(this.keys.length);
+			invalidateSortedKeys();
+			this.sortedKeysValid = true; // the keys are appended in ascending order
+			for (int i = 0; i < sorted.length; i++) {
+				append(i, sorted[i]);
 			}
 		}
 
 		@Override
 		boolean isSet(long index) {
-			return elements.containsKey(index);
+			return findSlot(index) >= 0;
 		}
 
 		@Override
-		Iterator<Entry<E>> entryIterator(final long actualStart, final long actualEndExcluded, final boolean isForward) {
-
-			return new Iterator<Entry<E>>() {
-
-				private long lastProduced;
-				{
-					if(isForward){
-						lastProduced = actualStart - 1;
-					} else {
-						lastProduced = actualStart + 1;
-					}
-				}
-
-				@Override
-				public boolean hasNext() {
-					if(isForward){
-						Long nextKey = elements.higherKey(lastProduced);
-						return nextKey != null && nextKey < actualEndExcluded;
-					}
-					Long nextKey = elements.lowerKey(lastProduced);
-					return nextKey != null && nextKey > actualEndExcluded;
-				}
-
-				@Override
-				public Entry<E> next() {
-					Long nextKey;
-					if(isForward){
-						nextKey = elements.higherKey(lastProduced);
-					} else {
-						nextKey = elements.lowerKey(lastProduced);
-					}
+		long nextSetIndex(long from, long actualEndExcluded, boolean isForward) {
+			ensureSortedKeys();
+			int position = Arrays.binarySearch(this.sortedKeys, 0, this.sortedCount, from);
+			if (isForward) {
+				return nextSortedKey(position >= 0 ? position : ~position, actualEndExcluded);
+			}
+			return previousSortedKey(position >= 0 ? position : ~position - 1, actualEndExcluded);
+		}
 
-					E value = elements.get(nextKey);
-					Entry<E> entry = new Entry<>();
-					entry.key = nextKey;
-					entry.value = value;
-					lastProduced = nextKey;
-					return entry;
+		private long nextSortedKey(int fromPosition, long actualEndExcluded) {
+			for (int i = fromPosition; i < this.sortedCount && this.sortedKeys[i] < actualEndExcluded; i++) {
+				// skip the keys that were deleted since the index was built
+				if (isSet(this.sortedKeys[i])) {
+					return this.sortedKeys[i];
 				}
+			}
+			return NO_INDEX;
+		}
 
-				@Override
-				public void remove() {
-					throw new UnsupportedOperationException();
+		private long previousSortedKey(int fromPosition, long actualEndExcluded) {
+			for (int i = fromPosition; i >= 0 && this.sortedKeys[i] > actualEndExcluded; i--) {
+				// skip the keys that were deleted since the index was built
+				if (isSet(this.sortedKeys[i])) {
+					return this.sortedKeys[i];
 				}
-			};
+			}
+			return NO_INDEX;
 		}
 
 		@Override
 		long getSetElements(long firstIncluded, long lastExcluded) {
-			Long actualFirstIncluded = this.elements.ceilingKey(firstIncluded);
-			Long actualLastExcluded = this.elements.lowerKey(lastExcluded);
-			if (actualFirstIncluded == null || actualLastExcluded == null) {
-				// there are no keys greater than first included OR
-				// there are no keys smaller than last included
-				// => the corresponding submap would be empty
-				return 0;
+			int setElements = 0;
+			for (int slot = 0; slot < this.keys.length; slot++) {
+				if (this.keys[slot] >= firstIncluded && this.keys[slot] < lastExcluded) {
+					setElements++;
+				}
 			}
-			return this.elements.subMap(actualFirstIncluded, actualLastExcluded).size();
+			return setElements;
 		}
 
 		@Override
 		void splice(long actualStart, long actualDeleteCount, E[] values) {
-
-			// as long as the deleted and added elements overlap, we can use put() instead of insert + delete
-			// this gives only one lookup in the tree instead of two
-			long overlap = (long) Math.min(values.length, actualDeleteCount);
-			for (int i = 0; i < overlap; i++) {
-				this.elements.put(actualStart + i, values[i]);
-			}
-
-			// more deletions than insertions, we have a few more elements to delete
-			for (int i = (int) actualDeleteCount - 1; i >= overlap; i--) {
-				this.elements.remove((int) actualStart + overlap + i);
+			// the indices of all the trailing elements change, so the table is rebuilt in a single pass
+			long deleteEnd = actualStart + actualDeleteCount;
+			long shift = values.length - actualDeleteCount;
+			long[] oldKeys = this.keys;
+			Object[] oldValues = this.elements;
+			allocate(capacityFor(this.count + values.length));
+			invalidateSortedKeys();
+
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				long key = oldKeys[slot];
+				if (key != FREE && key < actualStart) {
+					set(key, this.<E> cast(oldValues[slot]));
+				} else if (key >= deleteEnd) {
+					set(key + shift, this.<E> cast(oldValues[slot]));
+				}
 			}
-
-			// more insertions than deletions, we have a few more element to insert
-			// (this loop is mutually exclusive with the loop above)
-			for (int i = (int) overlap; i < values.length; i++) {
-				this.elements.put(actualStart + i, values[i]);
+			for (int i = 0; i < values.length; i++) {
+				set(actualStart + i, values[i]);
 			}
 		}
 
 		@Override
 		void truncateFrom(long newLength) {
-			Long ceil = this.elements.ceilingKey(newLength);
-			if (ceil != null) {
-				// there are keys larger than newLength
-				SortedMap<Long, E> toRemove = this.elements.subMap(ceil, true, this.elements.lastKey(), true);
-				toRemove.clear();
+			int slot = 0;
+			while (slot < this.keys.length) {
+				if (this.keys[slot] >= newLength) {
+					// don't move on: removeSlot may have moved another entry into this slot
+					removeSlot(slot);
+				} else {
+					slot++;
+				}
+			}
+			if (this.sortedKeysValid) {
+				int position = Arrays.binarySearch(this.sortedKeys, 0, this.sortedCount, newLength);
+				this.sortedCount = position >= 0 ? position : ~position;
 			}
 		}
 
@@ -2020,7 +2209,72 @@ public class Array<V> implements Iterable<String> {
 
 		@Override
 		void delete(long index) {
-			this.elements.remove(index);
+			int slot = findSlot(index);
+			if (slot >= 0) {
+				removeSlot(slot);
+				if (this.sortedCount > 2 * this.count) {
+					// too many deleted keys left in the sorted index
+					invalidateSortedKeys();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects elements in a growable Object[] that becomes the packed store of the built Array, so the elements are
+	 * not copied again, unless the expected size was much larger than the actual one. A builder can build only one
+	 * Array. Used on the server side only.
+	 */
+	public static final class Builder<V> {
+		/**
+		 * the unused slots that are always tolerated in the built Array, so that small arrays are never copied
+		 */
+		private static final int MAX_SLACK = 8;
+
+		private Object[] elements;
+		private int size;
+
+		private Builder(int expectedSize) {
+			this.elements = expectedSize > 0 ? new Object[expectedSize] : NO_ELEMENTS;
+		}
+
+		/**
+		 * appends the given element, that may be null, at the end of the Array
+		 */
+		public Builder<V> add(V element) {
+			if (this.elements == null) {
+				throw new IllegalStateException("The Array was already built");
+			}
+			if (this.size == this.elements.length) {
+				// grow by 50%, like PackedArrayStore does
+				int newCapacity = (int) java.lang.Math.min(Integer.MAX_VALUE, this.elements.length * 3L / 2 + 1);
+				this.elements = Arrays.copyOf(this.elements, newCapacity);
+			}
+			this.elements[this.size++] = element;
+			return this;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * @return a new packed Array containing the added elements, in the order in which they were added
+		 */
+		public Array<V> build() {
+			if (this.elements == null) {
+				throw new IllegalStateException("The Array was already built");
+			}
+			if (this.elements.length > 2 * this.size + MAX_SLACK) {
+				// the Array keeps its store for its whole life, it must not retain the slots of an overestimated size
+				this.elements = Arrays.copyOf(this.elements, this.size);
+			}
+			Array<V> result = new Array<>();
+			result.array = result.new PackedArrayStore<>(this.elements, this.size);
+			result.length = this.size;
+			result.setElements = this.size;
+			this.elements = null;
+			return result;
 		}
 	}
 
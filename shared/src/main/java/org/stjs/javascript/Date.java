@@ -18,16 +18,15 @@ package org.stjs.javascript;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
 
 import org.stjs.javascript.annotation.BrowserCompatibility;
 
 /**
- * this date is implemented using a java {@link Calendar}. the aim of this class is to offer a similar behavior to the
- * Javascript date.
+ * this date is implemented like the Javascript date: it only stores a time value, and the date fields are computed
+ * from it with the algorithms of section 15.9.1 of the specification. the aim of this class is to offer a similar
+ * behavior to the Javascript date.
  * 
  * 
  * <h3>Time Values and Time Range</h3>
@@ -119,16 +118,28 @@ import org.stjs.javascript.annotation.BrowserCompatibility;
  * @author acraciun, npiguet
  */
 public class Date {
-	private Calendar calendar;
-	private Calendar utc;
 	private final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
 
+	private static final double MAX_TIME = 8.64e15;
+	private static final double MS_PER_SECOND = 1000;
+	private static final double MS_PER_MINUTE = 60 * MS_PER_SECOND;
+	private static final double MS_PER_HOUR = 60 * MS_PER_MINUTE;
+	private static final double MS_PER_DAY = 24 * MS_PER_HOUR;
+	private static final double AVERAGE_DAYS_PER_YEAR = 365.2425;
+	private static final int[] DAYS_BEFORE_MONTH = { 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334 };
+	private static final TimeZone UTC_ZONE = TimeZone.getTimeZone("UTC");
+
+	/**
+	 * the time value of this date (see class documentation), NaN if this date is invalid
+	 */
+	private double time;
+
 	/**
 	 * Constructs a new <tt>Date</tt> object, setting it to the time value 
 	 * identifying the current time.
 	 */
 	public Date() {
-		calendar = Calendar.getInstance();
+		time = System.currentTimeMillis();
 	}
 
 	/**
@@ -139,12 +150,7 @@ public class Date {
 	 * @param milliseconds the time value to set this date to
 	 */
 	public Date(double milliseconds) {
-		if(!Double.isNaN(milliseconds) && 
-				!Double.isInfinite(milliseconds) &&
-				milliseconds <= 8640000000000000d &&
-				milliseconds >= -8640000000000000d) {
-			getUTC(true).setTimeInMillis((long)milliseconds);
-		}
+		time = timeClip(milliseconds);
 	}
 
 	/**
@@ -164,11 +170,10 @@ public class Date {
 		} catch (ParseException e) {
 		}
 		if (d != null) {
-			calendar = Calendar.getInstance();
-			calendar.setTime(d);
+			time = d.getTime();
 		} else {
 			// all the fiels should return NaN afterwards
-			calendar = null;
+			time = Double.NaN;
 		}
 	}
 	
@@ -222,52 +227,7 @@ public class Date {
 	 * time in the local time zone.
 	 */
 	public Date(int year, int month, int day, int hours, int minutes, int seconds, int ms) {
-		calendar = new GregorianCalendar(year, month, day, hours, minutes, seconds);
-		calendar.set(Calendar.MILLISECOND, ms);
-	}
-
-	private Calendar getUTC(boolean forceCreate) {
-		if (utc == null) {
-			if (calendar != null) {
-				utc = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-				utc.setTimeInMillis(calendar.getTimeInMillis());
-			} else if (forceCreate) {
-				utc = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-			}
-		}
-		return utc;
-	}
-
-	private Calendar getCalendar(boolean forceCreate) {
-		if (calendar == null) {
-			if (utc != null) {
-				calendar = Calendar.getInstance();
-				calendar.setTimeInMillis(utc.getTimeInMillis());
-			} else if (forceCreate) {
-				calendar = Calendar.getInstance();
-			}
-		}
-		return calendar;
-	}
-
-	private double getField(Calendar c, int field) {
-		if (c == null) {
-			return Double.NaN;
-		}
-		return c.get(field);
-	}
-
-	private void setField(Calendar c, int field, int n) {
-		if (c == null) {
-			throw new IllegalStateException("The calendar shold not be null");
-		}
-		c.set(field, n);
-		// set the other calendar to null to force recalculation
-		if (c == calendar) {
-			utc = null;
-		} else {
-			calendar = null;
-		}
+		time = timeClip(utc(TimeZone.getDefault(), makeDate(makeDay(toFullYear(year), month, day), makeTime(hours, minutes, seconds, ms))));
 	}
 
 	/**
@@ -277,7 +237,7 @@ public class Date {
 	 * @return the day of the month corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getDate() {
-		return getField(getCalendar(false), Calendar.DAY_OF_MONTH);
+		return dateFromTime(localTime(time));
 	}
 
 	/**
@@ -289,7 +249,7 @@ public class Date {
 	 * @return the day of the week corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getDay() {
-		return getField(getCalendar(false), Calendar.DAY_OF_WEEK);
+		return weekDay(localTime(time));
 	}
 
 	/**
@@ -299,7 +259,7 @@ public class Date {
 	 * @return the year corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getFullYear() {
-		return getField(getCalendar(false), Calendar.YEAR);
+		return yearFromTime(localTime(time));
 	}
 
 	/**
@@ -309,7 +269,7 @@ public class Date {
 	 * @return the hour of the day corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getHours() {
-		return getField(getCalendar(false), Calendar.HOUR_OF_DAY);
+		return hourFromTime(localTime(time));
 	}
 
 	/**
@@ -319,7 +279,7 @@ public class Date {
 	 * @return the milliseconds of the second corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getMilliseconds() {
-		return getField(getCalendar(false), Calendar.MILLISECOND);
+		return msFromTime(localTime(time));
 	}
 
 	/**
@@ -329,7 +289,7 @@ public class Date {
 	 * @return the minutes of the hour corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getMinutes() {
-		return getField(getCalendar(false), Calendar.MINUTE);
+		return minFromTime(localTime(time));
 	}
 
 	/**
@@ -340,7 +300,7 @@ public class Date {
 	 * @return Returns the month number in which this <tt>Date</tt> is placed, in the local time zone
 	 */
 	public double getMonth() {
-		return getField(getCalendar(false), Calendar.MONTH);
+		return monthFromTime(localTime(time));
 	}
 
 	/**
@@ -350,7 +310,7 @@ public class Date {
 	 * @return the seconds of the minute corresponding to this <tt>Date</tt>'s time value, in the local time zone.
 	 */
 	public double getSeconds() {
-		return getField(getCalendar(false), Calendar.SECOND);
+		return secFromTime(localTime(time));
 	}
 
 	/**
@@ -359,10 +319,7 @@ public class Date {
 	 * @return the time value associated to this <tt>Date</tt>
 	 */
 	public double getTime() {
-		if (getCalendar(false) != null) {
-			return calendar.getTimeInMillis();
-		}
-		return Double.NaN;
+		return time;
 	}
 
 	/**
@@ -372,10 +329,7 @@ public class Date {
 	 */
 	public double getTimezoneOffset() {
 		// in minutes
-		if (getCalendar(false) != null) {
-			return -calendar.getTimeZone().getRawOffset() / 1000 / 60;
-		}
-		return Double.NaN;
+		return (time - localTime(time)) / MS_PER_MINUTE;
 	}
 
 	/**
@@ -385,7 +339,7 @@ public class Date {
 	 * @return the day of the month corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCDate() {
-		return getField(getUTC(false), Calendar.DAY_OF_MONTH);
+		return dateFromTime(time);
 	}
 
 	/**
@@ -397,7 +351,7 @@ public class Date {
 	 * @return the day of the week corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCDay() {
-		return getField(getUTC(false), Calendar.DAY_OF_WEEK);
+		return weekDay(time);
 	}
 
 	/**
@@ -406,7 +360,7 @@ public class Date {
 	 * @return the year corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCFullYear() {
-		return getField(getUTC(false), Calendar.YEAR);
+		return yearFromTime(time);
 	}
 
 	/**
@@ -416,7 +370,7 @@ public class Date {
 	 * @return the hour of the day corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCHours() {
-		return getUTC(false).get(Calendar.HOUR_OF_DAY);
+		return hourFromTime(time);
 	}
 
 	/**
@@ -426,7 +380,7 @@ public class Date {
 	 * @return the milliseconds of the second corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCMilliseconds() {
-		return getField(getUTC(false), Calendar.MILLISECOND);
+		return msFromTime(time);
 	}
 
 	/**
@@ -436,7 +390,7 @@ public class Date {
 	 * @return the minutes of the hour corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCMinutes() {
-		return getField(getUTC(false), Calendar.MINUTE);
+		return minFromTime(time);
 	}
 
 	/**
@@ -447,7 +401,7 @@ public class Date {
 	 * @return Returns the month number in which this <tt>Date</tt> is placed, in UTC
 	 */
 	public double getUTCMonth() {
-		return getField(getUTC(false), Calendar.MONTH);
+		return monthFromTime(time);
 	}
 
 	/**
@@ -457,7 +411,7 @@ public class Date {
 	 * @return the seconds of the minute corresponding to this <tt>Date</tt>'s time value, in UTC.
 	 */
 	public double getUTCSeconds() {
-		return getField(getUTC(false), Calendar.SECOND);
+		return secFromTime(time);
 	}
 
 	/**
@@ -520,7 +474,9 @@ public class Date {
 	 * @param day the new day of month
 	 */
 	public void setDate(int day) {
-		setField(getCalendar(true), Calendar.DAY_OF_WEEK, day);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(makeDay(yearFromTime(t), monthFromTime(t), day), timeWithinDay(t)));
 	}
 
 	/**
@@ -531,7 +487,9 @@ public class Date {
 	 * @param month the new month
 	 */
 	public void setMonth(int month) {
-		setMonth(month, (int)getDay());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(makeDay(yearFromTime(t), month, dateFromTime(t)), timeWithinDay(t)));
 	}
 	
 	/**
@@ -543,8 +501,9 @@ public class Date {
 	 * @param day the new day of month
 	 */
 	public void setMonth(int month, int day) {
-		setField(getCalendar(true), Calendar.MONTH, month);
-		setDate(day);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(makeDay(yearFromTime(t), month, day), timeWithinDay(t)));
 	}
 
 	/**
@@ -554,7 +513,9 @@ public class Date {
 	 * @param year the new year
 	 */
 	public void setFullYear(int year) {
-		setFullYear(year, (int)getMonth());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTimeOrZero(zone);
+		setLocalTime(zone, makeDate(makeDay(year, monthFromTime(t), dateFromTime(t)), timeWithinDay(t)));
 	}
 
 	/**
@@ -565,7 +526,9 @@ public class Date {
 	 * @param month the new month
 	 */
 	public void setFullYear(int year, int month) {
-		setFullYear(year, month, (int)getDate());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTimeOrZero(zone);
+		setLocalTime(zone, makeDate(makeDay(year, month, dateFromTime(t)), timeWithinDay(t)));
 	}
 
 	/**
@@ -577,8 +540,9 @@ public class Date {
 	 * @param day the new day of month
 	 */
 	public void setFullYear(int year, int month, int day) {
-		setField(getCalendar(true), Calendar.YEAR, year);
-		setMonth(month, day);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTimeOrZero(zone);
+		setLocalTime(zone, makeDate(makeDay(year, month, day), timeWithinDay(t)));
 	}
 
 	/**
@@ -587,7 +551,9 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setMilliseconds(int ms) {
-		setField(getCalendar(true), Calendar.MILLISECOND, ms);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), minFromTime(t), secFromTime(t), ms)));
 	}
 
 	/**
@@ -597,7 +563,9 @@ public class Date {
 	 * @param sec the new seconds
 	 */
 	public void setSeconds(int sec) {
-		setSeconds(sec, (int)getMilliseconds());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), minFromTime(t), sec, msFromTime(t))));
 	}
 	
 	/**
@@ -608,8 +576,9 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setSeconds(int sec, int ms) {
-		setField(getCalendar(true), Calendar.SECOND, sec);
-		setMilliseconds(ms);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), minFromTime(t), sec, ms)));
 	}
 	
 	/**
@@ -619,7 +588,9 @@ public class Date {
 	 * @param min the new minutes
 	 */
 	public void setMinutes(int min) {
-		setMinutes(min, (int)getSeconds());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), min, secFromTime(t), msFromTime(t))));
 	}
 	
 	/**
@@ -630,7 +601,9 @@ public class Date {
 	 * @param sec the new seconds
 	 */
 	public void setMinutes(int min, int sec) {
-		setMinutes(min, sec, (int)getMilliseconds());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), min, sec, msFromTime(t))));
 	}
 	
 	/**
@@ -642,8 +615,9 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setMinutes(int min, int sec, int ms) {
-		setField(getCalendar(true), Calendar.MINUTE, min);
-		setSeconds(sec, ms);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hourFromTime(t), min, sec, ms)));
 	}
 
 	/**
@@ -653,7 +627,9 @@ public class Date {
 	 * @param hour the new hour
 	 */
 	public void setHours(int hour) {
-		setHours(hour, (int)getMinutes());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hour, minFromTime(t), secFromTime(t), msFromTime(t))));
 	}
 	
 	/**
@@ -664,7 +640,9 @@ public class Date {
 	 * @param min the new minutes
 	 */
 	public void setHours(int hour, int min) {
-		setHours(hour, min, (int)getSeconds());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hour, min, secFromTime(t), msFromTime(t))));
 	}
 	
 	/**
@@ -676,7 +654,9 @@ public class Date {
 	 * @param sec the new seconds
 	 */
 	public void setHours(int hour, int min, int sec) {
-		setHours(hour, min, sec, (int)getMilliseconds());
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hour, min, sec, msFromTime(t))));
 	}
 	
 	/**
@@ -689,8 +669,9 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setHours(int hour, int min, int sec, int ms) {
-		setField(getCalendar(true), Calendar.HOUR_OF_DAY, hour);
-		setMinutes(min, sec, ms);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTime(zone, time);
+		setLocalTime(zone, makeDate(day(t), makeTime(hour, min, sec, ms)));
 	}
 
 	/**
@@ -699,7 +680,7 @@ public class Date {
 	 * @param time the new time value for this <tt>Date</tt>
 	 */
 	public void setTime(long time) {
-		getCalendar(true).setTimeInMillis(time);
+		this.time = timeClip(time);
 	}
 
 	/**
@@ -708,7 +689,7 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setUTCMilliseconds(int ms) {
-		setField(getUTC(true), Calendar.MILLISECOND, ms);
+		setTimeValue(makeDate(day(time), makeTime(hourFromTime(time), minFromTime(time), secFromTime(time), ms)));
 	}
 	
 	/**
@@ -728,8 +709,7 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setUTCSeconds(int sec, int ms) {
-		setField(getUTC(true), Calendar.SECOND, sec);
-		setUTCMilliseconds(ms);
+		setTimeValue(makeDate(day(time), makeTime(hourFromTime(time), minFromTime(time), sec, ms)));
 	}
 	
 	/**
@@ -761,8 +741,7 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setUTCMinutes(int min, int sec, int ms) {
-		setField(getUTC(true), Calendar.MINUTE, min);
-		setUTCSeconds(sec, ms);
+		setTimeValue(makeDate(day(time), makeTime(hourFromTime(time), min, sec, ms)));
 	}
 	
 	/**
@@ -807,8 +786,7 @@ public class Date {
 	 * @param ms the new milliseconds
 	 */
 	public void setUTCHours(int hour, int min, int sec, int ms) {
-		setField(getUTC(true), Calendar.HOUR_OF_DAY, hour);
-		setUTCMinutes(min, sec, ms);
+		setTimeValue(makeDate(day(time), makeTime(hour, min, sec, ms)));
 	}
 
 	/**
@@ -817,7 +795,7 @@ public class Date {
 	 * @param n the new day of month
 	 */
 	public void setUTCDate(int n) {
-		setField(getUTC(true), Calendar.DAY_OF_MONTH, n);
+		setTimeValue(makeDate(makeDay(yearFromTime(time), monthFromTime(time), n), timeWithinDay(time)));
 	}
 	
 	/**
@@ -827,7 +805,7 @@ public class Date {
 	 * @param month the new month
 	 */
 	public void setUTCMonth(int month) {
-		setUTCMonth(month, (int)getUTCDay());
+		setUTCMonth(month, (int) getUTCDate());
 	}
 	
 	/**
@@ -839,8 +817,7 @@ public class Date {
 	 * @param day the new day of month
 	 */
 	public void setUTCMonth(int month, int day) {
-		setField(getUTC(true), Calendar.MONTH, month);
-		setUTCDate(day);
+		setTimeValue(makeDate(makeDay(yearFromTime(time), month, day), timeWithinDay(time)));
 	}
 	
 	/**
@@ -850,7 +827,8 @@ public class Date {
 	 * @param year the new year
 	 */
 	public void setUTCFullYear(int year) {
-		setUTCFullYear(year, (int)getUTCMonth());
+		double t = Double.isNaN(time) ? 0 : time;
+		setTimeValue(makeDate(makeDay(year, monthFromTime(t), dateFromTime(t)), timeWithinDay(t)));
 	}
 
 	/**
@@ -861,7 +839,8 @@ public class Date {
 	 * @param month the new month
 	 */
 	public void setUTCFullYear(int year, int month) {
-		setUTCFullYear(year, month, (int)getUTCDate());
+		double t = Double.isNaN(time) ? 0 : time;
+		setTimeValue(makeDate(makeDay(year, month, dateFromTime(t)), timeWithinDay(t)));
 	}
 
 	/**
@@ -873,12 +852,12 @@ public class Date {
 	 * @param day the new day of month
 	 */
 	public void setUTCFullYear(int year, int month, int day) {
-		setField(getUTC(true), Calendar.YEAR, year);
-		setUTCMonth(month, day);
+		double t = Double.isNaN(time) ? 0 : time;
+		setTimeValue(makeDate(makeDay(year, month, day), timeWithinDay(t)));
 	}
 	
 	/**
-	 * Sets the year field of this date in UTC. If <tt>0 &lt;= year &lt;= 99</tt>,
+	 * Sets the year field of this date in the local time zone. If <tt>0 &lt;= year &lt;= 99</tt>,
 	 * then the year is actually set to <tt>1900 + year</tt>, otherwise it is 
 	 * directly set to the specified year. 
 	 * 
@@ -887,10 +866,9 @@ public class Date {
 	 */
 	@Deprecated()
 	public void setYear(int year) {
-		if(year >= 0 && year <= 99){
-			year += 1900;
-		}
-		setField(getUTC(true), Calendar.YEAR, year);
+		TimeZone zone = TimeZone.getDefault();
+		double t = localTimeOrZero(zone);
+		setLocalTime(zone, makeDate(makeDay(toFullYear(year), monthFromTime(t), dateFromTime(t)), timeWithinDay(t)));
 	}
 
 	/**
@@ -917,10 +895,7 @@ public class Date {
 	 * @return a human readable version of the "date" portion of this <tt>Date</tt> in the current locale
 	 */
 	public String toLocaleDateString() {
-		if (getCalendar(false) != null) {
-			return DateFormat.getDateInstance(DateFormat.FULL, Locale.getDefault()).format(calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getDateInstance(DateFormat.FULL, Locale.getDefault()));
 	}
 
 	/**
@@ -933,10 +908,7 @@ public class Date {
 	 * @return a human readable version of the "time" portion of this <tt>Date</tt> in the current locale
 	 */
 	public String toLocaleTimeString() {
-		if (getCalendar(false) != null) {
-			return DateFormat.getTimeInstance(DateFormat.FULL, Locale.getDefault()).format(calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getTimeInstance(DateFormat.FULL, Locale.getDefault()));
 	}
 
 	/**
@@ -953,11 +925,7 @@ public class Date {
 	 * @return a human readable version of this <tt>Date</tt>, in the current locale
 	 */
 	public String toLocaleString() {
-		if (getCalendar(false) != null) {
-			return DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.getDefault()).format(
-					calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.getDefault()));
 	}
 
 	/**
@@ -974,11 +942,7 @@ public class Date {
 	 */
 	@Override
 	public String toString() {
-		if (getCalendar(false) != null) {
-			return DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.US).format(
-					calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.US));
 	}
 	
 	/**
@@ -990,10 +954,7 @@ public class Date {
 	 * @return a human readable version of the "date" portion of this <tt>Date</tt>, in the local time zone
 	 */
 	public String toDateString(){
-		if (getCalendar(false) != null) {
-			return DateFormat.getDateInstance(DateFormat.FULL, Locale.US).format(calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getDateInstance(DateFormat.FULL, Locale.US));
 	}
 
 	/**
@@ -1005,10 +966,7 @@ public class Date {
 	 * @return a human readable version of the "time" portion of this <tt>Date</tt>, in the local time zone
 	 */
 	public String toTimeString() {
-		if (getCalendar(false) != null) {
-			return DateFormat.getTimeInstance(DateFormat.FULL, Locale.US).format(calendar.getTime());
-		}
-		return null;
+		return format(DateFormat.getTimeInstance(DateFormat.FULL, Locale.US));
 	}
 
 	/**
@@ -1024,10 +982,9 @@ public class Date {
 	 * @return a human readable version of this <tt>Date</tt> in UTC
 	 */
 	public String toUTCString() {
-		if (getUTC(false) != null) {
-			return DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.US).format(utc.getTime());
-		}
-		return null;
+		DateFormat format = DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL, Locale.US);
+		format.setTimeZone(UTC_ZONE);
+		return format(format);
 	}
 	
 	/**
@@ -1178,7 +1135,7 @@ public class Date {
 	 * @return the UTC time value corresponding to the given arguments
 	 */
 	public static double UTC(int year, int month, int day, int hours, int minutes, int seconds, int ms) {
-		return new Date(year, month, day, hours, minutes, seconds, ms).getTime();
+		return timeClip(makeDate(makeDay(toFullYear(year), month, day), makeTime(hours, minutes, seconds, ms)));
 	}
 	
 	/**
@@ -1189,7 +1146,7 @@ public class Date {
 	 */
 	@BrowserCompatibility("IE:9+")
 	public static double now(){
-		return new Date().getTime();
+		return System.currentTimeMillis();
 	}
 
 	/**
@@ -1200,4 +1157,177 @@ public class Date {
 	public double valueOf() {
 		return getTime();
 	}
+
+	private void setLocalTime(TimeZone zone, double localTime) {
+		this.time = timeClip(utc(zone, localTime));
+	}
+
+	private void setTimeValue(double time) {
+		this.time = timeClip(time);
+	}
+
+	/**
+	 * the local time, or +0 if this date is invalid, as used by the setters of the year
+	 */
+	private double localTimeOrZero(TimeZone zone) {
+		return Double.isNaN(time) ? 0 : localTime(zone, time);
+	}
+
+	private String format(DateFormat format) {
+		if (Double.isNaN(time)) {
+			return null;
+		}
+		return format.format(new java.util.Date((long) time));
+	}
+
+	// the following methods implement the abstract operations of section 15.9.1 of the specification. They all
+	// return NaN when given NaN
+
+	/**
+	 * LocalTime(t) in the default time zone, for the getters that only need it once
+	 */
+	private static double localTime(double t) {
+		if (Double.isNaN(t)) {
+			return t;
+		}
+		return localTime(TimeZone.getDefault(), t);
+	}
+
+	/**
+	 * LocalTime(t), the offset of the time zone already includes the daylight saving time adjustment. The setters read
+	 * the default time zone once, as TimeZone.getDefault() returns a copy of it, and pass it to both conversions.
+	 */
+	private static double localTime(TimeZone zone, double t) {
+		if (Double.isNaN(t)) {
+			return t;
+		}
+		return t + zone.getOffset((long) t);
+	}
+
+	/**
+	 * UTC(t), the inverse of LocalTime(t)
+	 */
+	private static double utc(TimeZone zone, double t) {
+		if (Double.isNaN(t) || Double.isInfinite(t)) {
+			return t;
+		}
+		return t - zone.getOffset((long) t - zone.getRawOffset());
+	}
+
+	private static double timeClip(double t) {
+		if (Double.isNaN(t) || Double.isInfinite(t) || java.lang.Math.abs(t) > MAX_TIME) {
+			return Double.NaN;
+		}
+		// adding +0 turns -0 into +0
+		return (t < 0 ? java.lang.Math.ceil(t) : java.lang.Math.floor(t)) + 0.0;
+	}
+
+	private static double modulo(double a, double b) {
+		double result = a % b;
+		return result < 0 ? result + b : result;
+	}
+
+	private static double day(double t) {
+		return java.lang.Math.floor(t / MS_PER_DAY);
+	}
+
+	private static double timeWithinDay(double t) {
+		return modulo(t, MS_PER_DAY);
+	}
+
+	private static boolean isLeapYear(double year) {
+		return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static double dayFromYear(double year) {
+		return 365 * (year - 1970) + java.lang.Math.floor((year - 1969) / 4) - java.lang.Math.floor((year - 1901) / 100)
+				+ java.lang.Math.floor((year - 1601) / 400);
+	}
+
+	private static double yearFromTime(double t) {
+		if (Double.isNaN(t)) {
+			return t;
+		}
+		// start from an estimate, that is off by one year at most
+		double year = java.lang.Math.floor(day(t) / AVERAGE_DAYS_PER_YEAR) + 1970;
+		while (dayFromYear(year) * MS_PER_DAY > t) {
+			year--;
+		}
+		while (dayFromYear(year + 1) * MS_PER_DAY <= t) {
+			year++;
+		}
+		return year;
+	}
+
+	private static int firstDayOfMonth(int month, boolean leapYear) {
+		return DAYS_BEFORE_MONTH[month] + (leapYear && month >= 2 ? 1 : 0);
+	}
+
+	private static double monthFromTime(double t) {
+		if (Double.isNaN(t)) {
+			return t;
+		}
+		double year = yearFromTime(t);
+		double dayWithinYear = day(t) - dayFromYear(year);
+		boolean leapYear = isLeapYear(year);
+		int month = 11;
+		while (firstDayOfMonth(month, leapYear) > dayWithinYear) {
+			month--;
+		}
+		return month;
+	}
+
+	private static double dateFromTime(double t) {
+		if (Double.isNaN(t)) {
+			return t;
+		}
+		double year = yearFromTime(t);
+		double dayWithinYear = day(t) - dayFromYear(year);
+		return dayWithinYear - firstDayOfMonth((int) monthFromTime(t), isLeapYear(year)) + 1;
+	}
+
+	private static double weekDay(double t) {
+		// 01 January, 1970 was a Thursday
+		return modulo(day(t) + 4, 7);
+	}
+
+	private static double hourFromTime(double t) {
+		return modulo(java.lang.Math.floor(t / MS_PER_HOUR), 24);
+	}
+
+	private static double minFromTime(double t) {
+		return modulo(java.lang.Math.floor(t / MS_PER_MINUTE), 60);
+	}
+
+	private static double secFromTime(double t) {
+		return modulo(java.lang.Math.floor(t / MS_PER_SECOND), 60);
+	}
+
+	private static double msFromTime(double t) {
+		return modulo(t, MS_PER_SECOND);
+	}
+
+	private static double makeTime(double hour, double min, double sec, double ms) {
+		return hour * MS_PER_HOUR + min * MS_PER_MINUTE + sec * MS_PER_SECOND + ms;
+	}
+
+	private static double makeDay(double year, double month, double date) {
+		if (Double.isNaN(year) || Double.isNaN(month) || Double.isNaN(date)) {
+			return Double.NaN;
+		}
+		double actualYear = year + java.lang.Math.floor(month / 12);
+		int actualMonth = (int) modulo(month, 12);
+		return dayFromYear(actualYear) + firstDayOfMonth(actualMonth, isLeapYear(actualYear)) + date - 1;
+	}
+
+	private static double makeDate(double day, double time) {
+		return day * MS_PER_DAY + time;
+	}
+
+	/**
+	 * the years from 0 to 99 given to the constructor and to UTC() are years of the 20th century
+	 */
+	private static double toFullYear(int year) {
+		return year >= 0 && year <= 99 ? 1900 + year : year;
+	}
 }
@@ -2,8 +2,6 @@ package org.stjs.javascript;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.math.BigInteger;
-import java.text.DecimalFormat;
 
 /**
  * Implements various abstract operations as defined in the ECMA-262 specification. The visibility of this class is
@@ -19,11 +17,12 @@ import java.text.DecimalFormat;
  */
 class JSAbstractOperations {
 
-	private static final DecimalFormat PLAIN_INTEGER_FORMAT = new DecimalFormat("#0");
-	public static final BigInteger UINT_MAX_VALUE = new BigInteger("4294967296"); // = 2^32
-	public static final Double UINT_MAX_VALUE_D = 4294967296.0; // = 2^32
-	public static final BigInteger SINT_MAX_VALUE = new BigInteger("2147483648"); // = 2^31
-	public static final BigInteger USHORT_MAX_VALUE = new BigInteger("65536"); // = 2^16
+	private static final double UINT_MAX_VALUE = 4294967296.0; // = 2^32
+	private static final long UINT_MASK = 0xFFFFFFFFL;
+	/**
+	 * any integer with up to 15 digits is exactly represented by a double
+	 */
+	private static final int MAX_EXACT_DIGITS = 15;
 
 	/**
 	 * The [[DefaultValue]] internal method of Object, as close as possible to the definition in the ECMA-262
@@ -269,6 +268,11 @@ class JSAbstractOperations {
 		if (arg == null) {
 			return 0.0d;
 		}
+		long integer = parseSmallInteger(arg);
+		if (integer >= 0) {
+			return (double) integer;
+		}
+
 		String trimmed = arg.trim();
 		if (trimmed.isEmpty()) {
 			return 0.0d;
@@ -296,6 +300,26 @@ class JSAbstractOperations {
 		}
 	}
 
+	/**
+	 * the fast path of ToNumber for the strings that only contain decimal digits, like the indices and the counts
+	 * @return the value of the string, or -1 if it is empty, has other characters or more than 15 digits
+	 */
+	private static long parseSmallInteger(String arg) {
+		int length = arg.length();
+		if (length == 0 || length > MAX_EXACT_DIGITS) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = arg.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
 	/**
 	 * The ToInteger() abstract operation, as defined in the ECMA-262 specification section 9.4. Even though this
 	 * operation is called ToInteger(), it still returns a Double, because it needs to be able to represent values such
@@ -317,58 +341,53 @@ class JSAbstractOperations {
 	 * The ToInt32() abstract operation, as defined in the ECMA-262 specification section 9.5
 	 */
 	static Double ToInt32(Object arg) {
-		Double number = ToNumber(arg);
-		if (number.isNaN() || number.isInfinite() || number == 0.0) {
-			return 0.0;
-		}
-
-		Double posInt = ToInteger(number);
-
-		// here we have to use BigInteger, because posInt could easily be waaay out of range for int
-		// and the spec specifies how to handle that case
-		BigInteger posIntBig = new BigInteger(PLAIN_INTEGER_FORMAT.format(posInt));
-		BigInteger int32bit = posIntBig.mod(UINT_MAX_VALUE);
+		return (double) ToInt32Primitive(ToNumber(arg));
+	}
 
-		if (int32bit.compareTo(SINT_MAX_VALUE) >= 0) {
-			return int32bit.subtract(UINT_MAX_VALUE).doubleValue();
+	/**
+	 * The ToInt32() abstract operation applied to a number, as defined in the ECMA-262 specification section 9.5. It
+	 * does not allocate and, unlike {@link #ToInt32(Object)}, returns the result as an int.
+	 */
+	static int ToInt32Primitive(double number) {
+		if (Double.isNaN(number) || Double.isInfinite(number)) {
+			return 0;
 		}
-		return int32bit.doubleValue();
+		// the remainder of a division of doubles is exact and, as it is smaller than 2^32, the conversion to long
+		// truncates it towards zero without overflowing. Keeping only the lower 32 bits of the long then gives the
+		// result of the modulo in two's complement, as required by the spec
+		return (int) (long) (number % UINT_MAX_VALUE);
 	}
 
 	/**
 	 * The ToUInt32() abstract operation, as defined in the ECMA-262 specification section 9.6
 	 */
 	static Double ToUInt32(Object arg) {
-		Double number = ToNumber(arg);
-		if (number.isNaN() || number.isInfinite() || number == 0.0) {
-			return 0.0;
-		}
-
-		Double posInt = ToInteger(number);
+		return (double) ToUInt32Primitive(ToNumber(arg));
+	}
 
-		// here we have to use BigInteger, because posInt could easily be waaay out of range for int
-		// and the spec specifies how to handle that case
-		BigInteger posIntBig = new BigInteger(PLAIN_INTEGER_FORMAT.format(posInt));
-		BigInteger int32bit = posIntBig.mod(UINT_MAX_VALUE);
-		return int32bit.doubleValue();
+	/**
+	 * The ToUInt32() abstract operation applied to a number, as defined in the ECMA-262 specification section 9.6. It
+	 * does not allocate and returns the result as a long, as it does not fit in an int.
+	 */
+	static long ToUInt32Primitive(double number) {
+		return ToInt32Primitive(number) & UINT_MASK;
 	}
 
 	/**
 	 * The ToUInt16() abstract operation, as defined in the ECMA-262 specification section 9.7
 	 */
 	static Double ToUInt16(Object arg) {
-		Double number = ToNumber(arg);
-		if (number.isNaN() || number.isInfinite() || number == 0.0) {
-			return 0.0;
-		}
-
-		Double posInt = ToInteger(number);
+		return (double) ToUInt16Primitive(ToNumber(arg));
+	}
 
-		// here we have to use BigInteger, because posInt could easily be waaay out of range for int
-		// and the spec specifies how to handle that case
-		BigInteger posIntBig = new BigInteger(PLAIN_INTEGER_FORMAT.format(posInt));
-		BigInteger int16bit = posIntBig.mod(USHORT_MAX_VALUE);
-		return int16bit.doubleValue();
+	/**
+	 * The ToUInt16() abstract operation applied to a number, as defined in the ECMA-262 specification section 9.7. It
+	 * does not allocate and returns the result as an int.
+	 */
+	static int ToUInt16Primitive(double number) {
+		// 2^16 divides 2^32, so the lower 16 bits of ToInt32 are the result of the modulo 2^16. The conversion to char
+		// keeps exactly these bits as an unsigned value
+		return (char) ToInt32Primitive(number);
 	}
 
 	/**
@@ -376,23 +395,15 @@ class JSAbstractOperations {
 	 * section 9.8.
 	 * 
 	 * <p>
-	 * This implementation of <tt>ToString()</tt> differs slightly from the ECMA-262 specification in the following
-	 * manner:
-	 * <ul>
-	 * <li>When <tt>ToString()</tt> is applied to Objects whose class does not override the <tt>toString()</tt> method,
-	 * then the returned string is equal to whatever is produced by <tt>java.lang.Object.toString()</tt>. Therefore, the
-	 * returned string will not conform to the ECMA-262 specification which requires returning
-	 * <tt>"[object Object]"</tt> in this case.
-	 * <li><tt>ToString(0)</tt> returns <tt>"0"</tt> and to <tt>ToString(0.0)</tt> return <tt>"0.0"</tt>, which are not
-	 * equal. The ECMA-262 specification mentions a very specific algorithm for converting numbers to string, which due
-	 * to the difference between the various subclasses of <tt>java.lang.Number</tt> is not fully respected by this
-	 * implementation
-	 * </ul>
+	 * This implementation of <tt>ToString()</tt> differs slightly from the ECMA-262 specification when applied to
+	 * Objects whose class does not override the <tt>toString()</tt> method: the returned string is equal to whatever is
+	 * produced by <tt>java.lang.Object.toString()</tt>. Therefore, the returned string will not conform to the ECMA-262
+	 * specification which requires returning <tt>"[object Object]"</tt> in this case.
 	 * <p>
-	 * Both of these deviations are known and intentional. While it would have been possible to make the
-	 * <tt>ToString()</tt> operation conform to ECMA-262, doing so would make it inconsistent with the result of the
-	 * <tt>toString()</tt> method as defined by the java language. In order to minimize unexpected behavior,
-	 * <tt>ToString()</tt> behaves like <tt>toString()</tt> in those cases.
+	 * This deviation is known and intentional. While it would have been possible to make the <tt>ToString()</tt>
+	 * operation conform to ECMA-262, doing so would make it inconsistent with the result of the <tt>toString()</tt>
+	 * method as defined by the java language. In order to minimize unexpected behavior, <tt>ToString()</tt> behaves
+	 * like <tt>toString()</tt> in this case.
 	 */
 	static String ToString(Object arg) {
 		if (arg == null) {
@@ -417,24 +428,25 @@ class JSAbstractOperations {
 	}
 
 	/**
-	 * The ToString() abstract operation for Numbers, as close as possible to the definition in the ECMA-262
-	 * specification section 9.8.1.
+	 * The ToString() abstract operation for Numbers, as defined in the ECMA-262 specification section 9.8.1.
 	 * 
 	 * <p>
-	 * This implementation of <tt>ToString()</tt> differs slightly from the ECMA-262 specification. <tt>ToString(0)</tt>
-	 * returns <tt>"0"</tt> and to <tt>ToString(0.0)</tt> return <tt>"0.0"</tt>, which are not equal. The ECMA-262
-	 * specification mentions a very specific algorithm for converting numbers to string, which due to the difference
-	 * between the various subclasses of <tt>java.lang.Number</tt> is not fully respected by this implementation
-	 * <p>
-	 * This deviation is known and intentional. While it would have been possible to make the <tt>ToString()</tt>
-	 * operation conform to ECMA-262, doing so would make it inconsistent with the result of the <tt>toString()</tt>
-	 * method as defined by the java language. In order to minimize unexpected behavior, <tt>ToString()</tt> behaves
-	 * like <tt>toString()</tt> in those cases.
+	 * Doubles and Floats are written like Javascript writes numbers: <tt>ToString(0.0)</tt> returns <tt>"0"</tt>,
+	 * <tt>ToString(1e21)</tt> returns <tt>"1e+21"</tt>. A Float is written with the shortest digits that identify it
+	 * as a float, as it is the same number as its literal in the generated Javascript. The other subclasses of
+	 * <tt>java.lang.Number</tt> are written with their <tt>toString()</tt> method, as they cannot always be represented
+	 * exactly by a Javascript number.
 	 */
 	static String ToString(Number arg) {
 		if (arg == null) {
 			return "null";
 		}
+		if (arg instanceof Double) {
+			return NumberToString.toString(arg.doubleValue());
+		}
+		if (arg instanceof Float) {
+			return NumberToString.toString(Double.parseDouble(arg.toString()));
+		}
 
 		return arg.toString();
 	}
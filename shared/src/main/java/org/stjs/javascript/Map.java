@@ -15,7 +15,6 @@
  */
 package org.stjs.javascript;
 
-import java.util.HashMap;
 import java.util.Iterator;
 
 import org.stjs.javascript.annotation.ServerSide;
@@ -28,7 +27,9 @@ import org.stjs.javascript.annotation.Template;
  * <b>for(var key in map)</b> <br>
  * The methods are prefixed with $ to let the generator know that is should generate bracket access instead, i.e <br>
  * map.$get(key) => map[key] <br>
- * map.$put(key, value) => map[key]=value
+ * map.$put(key, value) => map[key]=value <br>
+ * On the server side, the keys are iterated in the same order as in javascript: first the keys that are array indices,
+ * in ascending numeric order, then the other keys in insertion order.
  * @author acraciun
  */
 @SyntheticType
@@ -39,7 +40,7 @@ public class Map<K extends String, V> implements Iterable<K> {
 	 * Constructor is package private, it isn't supposed to be used directly by clients of the API. Use <tt>JSCollections.$map()</tt> instead.
 	 */
 	protected Map() {
-		this(new HashMap<K, V>());
+		this(new PropertyMap<K, V>());
 	}
 
 	/**
@@ -66,7 +67,20 @@ public class Map<K extends String, V> implements Iterable<K> {
 	 */
 	@ServerSide
 	public static <KK extends String, VV> Map<KK, VV> copyOf(java.util.Map<KK, VV> map) {
-		return new Map<KK, VV>(new HashMap<KK, VV>(map));
+		PropertyMap<KK, VV> copy = new PropertyMap<KK, VV>(map.size());
+		copy.putAll(map);
+		return new Map<KK, VV>(copy);
+	}
+
+	/**
+	 * constructors used on the server side only. It creates an empty map that can hold the given number of keys before
+	 * having to grow
+	 * @param expectedSize
+	 * @return
+	 */
+	@ServerSide
+	public static <KK extends String, VV> Map<KK, VV> withExpectedSize(int expectedSize) {
+		return new Map<KK, VV>(new PropertyMap<KK, VV>(expectedSize));
 	}
 
 	/**
@@ -0,0 +1,277 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.javascript;
+
+import java.math.BigInteger;
+
+/**
+ * Converts doubles to String like <tt>Number.prototype.toString()</tt> in Javascript (ECMA-262 section 9.8.1): the
+ * shortest decimal that reads back as the same double, written without exponent between 1e-7 and 1e21.
+ * <p>
+ * The digits are found with Raffaello Giulietti's Schubfach algorithm ("The Schubfach way to render doubles"), that
+ * only needs a few multiplications of 64 bit integers, where <tt>Double.toString()</tt> works with big decimals and
+ * does not always give the shortest digits. The 126 bit approximations of the powers of ten that it needs are computed
+ * once, when the class is loaded.
+ */
+final class NumberToString {
+	private static final int P = 53;
+	private static final int Q_MIN = -1074;
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+	private static final long C_MIN = 1L << (P - 1);
+	private static final long C_TINY = 3;
+	private static final int BQ_MASK = 0x7FF;
+	private static final long T_MASK = C_MIN - 1;
+	private static final long MASK_63 = Long.MAX_VALUE;
+	/**
+	 * multiplyHigh(s, DIV_10) is s / 10
+	 */
+	private static final long DIV_10 = 115292150460684698L << 4;
+
+	/**
+	 * the digits are written as integers up to 10^21, like in Javascript
+	 */
+	private static final int MAX_PLAIN_EXPONENT = 21;
+	private static final int MIN_PLAIN_EXPONENT = -6;
+	private static final int MAX_LENGTH = 32;
+
+	/**
+	 * g1 and g0 of each power of ten, interleaved. See {@link #computePowersOfTen()}
+	 */
+	private static final long[] G = computePowersOfTen();
+
+	private NumberToString() {
+		//
+	}
+
+	/**
+	 * For each k, 10^-k = beta * 2^r with 2^125 <= beta < 2^126 and g = floor(beta) + 1 is split into its higher 63
+	 * bits g1 and its lower 63 bits g0.
+	 */
+	private static long[] computePowersOfTen() {
+		long[] g = new long[(K_MAX - K_MIN + 1) * 2];
+		BigInteger ten = BigInteger.TEN;
+		BigInteger mask63 = BigInteger.valueOf(MASK_63);
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int shift = 125 - flog2pow10(-k);
+			BigInteger beta;
+			if (k <= 0) {
+				BigInteger pow = ten.pow(-k);
+				beta = shift >= 0 ? pow.shiftLeft(shift) : pow.shiftRight(-shift);
+			} else {
+				beta = BigInteger.ONE.shiftLeft(shift).divide(ten.pow(k));
+			}
+			BigInteger gk = beta.add(BigInteger.ONE);
+			g[(k - K_MIN) << 1] = gk.shiftRight(63).longValue();
+			g[((k - K_MIN) << 1) + 1] = gk.and(mask63).longValue();
+		}
+		return g;
+	}
+
+	/**
+	 * @return floor(log10(2^e))
+	 */
+	private static int flog10pow2(int e) {
+		return (int) (e * 661971961083L >> 41);
+	}
+
+	/**
+	 * @return floor(log10(3/4 * 2^e))
+	 */
+	private static int flog10threeQuartersPow2(int e) {
+		return (int) (e * 661971961083L - 274743187321L >> 41);
+	}
+
+	/**
+	 * @return floor(log2(10^e))
+	 */
+	private static int flog2pow10(int e) {
+		return (int) (e * 913124641741L >> 38);
+	}
+
+	/**
+	 * @return the higher 64 bits of the 128 bit product of x and y
+	 */
+	private static long multiplyHigh(long x, long y) {
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+		long z0 = t >> 32;
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+
+	/**
+	 * rounds to odd the product of g and cp
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+	}
+
+	static String toString(double v) {
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & T_MASK;
+		int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+		if (bq == BQ_MASK) {
+			if (t != 0) {
+				return "NaN";
+			}
+			return bits > 0 ? "Infinity" : "-Infinity";
+		}
+		if (bq == 0 && t == 0) {
+			// +0 and -0
+			return "0";
+		}
+
+		char[] chars = new char[MAX_LENGTH];
+		int length = 0;
+		if (bits < 0) {
+			chars[length++] = '-';
+		}
+		if (bq != 0) {
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			if (0 < mq && mq < P) {
+				// fast path for the integers
+				long f = c >> mq;
+				if (f << mq == c) {
+					return format(chars, length, f, 0);
+				}
+			}
+			return toDecimal(chars, length, -mq, c);
+		}
+		if (t < C_TINY) {
+			// the algorithm needs more precision for the two smallest subnormals, whose shortest decimals are known
+			return t == 1 ? format(chars, length, 5, -324) : format(chars, length, 1, -323);
+		}
+		return toDecimal(chars, length, Q_MIN, t);
+	}
+
+	/**
+	 * writes the shortest decimal in the rounding interval of c * 2^q
+	 */
+	private static String toDecimal(char[] chars, int length, int q, long c) {
+		int out = (int) c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			// the interval is asymmetric at the powers of two
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+		long g1 = G[(k - K_MIN) << 1];
+		long g0 = G[((k - K_MIN) << 1) + 1];
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if (s >= 10) {
+			// one digit less, if one of its candidates is in the interval
+			long sp10 = 10 * multiplyHigh(s, DIV_10);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return format(chars, length, upin ? sp10 : tp10, k);
+			}
+		}
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return format(chars, length, uin ? s : t, k);
+		}
+		// both candidates are in the interval: take the closest one, or the even one
+		long cmp = vb - (s + t << 1);
+		return format(chars, length, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k);
+	}
+
+	/**
+	 * writes f * 10^e after the sign, as specified by ECMA-262 section 9.8.1
+	 */
+	private static String format(char[] chars, int start, long f, int e) {
+		long digits = f;
+		int exponent = e;
+		while (digits % 10 == 0) {
+			digits /= 10;
+			exponent++;
+		}
+		// the digits are written at the end of the buffer, then moved where they belong
+		int digitsStart = MAX_LENGTH;
+		for (long d = digits; d != 0; d /= 10) {
+			chars[--digitsStart] = (char) ('0' + d % 10);
+		}
+		int k = MAX_LENGTH - digitsStart;
+		int n = k + exponent;
+
+		int length = start;
+		if (k <= n && n <= MAX_PLAIN_EXPONENT) {
+			// integer
+			length = copy(chars, digitsStart, k, length);
+			for (int i = 0; i < n - k; i++) {
+				chars[length++] = '0';
+			}
+		} else if (0 < n && n <= MAX_PLAIN_EXPONENT) {
+			length = copy(chars, digitsStart, n, length);
+			chars[length++] = '.';
+			length = copy(chars, digitsStart + n, k - n, length);
+		} else if (MIN_PLAIN_EXPONENT < n && n <= 0) {
+			chars[length++] = '0';
+			chars[length++] = '.';
+			for (int i = 0; i < -n; i++) {
+				chars[length++] = '0';
+			}
+			length = copy(chars, digitsStart, k, length);
+		} else {
+			char first = chars[digitsStart];
+			chars[length++] = first;
+			if (k > 1) {
+				chars[length++] = '.';
+				length = copy(chars, digitsStart + 1, k - 1, length);
+			}
+			chars[length++] = 'e';
+			chars[length++] = n - 1 < 0 ? '-' : '+';
+			String exp = Integer.toString(java.lang.Math.abs(n - 1));
+			exp.getChars(0, exp.length(), chars, length);
+			length += exp.length();
+		}
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * copies count chars from the position from to the position to, as long as the source is after the destination
+	 * @return the position after the copied chars
+	 */
+	private static int copy(char[] chars, int from, int count, int to) {
+		System.arraycopy(chars, from, chars, to, count);
+		return to + count;
+	}
+}
@@ -0,0 +1,472 @@
+/**
+ *  Copyright 2011 Alexandru Craciun, Eyal Kaspi
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.stjs.javascript;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The default server-side storage of a {@link Map}. The keys are iterated in the same order as the properties of a
+ * Javascript object: first the keys that are array indices, in ascending numeric order, then the other keys in
+ * insertion order.
+ * <p>
+ * The entries are kept in insertion order in two parallel arrays, and are found with an open-addressing hash table
+ * that stores their positions. This takes less memory than a HashMap, as no object is allocated per entry. A removed
+ * entry only leaves an empty position, that is reclaimed the next time the arrays are full. As a consequence, keys
+ * may be removed while iterating, like in a Javascript for-in loop; adding keys while iterating may throw a
+ * {@link ConcurrentModificationException}.
+ */
+final class PropertyMap<K extends String, V> extends AbstractMap<K, V> {
+	private static final int MIN_CAPACITY = 4;
+	/**
+	 * the largest power of two for which the hash table, twice as large as the arrays, can be allocated
+	 */
+	private static final int MAX_CAPACITY = 1 << 29;
+	private static final long MAX_ARRAY_INDEX = 4294967294L;
+	private static final int MAX_ARRAY_INDEX_LENGTH = 10;
+	/**
+	 * positions are less than 2^31 and array indices less than 2^32: both fit in a positive long
+	 */
+	private static final int POSITION_BITS = Integer.SIZE - 1;
+	private static final long POSITION_MASK = Integer.MAX_VALUE;
+
+	/**
+	 * stored instead of the null key, as null marks the removed entries
+	 */
+	private static final Object NULL_KEY = new Object();
+
+	private Object[] keys;
+	private Object[] values;
+	/**
+	 * the number of used positions in keys and values, including the removed entries
+	 */
+	private int positions;
+	private int size;
+
+	/**
+	 * position + 1 of the entries, 0 for a free slot. A slot referencing a removed entry is kept until the table is
+	 * rebuilt, to keep the probe sequences unbroken.
+	 */
+	private int[] table;
+
+	private int arrayIndexKeys;
+	/**
+	 * the positions of the entries in iteration order, only needed when there are array index keys. Built lazily.
+	 */
+	private int[] order;
+	/**
+	 * incremented each time the entries are moved to other positions
+	 */
+	private int compactions;
+
+	PropertyMap() {
+		this(0);
+	}
+
+	PropertyMap(int expectedSize) {
+		int capacity = capacityFor(expectedSize);
+		this.keys = new Object[capacity];
+		this.values = new Object[capacity];
+		this.table = new int[capacity * 2];
+	}
+
+	/**
+	 * @return the smallest power of two that can hold the given number of entries, at most {@link #MAX_CAPACITY}: the
+	 *         expected size is only a hint, a larger map grows like any other
+	 */
+	static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize && capacity < MAX_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(Object key) {
+		int h = key == NULL_KEY ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K unmaskNull(Object key) {
+		return key == NULL_KEY ? null : (K) key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueAt(int position) {
+		return (V) this.values[position];
+	}
+
+	/**
+	 * @return the position of the entry with the given key, or -1
+	 */
+	private int findPosition(Object key) {
+		if (key != null && !(key instanceof String)) {
+			return -1;
+		}
+		Object maskedKey = maskNull(key);
+		int mask = this.table.length - 1;
+		for (int slot = hash(maskedKey) & mask; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			int position = this.table[slot] - 1;
+			if (maskedKey.equals(this.keys[position])) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	private void addToTable(int position) {
+		int mask = this.table.length - 1;
+		int slot = hash(this.keys[position]) & mask;
+		while (this.table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		this.table[slot] = position + 1;
+	}
+
+	/**
+	 * called when all the positions are used: reclaims the positions of the removed entries if there are enough of
+	 * them, otherwise grows the arrays. The hash table is rebuilt in both cases.
+	 */
+	private void makeRoom() {
+		if (this.size <= this.positions / 2) {
+			int target = 0;
+			for (int position = 0; position < this.positions; position++) {
+				if (this.keys[position] != null) {
+					this.keys[target] = this.keys[position];
+					this.values[target] = this.values[position];
+					target++;
+				}
+			}
+			Arrays.fill(this.keys, target, this.positions, null);
+			Arrays.fill(this.values, target, this.positions, null);
+			this.positions = target;
+			this.order = null;
+			this.compactions++;
+		} else if (this.keys.length == MAX_CAPACITY) {
+			throw new IllegalStateException("A map cannot hold more than " + MAX_CAPACITY + " keys");
+		} else {
+			this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+			this.values = Arrays.copyOf(this.values, this.values.length * 2);
+		}
+
+		this.table = new int[this.keys.length * 2];
+		for (int position = 0; position < this.positions; position++) {
+			if (this.keys[position] != null) {
+				addToTable(position);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findPosition(key) >= 0;
+	}
+
+	@Override
+	public V get(Object key) {
+		int position = findPosition(key);
+		return position >= 0 ? valueAt(position) : null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		int position = findPosition(key);
+		if (position >= 0) {
+			V old = valueAt(position);
+			this.values[position] = value;
+			return old;
+		}
+
+		if (this.positions == this.keys.length) {
+			makeRoom();
+		}
+		this.keys[this.positions] = maskNull(key);
+		this.values[this.positions] = value;
+		addToTable(this.positions);
+		this.positions++;
+		this.size++;
+		if (key != null && isArrayIndex(key)) {
+			this.arrayIndexKeys++;
+		}
+		this.order = null;
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		int position = findPosition(key);
+		if (position < 0) {
+			return null;
+		}
+		V old = valueAt(position);
+		removeAt(position);
+		return old;
+	}
+
+	private void removeAt(int position) {
+		Object key = this.keys[position];
+		if (key != NULL_KEY && isArrayIndex((String) key)) {
+			this.arrayIndexKeys--;
+		}
+		this.keys[position] = null;
+		this.values[position] = null;
+		this.size--;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, 0, this.positions, null);
+		Arrays.fill(this.values, 0, this.positions, null);
+		Arrays.fill(this.table, 0);
+		this.positions = 0;
+		this.size = 0;
+		this.arrayIndexKeys = 0;
+		this.order = null;
+		this.compactions++;
+	}
+
+	/**
+	 * @return true if the key is the canonical representation of an integer between 0 and 2^32 - 2
+	 */
+	static boolean isArrayIndex(String key) {
+		return parseArrayIndex(key) >= 0;
+	}
+
+	/**
+	 * @return the value of the key if it is the canonical representation of an integer between 0 and 2^32 - 2, i.e. an
+	 *         array index in Javascript, -1 otherwise
+	 */
+	static long parseArrayIndex(String key) {
+		int length = key.length();
+		if (length == 0 || length > MAX_ARRAY_INDEX_LENGTH || length > 1 && key.charAt(0) == '0') {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = key.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value <= MAX_ARRAY_INDEX ? value : -1;
+	}
+
+	/**
+	 * @return the positions in iteration order, or null if it is the insertion order
+	 */
+	private int[] getOrder() {
+		if (this.arrayIndexKeys == 0) {
+			return null;
+		}
+		if (this.order == null) {
+			// the array indices, sorted by their value, with their position in the low bits
+			long[] indices = new long[this.arrayIndexKeys];
+			int[] newOrder = new int[this.size];
+			int n = 0;
+			int others = this.arrayIndexKeys;
+			for (int position = 0; position < this.positions; position++) {
+				Object key = this.keys[position];
+				if (key == null) {
+					continue;
+				}
+				long index = key == NULL_KEY ? -1 : parseArrayIndex((String) key);
+				if (index >= 0) {
+					indices[n++] = index << POSITION_BITS | position;
+				} else {
+					newOrder[others++] = position;
+				}
+			}
+			Arrays.sort(indices);
+			for (int i = 0; i < indices.length; i++) {
+				newOrder[i] = (int) (indices[i] & POSITION_MASK);
+			}
+			this.order = newOrder;
+		}
+		return this.order;
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			@Override
+			public Iterator<K> iterator() {
+				return new PositionIterator<K>() {
+					@Override
+					K valueAt(int position) {
+						return unmaskNull(keys[position]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				int position = findPosition(o);
+				if (position < 0) {
+					return false;
+				}
+				removeAt(position);
+				return true;
+			}
+
+			@Override
+			public void clear() {
+				PropertyMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new PositionIterator<V>() {
+					@Override
+					V valueAt(int position) {
+						return PropertyMap.this.valueAt(position);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void clear() {
+				PropertyMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<java.util.Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<java.util.Map.Entry<K, V>>() {
+			@Override
+			public Iterator<java.util.Map.Entry<K, V>> iterator() {
+				return new PositionIterator<java.util.Map.Entry<K, V>>() {
+					@Override
+					java.util.Map.Entry<K, V> valueAt(int position) {
+						return new PositionEntry(position);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void clear() {
+				PropertyMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * visits the entries that exist when the iterator is created, skipping the ones that are removed in the meantime
+	 */
+	private abstract class PositionIterator<T> implements Iterator<T> {
+		private final int[] iterationOrder = getOrder();
+		private final int end = iterationOrder == null ? positions : iterationOrder.length;
+		private final int expectedCompactions = compactions;
+		private int next;
+		private int current = -1;
+
+		abstract T valueAt(int position);
+
+		private int positionAt(int i) {
+			return this.iterationOrder == null ? i : this.iterationOrder[i];
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (compactions != this.expectedCompactions) {
+				throw new ConcurrentModificationException();
+			}
+			while (this.next < this.end && keys[positionAt(this.next)] == null) {
+				this.next++;
+			}
+			return this.next < this.end;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = positionAt(this.next++);
+			return valueAt(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0 || keys[this.current] == null) {
+				throw new IllegalStateException();
+			}
+			removeAt(this.current);
+		}
+	}
+
+	/**
+	 * writes through to the map as long as the entry is not moved
+	 */
+	private final class PositionEntry extends SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int position;
+
+		private PositionEntry(int position) {
+			super(unmaskNull(keys[position]), PropertyMap.this.valueAt(position));
+			this.position = position;
+		}
+
+		@Override
+		public V setValue(V value) {
+			values[this.position] = value;
+			return super.setValue(value);
+		}
+	}
+}
@@ -33,6 +33,16 @@ public final class STJS {
 	 */
 	public native <T> T parseJSON(String json, Class<T> clazz);
 
+	/**
+	 * decode the given MessagePack message (an ArrayBuffer or an Uint8Array, e.g. the response of an XMLHttpRequest with the
+	 * "arraybuffer" responseType) and build the object hierarchy in a typed-manner, like parseJSON. The message is written on the server
+	 * with the MessagePackFactory of stjs-server.
+	 * @param buffer
+	 * @param clazz
+	 * @return
+	 */
+	public native <T> T parseBinary(Object buffer, Class<T> clazz);
+
 	/**
 	 * using the type description, it converts a POJO (i.e arrived as JSON in your client) to an object of the given type, transforming
 	 * recursively the fields.
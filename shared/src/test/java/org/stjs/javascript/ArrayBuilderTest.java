@@ -0,0 +1,79 @@
+package org.stjs.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests for the server side Array builder
+ */
+public class ArrayBuilderTest {
+
+	@Test
+	public void testBuilder01() {
+		// an empty builder builds an empty array
+		Array<Integer> x = Array.<Integer> builder(0).build();
+		assertEquals(0, x.$length());
+		x.push(1);
+		assertEquals(1, x.$length());
+		assertEquals(1, (int) x.$get(0));
+	}
+
+	@Test
+	public void testBuilder02() {
+		// the builder grows past the expected size, and keeps null elements
+		Array.Builder<Integer> builder = Array.builder(2);
+		for (int i = 0; i < 100; i++) {
+			builder.add(i % 10 == 0 ? null : i);
+		}
+		assertEquals(100, builder.size());
+
+		Array<Integer> x = builder.build();
+		assertEquals(100, x.$length());
+		assertEquals(100, x.toList().size());
+		for (int i = 0; i < 100; i++) {
+			if (i % 10 == 0) {
+				assertNull(x.$get(i));
+			} else {
+				assertEquals(i, (int) x.$get(i));
+			}
+		}
+		assertEquals("1,2", x.slice(1, 3).join());
+	}
+
+	@Test
+	public void testBuilder03() {
+		// the built array behaves like any other array when it is modified
+		Array.Builder<Integer> builder = Array.builder(4);
+		builder.add(0).add(1).add(2);
+		Array<Integer> x = builder.build();
+		x.push(3, 4);
+		x.$set(1000, 5);
+		assertEquals(1001, x.$length());
+		assertEquals("0,1,2,3,4", x.slice(0, 5).join());
+		assertEquals(5, (int) x.$get(1000));
+		assertEquals(2, (int) x.splice(2, 1).$get(0));
+		assertEquals(1000, x.$length());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder04() {
+		// a builder only builds one array
+		Array.Builder<Integer> builder = Array.builder(1);
+		builder.add(1).build();
+		builder.add(2);
+	}
+
+	@Test
+	public void testBuilder05() {
+		// an overestimated expected size does not change the built array
+		Array.Builder<Integer> builder = Array.builder(1000);
+		builder.add(0).add(1).add(2);
+		Array<Integer> x = builder.build();
+		assertEquals(3, x.$length());
+		assertEquals("0,1,2", x.join());
+		x.push(3);
+		assertEquals("0,1,2,3", x.join());
+	}
+}
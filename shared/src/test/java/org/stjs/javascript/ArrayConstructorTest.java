@@ -72,4 +72,20 @@ public class ArrayConstructorTest {
 			assertEquals(ints.get(i), arr.$get(i));
 		}
 	}
+
+	@Test
+	public void testConstructor05() {
+		// Arrays.asList may be backed by an array of a more specific type than Object[]
+		List<String> strings = Arrays.asList(new String[] { "a", "b", "c" });
+		Array<String> arr = new Array<>(strings);
+
+		arr.$delete(1);
+		arr.$length(5);
+
+		assertEquals(5, arr.$length());
+		assertEquals("a", arr.$get(0));
+		assertNull(arr.$get(1));
+		assertEquals("c", arr.$get(2));
+		assertEquals("a,,c,,", arr.join());
+	}
 }
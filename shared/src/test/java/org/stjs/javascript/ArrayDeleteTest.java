@@ -102,4 +102,21 @@ public class ArrayDeleteTest {
 		assertNull(x.$get(3));
 		assertEquals(4, x.$length());
 	}
+
+	/**
+	 * Deleting the only element of a sparse array leaves a long empty array
+	 */
+	@Test
+	public void testDelete06(){
+		Array<Integer> x = $array();
+		x.$set(1000, 1000);
+
+		x.$delete(1000);
+
+		assertNull(x.$get(1000));
+		assertEquals(1001, x.$length());
+
+		x.$set(10, 10);
+		assertEquals(10, x.$get(10).intValue());
+	}
 }
@@ -435,4 +435,32 @@ public class ArrayForEachTest {
 
 	public interface ForEachCB<V> extends Callback3<V, Long, Array<V>> {}
 
+	/**
+	 * Sparse array filled in no particular order is still visited in ascending order, and elements deleted during
+	 * the iteration are not visited
+	 */
+	@Test
+	public void testForEach17(){
+		final Array<Integer> arr = $array();
+		int[] indices = {100000, 20, 3000, 5, 70000, 400, 999999};
+		for (int index : indices) {
+			arr.$set(index, index);
+		}
+
+		final Array<Long> visited = $array();
+		ForEachCB<Integer> callbackfn = new ForEachCB<Integer>() {
+			@Override
+			public void $invoke(Integer val, Long idx, Array<Integer> obj) {
+				visited.push(idx);
+				if(idx == 400){
+					arr.$delete(3000);
+					arr.$delete(70000);
+				}
+			}
+		};
+
+		arr.forEach(callbackfn);
+
+		assertEquals("5,20,400,100000,999999", visited.join());
+	}
 }
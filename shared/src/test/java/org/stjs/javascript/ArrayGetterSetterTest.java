@@ -108,4 +108,22 @@ public class ArrayGetterSetterTest {
 			assertEquals(k, x.$get(k - 2).intValue());
 		}
 	}
+
+	@Test
+	public void testGetterSetter11() {
+		// only the canonical form of an integer is an array index
+		Array<Integer> x = $array();
+		x.$set("01", 1);
+		x.$set("1.0", 2);
+		x.$set(" 1", 3);
+		assertEquals(0, x.$length());
+		assertEquals(1, x.$get("01").intValue());
+		assertEquals(2, x.$get("1.0").intValue());
+		assertEquals(3, x.$get(" 1").intValue());
+
+		x.$set("4294967294", 4);
+		x.$set("4294967295", 5);
+		assertEquals(4, x.$get(4294967294L).intValue());
+		assertEquals(5, x.$get("4294967295").intValue());
+	}
 }
@@ -239,4 +239,19 @@ public class ArraySliceTest {
 		assertEquals(4, arr.$get(1).intValue());
 		assertEquals(null, arr.$get(2));
 	}
+
+	@Test
+	public void testSlice21() {
+		// a sparse array: the slice is taken from the sparse store
+		Array<Integer> x = $array();
+		x.$set(10, 10);
+		x.$set(500, 500);
+		x.$set(1000, 1000);
+		Array<Integer> arr = x.slice(10, 501);
+
+		assertEquals(491, arr.$length());
+		assertEquals(10, arr.$get(0).intValue());
+		assertEquals(500, arr.$get(490).intValue());
+		assertEquals(null, arr.$get(1));
+	}
 }
@@ -209,10 +209,58 @@ public class ArraySpliceTest {
 		assertArrayEquals($array(0, 4, 5), x);
 	}
 
+	@Test
+	public void testSplice23() {
+		// large enough to exercise the bulk moves of the packed store
+		Array<Integer> x = new Array<>();
+		for (int i = 0; i < 100; i++) {
+			x.push(i);
+		}
+		Array<Integer> removed = x.splice(10, 50, -1, -2);
+		assertEquals(50, removed.$length());
+		assertEquals(10, (int) removed.$get(0));
+		assertEquals(52, x.$length());
+		assertEquals(-1, (int) x.$get(10));
+		assertEquals(-2, (int) x.$get(11));
+		assertEquals(60, (int) x.$get(12));
+		assertEquals(99, (int) x.$get(51));
+
+		x.splice(1, 0, 100, 101, 102);
+		assertEquals(55, x.$length());
+		assertEquals(0, (int) x.$get(0));
+		assertEquals(100, (int) x.$get(1));
+		assertEquals(102, (int) x.$get(3));
+		assertEquals(1, (int) x.$get(4));
+		assertEquals(99, (int) x.$get(54));
+	}
+
 	private static <T> void assertArrayEquals(Array<T> expected, Array<T> actual) {
 		assertEquals(expected.$length(), actual.$length());
 		for (int i = 0; i < expected.$length(); i++) {
 			assertEquals(expected.$get(i), actual.$get(i));
 		}
 	}
+
+	@Test
+	public void testSplice24() {
+		// a sparse array: the trailing elements are moved by the sparse store
+		Array<Integer> x = new Array<>();
+		x.$set(0, 0);
+		x.$set(500, 500);
+		x.$set(1000, 1000);
+
+		Array<Integer> removed = x.splice(0, 1, 1, 2);
+		assertEquals(1, removed.$length());
+		assertEquals(0, (int) removed.$get(0));
+		assertEquals(1002, x.$length());
+		assertEquals(1, (int) x.$get(0));
+		assertEquals(2, (int) x.$get(1));
+		assertEquals(501, x.indexOf(500));
+		assertEquals(1001, x.indexOf(1000));
+
+		assertEquals(1, (int) x.shift());
+		assertEquals(1001, x.$length());
+		assertEquals(500, x.indexOf(500));
+		assertEquals(1000, x.lastIndexOf(1000));
+	}
 }
@@ -6,18 +6,27 @@ import static org.junit.Assert.assertTrue;
 import static org.stjs.javascript.JSAbstractOperations.DefaultValue;
 import static org.stjs.javascript.JSAbstractOperations.ToBoolean;
 import static org.stjs.javascript.JSAbstractOperations.ToInt32;
+import static org.stjs.javascript.JSAbstractOperations.ToInt32Primitive;
 import static org.stjs.javascript.JSAbstractOperations.ToInteger;
 import static org.stjs.javascript.JSAbstractOperations.ToNumber;
 import static org.stjs.javascript.JSAbstractOperations.ToObject;
 import static org.stjs.javascript.JSAbstractOperations.ToPrimitive;
 import static org.stjs.javascript.JSAbstractOperations.ToString;
 import static org.stjs.javascript.JSAbstractOperations.ToUInt16;
+import static org.stjs.javascript.JSAbstractOperations.ToUInt16Primitive;
 import static org.stjs.javascript.JSAbstractOperations.ToUInt32;
+import static org.stjs.javascript.JSAbstractOperations.ToUInt32Primitive;
 import static org.stjs.javascript.JSGlobal.Array;
 import static org.stjs.javascript.JSGlobal.NaN;
 import static org.stjs.javascript.JSGlobal.Number;
 import static org.stjs.javascript.JSGlobal.isNaN;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class JSAbstractOperationsTest {
@@ -227,6 +236,19 @@ public class JSAbstractOperationsTest {
 		assertTrue(isNaN(ToNumber(o)));
 	}
 
+	@Test
+	public void testToNumber06() {
+		assertEquals(0.0, ToNumber(""), 0.0);
+		assertEquals(0.0, ToNumber("0"), 0.0);
+		assertEquals(12.0, ToNumber("00012"), 0.0);
+		assertEquals(999999999999999.0, ToNumber("999999999999999"), 0.0);
+		assertEquals(9007199254740993.0, ToNumber("9007199254740993"), 0.0);
+		assertEquals(12345678901234567890.0, ToNumber("12345678901234567890"), 0.0);
+		assertEquals(-12.0, ToNumber("-12"), 0.0);
+		assertEquals(12.0, ToNumber(" 12 "), 0.0);
+		assertTrue(isNaN(ToNumber("12a")));
+	}
+
 	@Test
 	public void testToInteger01() {
 		assertEquals(0.0, ToInteger(NaN), 0.0);
@@ -291,6 +313,8 @@ public class JSAbstractOperationsTest {
 		assertEquals(-1d, ToInt32(8589934591d), 0.0);
 		assertEquals(0d, ToInt32(8589934592d), 0.0);
 		assertEquals(1d, ToInt32(8589934593d), 0.0);
+		// more than 17 significant digits
+		assertEquals(1572044800d, ToInt32(-3.4932793819551007e19), 0.0);
 	}
 
 	@Test
@@ -709,10 +733,50 @@ public class JSAbstractOperationsTest {
 		assertEquals("0.1", ToString(0.1));
 		assertEquals("-0.1", ToString(-0.1));
 
-		// Checks below do not apply due to incompatibilities between Java and ECMA-262. See method documentations
-		// assertEquals("100000000000000000000", ToString(1e20)); => actually returns "1.0e20"
-		// assertEquals("1e+21", ToString(1e21)); => actually returns "1.0e+21"
-		// assertEquals("0.000001", ToString(0.000001)); => actually returns "1.0e-6"
+		assertEquals("100000000000000000000", ToString(1e20));
+		assertEquals("1e+21", ToString(1e21));
+		assertEquals("0.000001", ToString(0.000001));
+	}
+
+	@Test
+	public void testToString04() {
+		assertEquals("0", ToString(0.0));
+		assertEquals("0", ToString(-0.0));
+		assertEquals("1", ToString(1.0));
+		assertEquals("-25", ToString(-25.0));
+		assertEquals("9007199254740992", ToString(9007199254740992.0));
+		assertEquals("123456789012345680000", ToString(123456789012345678901.0));
+		assertEquals("1.2345678901234568e+21", ToString(1234567890123456789012.0));
+		assertEquals("1e-7", ToString(1e-7));
+		assertEquals("1.5e-7", ToString(1.5e-7));
+		assertEquals("0.30000000000000004", ToString(0.1 + 0.2));
+		assertEquals("0.002", ToString(0.002));
+		assertEquals("1.7976931348623157e+308", ToString(Double.MAX_VALUE));
+		assertEquals("5e-324", ToString(Double.MIN_VALUE));
+		assertEquals("1e-323", ToString(2 * Double.MIN_VALUE));
+		assertEquals("1.5e-323", ToString(3 * Double.MIN_VALUE));
+		assertEquals("2.2250738585072014e-308", ToString(Double.MIN_NORMAL));
+		assertEquals("NaN", ToString(Double.NaN));
+	}
+
+	@Test
+	public void testToString05() {
+		assertEquals("0.1", ToString(0.1f));
+		assertEquals("1", ToString(1.0f));
+		assertEquals("3.4028235e+38", ToString(Float.MAX_VALUE));
+		assertEquals("9223372036854775807", ToString(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testToString06() {
+		// each double written, then read back, must give the same double
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			double d = Double.longBitsToDouble(random.nextLong());
+			if (!Double.isNaN(d)) {
+				assertEquals(d, ToNumber(ToString(d)), 0.0);
+			}
+		}
 	}
 
 	@Test(
@@ -732,6 +796,55 @@ public class JSAbstractOperationsTest {
 		assertSameAfterToObject("abc");
 	}
 
+	@Test
+	public void testPrimitiveConversionsMatchBigIntegerConversions() {
+		for (double value : getConversionSamples()) {
+			String msg = "for " + value;
+			assertEquals(msg, referenceModulo(value, UINT, true), ToInt32Primitive(value), 0.0);
+			assertEquals(msg, referenceModulo(value, UINT, false), ToUInt32Primitive(value), 0.0);
+			assertEquals(msg, referenceModulo(value, USHORT, false), ToUInt16Primitive(value), 0.0);
+		}
+	}
+
+	private static final BigInteger UINT = new BigInteger("4294967296");
+	private static final BigInteger USHORT = new BigInteger("65536");
+
+	/**
+	 * the previous implementation of ToInt32, ToUInt32 and ToUInt16, that goes through BigInteger. The number is converted
+	 * with BigDecimal, as the DecimalFormat previously used kept only 17 significant digits.
+	 */
+	private static double referenceModulo(double number, BigInteger modulo, boolean signed) {
+		if (Double.isNaN(number) || Double.isInfinite(number) || number == 0.0) {
+			return 0.0;
+		}
+		double posInt = java.lang.Math.signum(number) * java.lang.Math.floor(java.lang.Math.abs(number));
+		BigInteger result = new BigDecimal(posInt).toBigInteger().mod(modulo);
+		if (signed && result.compareTo(modulo.shiftRight(1)) >= 0) {
+			return result.subtract(modulo).doubleValue();
+		}
+		return result.doubleValue();
+	}
+
+	private static List<Double> getConversionSamples() {
+		List<Double> samples = new ArrayList<Double>();
+		double[] special = { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, -0.0, Double.MIN_VALUE, Double.MAX_VALUE,
+				-Double.MAX_VALUE, 0.5, -0.5, 65535.5, 65536, -65536.5, 2147483647.9, 2147483648.0, -2147483648.5, -2147483649.0,
+				4294967295.5, 4294967296.0, -4294967296.0, 4294967297.0, 9007199254740991.0, 9007199254740993.0, 1e19, -1e19, 1e300 };
+		for (double value : special) {
+			samples.add(value);
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; ++i) {
+			// spread the samples on all the magnitudes, from fractions to numbers that cannot hold any fraction anymore
+			double magnitude = java.lang.Math.pow(2, random.nextInt(80) - 8);
+			double value = (random.nextDouble() - 0.5) * magnitude;
+			samples.add(value);
+			samples.add(java.lang.Math.floor(value));
+		}
+		return samples;
+	}
+
 	private void assertSameAfterToObject(Object o) {
 		assertSame(o, ToObject(o));
 	}
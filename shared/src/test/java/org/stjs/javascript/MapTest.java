@@ -0,0 +1,138 @@
+package org.stjs.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.stjs.javascript.JSCollections.$map;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MapTest {
+
+	private static String keys(Map<String, ?> map) {
+		StringBuilder sb = new StringBuilder();
+		for (String key : map) {
+			sb.append(sb.length() == 0 ? "" : ",").append(key);
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testExpectedSizeCapacity() {
+		assertEquals(4, PropertyMap.capacityFor(-1));
+		assertEquals(4, PropertyMap.capacityFor(3));
+		assertEquals(1024, PropertyMap.capacityFor(1000));
+		assertEquals(1 << 29, PropertyMap.capacityFor(1 << 29));
+		// the sizes above the largest power of two that fits in an int would loop forever
+		assertEquals(1 << 29, PropertyMap.capacityFor((1 << 30) + 1));
+		assertEquals(1 << 29, PropertyMap.capacityFor(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testInsertionOrder() {
+		Map<String, Integer> map = $map("b", 1, "a", 2, "c", 3);
+		assertEquals("b,a,c", keys(map));
+
+		// setting an existing key doesn't change the order
+		map.$put("b", 4);
+		assertEquals("b,a,c", keys(map));
+		assertEquals(4, (int) map.$get("b"));
+
+		// but a deleted key that is set again is moved to the end
+		map.$delete("b");
+		map.$put("b", 5);
+		assertEquals("a,c,b", keys(map));
+	}
+
+	@Test
+	public void testArrayIndexKeysFirst() {
+		Map<String, Integer> map = $map("b", 1, "10", 2, "a", 3, "2", 4, "01", 5);
+		map.$put("-1", 6);
+		map.$put("4294967294", 7);
+		map.$put("4294967295", 8);
+		assertEquals("2,10,4294967294,b,a,01,-1,4294967295", keys(map));
+
+		map.$delete("10");
+		assertEquals("2,4294967294,b,a,01,-1,4294967295", keys(map));
+	}
+
+	@Test
+	public void testDeleteWhileIterating() {
+		Map<String, Integer> map = $map("a", 1, "b", 2, "c", 3, "d", 4);
+		StringBuilder visited = new StringBuilder();
+		for (String key : map) {
+			visited.append(key);
+			if (key.equals("a")) {
+				map.$delete("a");
+				map.$delete("c");
+			}
+		}
+		assertEquals("abd", visited.toString());
+		assertEquals("b,d", keys(map));
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		Map<String, Integer> map = $map("a", 1, "1", 2, "b", 3);
+		Iterator<String> it = map.java().keySet().iterator();
+		while (it.hasNext()) {
+			if (!it.next().equals("b")) {
+				it.remove();
+			}
+		}
+		assertEquals("b", keys(map));
+		assertEquals(1, map.java().size());
+	}
+
+	@Test
+	public void testNullKey() {
+		Map<String, Integer> map = $map();
+		assertNull(map.$get(null));
+		map.$put(null, 1);
+		map.$put("a", 2);
+		assertEquals(1, (int) map.$get(null));
+		assertTrue(map.java().containsKey(null));
+		map.$delete(null);
+		assertFalse(map.java().containsKey(null));
+		assertEquals("a", keys(map));
+	}
+
+	@Test
+	public void testSameContentAsHashMap() {
+		// random puts and deletes, going through growth and compaction
+		Random random = new Random(1);
+		Map<String, Integer> map = Map.withExpectedSize(2);
+		java.util.Map<String, Integer> expected = new HashMap<String, Integer>();
+		for (int i = 0; i < 20000; i++) {
+			String key = (random.nextBoolean() ? "k" : "") + random.nextInt(500);
+			if (random.nextInt(3) == 0) {
+				map.$delete(key);
+				expected.remove(key);
+			} else {
+				map.$put(key, i);
+				expected.put(key, i);
+			}
+		}
+		assertEquals(expected, map.java());
+		assertEquals(expected.size(), map.java().size());
+		for (java.util.Map.Entry<String, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.$get(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void testCopyOf() {
+		java.util.Map<String, Integer> source = new HashMap<String, Integer>();
+		source.put("x", 1);
+		source.put("y", 2);
+		Map<String, Integer> copy = Map.copyOf(source);
+		source.put("z", 3);
+		assertEquals(2, copy.java().size());
+		assertEquals(2, (int) copy.$get("y"));
+	}
+}
@@ -0,0 +1,771 @@
+package org.stjs.testing.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.browserlaunchers.locators.BrowserLocator;
+import org.openqa.selenium.browserlaunchers.locators.CombinedFirefoxLocator;
+import org.openqa.selenium.browserlaunchers.locators.GoogleChromeLocator;
+import org.stjs.testing.driver.browser.ChromeBrowser;
+import org.stjs.testing.driver.browser.FirefoxBrowser;
+import org.stjs.testing.driver.browser.PhantomjsBrowser;
+import org.stjs.testing.driver.browser.PhantomjsLocator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local process that keeps the browsers and Xvfb alive between the test sessions, so that each JVM running tests does
+ * not pay their startup. It is started in the background by the first session that needs it (see
+ * {@link BrowserAgentClient}), and stops itself, with the browsers and Xvfb, when none of its browsers was leased for
+ * the idle timeout.<br>
+ * <br>
+ * A browser started by the agent goes directly to the start page of the session that asked for it. When that session
+ * has no more tests, it releases the browser and sends it to the lobby page of the agent, where the browser waits for
+ * its next lease. The next session that needs the same kind of browser leases it: the agent answers the request of the
+ * lobby page with the start page of the new session, and the browser joins the new session through the usual
+ * long-polling protocol. Each lease has a random key, that the session puts in the URL of the lobby: the agent only
+ * answers the lobby page that has the key of the last lease of an idle browser.<br>
+ * <br>
+ * The sessions only tell the agent the kind of browser they need: the agent finds the executable itself, with the
+ * properties it was started with (chrome.bin, firefox.bin, phantomjs.bin) or in the path. The requests of the sessions
+ * carry the token of the file {@value #TOKEN_FILE} in the home of the user, that only the user can read, and the
+ * requests sent by web pages (that have an Origin header) are refused. Only the lobby pages talk to the agent without
+ * the token.<br>
+ * <br>
+ * The agent only depends on the JDK, selenium and the classes of the test driver, as it is started with a minimal
+ * classpath.
+ */
+@SuppressWarnings("restriction")
+public class BrowserAgent {
+	public static final String STATUS_URI = "/status";
+	public static final String DISPLAY_URI = "/display";
+	public static final String LAUNCH_URI = "/launch";
+	public static final String ACQUIRE_URI = "/acquire";
+	public static final String RELEASE_URI = "/release";
+	public static final String LEASE_URI = "/lease";
+	public static final String LOBBY_URI = "/lobby.html";
+
+	static final String TOKEN_HEADER = "X-STJS-Agent-Token";
+	static final String TOKEN_FILE = ".stjs-browser-agent-token";
+
+	/**
+	 * The kinds of browsers the agent can start. The executable of each kind is found by the agent, a session cannot
+	 * choose the command line.
+	 */
+	public enum BrowserKind {
+		CHROME(ChromeBrowser.PROP_CHROME_BIN, false), //
+		HEADLESS_CHROME(ChromeBrowser.PROP_CHROME_BIN, true), //
+		FIREFOX(FirefoxBrowser.PROP_FIREFOX_BIN, false), //
+		HEADLESS_FIREFOX(FirefoxBrowser.PROP_FIREFOX_BIN, true), //
+		PHANTOMJS(PhantomjsBrowser.PROP_PHANTOMJS_BIN, false);
+
+		private final String binPropertyName;
+		private final boolean headless;
+
+		private BrowserKind(String binPropertyName, boolean headless) {
+			this.binPropertyName = binPropertyName;
+			this.headless = headless;
+		}
+
+		public String getBinPropertyName() {
+			return binPropertyName;
+		}
+
+		/**
+		 * @return true if the browser is started on the display of the Xvfb server of the agent
+		 */
+		public boolean isHeadless() {
+			return headless;
+		}
+
+		BrowserLocator createLocator() {
+			switch (this) {
+			case CHROME:
+			case HEADLESS_CHROME:
+				return new GoogleChromeLocator();
+			case FIREFOX:
+			case HEADLESS_FIREFOX:
+				return new CombinedFirefoxLocator();
+			default:
+				return new PhantomjsLocator();
+			}
+		}
+	}
+
+	/**
+	 * the only start pages the agent sends its browsers to: the ones of the test sessions running on this host
+	 */
+	private static final Pattern START_PAGE_URL = Pattern
+			.compile("(http://localhost:[0-9]+/)start\\.html\\?browserId=([0-9]+)&persistent=(true|false)");
+
+	private static final int TOKEN_READ_ATTEMPTS = 50;
+	private static final long TOKEN_READ_POLL_MILLIS = 100;
+	private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+	/**
+	 * the time a browser has to come back to the lobby once the server of its session stopped
+	 */
+	private static final long DEFAULT_SESSION_GONE_GRACE_MILLIS = 10000;
+
+	private final int port;
+	private final long idleTimeoutMillis;
+	private final boolean debug;
+	private final byte[] token;
+	private final long sessionGoneGraceMillis;
+	private final HttpServer httpServer;
+	private final ScheduledExecutorService watchdog;
+	private final Map<Long, AgentBrowser> browsers = new LinkedHashMap<Long, AgentBrowser>();
+	private long nextBrowserId = 0;
+	private long lastLeaseTime = System.currentTimeMillis();
+	private Xvfb xvfb;
+	private File phantomjsBootstrap;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	/**
+	 * stops the browsers and Xvfb when the JVM of the agent is killed
+	 */
+	private final Thread shutdownHook = new Thread() {
+		@Override
+		public void run() {
+			// not Thread.stop()
+			BrowserAgent.this.stop();
+		}
+	};
+
+	public BrowserAgent(int port, int idleTimeoutSeconds, boolean debug) throws IOException {
+		this(port, idleTimeoutSeconds, debug, loadToken(), DEFAULT_SESSION_GONE_GRACE_MILLIS);
+	}
+
+	BrowserAgent(int port, int idleTimeoutSeconds, boolean debug, String token, long sessionGoneGraceMillis)
+			throws IOException {
+		this.port = port;
+		this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+		this.debug = debug;
+		this.token = token.getBytes("UTF-8");
+		this.sessionGoneGraceMillis = sessionGoneGraceMillis;
+		// only the local sessions and browsers talk to the agent
+		httpServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		httpServer.setExecutor(Executors.newCachedThreadPool());
+		httpServer.createContext("/", new AgentHttpHandler());
+		watchdog = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	/**
+	 * Starts the agent. The arguments are the port, the idle timeout in seconds and the debug flag.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length != 3) {
+			System.err.println("Usage: BrowserAgent <port> <idle timeout in seconds> <debug>");
+			System.exit(1);
+		}
+		BrowserAgent agent = new BrowserAgent(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+				Boolean.parseBoolean(args[2]));
+		agent.start();
+		agent.awaitStop(Long.MAX_VALUE);
+		// the threads of the HTTP server would keep the JVM alive
+		System.exit(0);
+	}
+
+	public void start() {
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		httpServer.start();
+		watchdog.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkBrowsers();
+			}
+		}, WATCHDOG_INTERVAL_MILLIS, WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		System.out.println("Browser agent started on port " + port);
+	}
+
+	/**
+	 * Forgets the browsers that exited, and kills the browsers of the sessions that terminated without sending them
+	 * back to the lobby, and the browsers that were not leased for the idle timeout. The agent stops when it has no more
+	 * browsers and nobody leased one for the idle timeout.
+	 */
+	private void checkBrowsers() {
+		Map<Long, String> leases = new HashMap<Long, String>();
+		synchronized (this) {
+			for (AgentBrowser browser : browsers.values()) {
+				if (!browser.isIdle()) {
+					leases.put(browser.id, browser.leasedTo);
+				}
+			}
+		}
+		// the servers of the sessions are probed without the lock, that the sessions and the lobby pages need
+		Map<Long, Boolean> listening = new HashMap<Long, Boolean>();
+		for (Map.Entry<Long, String> lease : leases.entrySet()) {
+			listening.put(lease.getKey(), isListening(lease.getValue()));
+		}
+
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			Iterator<AgentBrowser> it = browsers.values().iterator();
+			while (it.hasNext()) {
+				AgentBrowser browser = it.next();
+				if (!browser.isAlive()) {
+					log("Browser " + browser.id + " exited");
+					it.remove();
+				} else if (browser.isIdle() ? now - browser.idleSince >= idleTimeoutMillis : browser.isSessionGone(
+						listening, leases, now, sessionGoneGraceMillis)) {
+					log("Stopping browser " + browser.id + (browser.isIdle() ? ", it was not leased" : ", its session is gone"));
+					browser.kill();
+					it.remove();
+				}
+			}
+			if (browsers.isEmpty() && now - lastLeaseTime >= idleTimeoutMillis) {
+				stop();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the server of the given start page accepts connections
+	 */
+	private static boolean isListening(String startPageUrl) {
+		URI uri = URI.create(startPageUrl);
+		try {
+			Socket socket = new Socket(uri.getHost(), uri.getPort());
+			socket.close();
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stops the browsers, Xvfb and the HTTP server of the agent. It is also called by the shutdown hook, when the JVM
+	 * of the agent is killed.
+	 */
+	public synchronized void stop() {
+		if (stopped.getCount() == 0) {
+			return;
+		}
+		System.out.println("Stopping the browser agent");
+		for (AgentBrowser browser : browsers.values()) {
+			browser.kill();
+		}
+		browsers.clear();
+		if (xvfb != null) {
+			xvfb.stop();
+		}
+		if (phantomjsBootstrap != null) {
+			phantomjsBootstrap.delete();
+		}
+		watchdog.shutdown();
+		httpServer.stop(0);
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		}
+		catch (IllegalStateException e) {
+			// called by the shutdown hook
+		}
+		stopped.countDown();
+	}
+
+	/**
+	 * waits until the agent is stopped, by {@link #stop()} or because none of its browsers was leased for the idle
+	 * timeout
+	 *
+	 * @return true if the agent is stopped
+	 */
+	public boolean awaitStop(long timeoutMillis) throws InterruptedException {
+		return stopped.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the token the sessions must send to the agent. It is read from the file {@value #TOKEN_FILE} in the home
+	 *         of the user, that is created with a random token the first time, and that must only be readable by the
+	 *         user.
+	 */
+	static String loadToken() throws IOException {
+		return loadToken(Paths.get(System.getProperty("user.home"), TOKEN_FILE));
+	}
+
+	static String loadToken(Path file) throws IOException {
+		boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+		if (!Files.exists(file)) {
+			createToken(file, posix);
+		}
+		if (posix) {
+			for (PosixFilePermission permission : Files.getPosixFilePermissions(file)) {
+				if (permission != PosixFilePermission.OWNER_READ && permission != PosixFilePermission.OWNER_WRITE) {
+					throw new IOException("The browser agent token " + file + " must only be readable by its owner (chmod 600)");
+				}
+			}
+		}
+		// the file may have just been created by another session that did not write the token yet
+		for (int attempt = 1;; ++attempt) {
+			String token = new String(Files.readAllBytes(file), "UTF-8").trim();
+			if (!token.isEmpty()) {
+				return token;
+			}
+			if (attempt == TOKEN_READ_ATTEMPTS) {
+				throw new IOException("The browser agent token " + file + " is empty");
+			}
+			try {
+				Thread.sleep(TOKEN_READ_POLL_MILLIS);
+			}
+			catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	private static void createToken(Path file, boolean posix) throws IOException {
+		try {
+			if (posix) {
+				Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			} else {
+				Files.createFile(file);
+			}
+		}
+		catch (FileAlreadyExistsException e) {
+			// created by another session at the same time
+			return;
+		}
+		byte[] random = new byte[32];
+		new SecureRandom().nextBytes(random);
+		Files.write(file, String.format("%064x", new BigInteger(1, random)).getBytes("UTF-8"));
+	}
+
+	/**
+	 * @return the display of the Xvfb server of the agent, started the first time it is needed
+	 */
+	private synchronized String getDisplay() {
+		if (xvfb == null) {
+			xvfb = new Xvfb(debug);
+			xvfb.start();
+		}
+		return xvfb.getDisplay();
+	}
+
+	/**
+	 * Starts a browser of the given kind that goes to the start page of a session.
+	 *
+	 * @return the lease of the browser
+	 */
+	private synchronized String launch(BrowserKind kind, Matcher startPage) throws IOException {
+		long id = nextBrowserId++;
+		String startPageUrl = startPage.group();
+		List<String> command = new ArrayList<String>();
+		command.add(findExecutable(kind));
+		if (kind == BrowserKind.PHANTOMJS) {
+			// phantomjs runs the bootstrap, that asks the agent for the next session once there are no more tests
+			command.add("--web-security=no");
+			command.add(getPhantomjsBootstrap().getAbsolutePath());
+			command.add(startPage.group(2));
+			command.add(startPage.group(1));
+			command.add("http://localhost:" + port + "/");
+		} else {
+			command.add(startPageUrl);
+		}
+		ProcessBuilder builder = new ProcessBuilder(command);
+		if (kind.isHeadless()) {
+			builder.environment().put("DISPLAY", getDisplay());
+		}
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		// the output of the browser is not needed, but it must be read for the browser not to block
+		new OutputDiscarder(process.getInputStream()).start();
+
+		AgentBrowser browser = new AgentBrowser(id, kind, process);
+		browser.leaseTo(startPageUrl);
+		browsers.put(id, browser);
+		lastLeaseTime = System.currentTimeMillis();
+		log("Started browser " + id + " (" + kind + ") for " + startPageUrl);
+		return browser.getLease();
+	}
+
+	/**
+	 * @return the executable of the given kind of browser, set by a system property of the agent or found in the path
+	 */
+	private String findExecutable(BrowserKind kind) {
+		String executable = System.getProperty(kind.getBinPropertyName());
+		if (executable == null) {
+			executable = kind.createLocator().findBrowserLocationOrFail().launcherFilePath();
+		}
+		return executable;
+	}
+
+	/**
+	 * @return the bootstrap script of phantomjs, unpacked the first time it is needed because phantomjs can only run a
+	 *         file of the local filesystem
+	 */
+	private File getPhantomjsBootstrap() throws IOException {
+		if (phantomjsBootstrap == null) {
+			File file = File.createTempFile("phantomjs-bootstrap", ".js");
+			file.deleteOnExit();
+			InputStream in = BrowserAgent.class.getResourceAsStream("/phantomjs-bootstrap.js");
+			try {
+				Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally {
+				in.close();
+			}
+			phantomjsBootstrap = file;
+		}
+		return phantomjsBootstrap;
+	}
+
+	/**
+	 * Sends a browser of the given kind that waits in the lobby to the start page of a session.
+	 *
+	 * @return the lease of the browser, or null if no browser of this kind is waiting
+	 */
+	private synchronized String acquire(BrowserKind kind, String startPageUrl) {
+		for (AgentBrowser browser : browsers.values()) {
+			if (browser.kind == kind && browser.parkedRequest != null && browser.isAlive()) {
+				HttpExchange exchange = browser.parkedRequest;
+				browser.parkedRequest = null;
+				try {
+					sendText(exchange, HttpURLConnection.HTTP_OK, startPageUrl);
+				}
+				catch (IOException e) {
+					// the lobby page went away, the next one will park a new request
+					continue;
+				}
+				finally {
+					exchange.close();
+				}
+				browser.leaseTo(startPageUrl);
+				lastLeaseTime = System.currentTimeMillis();
+				log("Leased browser " + browser.id + " (" + kind + ") for " + startPageUrl);
+				return browser.getLease();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Called by the session a browser was leased to, before sending the browser to the lobby.
+	 *
+	 * @return false if the agent does not know this lease
+	 */
+	private synchronized boolean release(long id, String key) {
+		AgentBrowser browser = browsers.get(id);
+		if (browser == null || browser.isIdle() || !browser.hasKey(key)) {
+			return false;
+		}
+		log("Browser " + id + " is back in the lobby");
+		browser.idleSince = System.currentTimeMillis();
+		browser.leasedTo = null;
+		return true;
+	}
+
+	/**
+	 * Called by the lobby page of a browser, that waits for its next session. The request is parked until the browser
+	 * is leased. Only the lobby page of a released browser, that knows the key of the lease, is answered.
+	 *
+	 * @return 0 if the request was parked, or the status of the response
+	 */
+	private synchronized int parkLeaseRequest(long id, String key, HttpExchange exchange) {
+		AgentBrowser browser = browsers.get(id);
+		if (browser == null) {
+			// a browser of an agent that was stopped
+			return HttpURLConnection.HTTP_NOT_FOUND;
+		}
+		if (!browser.isIdle() || !browser.hasKey(key)) {
+			// the session did not release the browser yet, or the request is not sent by the lobby page
+			return HttpURLConnection.HTTP_FORBIDDEN;
+		}
+		if (browser.parkedRequest != null) {
+			browser.parkedRequest.close();
+		}
+		browser.parkedRequest = exchange;
+		return 0;
+	}
+
+	private void log(String message) {
+		if (debug) {
+			System.out.println(message);
+		}
+	}
+
+	private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+		byte[] response = text.getBytes("UTF-8");
+		exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+		exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(status, response.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(response);
+		output.flush();
+	}
+
+	private final class AgentHttpHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			// a parked request is completed when the browser is leased
+			boolean parked = false;
+			try {
+				Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
+				String path = exchange.getRequestURI().getPath();
+				// the requests of the browsers, that cannot know the token
+				if (LEASE_URI.equals(path)) {
+					int status = parkLeaseRequest(parseBrowserId(params), params.get("key"), exchange);
+					parked = status == 0;
+					if (!parked) {
+						exchange.sendResponseHeaders(status, -1);
+					}
+
+				} else if (LOBBY_URI.equals(path)) {
+					sendLobby(exchange);
+
+				} else if (exchange.getRequestHeaders().containsKey("Origin")) {
+					// sent by a web page, not by a session
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_FORBIDDEN, -1);
+
+				} else if (STATUS_URI.equals(path)) {
+					sendText(exchange, HttpURLConnection.HTTP_OK, "STJS browser agent");
+
+				} else if (!DISPLAY_URI.equals(path) && !LAUNCH_URI.equals(path) && !ACQUIRE_URI.equals(path)
+						&& !RELEASE_URI.equals(path)) {
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+
+				} else if (!"POST".equals(exchange.getRequestMethod())) {
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+
+				} else if (!hasToken(exchange)) {
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_FORBIDDEN, -1);
+
+				} else if (DISPLAY_URI.equals(path)) {
+					sendText(exchange, HttpURLConnection.HTTP_OK, getDisplay());
+
+				} else if (RELEASE_URI.equals(path)) {
+					boolean released = release(parseBrowserId(params), params.get("key"));
+					exchange.sendResponseHeaders(released ? HttpURLConnection.HTTP_OK : HttpURLConnection.HTTP_NOT_FOUND, -1);
+
+				} else {
+					BrowserKind kind = parseKind(params.get("kind"));
+					Matcher startPage = params.get("url") == null ? null : START_PAGE_URL.matcher(params.get("url"));
+					if (kind == null || startPage == null || !startPage.matches()) {
+						exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+					} else if (LAUNCH_URI.equals(path)) {
+						sendText(exchange, HttpURLConnection.HTTP_OK, launch(kind, startPage));
+					} else {
+						String lease = acquire(kind, startPage.group());
+						if (lease != null) {
+							sendText(exchange, HttpURLConnection.HTTP_OK, lease);
+						} else {
+							exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+						}
+					}
+				}
+			}
+			catch (Exception ex) {
+				System.err.println("Error processing request " + exchange.getRequestURI() + ":" + ex);
+				if (exchange.getResponseCode() < 0) {
+					// e.g. the browser could not be found, the session reports that the agent could not start it
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+				}
+			}
+			finally {
+				if (!parked) {
+					exchange.close();
+				}
+			}
+		}
+
+		private void sendLobby(HttpExchange exchange) throws IOException {
+			InputStream in = BrowserAgent.class.getResourceAsStream("/agent-lobby.html");
+			byte[] response;
+			try {
+				response = readBytes(in);
+			}
+			finally {
+				in.close();
+			}
+			exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
+			exchange.getResponseBody().write(response);
+			exchange.getResponseBody().flush();
+		}
+
+		private boolean hasToken(HttpExchange exchange) throws UnsupportedEncodingException {
+			String requestToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+			return requestToken != null && MessageDigest.isEqual(token, requestToken.getBytes("UTF-8"));
+		}
+
+		private long parseBrowserId(Map<String, String> params) {
+			String id = params.get("agentBrowserId");
+			return id == null ? -1 : Long.parseLong(id);
+		}
+
+		private BrowserKind parseKind(String kind) {
+			try {
+				return kind == null ? null : BrowserKind.valueOf(kind);
+			}
+			catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		private byte[] readBytes(InputStream in) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int bytesRead;
+			while ((bytesRead = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, bytesRead);
+			}
+			return bytes.toByteArray();
+		}
+
+		private Map<String, String> parseQueryString(String query) throws UnsupportedEncodingException {
+			Map<String, String> params = new HashMap<String, String>();
+			if (query == null) {
+				return params;
+			}
+			for (String nv : query.split("&")) {
+				String[] x = nv.split("=", 2);
+				if (x.length == 2) {
+					params.put(x[0], URLDecoder.decode(x[1], "UTF-8"));
+				}
+			}
+			return params;
+		}
+	}
+
+	/**
+	 * A browser process started by the agent. It is either leased to a session, or idle in the lobby.
+	 */
+	private static final class AgentBrowser {
+		private static final SecureRandom KEYS = new SecureRandom();
+
+		private final long id;
+		private final BrowserKind kind;
+		private final Process process;
+		private String leasedTo;
+		private String leaseKey;
+		private long idleSince;
+		private long sessionGoneSince;
+		private HttpExchange parkedRequest;
+
+		AgentBrowser(long id, BrowserKind kind, Process process) {
+			this.id = id;
+			this.kind = kind;
+			this.process = process;
+		}
+
+		void leaseTo(String startPageUrl) {
+			leasedTo = startPageUrl;
+			sessionGoneSince = 0;
+			byte[] random = new byte[16];
+			KEYS.nextBytes(random);
+			leaseKey = String.format("%032x", new BigInteger(1, random));
+		}
+
+		/**
+		 * @return the parameters of the lobby page of the browser for its current lease
+		 */
+		String getLease() {
+			return "agentBrowserId=" + id + "&key=" + leaseKey;
+		}
+
+		boolean hasKey(String key) {
+			return key != null && MessageDigest.isEqual(leaseKey.getBytes(Charset.forName("UTF-8")),
+					key.getBytes(Charset.forName("UTF-8")));
+		}
+
+		boolean isIdle() {
+			return leasedTo == null;
+		}
+
+		boolean isAlive() {
+			try {
+				process.exitValue();
+				return false;
+			}
+			catch (IllegalThreadStateException e) {
+				return true;
+			}
+		}
+
+		/**
+		 * @param listening the servers of the sessions that accepted a connection, by browser id
+		 * @param leases the start pages whose servers were probed, by browser id
+		 * @param graceMillis the time the browser has to come back to the lobby once the server stopped listening
+		 * @return true if the server of the session this browser is leased to stopped listening a while ago, and the
+		 *         browser did not come back to the lobby. When a session is killed, it cannot send its browsers back to
+		 *         the lobby.
+		 */
+		boolean isSessionGone(Map<Long, Boolean> listening, Map<Long, String> leases, long now, long graceMillis) {
+			if (!leasedTo.equals(leases.get(id))) {
+				// leased while the servers were probed
+				return false;
+			}
+			if (listening.get(id)) {
+				sessionGoneSince = 0;
+				return false;
+			}
+			if (sessionGoneSince == 0) {
+				sessionGoneSince = now;
+			}
+			return now - sessionGoneSince >= graceMillis;
+		}
+
+		void kill() {
+			if (parkedRequest != null) {
+				parkedRequest.close();
+				parkedRequest = null;
+			}
+			process.destroy();
+		}
+	}
+
+	private static final class OutputDiscarder extends Thread {
+		private final InputStream in;
+
+		OutputDiscarder(InputStream in) {
+			this.in = in;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			byte[] buffer = new byte[8192];
+			try {
+				while (in.read(buffer) >= 0) {
+					// discard
+				}
+			}
+			catch (IOException e) {
+				// the browser exited
+			}
+		}
+	}
+}
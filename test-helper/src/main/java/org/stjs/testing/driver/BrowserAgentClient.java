@@ -0,0 +1,229 @@
+package org.stjs.testing.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.runners.model.InitializationError;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.browserlaunchers.locators.BrowserLocator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+
+/**
+ * The connection of a test session to the {@link BrowserAgent}, used by the browsers instead of starting their own
+ * process when stjs.test.browserAgent is enabled. The agent is started in the background if it is not running yet, and
+ * it keeps running once the session is finished.<br>
+ * <br>
+ * The agent started by a session finds the browsers with the chrome.bin, firefox.bin and phantomjs.bin properties of
+ * that session. The other sessions share its browsers.
+ */
+public class BrowserAgentClient implements AsyncProcess {
+	private static final long START_POLL_MILLIS = 100;
+
+	private final DriverConfiguration config;
+	private final URL agentURL;
+	private String token;
+
+	public BrowserAgentClient(DriverConfiguration config) {
+		this.config = config;
+		this.agentURL = config.getBrowserAgentURL();
+	}
+
+	@Override
+	public void start() throws InitializationError {
+		try {
+			token = BrowserAgent.loadToken();
+		}
+		catch (IOException e) {
+			throw new InitializationError(e);
+		}
+		if (isAgentRunning()) {
+			return;
+		}
+		try {
+			startAgent();
+		}
+		catch (IOException e) {
+			throw new InitializationError(e);
+		}
+		// several sessions may start the agent at the same time: only one of them can listen, the others exit
+		long deadline = System.currentTimeMillis() + config.getWaitForBrowser() * 1000L;
+		while (!isAgentRunning()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new InitializationError("The browser agent did not start within " + config.getWaitForBrowser()
+						+ " seconds, see " + getLogFile());
+			}
+			try {
+				Thread.sleep(START_POLL_MILLIS);
+			}
+			catch (InterruptedException e) {
+				throw new InitializationError(e);
+			}
+		}
+	}
+
+	/**
+	 * Starts the agent in its own JVM, that outlives this one. Its classpath only contains the test driver, JUnit and
+	 * the selenium locators, because the classpath of a forked test JVM may be a temporary jar deleted at the end of the
+	 * tests.
+	 */
+	private void startAgent() throws IOException {
+		Set<String> classpath = new LinkedHashSet<String>();
+		classpath.add(codeSource(BrowserAgent.class));
+		classpath.add(codeSource(InitializationError.class));
+		classpath.add(codeSource(BrowserLocator.class));
+		classpath.add(codeSource(Platform.class));
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		List<String> command = new ArrayList<String>();
+		command.add(java);
+		for (BrowserAgent.BrowserKind kind : BrowserAgent.BrowserKind.values()) {
+			String executable = config.getProperty(kind.getBinPropertyName());
+			String arg = "-D" + kind.getBinPropertyName() + "=" + executable;
+			if (executable != null && !command.contains(arg)) {
+				command.add(arg);
+			}
+		}
+		command.add("-cp");
+		command.add(Joiner.on(File.pathSeparator).join(classpath));
+		command.add(BrowserAgent.class.getName());
+		command.add(Integer.toString(agentURL.getPort()));
+		command.add(Integer.toString(config.getBrowserAgentIdleTimeout()));
+		command.add(Boolean.toString(config.isDebugEnabled()));
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(getLogFile());
+		builder.start();
+		System.out.println("Started the browser agent on port " + agentURL.getPort() + ", its log is " + getLogFile());
+	}
+
+	private static String codeSource(Class<?> clazz) {
+		try {
+			return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+		}
+		catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private File getLogFile() {
+		return new File(System.getProperty("java.io.tmpdir"), "stjs-browser-agent-" + agentURL.getPort() + ".log");
+	}
+
+	private boolean isAgentRunning() {
+		try {
+			return "STJS browser agent".equals(request(BrowserAgent.STATUS_URI, false));
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the display of the Xvfb server kept alive by the agent
+	 */
+	public String getDisplay() throws IOException {
+		return request(BrowserAgent.DISPLAY_URI, true);
+	}
+
+	/**
+	 * Sends a browser of the given kind that is waiting for a session to the given start page.
+	 *
+	 * @return the lease of the browser, or null if no browser of this kind is waiting
+	 */
+	public String acquire(BrowserAgent.BrowserKind kind, String startPageUrl) throws IOException {
+		return request(BrowserAgent.ACQUIRE_URI + "?kind=" + kind + "&url=" + encode(startPageUrl), true);
+	}
+
+	/**
+	 * Starts a new browser of the given kind, owned by the agent.
+	 *
+	 * @param startPageUrl the start page the browser is leased to
+	 * @return the lease of the browser: the id of the browser in the agent and the key of the lease, as the parameters
+	 *         of its lobby page
+	 */
+	public String launch(BrowserAgent.BrowserKind kind, String startPageUrl) throws IOException {
+		String response = request(BrowserAgent.LAUNCH_URI + "?kind=" + kind + "&url=" + encode(startPageUrl), true);
+		if (response == null) {
+			throw new IOException("The browser agent could not start a browser of kind " + kind + ", see " + getLogFile());
+		}
+		return response;
+	}
+
+	/**
+	 * Tells the agent that the browser of the given lease goes back to its lobby, where it waits for its next session.
+	 */
+	public void release(String lease) throws IOException {
+		if (request(BrowserAgent.RELEASE_URI + "?" + lease, true) == null) {
+			throw new IOException("The browser agent does not know the lease " + lease);
+		}
+	}
+
+	/**
+	 * @return the page where the browser of the given lease waits for its next session
+	 */
+	public String getLobbyUrl(String lease) {
+		return agentURL + BrowserAgent.LOBBY_URI.substring(1) + "?" + lease;
+	}
+
+	public URL getAgentURL() {
+		return agentURL;
+	}
+
+	/**
+	 * @param authenticated true for the requests that change the agent: they are sent with POST and the token
+	 * @return the body of the response, or null if the agent answered with an error
+	 */
+	private String request(String uri, boolean authenticated) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(agentURL, uri).openConnection();
+		connection.setReadTimeout(config.getWaitForBrowser() * 1000);
+		try {
+			if (authenticated) {
+				connection.setRequestMethod("POST");
+				connection.setRequestProperty(BrowserAgent.TOKEN_HEADER, token);
+				connection.setDoOutput(true);
+				connection.getOutputStream().close();
+			}
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				return null;
+			}
+			InputStream in = connection.getInputStream();
+			try {
+				return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+			}
+			finally {
+				in.close();
+			}
+		}
+		finally {
+			connection.disconnect();
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			// Cannot happen. UTF-8 is part of the character sets that must be supported by any implementation of java
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void stop() {
+		// the agent keeps running for the next sessions
+	}
+}
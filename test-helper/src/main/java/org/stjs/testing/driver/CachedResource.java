@@ -0,0 +1,74 @@
+package org.stjs.testing.driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * The content of a resource served by the {@link HttpLongPollingServer}, loaded once in memory. The content is compressed
+ * in advance for the browsers that accept gzip, unless it is too small to benefit from it. The ETag is computed from the
+ * content, so the browser can validate its copy without the content being read again.
+ */
+@SuppressWarnings("restriction")
+class CachedResource {
+	/**
+	 * below this size, the gzip header costs about as much as it saves
+	 */
+	private static final int MIN_COMPRESSED_SIZE = 1024;
+
+	private final byte[] content;
+	private final byte[] gzippedContent;
+	private final String etag;
+	private final Date lastModified;
+
+	CachedResource(byte[] content, Date lastModified, boolean compressible) throws IOException {
+		this.content = content;
+		this.lastModified = lastModified;
+		this.etag = '"' + Hashing.murmur3_128().hashBytes(content).toString() + '"';
+		byte[] gzipped = compressible && content.length >= MIN_COMPRESSED_SIZE ? gzip(content) : null;
+		this.gzippedContent = gzipped != null && gzipped.length < content.length ? gzipped : null;
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Sends the content with the given exchange, compressed if the browser accepts it. The headers that depend on the
+	 * request must have been added already.
+	 */
+	public void sendTo(HttpExchange exchange) throws IOException {
+		byte[] body = content;
+		if (gzippedContent != null) {
+			exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+			String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				body = gzippedContent;
+			}
+		}
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+		// the array is written at once, the length being known the server does not need to chunk it
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.flush();
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.stjs.testing.driver;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
@@ -31,14 +32,17 @@ import org.stjs.generator.ClassResolver;
 import org.stjs.generator.DefaultClassResolver;
 import org.stjs.generator.DependencyCollector;
 import org.stjs.testing.driver.browser.Browser;
+import org.stjs.testing.driver.browser.BrowserPool;
 import org.stjs.testing.driver.browser.ChromeBrowser;
 import org.stjs.testing.driver.browser.DesktopDefaultBrowser;
 import org.stjs.testing.driver.browser.FirefoxBrowser;
 import org.stjs.testing.driver.browser.HeadlessChromeBrowser;
 import org.stjs.testing.driver.browser.HeadlessFirefoxBrowser;
+import org.stjs.testing.driver.browser.LongPollingBrowser;
 import org.stjs.testing.driver.browser.PhantomjsBrowser;
 import org.stjs.testing.driver.browser.RemoteBrowser;
 import org.stjs.testing.driver.browser.RhinoBrowser;
+import org.stjs.testing.driver.browser.RhinoInProcessBrowser;
 
 import com.google.common.io.Closeables;
 
@@ -57,6 +61,14 @@ public class DriverConfiguration {
 	private static final String PROP_START_BROWSER = "stjs.test.startBrowser";
 	private static final String PROP_BROWSER_COUNT = "stjs.test.browserCount";
 	private static final String PROP_BROWSERS = "stjs.test.browsers";
+	private static final String PROP_BROWSER_INSTANCES = "stjs.test.browserInstances";
+	private static final String PROP_BATCH_SIZE = "stjs.test.batchSize";
+	private static final String PROP_SHARD = "stjs.test.shard";
+	private static final String PROP_FORK = "stjs.test.fork";
+	private static final String PROP_TIMING_REPORT = "stjs.test.timingReport";
+	private static final String PROP_BROWSER_AGENT = "stjs.test.browserAgent";
+	private static final String PROP_BROWSER_AGENT_PORT = "stjs.test.browserAgentPort";
+	private static final String PROP_BROWSER_AGENT_IDLE_TIMEOUT = "stjs.test.browserAgentIdleTimeout";
 	private static final String PROP_TEST_TIMEOUT = "stjs.test.testTimeout";
 	private static final String PROP_DEBUG = "stjs.test.debug";
 	private static final String PROP_DEBUG_JAVA_SCRIPT = "stjs.test.debugJavaScript";
@@ -68,12 +80,21 @@ public class DriverConfiguration {
 	private int testTimeout = 2;
 	private boolean debugEnabled = false;
 	private boolean debugJavaScript = false;
+	private int browserInstances = 1;
+	private int batchSize = 1;
+	private TestShard shard = TestShard.ALL;
+	private int forkNumber = 0;
+	private String timingReport = "target/surefire-reports/stjs-test-timings.csv";
+	private boolean browserAgent = false;
+	private int browserAgentPort = 8050;
+	private int browserAgentIdleTimeout = 600;
 	private List<Browser> browsers;
 
 	private final ClassLoader classLoader;
 	private final ClassResolver stjsClassResolver;
 	private final TestResourceResolver resourceResolver;
 	private final DependencyCollector dependencyCollector;
+	private final TestClassAttributesRepository testClasses;
 
 	private Properties props;
 
@@ -113,6 +134,36 @@ public class DriverConfiguration {
 			System.out.println("Configuration property " + PROP_BROWSER_COUNT + " is now ignored, use " + PROP_BROWSERS
 					+ " instead");
 		}
+		if (props.get(PROP_BROWSER_INSTANCES) != null) {
+			browserInstances = Math.max(1, Integer.parseInt(props.getProperty(PROP_BROWSER_INSTANCES)));
+		}
+		if (props.get(PROP_BATCH_SIZE) != null) {
+			batchSize = Math.max(1, Integer.parseInt(props.getProperty(PROP_BATCH_SIZE)));
+		}
+		if (props.get(PROP_SHARD) != null) {
+			shard = TestShard.parse(props.getProperty(PROP_SHARD));
+		}
+		if (props.get(PROP_FORK) != null) {
+			forkNumber = Integer.parseInt(props.getProperty(PROP_FORK).trim());
+			if (forkNumber < 1) {
+				throw new IllegalArgumentException("Invalid value for " + PROP_FORK + ": " + forkNumber
+						+ ", it must be the number of the fork starting at 1, like ${surefire.forkNumber}");
+			}
+		}
+		// each session has its own server, so several shards and forks can run on the same host
+		port += getSessionIndex();
+		if (props.get(PROP_TIMING_REPORT) != null) {
+			timingReport = props.getProperty(PROP_TIMING_REPORT).trim();
+		}
+		if (props.get(PROP_BROWSER_AGENT) != null) {
+			browserAgent = Boolean.parseBoolean(props.getProperty(PROP_BROWSER_AGENT));
+		}
+		if (props.get(PROP_BROWSER_AGENT_PORT) != null) {
+			browserAgentPort = Integer.parseInt(props.getProperty(PROP_BROWSER_AGENT_PORT));
+		}
+		if (props.get(PROP_BROWSER_AGENT_IDLE_TIMEOUT) != null) {
+			browserAgentIdleTimeout = Integer.parseInt(props.getProperty(PROP_BROWSER_AGENT_IDLE_TIMEOUT));
+		}
 		if (props.get(PROP_DEBUG) != null) {
 			debugEnabled = Boolean.parseBoolean(props.getProperty(PROP_DEBUG));
 		}
@@ -127,6 +178,7 @@ public class DriverConfiguration {
 		stjsClassResolver = new DefaultClassResolver(classLoader);
 		resourceResolver = new TestResourceResolver(classLoader);
 		dependencyCollector = new DependencyCollector();
+		testClasses = new TestClassAttributesRepository(stjsClassResolver, dependencyCollector);
 
 		// load browsers last
 		browsers = instantiateBrowsers();
@@ -151,12 +203,12 @@ public class DriverConfiguration {
 
 	private List<Browser> instantiateBrowsers() {
 		if (props.getProperty(PROP_BROWSERS) == null) {
-			return Arrays.asList(new Browser[] { new DesktopDefaultBrowser(this) });
+			return Arrays.asList(new Browser[] { buildBrowser(BrowserBuilder.DESKTOP_DEFAULT.name) });
 		}
 		String[] browserNames = props.getProperty(PROP_BROWSERS).split(",");
 		browsers = new ArrayList<Browser>(browserNames.length);
 		for (String browserName : browserNames) {
-			Browser browser = BrowserBuilder.build(browserName.trim(), this);
+			Browser browser = buildBrowser(browserName.trim());
 			if (browser != null) {
 				browsers.add(browser);
 			}
@@ -164,6 +216,29 @@ public class DriverConfiguration {
 		return browsers;
 	}
 
+	/**
+	 * builds a pool of instances of the given browser when more than one instance is configured or when the tests are
+	 * batched
+	 */
+	private Browser buildBrowser(String browserName) {
+		if (!usesBrowserPools()) {
+			return BrowserBuilder.build(browserName, this);
+		}
+		List<LongPollingBrowser> instances = new ArrayList<LongPollingBrowser>(browserInstances);
+		for (int i = 0; i < browserInstances; i++) {
+			Browser browser = BrowserBuilder.build(browserName, this);
+			if (browser == null) {
+				return null;
+			}
+			if (!(browser instanceof LongPollingBrowser)) {
+				System.out.println("Browser \"" + browserName + "\" cannot have several instances, only one is started");
+				return browser;
+			}
+			instances.add((LongPollingBrowser) browser);
+		}
+		return new BrowserPool(this, instances);
+	}
+
 	public int getPort() {
 		return port;
 	}
@@ -208,6 +283,108 @@ public class DriverConfiguration {
 		return browsers.size();
 	}
 
+	/**
+	 * @return the number of instances started for each browser. When there are several, they execute different tests
+	 *         at the same time.
+	 */
+	public int getBrowserInstances() {
+		return browserInstances;
+	}
+
+	/**
+	 * @return the maximum number of test methods of the same class that are executed in one page load. The methods
+	 *         annotated with {@link org.stjs.testing.annotation.Isolated} are always executed alone. The tests are not
+	 *         batched when debugging JavaScript, so each test has its own start button.
+	 */
+	public int getBatchSize() {
+		return debugJavaScript ? 1 : batchSize;
+	}
+
+	/**
+	 * @return true if the tests are queued in {@link BrowserPool}s, so that the runner sends all the tests of a class at
+	 *         once: when several instances of each browser are started, or when the tests are batched
+	 */
+	public boolean usesBrowserPools() {
+		return browserInstances > 1 || getBatchSize() > 1;
+	}
+
+	/**
+	 * @return the index of the shard of the tests that this invocation executes, starting at 0
+	 */
+	public int getShardIndex() {
+		return shard.getIndex();
+	}
+
+	/**
+	 * @return the number of shards the test classes are split into, each one executed by an independent invocation of
+	 *         the tests
+	 */
+	public int getShardCount() {
+		return shard.getCount();
+	}
+
+	/**
+	 * @return the number of the surefire fork of this JVM given by stjs.test.fork, starting at 1, or 0 if it is not set.
+	 *         The forks execute all the test classes they receive.
+	 */
+	public int getForkNumber() {
+		return forkNumber;
+	}
+
+	/**
+	 * @return the index of this session among the shards and forks that may run on the same host, starting at 0. The
+	 *         port of the server and the display of Xvfb are offset by this index.
+	 */
+	public int getSessionIndex() {
+		return Math.max(0, forkNumber - 1) * shard.getCount() + shard.getIndex();
+	}
+
+	/**
+	 * @return true if the tests of the given class are executed by the shard of this invocation
+	 */
+	public boolean isInShard(Class<?> testClass) {
+		return shard.contains(testClass);
+	}
+
+	/**
+	 * @return the CSV file where the time spent on each test is written at the end of the session, or null if it is
+	 *         disabled with an empty stjs.test.timingReport. The shards and the forks merge their times in this file.
+	 */
+	public File getTimingReportFile() {
+		if (timingReport.isEmpty()) {
+			return null;
+		}
+		return new File(timingReport);
+	}
+
+	/**
+	 * @return true if the browsers and Xvfb are kept alive between the test sessions by a {@link BrowserAgent}, instead
+	 *         of being started and stopped by each session. The browsers that are not started from a command line
+	 *         ignore it.
+	 */
+	public boolean isBrowserAgentEnabled() {
+		return browserAgent;
+	}
+
+	/**
+	 * @return the URL of the {@link BrowserAgent}. It is shared by all the shards, so its port is not offset.
+	 */
+	public URL getBrowserAgentURL() {
+		try {
+			return new URL("http", "localhost", browserAgentPort, "/");
+		} catch (MalformedURLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the number of seconds after which the {@link BrowserAgent} stops the browsers that were not leased, and
+	 *         then stops itself
+	 */
+	public int getBrowserAgentIdleTimeout() {
+		return browserAgentIdleTimeout;
+	}
+
 	public List<Browser> getBrowsers() {
 		return browsers;
 	}
@@ -248,6 +425,13 @@ public class DriverConfiguration {
 		return dependencyCollector;
 	}
 
+	/**
+	 * @return the attributes of the test classes, shared by all the browsers
+	 */
+	public TestClassAttributesRepository getTestClasses() {
+		return testClasses;
+	}
+
 	public TestResource getResource(String httpUrl) throws URISyntaxException {
 		return resourceResolver.resolveResource(httpUrl);
 	}
@@ -268,7 +452,8 @@ public class DriverConfiguration {
 		HEADLESS_FIREFOX("headlessFirefox", HeadlessFirefoxBrowser.class), //
 		HEADLESS_CHROME("headlessChrome", HeadlessChromeBrowser.class), //
 		REMOTE("remote", RemoteBrowser.class), //
-		RHINO("rhino", RhinoBrowser.class);
+		RHINO("rhino", RhinoBrowser.class), //
+		RHINO_IN_PROCESS("rhinoInProcess", RhinoInProcessBrowser.class);
 
 		String name;
 		Class<? extends Browser> clazz;
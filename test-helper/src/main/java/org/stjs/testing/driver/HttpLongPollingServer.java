@@ -9,14 +9,16 @@ import java.net.URLDecoder;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -25,6 +27,7 @@ import org.junit.runners.model.InitializationError;
 import org.stjs.testing.driver.browser.LongPollingBrowser;
 
 import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -37,6 +40,7 @@ import com.sun.net.httpserver.HttpServer;
 @SuppressWarnings("restriction")
 public class HttpLongPollingServer implements AsyncProcess {
 	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+	private static final int MIN_THREADS = 4;
 	public static final String NEXT_TEST_URI = "/getNextTest";
 	public static final String BLANK_URI = "/about:blank";
 
@@ -44,7 +48,8 @@ public class HttpLongPollingServer implements AsyncProcess {
 	private final HttpServer httpServer;
 	private final Map<Long, LongPollingBrowser> browsers = new ConcurrentHashMap<Long, LongPollingBrowser>();
 	private final Map<Long, Long> selfAssignedBrowserIds = new ConcurrentHashMap<Long, Long>();
-	private final Set<String> notFound = new HashSet<String>();
+	private final Set<String> notFound = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final ConcurrentMap<String, CachedResource> resources = new ConcurrentHashMap<String, CachedResource>();
 
 	/**
 	 * Configures and starts the HTTP server
@@ -60,21 +65,21 @@ public class HttpLongPollingServer implements AsyncProcess {
 			throw new RuntimeException(e);
 		}
 
-		// by default, the HttpServer uses a single thread to respond to all requests given that we block responses
-		// to tests requests while waiting for new tests, and that the new tests are only sent when all browsers have
-		// responded, one thread is not enough to handle multiple browsers.
-		// Let's give him an executor that is a bit more flexible
-		httpServer.setExecutor(Executors.newFixedThreadPool(config.getBrowserCount() * 2, new ThreadFactory() {
-			private AtomicInteger i = new AtomicInteger(0);
-
-			@Override
-			public Thread newThread(Runnable r) {
-				Thread t = new Thread(r);
-				t.setName("httpServer-" + i.incrementAndGet());
-				t.setDaemon(true);
-				return t;
-			}
-		}));
+		// by default, the HttpServer uses a single thread to respond to all requests. The requests for the next tests are parked
+		// without blocking a thread, so the threads only serve the resources that the browsers load in parallel: their number
+		// does not depend on the number of browsers.
+		httpServer.setExecutor(Executors.newFixedThreadPool(Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors()),
+				new ThreadFactory() {
+					private AtomicInteger i = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r);
+						t.setName("httpServer-" + i.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				}));
 
 		// create and register our handler
 		httpServer.createContext("/", new AsyncHttpHandler());
@@ -111,6 +116,8 @@ public class HttpLongPollingServer implements AsyncProcess {
 				System.out.println(exchange.getRequestMethod() + ": " + exchange.getRequestURI());
 			}
 
+			// a parked request is completed later, by the thread that sends the next tests
+			boolean parked = false;
 			try {
 
 				// add some common response headers
@@ -128,7 +135,11 @@ public class HttpLongPollingServer implements AsyncProcess {
 				Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
 				String path = exchange.getRequestURI().getPath();
 				if (NEXT_TEST_URI.equals(path)) {
-					handleNextTest(params, exchange, dryRun);
+					if ("POST".equals(exchange.getRequestMethod())) {
+						// the results of the tests are posted by the form of the start page: a batch does not fit in a URL
+						params.putAll(parseQueryString(new String(ByteStreams.toByteArray(exchange.getRequestBody()), Charsets.UTF_8)));
+					}
+					parked = handleNextTest(params, exchange, dryRun);
 
 				} else if (BLANK_URI.equals(path)) {
 					handleAboutBlank(exchange);
@@ -142,7 +153,9 @@ public class HttpLongPollingServer implements AsyncProcess {
 				ex.printStackTrace();
 			}
 			finally {
-				exchange.close();
+				if (!parked) {
+					exchange.close();
+				}
 			}
 		}
 
@@ -154,36 +167,37 @@ public class HttpLongPollingServer implements AsyncProcess {
 		}
 
 		/**
-		 * Called when this HTTP server receives a request for the next test from a browser. This method blocks until one of these to conditions
-		 * are met:<br>
+		 * Called when this HTTP server receives a request for the next test from a browser. The results of the previous tests, posted with
+		 * the request, are reported, then the request is parked by the browser session without blocking this thread, until one of these two conditions are met:<br>
 		 * <ol>
-		 * <li>This server receives a new test to send to the browser session that made the request (via the queueTest()) method.
-		 * <li>This server is notified that no more tests are remaining (via AsyncBrowserSession.notifyNoMoreTest())
+		 * <li>JUnit has a new test to send to the browser session that made the request (via the executeTest()) method.
+		 * <li>JUnit notifies the browser session that no more tests are remaining (via notifyNoMoreTests())
 		 * </ol>
-		 * Once one of these events has happened, this HTTP server sends the appropriate HTML/javascript response before returning from this
-		 * method.
+		 * Once one of these events has happened, the thread of JUnit sends the appropriate HTML/javascript response and completes the request.
+		 *
+		 * @return true if the request was parked, in which case it must not be closed
 		 */
-		private void handleNextTest(Map<String, String> params, HttpExchange exchange, boolean dryRun) {
+		private boolean handleNextTest(Map<String, String> params, HttpExchange exchange, boolean dryRun) {
 			// Read the test results returned by the browser, if any
 			long browserId = parseLong(params.get("browserId"), -1);
 			LongPollingBrowser browser = browsers.get(browserId);
 			if (browser == null) {
 				browser = selfAssignedBrowser(browserId);
 			}
-			MultiTestMethod completedMethod = browser.getMethodUnderExecution();
-			if (completedMethod != null) {
-				// We only have a method under execution, if the HTTP request that is being
+			List<MultiTestMethod> completedMethods = browser.getMethodsUnderExecution();
+			if (completedMethods != null) {
+				// We only have methods under execution, if the HTTP request that is being
 				// handled is not the first one the server has received
 				if (config.isDebugEnabled()) {
-					System.out.println("Server received test results for method " + completedMethod.toString() + " from browser " + browserId);
+					System.out.println("Server received test results for methods " + completedMethods.toString() + " from browser " + browserId);
 				}
 
-				// notify JUnit of the result of this test. When the last browser notifies
-				// the MultiTestMethod, the JUnit thread will become unblocked and the test result
+				// notify JUnit of the results of these tests. When the last browser notifies
+				// a MultiTestMethod, the JUnit thread will become unblocked and the test result
 				// will be reported
 				if (!dryRun) {
-					TestResult result = browser.buildResult(params, exchange);
-					completedMethod.notifyExecutionResult(result);
+					List<TestResult> results = browser.buildResults(params, exchange, completedMethods.size());
+					browser.notifyExecutionResults(completedMethods, results);
 				}
 			} else {
 				if (config.isDebugEnabled()) {
@@ -191,41 +205,22 @@ public class HttpLongPollingServer implements AsyncProcess {
 				}
 			}
 
-			// Wait for the JUnit thread to send us the next test. We block this thread
-			// until we have a new test to send to the browser or the server is shutdown,
-			// whichever comes first. Basically, we are not sending the HTTP response to the
-			// browser until we have received a new test
-			MultiTestMethod nextMethod = null;
 			if (!dryRun) {
-				nextMethod = browser.awaitNextTest();
+				browser.parkRequest(exchange);
+				return true;
 			}
-			if (nextMethod != null) {
-				if (config.isDebugEnabled()) {
-					System.out.println("Server is sending test for method " + nextMethod.toString() + " to browser " + browserId);
-				}
-				try {
-					browser.sendTestFixture(nextMethod, exchange);
-				}
-				catch (Exception e) {
-					// we failed to send the fixture. This means that the browser will not request the next test,
-					// it is therefore essentially dead.
-					browser.markAsDead(e, exchange.getRequestHeaders().getFirst("User-Agent"));
-					throw new RuntimeException(e);
-				}
-
-			} else {
-				try {
-					// Note: This case will always be triggered for a dry run (ie: in response to HEAD or
-					// OPTIONS requests). However, it really doesn't matter because in those cases, the HttpExchange
-					// is always an instance of NoBodyHttpExchange which never really sends the response body anyway.
-					browser.sendNoMoreTestFixture(exchange);
-				}
-				catch (IOException ioe) {
-					// sending a 500 error has basically the same effect as sending a proper response. The browser may
-					// not cleanup properly, but hey, this is disaster recovery
-					throw new RuntimeException(ioe);
-				}
+			try {
+				// Note: This case will always be triggered for a dry run (ie: in response to HEAD or OPTIONS requests). However, it really
+				// doesn't matter because in those cases, the HttpExchange is always an instance of NoBodyHttpExchange which never really
+				// sends the response body anyway.
+				browser.sendNoMoreTestFixture(exchange);
+			}
+			catch (IOException ioe) {
+				// sending a 500 error has basically the same effect as sending a proper response. The browser may
+				// not cleanup properly, but hey, this is disaster recovery
+				throw new RuntimeException(ioe);
 			}
+			return false;
 		}
 
 		/**
@@ -247,7 +242,12 @@ public class HttpLongPollingServer implements AsyncProcess {
 			throw new RuntimeException("More browser connections than configured browsers");
 		}
 
-		private synchronized void handleResource(String path, HttpExchange exchange) throws IOException, URISyntaxException {
+		/**
+		 * Serves a resource from the cache, without any lock: the browsers load their scripts in parallel. A resource is
+		 * read from the classpath the first time it is requested, except when debugging the Javascript, where the
+		 * developer may change the scripts between two tests.
+		 */
+		private void handleResource(String path, HttpExchange exchange) throws IOException, URISyntaxException {
 			if (notFound.contains(path)) {
 				exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
 				return;
@@ -258,24 +258,46 @@ public class HttpLongPollingServer implements AsyncProcess {
 				exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
 			}
 
-			String ifModifiedSinceHeader = exchange.getRequestHeaders().getFirst("If-Modified-Since");
-			Date ifModifiedSince = parseDateHeader(ifModifiedSinceHeader);
-
-			// XXX: legacy fix
-			String cleanPath = path.replaceFirst("file:/+target", "target");
-
-			TestResource resource = config.getResource(cleanPath);
-			Date lastModified = resource.getModifiedDate();
-			exchange.getResponseHeaders().add("Last-Modified", formatDateHeader(lastModified));
+			CachedResource resource = config.isDebugJavaScript() ? null : resources.get(path);
+			if (resource == null) {
+				resource = loadResource(path);
+				if (resource == null) {
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+					return;
+				}
+			}
+			exchange.getResponseHeaders().add("Last-Modified", formatDateHeader(resource.getLastModified()));
+			exchange.getResponseHeaders().add("ETag", resource.getEtag());
 
-			if (ifModifiedSince != null && !lastModified.after(ifModifiedSince)) {
+			String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+			Date ifModifiedSince = parseDateHeader(exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+			if (ifNoneMatch != null ? ifNoneMatch.contains(resource.getEtag()) : ifModifiedSince != null
+					&& !resource.getLastModified().after(ifModifiedSince)) {
 				exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
 				return;
 			}
-			if (!resource.copyTo(exchange)) {
+			resource.sendTo(exchange);
+		}
+
+		/**
+		 * @return the resource read from the classpath, or null if it does not exist
+		 */
+		private CachedResource loadResource(String path) throws IOException, URISyntaxException {
+			// XXX: legacy fix
+			String cleanPath = path.replaceFirst("file:/+target", "target");
+
+			TestResource testResource = config.getResource(cleanPath);
+			byte[] content = testResource.toByteArray();
+			if (content == null) {
 				notFound.add(path);
-				System.err.println(resource + " was not found in classpath");
+				System.err.println(testResource + " was not found in classpath");
+				return null;
 			}
+			CachedResource resource = new CachedResource(content, testResource.getModifiedDate(), path.endsWith(".js")
+					|| path.endsWith(".html") || path.endsWith(".css"));
+			// two browsers may load the same resource at the same time, they both get the same content
+			resources.put(path, resource);
+			return resource;
 		}
 
 		private Map<String, String> parseQueryString(String query) {
@@ -334,6 +356,10 @@ public class HttpLongPollingServer implements AsyncProcess {
 
 	@Override
 	public void stop() {
+		// the parked requests are answered instead of being cut: a browser of the agent goes back to its lobby
+		for (LongPollingBrowser browser : browsers.values()) {
+			browser.releaseParkedRequest();
+		}
 		this.httpServer.stop(5);
 	}
 }
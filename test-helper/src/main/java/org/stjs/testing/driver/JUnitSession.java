@@ -1,15 +1,21 @@
 package org.stjs.testing.driver;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.stjs.testing.driver.browser.Browser;
@@ -34,6 +40,8 @@ public class JUnitSession {
 	private volatile boolean initFailed = false;
 
 	private List<Browser> browsers;
+	private final TimingReport timingReport = new TimingReport();
+	private final Set<RunNotifier> notifiers = Collections.newSetFromMap(new IdentityHashMap<RunNotifier, Boolean>());
 	private HashMap<Class<? extends AsyncProcess>, AsyncProcess> sharedDependencies = new HashMap<Class<? extends AsyncProcess>, AsyncProcess>();
 
 	public static JUnitSession getInstance() {
@@ -64,6 +72,11 @@ public class JUnitSession {
 
 		try {
 			config = new DriverConfiguration(testClassSample);
+			if (config.getShardCount() > 1 || config.getForkNumber() > 0) {
+				System.out.println("Executing the tests of shard " + (config.getShardIndex() + 1) + "/" + config.getShardCount()
+						+ (config.getForkNumber() > 0 ? " in fork " + config.getForkNumber() : "") + ", with the server on port "
+						+ config.getPort());
+			}
 
 			addShutdownHook();
 
@@ -184,6 +197,7 @@ public class JUnitSession {
 	 * adverse effect.
 	 */
 	private void reset() {
+		writeTimingReport();
 		config = null;
 
 		for (Browser browser : browsers) {
@@ -222,6 +236,21 @@ public class JUnitSession {
 		}
 	}
 
+	/**
+	 * Called when the specified runner starts to execute its tests. The timing report is written at the end of the run,
+	 * when the notifier tells that all the test classes were executed.
+	 */
+	public synchronized void runnerStarting(STJSTestDriverRunner runner, RunNotifier notifier) {
+		if (notifiers.add(notifier)) {
+			notifier.addListener(new RunListener() {
+				@Override
+				public void testRunFinished(Result result) {
+					writeTimingReport();
+				}
+			});
+		}
+	}
+
 	/**
 	 * Called before a JUnit test is dispatched to the browsers.
 	 */
@@ -238,6 +267,22 @@ public class JUnitSession {
 		if (config.isDebugEnabled()) {
 			System.out.println("test " + method.getMethod() + " is completed");
 		}
+		timingReport.addResults(result);
+	}
+
+	/**
+	 * Writes the times collected since the last report. It is also called when the JVM terminates, in case the run was
+	 * not finished.
+	 */
+	private void writeTimingReport() {
+		if (config == null || config.getTimingReportFile() == null || timingReport.isEmpty()) {
+			return;
+		}
+		try {
+			timingReport.write(config.getTimingReportFile());
+		} catch (IOException e) {
+			System.err.println("Cannot write the timing report: " + e);
+		}
 	}
 
 	/**
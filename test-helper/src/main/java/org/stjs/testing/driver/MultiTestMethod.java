@@ -5,12 +5,15 @@ import java.util.concurrent.CountDownLatch;
 import org.junit.Test;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.TestClass;
+import org.stjs.testing.annotation.Isolated;
 
 /**
  * Coordinates the execution of one unit test across several browsers. The JUnit runner creates one instance of this
  * class for each unit test, specifying how many browsers are expected to execute this test. The JUnit runner then sends
  * this test to all browsers and waits for all browsers to return the execution results by calling
- * awaitExecutionresult(). When a browser has finished executing a test, notifiyExecutionResult() is called.
+ * awaitExecutionresult(). When a browser has finished executing a test, notifiyExecutionResult() is called.<br>
+ * <br>
+ * A pool of instances of the same browser counts as one browser: only the instance that executed the test reports it.
  * 
  * @author lordofthepigs
  */
@@ -68,6 +71,13 @@ public class MultiTestMethod {
 		return getMethod().getName();
 	}
 
+	/**
+	 * @return true if this test must be executed in its own page, even when the tests are batched
+	 */
+	public boolean isIsolated() {
+		return meth.getAnnotation(Isolated.class) != null || testClass.getJavaClass().getAnnotation(Isolated.class) != null;
+	}
+
 	@Override
 	public String toString() {
 		return "MultiTestMethod [method=" + meth.getMethod() + "]";
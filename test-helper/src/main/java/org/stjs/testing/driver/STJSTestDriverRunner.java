@@ -17,7 +17,15 @@ package org.stjs.testing.driver;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.junit.Ignore;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
@@ -28,7 +36,11 @@ import org.stjs.javascript.annotation.STJSBridge;
 import org.stjs.testing.driver.browser.Browser;
 
 /**
- * add the STJSBridge annotation only to allow it to be present in the junit annotation
+ * add the STJSBridge annotation only to allow it to be present in the junit annotation.<br>
+ * <br>
+ * When several instances of each browser are configured, all the tests of the class are sent to the browsers before the
+ * first one is run by JUnit, so the instances execute them at the same time. JUnit then reports their results one after
+ * the other, as they arrive.
  * 
  * @author acraciun,lordofthepigs,ekaspi
  */
@@ -36,17 +48,86 @@ import org.stjs.testing.driver.browser.Browser;
 public class STJSTestDriverRunner extends BlockJUnit4ClassRunner {
 	public final static File targetDirectory = new File("target", GeneratorConstants.STJS_TEST_TEMP_FOLDER);
 
+	private final List<Filter> filters = new ArrayList<Filter>();
+	private final Map<FrameworkMethod, MultiTestMethod> scheduledMethods = new HashMap<FrameworkMethod, MultiTestMethod>();
+
 	public STJSTestDriverRunner(Class<?> klass) throws InitializationError, IOException {
 		super(klass);
 		JUnitSession.getInstance().runnerInstantiated(this);
 	}
 
+	/**
+	 * The classes of the other shards run nothing in this invocation, not even their class level methods
+	 */
 	@Override
 	public void run(RunNotifier notifier) {
-		super.run(notifier);
+		if (isInShard()) {
+			JUnitSession.getInstance().runnerStarting(this, notifier);
+			super.run(notifier);
+		} else {
+			// their tests are reported as skipped, not as passed
+			for (Description child : getDescription().getChildren()) {
+				notifier.fireTestIgnored(child);
+			}
+		}
 		JUnitSession.getInstance().runnerCompleted(this);
 	}
 
+	private boolean isInShard() {
+		DriverConfiguration config = JUnitSession.getInstance().getConfig();
+		return config == null || config.isInShard(getTestClass().getJavaClass());
+	}
+
+	@Override
+	public void filter(Filter filter) throws NoTestsRemainException {
+		super.filter(filter);
+		filters.add(filter);
+	}
+
+	@Override
+	protected Statement childrenInvoker(RunNotifier notifier) {
+		final Statement children = super.childrenInvoker(notifier);
+		if (!JUnitSession.getInstance().getConfig().usesBrowserPools()) {
+			return children;
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				scheduleAll();
+				children.evaluate();
+			}
+		};
+	}
+
+	/**
+	 * sends to the browsers all the tests that JUnit will run
+	 */
+	private void scheduleAll() {
+		for (FrameworkMethod method : getChildren()) {
+			if (method.getAnnotation(Ignore.class) == null && shouldRun(method)) {
+				scheduledMethods.put(method, dispatch(method));
+			}
+		}
+	}
+
+	private boolean shouldRun(FrameworkMethod method) {
+		for (Filter filter : filters) {
+			if (!filter.shouldRun(describeChild(method))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private MultiTestMethod dispatch(FrameworkMethod method) {
+		JUnitSession session = JUnitSession.getInstance();
+		MultiTestMethod aMethod = new MultiTestMethod(getTestClass(), method, session.getConfig().getBrowserCount());
+		for (Browser browser : session.getBrowsers()) {
+			browser.executeTest(aMethod);
+		}
+		return aMethod;
+	}
+
 	@Override
 	protected Statement methodBlock(final FrameworkMethod method) {
 		return new Statement() {
@@ -59,11 +140,9 @@ public class STJSTestDriverRunner extends BlockJUnit4ClassRunner {
 					System.out.println("Executing Statement for " + method.getMethod().toString());
 				}
 
-				MultiTestMethod aMethod = new MultiTestMethod(getTestClass(), method, session.getConfig()
-						.getBrowserCount());
-
-				for (Browser browser : session.getBrowsers()) {
-					browser.executeTest(aMethod);
+				MultiTestMethod aMethod = scheduledMethods.remove(method);
+				if (aMethod == null) {
+					aMethod = dispatch(method);
 				}
 
 				TestResultCollection results = aMethod.awaitExecutionResult();
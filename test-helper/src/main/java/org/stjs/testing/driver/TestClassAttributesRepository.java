@@ -18,6 +18,10 @@ public class TestClassAttributesRepository {
 	// the TestClass is garbage collected.
 	private final ConcurrentMap<TestClass, TestClassAttributes> cache = new MapMaker().weakKeys().makeMap();
 
+	// the parts of the test pages that are the same for all the methods of a TestClass, rendered by the browsers
+	private final ConcurrentMap<TestClass, String> fixtureHeads = new MapMaker().weakKeys().makeMap();
+	private final ConcurrentMap<TestClass, String> htmlFixtures = new MapMaker().weakKeys().makeMap();
+
 	public TestClassAttributesRepository(ClassResolver classResolver, DependencyCollector dependencyCollector) {
 		this.classResolver = classResolver;
 		this.dependencyCollector = dependencyCollector;
@@ -37,4 +41,39 @@ public class TestClassAttributesRepository {
 		}
 		return attr;
 	}
+
+	/**
+	 * @return the start of the test page of the given class, up to the code that runs its methods, or null if it was not
+	 *         rendered yet
+	 */
+	public String getFixtureHead(TestClass testClass) {
+		return fixtureHeads.get(testClass);
+	}
+
+	/**
+	 * Caches the start of the test page of the given class, unless another thread did it in the meantime.
+	 *
+	 * @return the cached value
+	 */
+	public String putFixtureHead(TestClass testClass, String fixtureHead) {
+		String existing = fixtureHeads.putIfAbsent(testClass, fixtureHead);
+		return existing != null ? existing : fixtureHead;
+	}
+
+	/**
+	 * @return the content of the HTMLFixture of the given class, or null if it was not loaded yet
+	 */
+	public String getHtmlFixture(TestClass testClass) {
+		return htmlFixtures.get(testClass);
+	}
+
+	/**
+	 * Caches the content of the HTMLFixture of the given class, unless another thread did it in the meantime.
+	 *
+	 * @return the cached value
+	 */
+	public String putHtmlFixture(TestClass testClass, String htmlFixture) {
+		String existing = htmlFixtures.putIfAbsent(testClass, htmlFixture);
+		return existing != null ? existing : htmlFixture;
+	}
 }
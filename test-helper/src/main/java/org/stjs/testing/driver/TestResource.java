@@ -88,6 +88,24 @@ public class TestResource {
 		});
 	}
 
+	/**
+	 * @return the content of the resource, or null if it does not exist
+	 */
+	public byte[] toByteArray() throws IOException {
+		if (resourceUrl == null) {
+			return null;
+		}
+
+		return withConnection(new ConnectionOperation<byte[]>() {
+			@Override
+			public byte[] doWithConnection(URLConnection connection) throws IOException {
+				try (InputStream is = connection.getInputStream()) {
+					return ByteStreams.toByteArray(is);
+				}
+			}
+		});
+	}
+
 	private <T> T withConnection(ConnectionOperation<T> operation) throws IOException {
 		URLConnection conn = this.resourceUrl.openConnection();
 		conn.connect();
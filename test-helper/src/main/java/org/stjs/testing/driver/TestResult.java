@@ -23,17 +23,27 @@ public class TestResult {
 	private final String userAgent;
 	private final boolean isAssert;
 	private final boolean dead;
+	private final TestTiming timing;
 
 	public TestResult(String userAgent, String message, String location, boolean isAssert) {
 		this(userAgent, message, location, isAssert, false);
 	}
 
+	public TestResult(String userAgent, String message, String location, boolean isAssert, TestTiming timing) {
+		this(userAgent, message, location, isAssert, false, timing);
+	}
+
 	public TestResult(String userAgent, String message, String location, boolean isAssert, boolean dead) {
+		this(userAgent, message, location, isAssert, dead, null);
+	}
+
+	private TestResult(String userAgent, String message, String location, boolean isAssert, boolean dead, TestTiming timing) {
 		this.userAgent = userAgent;
 		this.message = message;
 		this.location = location;
 		this.isAssert = isAssert;
 		this.dead = dead;
+		this.timing = timing;
 	}
 
 	public static TestResult deadBrowser(String userAgent, String message) {
@@ -56,6 +66,17 @@ public class TestResult {
 		return dead;
 	}
 
+	/**
+	 * @return the time spent on the test, or null if the browser did not measure it
+	 */
+	public TestTiming getTiming() {
+		return timing;
+	}
+
+	public TestResult withTiming(TestTiming newTiming) {
+		return new TestResult(userAgent, message, location, isAssert, dead, newTiming);
+	}
+
 	public Throwable buildException(ClassLoader testClassLoader) {
 		if (dead) {
 			return new Error("Browser is dead or unable to contact back the STJS JUnit runner: " + message + ", user agent: " + userAgent);
@@ -63,8 +84,10 @@ public class TestResult {
 		Throwable ex =
 				isAssert ? new AssertionError(message + ", user agent: " + userAgent) : new RuntimeException(message + ", user agent: "
 						+ userAgent);
-		StackTraceElement[] stackTrace = new JavascriptToJava(testClassLoader).buildStacktrace(location, ";");
-		ex.setStackTrace(stackTrace);
+		if (location != null && !location.isEmpty()) {
+			StackTraceElement[] stackTrace = new JavascriptToJava(testClassLoader).buildStacktrace(location, ";");
+			ex.setStackTrace(stackTrace);
+		}
 		return ex;
 	}
 
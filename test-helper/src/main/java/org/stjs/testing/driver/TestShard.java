@@ -0,0 +1,61 @@
+package org.stjs.testing.driver;
+
+/**
+ * A part of the test classes, configured with stjs.test.shard. Each shard is meant to be executed by an independent
+ * invocation of the whole test suite, like a separate CI job: every invocation sees all the test classes, and only
+ * executes the ones of its shard. The classes are assigned to the shards by the hash of their name, so all the
+ * invocations agree on the shard of a class without talking to each other.<br>
+ * <br>
+ * The forks of a single surefire run must not be sharded: surefire already sends each class to only one fork, so a
+ * fork would skip most of the classes it receives.
+ */
+final class TestShard {
+	static final TestShard ALL = new TestShard(0, 1);
+
+	private final int index;
+	private final int count;
+
+	private TestShard(int index, int count) {
+		this.index = index;
+		this.count = count;
+	}
+
+	/**
+	 * parses a shard written as "index/count", where the index starts at 1
+	 */
+	static TestShard parse(String shard) {
+		String[] parts = shard.trim().split("/");
+		if (parts.length == 2) {
+			try {
+				int index = Integer.parseInt(parts[0].trim());
+				int count = Integer.parseInt(parts[1].trim());
+				if (count >= 1 && index >= 1 && index <= count) {
+					return new TestShard(index - 1, count);
+				}
+			}
+			catch (NumberFormatException e) {
+				// reported below
+			}
+		}
+		throw new IllegalArgumentException("Invalid value for stjs.test.shard: " + shard
+				+ ", it must be the index of the shard and the number of shards, like 3/8");
+	}
+
+	/**
+	 * @return the index of the shard, starting at 0
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return true if the tests of the given class are executed by this shard
+	 */
+	boolean contains(Class<?> testClass) {
+		return (testClass.getName().hashCode() & Integer.MAX_VALUE) % count == index;
+	}
+}
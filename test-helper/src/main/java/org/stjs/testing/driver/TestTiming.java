@@ -0,0 +1,89 @@
+package org.stjs.testing.driver;
+
+/**
+ * The time spent by a browser on each phase of a test, in milliseconds. The browsers measure the evaluation of the
+ * scripts, the before methods, the test method and the after methods. The page load is the rest of the time between
+ * the moment the page is sent and the moment the results are received: network, HTML parsing and script downloads.
+ * When several tests are executed in one page, the page load and the scripts are counted for the first one.
+ */
+public class TestTiming {
+	private final long pageLoad;
+	private final long scripts;
+	private final long before;
+	private final long test;
+	private final long after;
+
+	public TestTiming(long pageLoad, long scripts, long before, long test, long after) {
+		this.pageLoad = pageLoad;
+		this.scripts = scripts;
+		this.before = before;
+		this.test = test;
+		this.after = after;
+	}
+
+	/**
+	 * @param timing the times measured by the browser, written as "scripts,before,test,after"
+	 * @return the timing without page load, or null if the browser did not report it
+	 */
+	public static TestTiming parse(String timing) {
+		if (timing == null) {
+			return null;
+		}
+		String[] parts = timing.split(",");
+		if (parts.length != 4) {
+			return null;
+		}
+		try {
+			return new TestTiming(0, parseTime(parts[0]), parseTime(parts[1]), parseTime(parts[2]), parseTime(parts[3]));
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static long parseTime(String time) {
+		// the clock of the browser may go backwards
+		return Math.max(0, Long.parseLong(time.trim()));
+	}
+
+	public TestTiming withPageLoad(long newPageLoad) {
+		return new TestTiming(newPageLoad, scripts, before, test, after);
+	}
+
+	public long getPageLoad() {
+		return pageLoad;
+	}
+
+	public long getScripts() {
+		return scripts;
+	}
+
+	public long getBefore() {
+		return before;
+	}
+
+	public long getTest() {
+		return test;
+	}
+
+	public long getAfter() {
+		return after;
+	}
+
+	/**
+	 * @return the time measured by the browser, without the page load
+	 */
+	public long getMeasured() {
+		return scripts + before + test + after;
+	}
+
+	public long getTotal() {
+		return pageLoad + getMeasured();
+	}
+
+	@Override
+	public String toString() {
+		return "TestTiming [pageLoad=" + pageLoad + ", scripts=" + scripts + ", before=" + before + ", test=" + test
+				+ ", after=" + after + "]";
+	}
+}
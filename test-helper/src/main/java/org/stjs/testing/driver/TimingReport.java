@@ -0,0 +1,190 @@
+package org.stjs.testing.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Collects the time spent by each browser on each test of the session, and writes them to a CSV file, the slowest tests
+ * first. The slowest tests are also printed at the end of the session.<br>
+ * <br>
+ * The shards and the forks of a build write to the same file: each session merges its times with the ones already in
+ * the file, under a file lock, and a test executed again by a browser replaces its previous time.
+ */
+public class TimingReport {
+	private static final String HEADER = "class,method,browser,total,pageLoad,scripts,before,test,after";
+	private static final int SLOWEST_COUNT = 10;
+	private static final String QUOTED = "(|\"(?:[^\"]|\"\")*\")";
+	private static final Pattern CSV_ROW = Pattern.compile(QUOTED + "," + QUOTED + "," + QUOTED
+			+ ",[0-9]+,([0-9]+),([0-9]+),([0-9]+),([0-9]+),([0-9]+)");
+
+	private final List<Row> rows = new ArrayList<Row>();
+
+	public synchronized void addResults(TestResultCollection results) {
+		for (int i = 0; i < results.size(); ++i) {
+			TestResult result = results.getResult(i);
+			if (result.getTiming() != null) {
+				rows.add(new Row(results.getTestClassName(), results.getTestMethodName(), result.getUserAgent(), result.getTiming()));
+			}
+		}
+	}
+
+	public synchronized boolean isEmpty() {
+		return rows.isEmpty();
+	}
+
+	/**
+	 * Merges the collected times with the CSV report of the given file, then prints the slowest tests of the merged
+	 * report. The collected times are cleared, so the next run of the session only adds its own times.
+	 */
+	public synchronized void write(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Cannot create the folder " + dir);
+		}
+		List<Row> sorted;
+		// the file lock is held by the JVM: the other reports of this JVM wait on the class instead
+		synchronized (TimingReport.class) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				FileLock lock = raf.getChannel().lock();
+				try {
+					sorted = merge(read(raf), rows);
+					rows.clear();
+					write(raf, sorted);
+				}
+				finally {
+					lock.release();
+				}
+			}
+			finally {
+				raf.close();
+			}
+		}
+
+		System.out.println("The slowest STJS tests, out of the " + sorted.size() + " in " + file + ":");
+		for (Row row : sorted.subList(0, Math.min(SLOWEST_COUNT, sorted.size()))) {
+			System.out.println("  " + row.timing.getTotal() + "ms " + row.className + "." + row.methodName + " on " + row.browser
+					+ " (page load " + row.timing.getPageLoad() + "ms, scripts " + row.timing.getScripts() + "ms, before "
+					+ row.timing.getBefore() + "ms, test " + row.timing.getTest() + "ms, after " + row.timing.getAfter() + "ms)");
+		}
+	}
+
+	/**
+	 * @return the rows of the CSV report, without the lines that cannot be parsed
+	 */
+	private static List<Row> read(RandomAccessFile raf) throws IOException {
+		byte[] content = new byte[(int) raf.length()];
+		raf.readFully(content);
+		List<Row> existing = new ArrayList<Row>();
+		for (String line : new String(content, Charsets.UTF_8).split("\r?\n")) {
+			Row row = Row.parse(line);
+			if (row != null) {
+				existing.add(row);
+			}
+		}
+		return existing;
+	}
+
+	private static void write(RandomAccessFile raf, List<Row> sorted) throws IOException {
+		StringBuilder csv = new StringBuilder(HEADER).append('\n');
+		for (Row row : sorted) {
+			csv.append(row.toCsv()).append('\n');
+		}
+		raf.setLength(0);
+		raf.seek(0);
+		raf.write(csv.toString().getBytes(Charsets.UTF_8));
+	}
+
+	/**
+	 * @return the existing rows and the added ones, the slowest first. An added row replaces the existing row of the same
+	 *         test and browser.
+	 */
+	private static List<Row> merge(List<Row> existing, List<Row> added) {
+		Map<List<String>, Row> merged = new LinkedHashMap<List<String>, Row>();
+		for (Row row : existing) {
+			merged.put(row.getKey(), row);
+		}
+		for (Row row : added) {
+			merged.put(row.getKey(), row);
+		}
+		List<Row> sorted = new ArrayList<Row>(merged.values());
+		Collections.sort(sorted, new Comparator<Row>() {
+			@Override
+			public int compare(Row r1, Row r2) {
+				long t1 = r1.timing.getTotal();
+				long t2 = r2.timing.getTotal();
+				return t1 > t2 ? -1 : t1 < t2 ? 1 : 0;
+			}
+		});
+		return sorted;
+	}
+
+	private static final class Row {
+		private final String className;
+		private final String methodName;
+		private final String browser;
+		private final TestTiming timing;
+
+		Row(String className, String methodName, String browser, TestTiming timing) {
+			this.className = className;
+			this.methodName = methodName;
+			this.browser = browser;
+			this.timing = timing;
+		}
+
+		/**
+		 * @return the row written in the given line of the CSV report, or null if the line is not a row
+		 */
+		static Row parse(String line) {
+			Matcher m = CSV_ROW.matcher(line);
+			if (!m.matches()) {
+				return null;
+			}
+			try {
+				return new Row(unquote(m.group(1)), unquote(m.group(2)), unquote(m.group(3)), new TestTiming(Long.parseLong(m
+						.group(4)), Long.parseLong(m.group(5)), Long.parseLong(m.group(6)), Long.parseLong(m.group(7)), Long
+						.parseLong(m.group(8))));
+			}
+			catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		List<String> getKey() {
+			return Arrays.asList(className, methodName, browser);
+		}
+
+		String toCsv() {
+			return quote(className) + "," + quote(methodName) + "," + quote(browser) + "," + timing.getTotal() + ","
+					+ timing.getPageLoad() + "," + timing.getScripts() + "," + timing.getBefore() + "," + timing.getTest() + ","
+					+ timing.getAfter();
+		}
+
+		private static String quote(String value) {
+			if (value == null) {
+				return "";
+			}
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+
+		private static String unquote(String value) {
+			if (value.isEmpty()) {
+				return null;
+			}
+			return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+		}
+	}
+}
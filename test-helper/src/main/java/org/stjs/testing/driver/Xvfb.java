@@ -37,18 +37,34 @@ public class Xvfb implements AsyncProcess {
 	// TODO: not implemented yet
 	private File logFile;
 
-	private final DriverConfiguration config;
+	private final boolean debug;
+	/** The first display that is tried when looking for a usable one. */
+	private final int firstDisplayNumber;
 	private Process xvfbProcess;
 
 	public Xvfb(DriverConfiguration config) {
-		this.config = config;
+		// the sessions running on the same host start from different displays
+		this(DEFAULT_DISPLAY_NUMBER + config.getSessionIndex(), config.isDebugEnabled());
 
 		// TODO: load the other fields according to the system properties in config 
 	}
 
+	/**
+	 * Used by the {@link BrowserAgent}, that keeps Xvfb running between the test sessions. The agent is shared by all the
+	 * sessions, so it starts from the default display.
+	 */
+	public Xvfb(boolean debug) {
+		this(DEFAULT_DISPLAY_NUMBER, debug);
+	}
+
+	private Xvfb(int firstDisplayNumber, boolean debug) {
+		this.firstDisplayNumber = firstDisplayNumber;
+		this.debug = debug;
+	}
+
 	@Override
 	public void start() {
-		if (config.isDebugEnabled()) {
+		if (debug) {
 			System.out.println("Starting Xvfb...");
 		}
 
@@ -61,7 +77,7 @@ public class Xvfb implements AsyncProcess {
 			}
 		}
 
-		if (config.isDebugEnabled()) {
+		if (debug) {
 			System.out.println("Using display: " + display);
 		}
 
@@ -104,16 +120,16 @@ public class Xvfb implements AsyncProcess {
 	 * Detect which display is usable.
 	 */
 	private String detectUsableDisplay() {
-		if (config.isDebugEnabled()) {
+		if (debug) {
 			System.out.println("Detecting a usable display...");
 		}
 
 		boolean found = false;
-		int n = DEFAULT_DISPLAY_NUMBER;
+		int n = firstDisplayNumber;
 
-		while (!found && (n <= DEFAULT_DISPLAY_NUMBER + 10)) {
+		while (!found && (n <= firstDisplayNumber + 10)) {
 			String d = ":" + n;
-			if (config.isDebugEnabled()) {
+			if (debug) {
 				System.out.println("Trying display: " + n);
 			}
 
@@ -149,7 +165,7 @@ public class Xvfb implements AsyncProcess {
 	private boolean isDisplayInUse(String display) {
 		int port = decodeDisplayPort(display);
 
-		if (config.isDebugEnabled()) {
+		if (debug) {
 			System.out.println("Checking if display is in use: " + display + " on port: " + port);
 		}
 
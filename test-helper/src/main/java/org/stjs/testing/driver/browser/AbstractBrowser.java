@@ -7,15 +7,25 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.junit.Test;
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.BrowserLocator;
+import org.stjs.generator.BridgeClass;
+import org.stjs.generator.ClassWithJavascript;
 import org.stjs.testing.driver.AsyncProcess;
 import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.MultiTestMethod;
+import org.stjs.testing.driver.TestClassAttributes;
 import org.stjs.testing.driver.TestResult;
+import org.stjs.testing.driver.TestTiming;
 
 import com.sun.net.httpserver.HttpExchange;
 
@@ -76,6 +86,65 @@ public abstract class AbstractBrowser implements Browser {
 		builder.append("<script src='" + cleanScript + "'></script>\n");
 	}
 
+	/**
+	 * @return the paths of the scripts needed by the tests of the given class, in the order they must be loaded - after
+	 *         stjs.js and junit.js
+	 */
+	protected List<String> getScripts(TestClassAttributes attr) {
+		List<String> scripts = new ArrayList<String>();
+		// scripts added explicitly
+		scripts.addAll(attr.getScripts());
+		// scripts before - new style
+		scripts.addAll(attr.getScriptsBefore());
+
+		Set<URI> jsUris = new LinkedHashSet<>();
+		for (ClassWithJavascript dep : attr.getDependencies()) {
+
+			if (!attr.getScripts().isEmpty() && dep instanceof BridgeClass) {
+				// bridge dependencies are not added when using @Scripts
+				System.out.println(
+						"WARNING: You're using @Scripts deprecated annotation that disables the automatic inclusion of the Javascript files of "
+								+ "the bridges you're using! " + "Please consider using @ScriptsBefore and/or @ScriptsAfter instead.");
+				continue;
+			}
+			for (URI file : dep.getJavascriptFiles()) {
+				jsUris.add(file);
+			}
+		}
+
+		for (URI uri : jsUris) {
+			scripts.add(httpPath(uri));
+		}
+
+		// scripts after - new style
+		scripts.addAll(attr.getScriptsAfter());
+		return scripts;
+	}
+
+	protected String httpPath(URI uri) {
+		if ("webjar".equals(uri.getScheme())) {
+			return "/webjars" + uri.getPath();
+
+		} else if ("classpath".equals(uri.getScheme())) {
+			return uri.getPath();
+		}
+
+		// all the other cases (.war packaging, old .jar packaging)
+		return uri.toString();
+	}
+
+	/**
+	 * @return the Javascript constructor of the exception expected by the given test, or null
+	 */
+	protected String getExpectedException(MultiTestMethod method) {
+		Test test = method.getMethod().getAnnotation(Test.class);
+		if (test.expected() == Test.None.class) {
+			return "null";
+		}
+		ClassWithJavascript exceptionClass = getConfig().getStjsClassResolver().resolve(test.expected().getName());
+		return exceptionClass.getJavascriptClassName();
+	}
+
 	protected void sendResponse(String content, HttpExchange exchange) throws IOException {
 		byte[] response;
 		try {
@@ -101,12 +170,13 @@ public abstract class AbstractBrowser implements Browser {
 		String result = queryStringParameters.get("result");
 		String location = queryStringParameters.get("location");
 		String isAssert = queryStringParameters.get("isAssert");
+		TestTiming timing = TestTiming.parse(queryStringParameters.get("timing"));
 
 		if (getConfig().isDebugEnabled()) {
 			System.out.println("Result was: " + result + ", at " + location + ", from " + userAgent);
 		}
 
-		return new TestResult(userAgent, result, location, "true".equals(isAssert));
+		return new TestResult(userAgent, result, location, "true".equals(isAssert), timing);
 	}
 
 	@Override
@@ -0,0 +1,274 @@
+package org.stjs.testing.driver.browser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runners.model.InitializationError;
+import org.stjs.testing.driver.AsyncProcess;
+import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.MultiTestMethod;
+import org.stjs.testing.driver.TestResult;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Several instances of the same browser that share the tests to execute. Instead of receiving each test from the JUnit
+ * thread, the instances get the tests from a queue shared by the pool, so they execute different tests at the same
+ * time. The requests of the waiting instances are parked by the pool and answered as soon as there is a test for them. For the JUnit runner, the pool is a single browser: each test is executed by one of the instances and is
+ * reported once.<br>
+ * <br>
+ * An instance takes at once up to DriverConfiguration.getBatchSize() consecutive tests of the same class, that it executes
+ * in one page load. The batches are kept small enough for all the instances to get a share of the tests of the class.<br>
+ * <br>
+ * As no instance waits for the JUnit thread, the timeouts are checked by a watchdog thread: an instance that does not
+ * report the results of its tests within DriverConfiguration.getTestTimeout() per test, or that does not ask for its
+ * first test within DriverConfiguration.getWaitForBrowser(), is dead. When all the instances are dead, the pending tests
+ * fail.
+ */
+@SuppressWarnings("restriction")
+public class BrowserPool implements Browser {
+	private static final long WATCHDOG_INTERVAL_MILLIS = 500;
+
+	private final DriverConfiguration config;
+	private final List<LongPollingBrowser> instances;
+	private final BlockingQueue<MultiTestMethod> tests = new LinkedBlockingQueue<MultiTestMethod>();
+	private final Map<LongPollingBrowser, HttpExchange> parkedRequests = new LinkedHashMap<LongPollingBrowser, HttpExchange>();
+	private volatile boolean noMoreTests = false;
+	private volatile long startTime;
+	private ScheduledExecutorService watchdog;
+
+	public BrowserPool(DriverConfiguration config, List<LongPollingBrowser> instances) {
+		this.config = config;
+		this.instances = new ArrayList<LongPollingBrowser>(instances);
+		for (LongPollingBrowser instance : instances) {
+			instance.setPool(this);
+		}
+	}
+
+	/**
+	 * Starts all the instances. The pool fails to start only if none of its instances could be started.
+	 */
+	@Override
+	public void start() throws InitializationError {
+		List<Throwable> errors = new ArrayList<Throwable>();
+		for (LongPollingBrowser instance : instances) {
+			try {
+				instance.start();
+			}
+			catch (InitializationError e) {
+				errors.addAll(e.getCauses());
+			}
+		}
+		if (errors.size() == instances.size()) {
+			throw new InitializationError(errors);
+		}
+		if (!errors.isEmpty()) {
+			System.out.println(errors.size() + " of the " + instances.size() + " instances of " + getBrowserName()
+					+ " could not be started: " + errors.get(0));
+		}
+
+		startTime = System.currentTimeMillis();
+		watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "browserPool-" + getBrowserName());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		watchdog.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkInstances();
+			}
+		}, WATCHDOG_INTERVAL_MILLIS, WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public DriverConfiguration getConfig() {
+		return config;
+	}
+
+	/**
+	 * Queues the specified test for the first instance that is available. This method does not block.
+	 */
+	@Override
+	public void executeTest(MultiTestMethod method) {
+		if (!hasLiveInstance()) {
+			reportAsDead(method);
+			return;
+		}
+		tests.add(method);
+		dispatch();
+	}
+
+	/**
+	 * Called by an instance of this pool when it is ready to execute new tests. The request of the instance is parked until there is a
+	 * test in the queue, or until there are no more tests.
+	 */
+	void parkRequest(LongPollingBrowser instance, HttpExchange exchange) {
+		synchronized (parkedRequests) {
+			parkedRequests.put(instance, exchange);
+		}
+		dispatch();
+	}
+
+	/**
+	 * @return the parked request of the given instance, that is not parked anymore, or null if the instance is not waiting
+	 */
+	HttpExchange takeParkedRequest(LongPollingBrowser instance) {
+		synchronized (parkedRequests) {
+			return parkedRequests.remove(instance);
+		}
+	}
+
+	/**
+	 * Sends the queued tests to the instances whose request is parked, and tells them that there are no more tests once the queue is empty
+	 * and JUnit has no more tests. The responses are sent outside of the lock, so the instances receive their tests at the same time.
+	 */
+	private void dispatch() {
+		Map<LongPollingBrowser, HttpExchange> requests = new LinkedHashMap<LongPollingBrowser, HttpExchange>();
+		Map<LongPollingBrowser, List<MultiTestMethod>> batches = new HashMap<LongPollingBrowser, List<MultiTestMethod>>();
+		synchronized (parkedRequests) {
+			Iterator<Map.Entry<LongPollingBrowser, HttpExchange>> it = parkedRequests.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<LongPollingBrowser, HttpExchange> request = it.next();
+				LongPollingBrowser instance = request.getKey();
+				if (!instance.isDead()) {
+					MultiTestMethod method = tests.poll();
+					if (method != null) {
+						batches.put(instance, takeBatch(method));
+					} else if (!noMoreTests) {
+						// keep waiting for the next test
+						continue;
+					}
+				}
+				it.remove();
+				requests.put(instance, request.getValue());
+			}
+		}
+		for (Map.Entry<LongPollingBrowser, HttpExchange> request : requests.entrySet()) {
+			request.getKey().sendTests(batches.get(request.getKey()), request.getValue());
+		}
+	}
+
+	/**
+	 * Adds to the given test the queued tests of the same class that follow it, as long as none of them must be
+	 * isolated.
+	 */
+	private List<MultiTestMethod> takeBatch(MultiTestMethod first) {
+		List<MultiTestMethod> batch = new ArrayList<MultiTestMethod>();
+		batch.add(first);
+		if (first.isIsolated()) {
+			return batch;
+		}
+		// share the queued tests between the instances instead of giving all of them to the first one
+		int share = (tests.size() + instances.size()) / instances.size();
+		int maxSize = Math.max(1, Math.min(config.getBatchSize(), share));
+		while (batch.size() < maxSize) {
+			MultiTestMethod next = tests.peek();
+			if (next == null || next.getTestClass() != first.getTestClass() || next.isIsolated()) {
+				break;
+			}
+			// another instance may have taken it in the meantime
+			if (!tests.remove(next)) {
+				break;
+			}
+			batch.add(next);
+		}
+		return batch;
+	}
+
+	@Override
+	public void notifyNoMoreTests() {
+		noMoreTests = true;
+		dispatch();
+	}
+
+	@Override
+	public void stop() {
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+		}
+		for (LongPollingBrowser instance : instances) {
+			instance.stop();
+		}
+	}
+
+	@Override
+	public Set<Class<? extends AsyncProcess>> getSharedDependencies() {
+		Set<Class<? extends AsyncProcess>> deps = new HashSet<Class<? extends AsyncProcess>>();
+		for (LongPollingBrowser instance : instances) {
+			deps.addAll(instance.getSharedDependencies());
+		}
+		return deps;
+	}
+
+	public List<LongPollingBrowser> getInstances() {
+		return instances;
+	}
+
+	private boolean hasLiveInstance() {
+		for (LongPollingBrowser instance : instances) {
+			if (!instance.isDead()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks as dead the instances that are too late, then fails the queued tests if no instance is left to execute them.
+	 */
+	private void checkInstances() {
+		long now = System.currentTimeMillis();
+		long testTimeout = TimeUnit.SECONDS.toMillis(config.getTestTimeout());
+		long waitForBrowser = TimeUnit.SECONDS.toMillis(config.getWaitForBrowser());
+		for (LongPollingBrowser instance : instances) {
+			List<MultiTestMethod> methods = instance.getMethodsUnderExecution();
+			if (methods != null) {
+				if (now - instance.getTestPickupTime() > testTimeout * methods.size()) {
+					instance.markAsTimedOut();
+				}
+			} else if (!instance.isDead() && !instance.hasRequestedTests() && !tests.isEmpty()
+					&& now - startTime > waitForBrowser) {
+				if (config.isDebugEnabled()) {
+					System.out.println("Browser " + instance.getId() + " did not connect within " + config.getWaitForBrowser()
+							+ " seconds");
+				}
+				instance.markAsDead();
+			}
+		}
+
+		if (!hasLiveInstance()) {
+			List<MultiTestMethod> pending = new ArrayList<MultiTestMethod>();
+			tests.drainTo(pending);
+			for (MultiTestMethod method : pending) {
+				reportAsDead(method);
+			}
+		}
+		// the dead instances that are waiting are told that there are no more tests
+		dispatch();
+	}
+
+	private void reportAsDead(MultiTestMethod method) {
+		method.notifyExecutionResult(TestResult.deadBrowser(getBrowserName(), "All the " + instances.size()
+				+ " instances of the browser are dead"));
+	}
+
+	private String getBrowserName() {
+		return instances.get(0).getClass().getSimpleName();
+	}
+}
@@ -2,6 +2,7 @@ package org.stjs.testing.driver.browser;
 
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.GoogleChromeLocator;
+import org.stjs.testing.driver.BrowserAgent;
 import org.stjs.testing.driver.DriverConfiguration;
 
 public class ChromeBrowser extends LongPollingBrowser {
@@ -17,4 +18,9 @@ public class ChromeBrowser extends LongPollingBrowser {
 		this.registerWithLongPollingServer();
 		this.startProcess(new GoogleChromeLocator(), PROP_CHROME_BIN, getStartPageUrl(getId(), false));
 	}
+
+	@Override
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return BrowserAgent.BrowserKind.CHROME;
+	}
 }
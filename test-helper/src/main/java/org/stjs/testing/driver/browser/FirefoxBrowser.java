@@ -2,6 +2,7 @@ package org.stjs.testing.driver.browser;
 
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.CombinedFirefoxLocator;
+import org.stjs.testing.driver.BrowserAgent;
 import org.stjs.testing.driver.DriverConfiguration;
 
 public class FirefoxBrowser extends LongPollingBrowser {
@@ -17,4 +18,9 @@ public class FirefoxBrowser extends LongPollingBrowser {
 		this.registerWithLongPollingServer();
 		this.startProcess(new CombinedFirefoxLocator(), PROP_FIREFOX_BIN, getStartPageUrl(getId(), false));
 	}
+
+	@Override
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return BrowserAgent.BrowserKind.FIREFOX;
+	}
 }
@@ -20,6 +20,11 @@ public abstract class HeadlessBrowser extends LongPollingBrowser {
 
 	@Override
 	protected void startProcess(BrowserLocator locator, String binPropertyName, String url) throws InitializationError {
+		if (usesBrowserAgent()) {
+			// the agent starts the browser on the display of its own Xvfb
+			leaseFromAgent(getAgentBrowserKind(), url);
+			return;
+		}
 		Xvfb xvfb = JUnitSession.getInstance().getDependency(Xvfb.class);
 		ProcessBuilder builder = buildProcess(locator, binPropertyName, url);
 		builder.environment().put("DISPLAY", xvfb.getDisplay());
@@ -42,6 +47,9 @@ public abstract class HeadlessBrowser extends LongPollingBrowser {
 	@Override
 	@SuppressWarnings("unchecked")
 	public Set<Class<? extends AsyncProcess>> getSharedDependencies() {
+		if (usesBrowserAgent()) {
+			return super.getSharedDependencies();
+		}
 		return processSet(HttpLongPollingServer.class, Xvfb.class);
 	}
 }
@@ -2,6 +2,7 @@ package org.stjs.testing.driver.browser;
 
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.GoogleChromeLocator;
+import org.stjs.testing.driver.BrowserAgent;
 import org.stjs.testing.driver.DriverConfiguration;
 
 public class HeadlessChromeBrowser extends HeadlessBrowser {
@@ -16,4 +17,8 @@ public class HeadlessChromeBrowser extends HeadlessBrowser {
 		this.startProcess(new GoogleChromeLocator(), ChromeBrowser.PROP_CHROME_BIN, getStartPageUrl(getId(), false));
 	}
 
+	@Override
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return BrowserAgent.BrowserKind.HEADLESS_CHROME;
+	}
 }
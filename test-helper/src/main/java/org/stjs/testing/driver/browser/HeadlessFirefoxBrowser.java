@@ -2,6 +2,7 @@ package org.stjs.testing.driver.browser;
 
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.CombinedFirefoxLocator;
+import org.stjs.testing.driver.BrowserAgent;
 import org.stjs.testing.driver.DriverConfiguration;
 
 public class HeadlessFirefoxBrowser extends HeadlessBrowser {
@@ -17,4 +18,8 @@ public class HeadlessFirefoxBrowser extends HeadlessBrowser {
 				getStartPageUrl(getId(), false));
 	}
 
+	@Override
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return BrowserAgent.BrowserKind.HEADLESS_FIREFOX;
+	}
 }
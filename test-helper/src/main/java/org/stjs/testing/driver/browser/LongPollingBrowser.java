@@ -3,18 +3,24 @@ package org.stjs.testing.driver.browser;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Exchanger;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.junit.Test;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
-import org.stjs.generator.BridgeClass;
-import org.stjs.generator.ClassWithJavascript;
+import org.junit.runners.model.TestClass;
+import org.openqa.selenium.browserlaunchers.locators.BrowserLocator;
 import org.stjs.testing.driver.AsyncProcess;
+import org.stjs.testing.driver.BrowserAgent;
+import org.stjs.testing.driver.BrowserAgentClient;
 import org.stjs.testing.driver.DriverConfiguration;
 import org.stjs.testing.driver.HttpLongPollingServer;
 import org.stjs.testing.driver.JUnitSession;
@@ -31,7 +37,11 @@ import com.sun.net.httpserver.HttpExchange;
  * LongPollingBrowser handles multithreading synchronization between the browser, the HTTP server and the JUnit runner. The JUnit runner
  * notifies
  * this browser that a new test method must be executed by calling executeTest(MultiTestMethod), or that it has finished executing all the tests
- * by calling notifyNoMoreTests(). The HTTP server waits for a new test to send to the browser by calling awaitNewTestReady(). <br>
+ * by calling notifyNoMoreTests(). The HTTP server parks the request of the browser for its next test by calling parkRequest(), and the
+ * response is sent by the thread that has the next test, so no thread waits for the browser.<br>
+ * <br>
+ * When the browser is an instance of a {@link BrowserPool}, it gets the tests from the queue of the pool instead, possibly several tests of
+ * the same class at once: they are executed one after the other in the same page, and their results are reported in the same request.<br>
  * <br>
  * On top of that, LongPollinBrowser delegates the details of starting and stopping the browser itself to its concrete subclasses.
  *
@@ -40,15 +50,19 @@ import com.sun.net.httpserver.HttpExchange;
 @SuppressWarnings({"restriction", "deprecation"})
 public abstract class LongPollingBrowser extends AbstractBrowser {
 
-	private final Exchanger<MultiTestMethod> exchanger = new Exchanger<MultiTestMethod>();
+	private final BlockingQueue<HttpExchange> parkedRequests = new LinkedBlockingQueue<HttpExchange>();
 	private final TestClassAttributesRepository testClasses;
-	private volatile MultiTestMethod methodUnderExecution = null;
+	private final AtomicReference<List<MultiTestMethod>> methodsUnderExecution = new AtomicReference<List<MultiTestMethod>>();
+	private volatile long testPickupTime;
+	private volatile boolean requestedTests = false;
 	private long id;
 	private volatile boolean isDead = false;
+	private BrowserPool pool;
+	private String agentLease;
 
 	public LongPollingBrowser(DriverConfiguration config) {
 		super(config);
-		testClasses = new TestClassAttributesRepository(config.getStjsClassResolver(), config.getDependencyCollector());
+		testClasses = config.getTestClasses();
 	}
 
 	protected String getStartPageUri(long browserId, boolean persistent) {
@@ -91,44 +105,138 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 	protected abstract void doStart() throws InitializationError;
 
 	/**
-	 * Blocks until JUnit notifies this browser session that either a new test must be executed (ie: executeTest() is called), or there are no
-	 * more tests (ie: notifyNoMoreTests() is called). If there is a new test to execute, then this method returns it. If there are no more
-	 * tests, this method returns null.<br>
-	 * <br>
-	 * This method is typically called right after the results of the previous test were reported.
-	 *
-	 * @return The next test to execute, or null if there isn't any
+	 * @return the kind of this browser in the {@link BrowserAgent}, or null if the agent cannot start it. Only the browsers started
+	 *         from a command line can be kept alive by the agent, they override this method.
+	 */
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return null;
+	}
+
+	/**
+	 * @return true if this browser is leased from the {@link BrowserAgent} instead of being started and stopped by the session.
 	 */
-	public MultiTestMethod awaitNextTest() {
+	protected boolean usesBrowserAgent() {
+		return getAgentBrowserKind() != null && getConfig().isBrowserAgentEnabled();
+	}
+
+	@Override
+	protected void startProcess(BrowserLocator locator, String binPropertyName, String url) throws InitializationError {
+		if (usesBrowserAgent()) {
+			leaseFromAgent(getAgentBrowserKind(), url);
+		} else {
+			super.startProcess(locator, binPropertyName, url);
+		}
+	}
+
+	/**
+	 * Sends a browser of the given kind that is waiting in the lobby of the {@link BrowserAgent} to the specified start page. If there is
+	 * none, the agent starts a new one. The browser is sent back to the lobby when there are no more tests.
+	 */
+	protected void leaseFromAgent(BrowserAgent.BrowserKind kind, String startPageUrl) throws InitializationError {
+		BrowserAgentClient agent = JUnitSession.getInstance().getDependency(BrowserAgentClient.class);
 		try {
-			if (getConfig().isDebugEnabled()) {
-				System.out.println("Browser " + this.id + " is waiting for a new test");
+			agentLease = agent.acquire(kind, startPageUrl);
+			if (agentLease != null) {
+				if (getConfig().isDebugEnabled()) {
+					System.out.println("Browser " + id + " is leased from the browser agent (" + agentLease + ")");
+				}
+			} else {
+				agentLease = agent.launch(kind, startPageUrl);
+				if (getConfig().isDebugEnabled()) {
+					System.out.println("Browser " + id + " was started by the browser agent (" + agentLease + ")");
+				}
 			}
+		}
+		catch (IOException e) {
+			throw new InitializationError(e);
+		}
+	}
 
-			// We now wait for the JUnit thread to supply our thread with the next test.
-			// there is no need to put a timeout here, because if JUnit fails to deliver a new test,
-			// this means that something really bad has happened and that the JUnit JVM will probably terminate very
-			// soon, executing all cleanup actions.
-			methodUnderExecution = exchanger.exchange(null);
-
-			if (getConfig().isDebugEnabled()) {
-				if (methodUnderExecution != null) {
-					System.out.println("Browser " + this.id + " has picked up the test " + methodUnderExecution.getMethod().getMethod());
-				} else {
-					System.out.println("Browser " + this.id + " has no more tests");
-				}
+	/**
+	 * @return the lease of this browser in the {@link BrowserAgent}, or null if this browser is not leased from the agent
+	 */
+	protected String getAgentLease() {
+		return agentLease;
+	}
+
+	/**
+	 * Tells the {@link BrowserAgent} that this browser goes back to its lobby. The agent only answers the lobby page of a released
+	 * browser.
+	 */
+	protected void releaseToAgent() {
+		try {
+			JUnitSession.getInstance().getDependency(BrowserAgentClient.class).release(agentLease);
+		}
+		catch (IOException e) {
+			// the browser waits in the lobby until the agent notices that the session is gone
+			System.err.println("Could not release browser " + id + " to the browser agent: " + e);
+		}
+	}
+
+	void setPool(BrowserPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Called by the HTTP server when the browser asks for its next tests, right after the results of the previous tests were reported. The
+	 * request is parked without blocking any thread: the response is sent when JUnit notifies this browser session that either a new test
+	 * must be executed (ie: executeTest() is called), or there are no more tests (ie: notifyNoMoreTests() is called). When the browser is
+	 * an instance of a pool, the pool sends the next tests instead.<br>
+	 * <br>
+	 * There is no need for a timeout here, because if JUnit fails to deliver a new test, this means that something really bad has happened
+	 * and that the JUnit JVM will probably terminate very soon, executing all cleanup actions.
+	 *
+	 * @param exchange the request of the browser, that must be kept open until the response is sent with sendTests()
+	 */
+	public void parkRequest(HttpExchange exchange) {
+		if (getConfig().isDebugEnabled()) {
+			System.out.println("Browser " + this.id + " is waiting for a new test");
+		}
+		requestedTests = true;
+		if (pool != null) {
+			pool.parkRequest(this, exchange);
+		} else {
+			parkedRequests.add(exchange);
+		}
+	}
+
+	/**
+	 * Sends to the browser the specified tests, or tells it that there are no more tests, in response to its parked request. The request
+	 * is completed when this method returns. If the response cannot be sent, the browser will not ask for the next tests, it is
+	 * therefore essentially dead.
+	 *
+	 * @param methods The next tests to execute, or null if there isn't any
+	 */
+	void sendTests(List<MultiTestMethod> methods, HttpExchange exchange) {
+		testPickupTime = System.currentTimeMillis();
+		methodsUnderExecution.set(methods);
+		if (getConfig().isDebugEnabled()) {
+			if (methods != null) {
+				System.out.println("Browser " + this.id + " has picked up the tests " + methods);
+			} else {
+				System.out.println("Browser " + this.id + " has no more tests");
 			}
-			return methodUnderExecution;
 		}
-		catch (InterruptedException e) {
-			throw new RuntimeException(e);
+		try {
+			if (methods != null) {
+				sendTestFixture(methods, exchange);
+			} else {
+				sendNoMoreTestFixture(exchange);
+			}
+		}
+		catch (Exception e) {
+			System.err.println("Error sending the next tests to browser " + this.id + ":" + e);
+			markAsDead(e, exchange.getRequestHeaders().getFirst("User-Agent"));
+		}
+		finally {
+			exchange.close();
 		}
 	}
 
 	/**
-	 * Notifies this browser that the specified test must be executed. This method blocks until this browser picks up the test by calling
-	 * awaitNextTest(). If the browser does not pick up the test within the timeout specified in DriverConfiguration.getTestTimeout(), then the
-	 * browser is assumed to be dead. The test is failed, and the browser does not receive any more tests at all.
+	 * Notifies this browser that the specified test must be executed. This method blocks until the browser asks for its next test, then
+	 * sends the test in response. If the browser does not ask for a test within the timeout specified in DriverConfiguration.getTestTimeout(),
+	 * then the browser is assumed to be dead. The test is failed, and the browser does not receive any more tests at all.
 	 *
 	 * @param method The test to execute.
 	 */
@@ -138,22 +246,25 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 			this.reportAsDead(method);
 			return;
 		}
-		try {
-			if (getConfig().isDebugEnabled()) {
-				System.out.println("Test " + method.getMethod().getMethod() + " is available for browser " + this.id);
-			}
-			exchanger.exchange(method, getConfig().getTestTimeout(), TimeUnit.SECONDS);
-			if (getConfig().isDebugEnabled()) {
-				System.out.println("Browser " + this.id + " has picked up the new test");
-			}
-		}
-		catch (InterruptedException e) {
-			throw new RuntimeException(e);
+		if (getConfig().isDebugEnabled()) {
+			System.out.println("Test " + method.getMethod().getMethod() + " is available for browser " + this.id);
 		}
-		catch (TimeoutException e) {
+		HttpExchange exchange = awaitParkedRequest();
+		if (exchange == null) {
 			// the browser failed to pick up the test in time.
 			this.markAsDead();
 			this.reportAsDead(method);
+			return;
+		}
+		sendTests(Collections.singletonList(method), exchange);
+	}
+
+	private HttpExchange awaitParkedRequest() {
+		try {
+			return parkedRequests.poll(getConfig().getTestTimeout(), TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -166,89 +277,138 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 	}
 
 	/**
-	 * Notifies this browser that there are no more tests to execute. This method blocks until this browser attempts to pick up a new test by
-	 * calling awaitNewTestReady(). If the browser does not attempt to pick up a new test within the timeout specified in
-	 * DriverConfiguration.getTestTimeout(), then the browser is assumed to be dead.
+	 * Notifies this browser that there are no more tests to execute. This method blocks until this browser asks for a new test. If the
+	 * browser does not ask for a new test within the timeout specified in DriverConfiguration.getTestTimeout(), then the browser is assumed
+	 * to be dead.
 	 */
 	@Override
 	public void notifyNoMoreTests() {
 		if (this.isDead) {
 			return;
 		}
-		try {
-			if (getConfig().isDebugEnabled()) {
-				System.out.println("Browser " + this.id + " has been notified that no more tests are coming");
-			}
-			exchanger.exchange(null, getConfig().getTestTimeout(), TimeUnit.SECONDS);
-		}
-		catch (InterruptedException e) {
-			throw new RuntimeException(e);
+		if (getConfig().isDebugEnabled()) {
+			System.out.println("Browser " + this.id + " has been notified that no more tests are coming");
 		}
-		catch (TimeoutException e) {
+		HttpExchange exchange = awaitParkedRequest();
+		if (exchange == null) {
 			// the browser failed to pick up the test in time.
 			this.markAsDead();
+			return;
 		}
+		sendTests(null, exchange);
 	}
 
 	/**
-	 * Returns the test is currently being executed by this browser.
+	 * Tells the browser that there are no more tests in response to its parked request, if any. Called when the HTTP server stops, for the
+	 * requests that nobody completed, like the one of a browser declared dead.
 	 */
-	public MultiTestMethod getMethodUnderExecution() {
-		return methodUnderExecution;
+	public void releaseParkedRequest() {
+		if (pool != null) {
+			HttpExchange exchange = pool.takeParkedRequest(this);
+			if (exchange != null) {
+				sendTests(null, exchange);
+			}
+			return;
+		}
+		for (HttpExchange exchange = parkedRequests.poll(); exchange != null; exchange = parkedRequests.poll()) {
+			sendTests(null, exchange);
+		}
 	}
 
 	/**
-	 * Writes to the HTTP response the HTML and/or javascript code that is necessary for the browser to execute the specified test.
-	 *
-	 * @param meth     The test to send to the browser
-	 * @param exchange contains the HTTP response that must be written to
+	 * Returns the tests that are currently being executed by this browser.
 	 */
-	public void sendTestFixture(MultiTestMethod meth, HttpExchange exchange) throws Exception {
-		TestClassAttributes attr = testClasses.getAttributes(meth.getTestClass());
-		final Test test = meth.getMethod().getAnnotation(Test.class);
-
-		StringBuilder resp = new StringBuilder(8192);
-		resp.append("<html>\n");
-		resp.append("<head>\n");
-		appendScriptTag(resp, httpPath(new URI("webjar:/stjs.js")));
-		appendScriptTag(resp, "/junit.js");
+	public List<MultiTestMethod> getMethodsUnderExecution() {
+		return methodsUnderExecution.get();
+	}
 
-		resp.append("<script language='javascript'>stjs.mainCallDisabled=true;</script>\n");
+	/**
+	 * Reports the results of the specified tests, in the same order, unless this browser was declared dead while executing them, in which
+	 * case the tests were already failed.
+	 */
+	public void notifyExecutionResults(List<MultiTestMethod> methods, List<TestResult> results) {
+		if (methodsUnderExecution.compareAndSet(methods, null)) {
+			for (int i = 0; i < methods.size(); ++i) {
+				methods.get(i).notifyExecutionResult(results.get(i));
+			}
+		}
+	}
 
-		// scripts added explicitly
-		for (String script : attr.getScripts()) {
-			appendScriptTag(resp, script);
+	/**
+	 * Reads the results of the tests executed in the last page from the parameters of the specified HTTP request, posted by the start
+	 * page. The results of a batch are reported in the "count" parameter and the "result", "location", "isAssert" and "timing" parameters
+	 * suffixed by the index of each test, that are read with buildResult(). A test without result is failed.
+	 *
+	 * @param expectedCount the number of tests that were executed
+	 */
+	public List<TestResult> buildResults(Map<String, String> parameters, HttpExchange exchange, int expectedCount) {
+		List<TestResult> results = new ArrayList<TestResult>(expectedCount);
+		String count = parameters.get("count");
+		if (count == null) {
+			// a single result, reported by a start page that does not batch the tests
+			results.add(buildResult(parameters, exchange));
+		} else {
+			int n = Math.min(Integer.parseInt(count), expectedCount);
+			for (int i = 0; i < n; ++i) {
+				Map<String, String> resultParameters = new HashMap<String, String>();
+				resultParameters.put("result", parameters.get("result" + i));
+				resultParameters.put("location", parameters.get("location" + i));
+				resultParameters.put("isAssert", parameters.get("isAssert" + i));
+				resultParameters.put("timing", parameters.get("timing" + i));
+				results.add(buildResult(resultParameters, exchange));
+			}
 		}
-		// scripts before - new style
-		for (String script : attr.getScriptsBefore()) {
-			appendScriptTag(resp, script);
+		while (results.size() < expectedCount) {
+			results.add(new TestResult(exchange.getRequestHeaders().getFirst("User-Agent"),
+					"The browser loaded a new page before reporting the result of the test", "", false));
 		}
+		addPageLoad(results);
+		return results;
+	}
 
-		Set<URI> jsUris = new LinkedHashSet<>();
-		for (ClassWithJavascript dep : attr.getDependencies()) {
-
-			if (!attr.getScripts().isEmpty() && dep instanceof BridgeClass) {
-				// bridge dependencies are not added when using @Scripts
-				System.out.println(
-						"WARNING: You're using @Scripts deprecated annotation that disables the automatic inclusion of the Javascript files of "
-								+ "the bridges you're using! " + "Please consider using @ScriptsBefore and/or @ScriptsAfter instead.");
-				continue;
-			}
-			for (URI file : dep.getJavascriptFiles()) {
-				jsUris.add(file);
+	/**
+	 * The browser measures the time it spends on the tests with its own clock. The rest of the time elapsed since the page was sent is
+	 * spent loading the page, and is added to the timing of the first test.
+	 */
+	private void addPageLoad(List<TestResult> results) {
+		long measured = 0;
+		for (TestResult result : results) {
+			if (result.getTiming() == null) {
+				return;
 			}
+			measured += result.getTiming().getMeasured();
 		}
+		long pageLoad = Math.max(0, System.currentTimeMillis() - testPickupTime - measured);
+		results.set(0, results.get(0).withTiming(results.get(0).getTiming().withPageLoad(pageLoad)));
+	}
 
-		for (URI uri : jsUris) {
-			appendScriptTag(resp, httpPath(uri));
-		}
+	long getTestPickupTime() {
+		return testPickupTime;
+	}
 
-		// scripts after - new style
-		for (String script : attr.getScriptsAfter()) {
-			appendScriptTag(resp, script);
+	boolean hasRequestedTests() {
+		return requestedTests;
+	}
+
+	/**
+	 * Writes to the HTTP response the HTML and/or javascript code that is necessary for the browser to execute the specified tests. Each test
+	 * is executed on a new instance of the test class, and the html fixture is restored between the tests.
+	 *
+	 * @param methods  The tests to send to the browser, all of the same class
+	 * @param exchange contains the HTTP response that must be written to
+	 */
+	public void sendTestFixture(List<MultiTestMethod> methods, HttpExchange exchange) throws Exception {
+		MultiTestMethod firstMethod = methods.get(0);
+		TestClass testClass = firstMethod.getTestClass();
+		TestClassAttributes attr = testClasses.getAttributes(testClass);
+
+		String fixtureHead = testClasses.getFixtureHead(testClass);
+		if (fixtureHead == null) {
+			fixtureHead = testClasses.putFixtureHead(testClass, renderFixtureHead(attr));
 		}
+		StringBuilder resp = new StringBuilder(fixtureHead.length() + 4096);
+		resp.append(fixtureHead);
 
-		resp.append("<script language='javascript'>\n");
 		if (getConfig().isDebugJavaScript()) {
 			resp.append(" function runTest() {\n");
 			resp.append("    (elem=document.getElementById('startSection')).parentNode.removeChild(elem);\n");
@@ -260,44 +420,30 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 		// Adapter between generated assert (not global) and JS-test-driver assert (which is a
 		// set of global methods)
 		resp.append("    Assert=window;\n");
-		resp.append("    try{\n");
-
-		String testedClassName = attr.getStjsClass().getJavascriptClassName();
-		resp.append("        parent.startingTest('" + testedClassName + "', '" + meth.getName() + "');\n");
-		resp.append("        var stjsTest = new " + testedClassName + "();\n");
-		resp.append("        var stjsResult = 'OK';\n");
-
-		String expectedExceptionConstructor = "null";
-		if (test.expected() != Test.None.class) {
-			ClassWithJavascript exceptionClass = getConfig().getStjsClassResolver().resolve(test.expected().getName());
-			expectedExceptionConstructor = exceptionClass.getJavascriptClassName();
-		}
-		resp.append("        var expectedException = " + expectedExceptionConstructor + ";\n");
-
-		// call before methods
-		for (FrameworkMethod beforeMethod : attr.getBeforeMethods()) {
-			resp.append("      stjsTest." + beforeMethod.getName() + "();\n");
-		}
-		// call the test's method
-		resp.append("      stjsTest." + meth.getName() + "();\n");
-		resp.append("      if(expectedException){\n");
-		resp.append("        stjsResult = 'Expected an exception, but none was thrown';\n");
-		resp.append("      }\n");
-		resp.append("    }catch(ex){\n");
-
-		// an exception was caught while executing the test method
-		resp.append("      if(!expectedException){\n");
-		resp.append("        stjsResult = ex;\n");
-		resp.append("      } else if (!stjs.isInstanceOf(ex.constructor,expectedException)){\n");
-		resp.append("        stjsResult = ex;\n");
-		resp.append("      }\n");
-		resp.append("    }finally{\n");
-		// call after methods
-		for (FrameworkMethod afterMethod : attr.getAfterMethods()) {
-			resp.append("     stjsTest." + afterMethod.getName() + "();\n");
+		resp.append("    var stjsScriptsTime = new Date().getTime() - stjsPageStart;\n");
+		if (methods.size() == 1) {
+			resp.append("    var stjsResult = stjsRunTest('" + firstMethod.getName() + "', " + getExpectedException(firstMethod)
+					+ ", stjsScriptsTime);\n");
+			resp.append("    parent.reportResultAndRunNextTest(stjsResult, stjsResult.location, stjsTiming);\n");
+		} else {
+			resp.append("    var stjsTests = [\n");
+			for (int i = 0; i < methods.size(); ++i) {
+				MultiTestMethod method = methods.get(i);
+				resp.append("      ['" + method.getName() + "', " + getExpectedException(method) + "]");
+				resp.append(i < methods.size() - 1 ? ",\n" : "\n");
+			}
+			resp.append("    ];\n");
+			// each test starts with the html fixture, like in its own page
+			resp.append("    var stjsFixture = document.body.innerHTML;\n");
+			resp.append("    for(var i = 0; i < stjsTests.length; ++i){\n");
+			resp.append("      if(i > 0){\n");
+			resp.append("        document.body.innerHTML = stjsFixture;\n");
+			resp.append("      }\n");
+			resp.append("      var stjsResult = stjsRunTest(stjsTests[i][0], stjsTests[i][1], i == 0 ? stjsScriptsTime : 0);\n");
+			resp.append("      parent.reportResult(stjsResult, stjsResult.location, stjsTiming);\n");
+			resp.append("    }\n");
+			resp.append("    parent.runNextTests();\n");
 		}
-		resp.append("      parent.reportResultAndRunNextTest(stjsResult, stjsResult.location);\n");
-		resp.append("     }\n");
 		resp.append("  }\n");
 		resp.append("</script>\n");
 		resp.append("</head>\n");
@@ -311,19 +457,16 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 			resp.append("    <li>Start the test</li>\n");
 			resp.append("  </ul>\n");
 			resp.append("  <button onclick='runTest()'>\n");
-			resp.append("    Start " + attr.getStjsClass().getJavaClass().getSimpleName() + "." + meth.getName() + "\n");
+			resp.append("    Start " + attr.getStjsClass().getJavaClass().getSimpleName() + "." + firstMethod.getName() + "\n");
 			resp.append("  </button>\n");
 			resp.append("</div>\n");
 		}
 		if (attr.getHtmlFixture() != null) {
-			if (!Strings.isNullOrEmpty(attr.getHtmlFixture().value())) {
-				resp.append(attr.getHtmlFixture().value());
-
-			} else if (!Strings.isNullOrEmpty(attr.getHtmlFixture().url())) {
-				StringWriter writer = new StringWriter();
-				getConfig().getResource(attr.getHtmlFixture().url()).copyTo(writer);
-				resp.append(writer.toString());
+			String htmlFixture = testClasses.getHtmlFixture(testClass);
+			if (htmlFixture == null) {
+				htmlFixture = testClasses.putHtmlFixture(testClass, loadHtmlFixture(attr));
 			}
+			resp.append(htmlFixture);
 		}
 		resp.append("</body>\n");
 		resp.append("</html>\n");
@@ -331,16 +474,89 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 		sendResponse(resp.toString(), exchange);
 	}
 
-	protected String httpPath(URI uri) {
-		if ("webjar".equals(uri.getScheme())) {
-			return "/webjars" + uri.getPath();
+	/**
+	 * @return the start of the test page of a class: the scripts it needs and the function that runs one of its tests.
+	 *         It is the same for all the tests of the class, so it is rendered once and cached.
+	 */
+	private String renderFixtureHead(TestClassAttributes attr) throws Exception {
+		StringBuilder resp = new StringBuilder(8192);
+		resp.append("<html>\n");
+		resp.append("<head>\n");
+		resp.append("<script language='javascript'>var stjsPageStart = new Date().getTime();</script>\n");
+		appendScriptTag(resp, httpPath(new URI("webjar:/stjs.js")));
+		appendScriptTag(resp, "/junit.js");
 
-		} else if ("classpath".equals(uri.getScheme())) {
-			return uri.getPath();
+		resp.append("<script language='javascript'>stjs.mainCallDisabled=true;</script>\n");
+
+		for (String script : getScripts(attr)) {
+			appendScriptTag(resp, script);
 		}
 
-		// all the other cases (.war packaging, old .jar packaging)
-		return uri.toString();
+		String testedClassName = attr.getStjsClass().getJavascriptClassName();
+
+		resp.append("<script language='javascript'>\n");
+		// runs one test on a new instance of the test class and returns its result. The time spent on each phase is
+		// left in stjsTiming, as "scripts,before,test,after" in milliseconds
+		resp.append("  var stjsTiming = null;\n");
+		resp.append("  function stjsRunTest(methodName, expectedException, scriptsTime){\n");
+		resp.append("    var stjsTest = null;\n");
+		resp.append("    var stjsResult = 'OK';\n");
+		resp.append("    var stjsTimes = [new Date().getTime()];\n");
+		resp.append("    try{\n");
+		resp.append("      parent.startingTest('" + testedClassName + "', methodName);\n");
+		resp.append("      stjsTest = new " + testedClassName + "();\n");
+		// call before methods
+		for (FrameworkMethod beforeMethod : attr.getBeforeMethods()) {
+			resp.append("      stjsTest." + beforeMethod.getName() + "();\n");
+		}
+		// call the test's method
+		resp.append("      stjsTimes.push(new Date().getTime());\n");
+		resp.append("      stjsTest[methodName]();\n");
+		resp.append("      if(expectedException){\n");
+		resp.append("        stjsResult = 'Expected an exception, but none was thrown';\n");
+		resp.append("      }\n");
+		resp.append("    }catch(ex){\n");
+
+		// an exception was caught while executing the test method
+		resp.append("      if(!expectedException){\n");
+		resp.append("        stjsResult = ex;\n");
+		resp.append("      } else if (!stjs.isInstanceOf(ex.constructor,expectedException)){\n");
+		resp.append("        stjsResult = ex;\n");
+		resp.append("      }\n");
+		resp.append("    }\n");
+		// the phases that were not reached take no time
+		resp.append("    while(stjsTimes.length < 3){\n");
+		resp.append("      stjsTimes.push(new Date().getTime());\n");
+		resp.append("    }\n");
+		// call after methods. An exception thrown there must not prevent the next tests from running
+		resp.append("    if(stjsTest){\n");
+		resp.append("      try{\n");
+		for (FrameworkMethod afterMethod : attr.getAfterMethods()) {
+			resp.append("        stjsTest." + afterMethod.getName() + "();\n");
+		}
+		resp.append("      }catch(ex){\n");
+		resp.append("        if(stjsResult == 'OK'){\n");
+		resp.append("          stjsResult = ex;\n");
+		resp.append("        }\n");
+		resp.append("      }\n");
+		resp.append("    }\n");
+		resp.append("    stjsTimes.push(new Date().getTime());\n");
+		resp.append("    stjsTiming = scriptsTime + ',' + (stjsTimes[1] - stjsTimes[0]) + ',' + (stjsTimes[2] - stjsTimes[1]) + ','\n");
+		resp.append("        + (stjsTimes[3] - stjsTimes[2]);\n");
+		resp.append("    return stjsResult;\n");
+		resp.append("  }\n");
+		return resp.toString();
+	}
+
+	private String loadHtmlFixture(TestClassAttributes attr) throws Exception {
+		if (!Strings.isNullOrEmpty(attr.getHtmlFixture().value())) {
+			return attr.getHtmlFixture().value();
+		}
+		StringWriter writer = new StringWriter();
+		if (!Strings.isNullOrEmpty(attr.getHtmlFixture().url())) {
+			getConfig().getResource(attr.getHtmlFixture().url()).copyTo(writer);
+		}
+		return writer.toString();
 	}
 
 	/**
@@ -350,12 +566,23 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 	 * @param exchange contains the HTTP response that must be written to
 	 */
 	public void sendNoMoreTestFixture(HttpExchange exchange) throws IOException {
+		if (agentLease != null) {
+			// the browser waits for the next session in the lobby of the agent
+			releaseToAgent();
+			String lobbyUrl = JUnitSession.getInstance().getDependency(BrowserAgentClient.class).getLobbyUrl(agentLease);
+			sendResponse("<html><head><script language='javascript'>top.location.href='" + lobbyUrl
+					+ "';</script></head><body><h1>Tests completed!</h1></body></html>", exchange);
+			return;
+		}
 		sendResponse("<html><body><h1>Tests completed!</h1></body></html>", exchange);
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public Set<Class<? extends AsyncProcess>> getSharedDependencies() {
+		if (usesBrowserAgent()) {
+			return processSet(HttpLongPollingServer.class, BrowserAgentClient.class);
+		}
 		return processSet(HttpLongPollingServer.class);
 	}
 
@@ -365,14 +592,32 @@ public abstract class LongPollingBrowser extends AbstractBrowser {
 
 	public void markAsDead(Throwable throwable, String userAgent) {
 		this.isDead = true;
-		this.methodUnderExecution.notifyExecutionResult(TestResult.deadBrowser(userAgent, throwable.getMessage()));
+		List<MultiTestMethod> methods = this.methodsUnderExecution.getAndSet(null);
+		if (methods != null) {
+			for (MultiTestMethod method : methods) {
+				method.notifyExecutionResult(TestResult.deadBrowser(userAgent, throwable.getMessage()));
+			}
+		}
 	}
 
-	public long getId() {
-		return this.id;
+	/**
+	 * Called by the pool of this browser when the tests under execution take more time than the test timeout.
+	 */
+	void markAsTimedOut() {
+		this.isDead = true;
+		List<MultiTestMethod> methods = this.methodsUnderExecution.getAndSet(null);
+		if (methods != null) {
+			for (MultiTestMethod method : methods) {
+				this.reportAsDead(method);
+			}
+		}
 	}
 
-	private static class TestClassCache {
+	public boolean isDead() {
+		return this.isDead;
+	}
 
+	public long getId() {
+		return this.id;
 	}
 }
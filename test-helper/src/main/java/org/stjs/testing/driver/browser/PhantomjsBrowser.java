@@ -7,17 +7,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import org.junit.runners.model.InitializationError;
 import org.openqa.selenium.browserlaunchers.locators.BrowserInstallation;
-import org.openqa.selenium.browserlaunchers.locators.SingleBrowserLocator;
-import org.stjs.testing.driver.AsyncProcess;
+import org.stjs.testing.driver.BrowserAgent;
 import org.stjs.testing.driver.DriverConfiguration;
-import org.stjs.testing.driver.HttpLongPollingServer;
 import org.stjs.testing.driver.TestResult;
+import org.stjs.testing.driver.TestTiming;
 
 import com.sun.net.httpserver.HttpExchange;
 
@@ -35,6 +32,11 @@ public class PhantomjsBrowser extends LongPollingBrowser {
 	@Override
 	public void doStart() throws InitializationError {
 		this.registerWithLongPollingServer();
+		if (usesBrowserAgent()) {
+			// the agent starts phantomjs with its own bootstrap. Between two sessions, phantomjs asks the agent for its next lease
+			leaseFromAgent(BrowserAgent.BrowserKind.PHANTOMJS, getStartPageUrl(getId(), false));
+			return;
+		}
 		try {
 			// We first need to extract phantomjs-bootstrap.js to the temp directory, because phantomjs
 			// can only be started with a file on the local filesystem as argument
@@ -42,7 +44,7 @@ public class PhantomjsBrowser extends LongPollingBrowser {
 
 			String executableName = getConfig().getProperty(PROP_PHANTOMJS_BIN);
 			if (executableName == null) {
-				BrowserInstallation installation = new Locator().findBrowserLocation();
+				BrowserInstallation installation = new PhantomjsLocator().findBrowserLocation();
 				if (installation == null) {
 					throw new InitializationError( //
 							"phantomjs could not be found in the path!\n"
@@ -69,7 +71,13 @@ public class PhantomjsBrowser extends LongPollingBrowser {
 
 	@Override
 	public void sendNoMoreTestFixture(HttpExchange exchange) throws IOException {
-		byte[] response = "<html><head><script language='javascript'>parent.phantom.exit()</script></head></html>"
+		// phantomjs exits, unless it waits for its next session
+		String script = "parent.phantom.exit()";
+		if (getAgentLease() != null) {
+			releaseToAgent();
+			script = "parent.waitForLease('" + getAgentLease() + "')";
+		}
+		byte[] response = ("<html><head><script language='javascript'>" + script + "</script></head></html>")
 				.getBytes("UTF-8");
 		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
 
@@ -78,10 +86,17 @@ public class PhantomjsBrowser extends LongPollingBrowser {
 		output.flush();
 	}
 
+	@Override
+	protected BrowserAgent.BrowserKind getAgentBrowserKind() {
+		return BrowserAgent.BrowserKind.PHANTOMJS;
+	}
+
 	@Override
 	public void stop() {
-		// phantomJS automatically stops when the noMoreTests fixture is sent
-		tempBootstrapJs.delete();
+		// phantomJS automatically stops when the noMoreTests fixture is sent. The agent has a bootstrap of its own
+		if (tempBootstrapJs != null) {
+			tempBootstrapJs.delete();
+		}
 	}
 
 	private File unpackBootstrap() throws IOException {
@@ -104,52 +119,12 @@ public class PhantomjsBrowser extends LongPollingBrowser {
 		String result = queryStringParameters.get("result");
 		String location = queryStringParameters.get("location");
 		String isAssert = queryStringParameters.get("isAssert");
+		TestTiming timing = TestTiming.parse(queryStringParameters.get("timing"));
 
 		if (getConfig().isDebugEnabled()) {
 			System.out.println("Result was: " + result + ", at " + location + ", from " + userAgent);
 		}
 
-		return new TestResult(userAgent, result, location, "true".equals(isAssert));
-	}
-
-	@Override
-	public Set<Class<? extends AsyncProcess>> getSharedDependencies() {
-		Set<Class<? extends AsyncProcess>> dep = new HashSet<Class<? extends AsyncProcess>>();
-		dep.add(HttpLongPollingServer.class);
-		return dep;
-	}
-
-	private static class Locator extends SingleBrowserLocator {
-
-		@Override
-		protected String[] standardlauncherFilenames() {
-			return new String[] { "phantomjs", "phantomjs.exe" };
-		}
-
-		@Override
-		protected String[] usualLauncherLocations() {
-			// phantomjs doesn't have a proper installer, so there really isn't any usual
-			// location where it would be. Except maybe on linux versions that use package
-			// managers
-			return new String[] { "/usr/bin" };
-		}
-
-		@Override
-		protected String seleniumBrowserName() {
-			// not useful in stjs, but required by selenium
-			return "phantomjs";
-		}
-
-		@Override
-		protected String browserPathOverridePropertyName() {
-			// not useful in stjs, but required by selenium
-			return "phantomjs";
-		}
-
-		@Override
-		protected String browserName() {
-			// not useful in stjs, but required by selenium
-			return "phantomjs";
-		}
+		return new TestResult(userAgent, result, location, "true".equals(isAssert), timing);
 	}
 }
@@ -0,0 +1,41 @@
+package org.stjs.testing.driver.browser;
+
+import org.openqa.selenium.browserlaunchers.locators.SingleBrowserLocator;
+
+/**
+ * Finds phantomjs in the path. It is also used by the {@link org.stjs.testing.driver.BrowserAgent}, so it only depends
+ * on selenium.
+ */
+public class PhantomjsLocator extends SingleBrowserLocator {
+
+	@Override
+	protected String[] standardlauncherFilenames() {
+		return new String[] { "phantomjs", "phantomjs.exe" };
+	}
+
+	@Override
+	protected String[] usualLauncherLocations() {
+		// phantomjs doesn't have a proper installer, so there really isn't any usual
+		// location where it would be. Except maybe on linux versions that use package
+		// managers
+		return new String[] { "/usr/bin" };
+	}
+
+	@Override
+	protected String seleniumBrowserName() {
+		// not useful in stjs, but required by selenium
+		return "phantomjs";
+	}
+
+	@Override
+	protected String browserPathOverridePropertyName() {
+		// not useful in stjs, but required by selenium
+		return "phantomjs";
+	}
+
+	@Override
+	protected String browserName() {
+		// not useful in stjs, but required by selenium
+		return "phantomjs";
+	}
+}
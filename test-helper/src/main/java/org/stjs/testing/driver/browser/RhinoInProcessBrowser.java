@@ -0,0 +1,332 @@
+package org.stjs.testing.driver.browser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.TestClass;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptStackElement;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.stjs.testing.driver.AsyncProcess;
+import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.MultiTestMethod;
+import org.stjs.testing.driver.TestClassAttributes;
+import org.stjs.testing.driver.TestClassAttributesRepository;
+import org.stjs.testing.driver.TestResult;
+import org.stjs.testing.driver.TestTiming;
+
+/**
+ * This browser executes the tests inside the virtual machine with the Rhino Javascript engine, in the JUnit thread: there
+ * is no HTTP server and no page load in between. Unlike {@link RhinoBrowser}, there is no DOM either, so the tests of the
+ * classes that have an HTML fixture fail and must be executed by a real browser.<br>
+ * <br>
+ * The scripts are compiled once per session. stjs.js, junit.js and the scripts needed by a test class are executed once
+ * in a scope shared by all the tests of the class, and each test is executed on a new instance of the class - like the
+ * tests batched in one page by the other browsers. An {@link org.stjs.testing.annotation.Isolated} test gets a scope of
+ * its own. A test that runs longer than DriverConfiguration.getTestTimeout() is interrupted.
+ */
+public class RhinoInProcessBrowser extends AbstractBrowser {
+	private static final String DEADLINE = "stjs.test.deadline";
+	private static final int INSTRUCTION_OBSERVER_THRESHOLD = 10000;
+	private static final Object[] NO_ARGS = new Object[0];
+
+	/**
+	 * the globals that the tests expect from a browser window. junit.js creates an element when it is loaded.
+	 */
+	private static final String BOOTSTRAP = "var window = this;\n" //
+			+ "var Assert = this;\n" //
+			+ "function print(message) {java.lang.System.out.println(message);}\n" //
+			+ "var console = {log: print, info: print, warn: print, error: print};\n" //
+			+ "var document = {createElement: function() {\n" //
+			+ "  return {appendChild: function() {throw new Error('There is no DOM');}, removeChild: function() {}};\n" //
+			+ "}};\n";
+
+	private final TestClassAttributesRepository testClasses;
+	private final ContextFactory contextFactory = new TimedContextFactory();
+	private final Map<String, Script> compiledScripts = new ConcurrentHashMap<String, Script>();
+	private TestClass currentClass;
+	private Scriptable currentScope;
+	private String userAgent;
+
+	public RhinoInProcessBrowser(DriverConfiguration config) {
+		super(config);
+		testClasses = config.getTestClasses();
+	}
+
+	@Override
+	public void start() throws InitializationError {
+		Context cx = contextFactory.enterContext();
+		try {
+			userAgent = cx.getImplementationVersion() + " (in-process)";
+		}
+		finally {
+			Context.exit();
+		}
+	}
+
+	/**
+	 * Executes the specified test right away. This method returns when the result of the test is reported.
+	 */
+	@Override
+	public synchronized void executeTest(MultiTestMethod method) {
+		Context cx = contextFactory.enterContext();
+		try {
+			method.notifyExecutionResult(runTest(cx, method));
+		}
+		finally {
+			cx.removeThreadLocal(DEADLINE);
+			Context.exit();
+		}
+	}
+
+	private TestResult runTest(Context cx, MultiTestMethod method) {
+		TestClassAttributes attr = testClasses.getAttributes(method.getTestClass());
+		if (attr.getHtmlFixture() != null) {
+			return new TestResult(userAgent, "There is no DOM for the HTML fixture of the test in " + getClass().getSimpleName()
+					+ ", execute it in a browser", "", false);
+		}
+
+		long start = System.currentTimeMillis();
+		Scriptable scope;
+		try {
+			scope = getScope(cx, method, attr);
+		}
+		catch (RhinoException e) {
+			return buildResult(e);
+		}
+		catch (IOException e) {
+			return new TestResult(userAgent, "Cannot load the scripts of the test: " + e.getMessage(), "", false);
+		}
+		catch (URISyntaxException e) {
+			return new TestResult(userAgent, "Cannot load the scripts of the test: " + e.getMessage(), "", false);
+		}
+
+		// the times at which the scripts are loaded, and the before methods, the test and the after methods are executed
+		long[] times = { start, System.currentTimeMillis(), 0, 0, 0 };
+		cx.putThreadLocal(DEADLINE, times[1] + TimeUnit.SECONDS.toMillis(getConfig().getTestTimeout()));
+		String expectedException = getExpectedException(method);
+		boolean expectedExceptionMissing = false;
+		RhinoException error = null;
+		Scriptable test = null;
+		try {
+			test = (Scriptable) cx.evaluateString(scope, "new " + attr.getStjsClass().getJavascriptClassName() + "()",
+					method.getName(), 1, null);
+			for (FrameworkMethod beforeMethod : attr.getBeforeMethods()) {
+				ScriptableObject.callMethod(cx, test, beforeMethod.getName(), NO_ARGS);
+			}
+			times[2] = System.currentTimeMillis();
+			ScriptableObject.callMethod(cx, test, method.getName(), NO_ARGS);
+			expectedExceptionMissing = !"null".equals(expectedException);
+		}
+		catch (RhinoException e) {
+			if (!isExpected(cx, scope, e, expectedException)) {
+				error = e;
+			}
+		}
+		catch (TestTimeoutError e) {
+			return timedOut(method);
+		}
+		times[3] = System.currentTimeMillis();
+		if (times[2] == 0) {
+			// the test was not reached, the time was spent in the before methods
+			times[2] = times[3];
+		}
+
+		if (test != null) {
+			try {
+				for (FrameworkMethod afterMethod : attr.getAfterMethods()) {
+					ScriptableObject.callMethod(cx, test, afterMethod.getName(), NO_ARGS);
+				}
+			}
+			catch (RhinoException e) {
+				if (error == null && !expectedExceptionMissing) {
+					error = e;
+				}
+			}
+			catch (TestTimeoutError e) {
+				return timedOut(method);
+			}
+		}
+
+		times[4] = System.currentTimeMillis();
+
+		TestResult result;
+		if (error != null) {
+			result = buildResult(error);
+		} else if (expectedExceptionMissing) {
+			result = new TestResult(userAgent, "Expected an exception, but none was thrown", "", false);
+		} else {
+			result = new TestResult(userAgent, "OK", "", false);
+		}
+		// there is no page to load
+		return result.withTiming(new TestTiming(0, times[1] - times[0], times[2] - times[1], times[3] - times[2], times[4] - times[3]));
+	}
+
+	/**
+	 * the state left by an interrupted test cannot be trusted: the scripts will be loaded again for the next test
+	 */
+	private TestResult timedOut(MultiTestMethod method) {
+		currentClass = null;
+		currentScope = null;
+		return new TestResult(userAgent, "The test " + method.getName() + " did not finish within " + getConfig().getTestTimeout()
+				+ " seconds", "", false);
+	}
+
+	/**
+	 * @return the scope shared by the tests of the class of the given test, or a new scope if the test is isolated
+	 */
+	private Scriptable getScope(Context cx, MultiTestMethod method, TestClassAttributes attr) throws IOException,
+			URISyntaxException {
+		if (method.isIsolated()) {
+			return loadScripts(cx, attr);
+		}
+		if (currentClass != method.getTestClass()) {
+			currentClass = null;
+			currentScope = loadScripts(cx, attr);
+			currentClass = method.getTestClass();
+		}
+		return currentScope;
+	}
+
+	private Scriptable loadScripts(Context cx, TestClassAttributes attr) throws IOException, URISyntaxException {
+		ScriptableObject scope = cx.initStandardObjects();
+		cx.evaluateString(scope, BOOTSTRAP, "bootstrap", 1, null);
+		execScript(cx, scope, httpPath(new URI("webjar:/stjs.js")));
+		execScript(cx, scope, "/junit.js");
+		cx.evaluateString(scope, "stjs.mainCallDisabled=true;", "bootstrap", 1, null);
+		for (String script : getScripts(attr)) {
+			// remove wrong leading classpath://, like in the script tags
+			execScript(cx, scope, script.replace("classpath://", "/"));
+		}
+		return scope;
+	}
+
+	private void execScript(Context cx, Scriptable scope, String path) throws IOException, URISyntaxException {
+		Script script = compiledScripts.get(path);
+		if (script == null) {
+			StringWriter source = new StringWriter();
+			if (!getConfig().getResource(path).copyTo(source)) {
+				throw new IOException(path + " was not found in classpath");
+			}
+			script = cx.compileString(source.toString(), path, 1, null);
+			compiledScripts.put(path, script);
+		}
+		script.exec(cx, scope);
+	}
+
+	/**
+	 * @return true if the exception is an instance of the exception expected by the test
+	 */
+	private boolean isExpected(Context cx, Scriptable scope, RhinoException e, String expectedException) {
+		if ("null".equals(expectedException) || !(e instanceof JavaScriptException)) {
+			return false;
+		}
+		Object value = ((JavaScriptException) e).getValue();
+		if (!(value instanceof Scriptable)) {
+			return false;
+		}
+		Object constructor = ScriptableObject.getProperty((Scriptable) value, "constructor");
+		Object expected = cx.evaluateString(scope, expectedException, "expected", 1, null);
+		Scriptable stjs = (Scriptable) ScriptableObject.getProperty(scope, "stjs");
+		return Context.toBoolean(ScriptableObject.callMethod(cx, stjs, "isInstanceOf", new Object[] { constructor, expected }));
+	}
+
+	/**
+	 * Builds the result of a failed test. The location is written like the stack traces of Firefox, that are understood by
+	 * JavascriptToJava.
+	 */
+	private TestResult buildResult(RhinoException e) {
+		String message;
+		if (e instanceof JavaScriptException) {
+			message = Context.toString(((JavaScriptException) e).getValue());
+		} else if (e instanceof EcmaError) {
+			message = ((EcmaError) e).getName() + ": " + ((EcmaError) e).getErrorMessage();
+		} else {
+			message = e.details();
+		}
+
+		ScriptStackElement[] stack = e.getScriptStack();
+		StringBuilder location = new StringBuilder();
+		for (ScriptStackElement element : stack) {
+			if (location.length() > 0) {
+				location.append(';');
+			}
+			location.append(element.functionName != null ? element.functionName : "anonymous");
+			location.append('@').append(toUrl(element.fileName)).append(':').append(element.lineNumber);
+		}
+		// the assertions of junit.js throw errors
+		boolean isAssert = e instanceof JavaScriptException && stack.length > 0 && stack[0].fileName.endsWith("junit.js");
+
+		if (getConfig().isDebugEnabled()) {
+			System.out.println("Result was: " + message + ", at " + location + ", from " + userAgent);
+		}
+		return new TestResult(userAgent, message, location.toString(), isAssert);
+	}
+
+	private String toUrl(String path) {
+		try {
+			return new URL(getConfig().getServerURL(), path).toString();
+		}
+		catch (MalformedURLException e) {
+			return path;
+		}
+	}
+
+	@Override
+	public synchronized void notifyNoMoreTests() {
+		currentClass = null;
+		currentScope = null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<Class<? extends AsyncProcess>> getSharedDependencies() {
+		return processSet();
+	}
+
+	/**
+	 * Thrown in the JUnit thread when the test takes too long. As it is not a RhinoException, the test cannot catch it.
+	 */
+	private static class TestTimeoutError extends Error {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Creates interpreted contexts, that count the instructions they execute to check the deadline of the test. The
+	 * interpreter also compiles the scripts much faster than the class generator.
+	 */
+	private static class TimedContextFactory extends ContextFactory {
+		@Override
+		protected Context makeContext() {
+			Context cx = super.makeContext();
+			cx.setOptimizationLevel(-1);
+			cx.setLanguageVersion(Context.VERSION_1_8);
+			cx.setInstructionObserverThreshold(INSTRUCTION_OBSERVER_THRESHOLD);
+			return cx;
+		}
+
+		@Override
+		protected void observeInstructionCount(Context cx, int instructionCount) {
+			Long deadline = (Long) cx.getThreadLocal(DEADLINE);
+			if (deadline != null && System.currentTimeMillis() > deadline) {
+				throw new TestTimeoutError();
+			}
+		}
+	}
+}
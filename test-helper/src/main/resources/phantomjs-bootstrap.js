@@ -1,22 +1,87 @@
 var system = require('system');
 var browserId = system.args[1];
 var testServer = system.args[2];
+// set when phantomjs is kept alive by the browser agent between the test sessions
+var agentUrl = system.args[3];
+// the id of phantomjs in the agent and the key of its last lease, given by the session that has no more tests
+var agentLease;
 
 var iframe = document.createElement('iframe');
+iframe.name = 'tests';
 document.body.appendChild(iframe);
+// the results of a batch are posted: they would not fit in a URL
+var resultsForm = document.createElement('form');
+resultsForm.method = 'post';
+resultsForm.target = 'tests';
+document.body.appendChild(resultsForm);
 
 
-function reportResultAndRunNextTest(result, stacktrace){
-	console.error('reporting test result');
-	iframe.src = testServer + 'getNextTest' + 
-			'?browserId=' + browserId + 
-			'&result=' + result + 
-			'&location=' + stacktrace + 
-			'&rand=' + Math.random();
+var pendingResults = [];
+
+function reportResult(result, stacktrace, timing){
+	pendingResults.push({result: result, location: stacktrace, timing: timing});
+}
+
+function addResultParam(name, value){
+	var input = document.createElement('input');
+	input.type = 'hidden';
+	input.name = name;
+	input.value = value;
+	resultsForm.appendChild(input);
+}
+
+function runNextTests(){
+	console.error('reporting test results');
+	var results = pendingResults;
+	pendingResults = [];
+	resultsForm.innerHTML = '';
+	addResultParam('count', results.length);
+	for (var i = 0; i < results.length; ++i) {
+		addResultParam('result' + i, results[i].result);
+		addResultParam('location' + i, results[i].location);
+		if (results[i].timing) {
+			addResultParam('timing' + i, results[i].timing);
+		}
+	}
+	resultsForm.action = testServer + 'getNextTest?browserId=' + browserId + '&rand=' + Math.random();
+	resultsForm.submit();
+}
+
+function reportResultAndRunNextTest(result, stacktrace, timing){
+	reportResult(result, stacktrace, timing);
+	runNextTests();
 }
 
 function runFirstTest(){
-	reportResultAndRunNextTest("OK");
+	runNextTests();
+}
+
+// called instead of exiting when there are no more tests: the agent answers with the start page of the next session,
+// that tells the server and the id of this browser in that session
+function waitForLease(lease){
+	if (lease) {
+		agentLease = lease;
+	}
+	var xhr = new XMLHttpRequest();
+	xhr.onreadystatechange = function(){
+		if (xhr.readyState != 4) {
+			return;
+		}
+		if (xhr.status == 200) {
+			var startPage = xhr.responseText;
+			testServer = startPage.substring(0, startPage.indexOf('start.html'));
+			browserId = /[?&]browserId=([0-9]+)/.exec(startPage)[1];
+			runFirstTest();
+		} else if (xhr.status == 404) {
+			// the agent does not know this browser anymore
+			phantom.exit();
+		} else {
+			// the request was interrupted, or the session did not release this browser yet
+			setTimeout(waitForLease, 1000);
+		}
+	};
+	xhr.open('GET', agentUrl + 'lease?' + agentLease + '&rand=' + Math.random(), true);
+	xhr.send(null);
 }
 
 function startingTest(){
@@ -0,0 +1,337 @@
+package org.stjs.testing.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+
+public class BrowserAgentTest {
+	private static final String TOKEN = "secret";
+	private static final long WAIT_MILLIS = 10000;
+
+	private static final class Response {
+		private final int status;
+		private final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	private final ExecutorService requests = Executors.newCachedThreadPool();
+	private int port;
+	private BrowserAgent agent;
+	private ServerSocket session;
+	private File dir;
+	private File pids;
+
+	@Before
+	public void setUp() throws Exception {
+		session = new ServerSocket(0);
+		dir = Files.createTempDirectory("stjs-agent").toFile();
+		pids = new File(dir, "pids");
+		// a browser that only stays alive, the test sends the requests of its pages
+		File browser = new File(dir, "browser.sh");
+		Files.write(browser.toPath(), ("#!/bin/sh\necho $$ >> '" + pids.getPath() + "'\nexec sleep 600\n").getBytes(Charsets.UTF_8));
+		browser.setExecutable(true);
+		System.setProperty(BrowserAgent.BrowserKind.CHROME.getBinPropertyName(), browser.getPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (agent != null) {
+			agent.stop();
+		}
+		requests.shutdownNow();
+		session.close();
+		System.clearProperty(BrowserAgent.BrowserKind.CHROME.getBinPropertyName());
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	private void startAgent(int idleTimeoutSeconds, long sessionGoneGraceMillis) throws IOException {
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		agent = new BrowserAgent(port, idleTimeoutSeconds, false, TOKEN, sessionGoneGraceMillis);
+		agent.start();
+	}
+
+	private void assumeUnix() {
+		// the fake browser is a shell script
+		Assume.assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+	}
+
+	private String startPage(int browserId) {
+		return "http://localhost:" + session.getLocalPort() + "/start.html?browserId=" + browserId + "&persistent=false";
+	}
+
+	/**
+	 * sends the request on a socket, because HttpURLConnection does not send the Origin header
+	 */
+	private Response request(String method, String uri, String token, String origin) throws IOException {
+		Socket socket = new Socket("localhost", port);
+		try {
+			StringBuilder request = new StringBuilder(method + " " + uri + " HTTP/1.0\r\n");
+			if (token != null) {
+				request.append(BrowserAgent.TOKEN_HEADER + ": " + token + "\r\n");
+			}
+			if (origin != null) {
+				request.append("Origin: " + origin + "\r\n");
+			}
+			request.append("Content-Length: 0\r\n\r\n");
+			socket.getOutputStream().write(request.toString().getBytes(Charsets.UTF_8));
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8));
+			int status = Integer.parseInt(in.readLine().split(" ")[1]);
+			for (String header = in.readLine(); header != null && !header.isEmpty(); header = in.readLine()) {
+				// skip the headers
+			}
+			return new Response(status, CharStreams.toString(in));
+		}
+		finally {
+			socket.close();
+		}
+	}
+
+	private int status(String method, String uri, String token, String origin) throws IOException {
+		return request(method, uri, token, origin).status;
+	}
+
+	private String sessionUri(String uri, String kind, String url) throws IOException {
+		return uri + "?kind=" + kind + "&url=" + URLEncoder.encode(url, "UTF-8");
+	}
+
+	private String launch(String url) throws IOException {
+		Response response = request("POST", sessionUri(BrowserAgent.LAUNCH_URI, "CHROME", url), TOKEN, null);
+		assertEquals(HttpURLConnection.HTTP_OK, response.status);
+		assertTrue(response.body, response.body.matches("agentBrowserId=[0-9]+&key=[0-9a-f]{32}"));
+		return response.body;
+	}
+
+	private Response acquire(String url) throws IOException {
+		return request("POST", sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", url), TOKEN, null);
+	}
+
+	private Future<Response> lease(final String lease) {
+		return requests.submit(new Callable<Response>() {
+			@Override
+			public Response call() throws Exception {
+				return request("GET", BrowserAgent.LEASE_URI + "?" + lease, null, null);
+			}
+		});
+	}
+
+	/**
+	 * @return the process ids of the browsers started by the agent
+	 */
+	private List<String> getBrowserPids(int count) throws Exception {
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (System.currentTimeMillis() < deadline) {
+			if (pids.exists()) {
+				List<String> lines = Files.readAllLines(pids.toPath(), Charsets.UTF_8);
+				if (lines.size() >= count) {
+					return lines;
+				}
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("the agent did not start " + count + " browsers");
+	}
+
+	private boolean isRunning(String pid) throws Exception {
+		return new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+	}
+
+	private void assertStops(String pid) throws Exception {
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (isRunning(pid)) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("the browser " + pid + " is still running");
+			}
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	public void testSessionRequestsNeedTheToken() throws Exception {
+		startAgent(60, 10000);
+		assertEquals(HttpURLConnection.HTTP_OK, status("GET", BrowserAgent.STATUS_URI, null, null));
+		String acquire = sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", startPage(3));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("POST", acquire, null, null));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("POST", acquire, "wrong", null));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("POST", BrowserAgent.LAUNCH_URI, null, null));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("POST", BrowserAgent.RELEASE_URI, null, null));
+		// no browser is waiting in the lobby
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, status("POST", acquire, TOKEN, null));
+	}
+
+	@Test
+	public void testSessionRequestsMustBePosted() throws Exception {
+		startAgent(60, 10000);
+		assertEquals(HttpURLConnection.HTTP_BAD_METHOD,
+				status("GET", sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", startPage(3)), TOKEN, null));
+		assertEquals(HttpURLConnection.HTTP_BAD_METHOD, status("GET", BrowserAgent.DISPLAY_URI, TOKEN, null));
+		assertEquals(HttpURLConnection.HTTP_BAD_METHOD, status("GET", BrowserAgent.RELEASE_URI, TOKEN, null));
+	}
+
+	@Test
+	public void testRequestsOfWebPagesAreRefused() throws Exception {
+		startAgent(60, 10000);
+		String origin = "http://example.com";
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("GET", BrowserAgent.STATUS_URI, null, origin));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN,
+				status("POST", sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", startPage(3)), TOKEN, origin));
+		// the lobby page is loaded by the browsers themselves
+		assertEquals(HttpURLConnection.HTTP_OK, status("GET", BrowserAgent.LOBBY_URI + "?agentBrowserId=0&key=0", null, origin));
+	}
+
+	@Test
+	public void testOnlyKnownKindsAndStartPages() throws Exception {
+		startAgent(60, 10000);
+		assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+				status("POST", sessionUri(BrowserAgent.ACQUIRE_URI, "/bin/sh", startPage(3)), TOKEN, null));
+		assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, status("POST",
+				sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", "http://example.com/start.html?browserId=3&persistent=false"), TOKEN,
+				null));
+		assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+				status("POST", sessionUri(BrowserAgent.ACQUIRE_URI, "CHROME", startPage(3) + "&--remote-debugging-port=9222"), TOKEN,
+						null));
+		assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, status("POST", BrowserAgent.LAUNCH_URI + "?kind=CHROME", TOKEN, null));
+	}
+
+	@Test
+	public void testReleasedBrowserIsLeasedToTheNextSession() throws Exception {
+		assumeUnix();
+		startAgent(60, 10000);
+		String firstLease = launch(startPage(1));
+		String pid = getBrowserPids(1).get(0);
+		assertTrue(isRunning(pid));
+
+		// the browser is still leased to the first session
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("GET", BrowserAgent.LEASE_URI + "?" + firstLease, null, null));
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, status("POST", BrowserAgent.RELEASE_URI + "?agentBrowserId=0&key=0", TOKEN, null));
+		assertEquals(HttpURLConnection.HTTP_OK, status("POST", BrowserAgent.RELEASE_URI + "?" + firstLease, TOKEN, null));
+
+		// the lobby page waits for the next session
+		Future<Response> lobby = lease(firstLease);
+		Thread.sleep(300);
+		assertFalse(lobby.isDone());
+		Response second = acquire(startPage(2));
+		assertEquals(HttpURLConnection.HTTP_OK, second.status);
+		assertFalse(firstLease.equals(second.body));
+		Response startPage = lobby.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		assertEquals(HttpURLConnection.HTTP_OK, startPage.status);
+		assertEquals(startPage(2), startPage.body);
+
+		// the same browser process, that is not waiting anymore
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, acquire(startPage(3)).status);
+		assertEquals(1, getBrowserPids(1).size());
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("GET", BrowserAgent.LEASE_URI + "?" + firstLease, null, null));
+	}
+
+	@Test
+	public void testOtherPagesCannotTakeALease() throws Exception {
+		assumeUnix();
+		startAgent(60, 10000);
+		String lease = launch(startPage(1));
+		String leaseWithoutKey = lease.substring(0, lease.indexOf('&'));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN,
+				status("GET", BrowserAgent.LEASE_URI + "?" + leaseWithoutKey, null, "http://evil.example"));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN, status("GET", BrowserAgent.LEASE_URI + "?" + lease, null, null));
+
+		assertEquals(HttpURLConnection.HTTP_OK, status("POST", BrowserAgent.RELEASE_URI + "?" + lease, TOKEN, null));
+		assertEquals(HttpURLConnection.HTTP_FORBIDDEN,
+				status("GET", BrowserAgent.LEASE_URI + "?" + leaseWithoutKey + "&key=0123456789abcdef0123456789abcdef", null, null));
+		// no lobby page with the key is waiting
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, acquire(startPage(2)).status);
+	}
+
+	@Test
+	public void testBrowserOfAStoppedSessionIsKilled() throws Exception {
+		assumeUnix();
+		startAgent(60, 0);
+		String lease = launch(startPage(1));
+		String pid = getBrowserPids(1).get(0);
+		Thread.sleep(2500);
+		assertTrue("the session is still listening", isRunning(pid));
+
+		session.close();
+		assertStops(pid);
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, status("GET", BrowserAgent.LEASE_URI + "?" + lease, null, null));
+	}
+
+	@Test
+	public void testAgentStopsWhenNoBrowserIsLeased() throws Exception {
+		assumeUnix();
+		startAgent(1, 10000);
+		String lease = launch(startPage(1));
+		String pid = getBrowserPids(1).get(0);
+		assertEquals(HttpURLConnection.HTTP_OK, status("POST", BrowserAgent.RELEASE_URI + "?" + lease, TOKEN, null));
+
+		assertTrue(agent.awaitStop(WAIT_MILLIS));
+		assertStops(pid);
+	}
+
+	@Test
+	public void testStopKillsTheBrowsers() throws Exception {
+		assumeUnix();
+		startAgent(60, 10000);
+		launch(startPage(1));
+		String pid = getBrowserPids(1).get(0);
+
+		// also called by the shutdown hook
+		agent.stop();
+		assertTrue(agent.awaitStop(0));
+		assertStops(pid);
+	}
+
+	@Test
+	public void testTokenFile() throws Exception {
+		File file = new File(dir, BrowserAgent.TOKEN_FILE);
+		String token = BrowserAgent.loadToken(file.toPath());
+		assertEquals(64, token.length());
+		assertEquals(token, BrowserAgent.loadToken(file.toPath()));
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+
+			Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+			try {
+				BrowserAgent.loadToken(file.toPath());
+				fail("a token readable by the others was accepted");
+			}
+			catch (IOException e) {
+				assertTrue(e.getMessage().contains("chmod 600"));
+			}
+		}
+	}
+}
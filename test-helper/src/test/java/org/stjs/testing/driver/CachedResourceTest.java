@@ -0,0 +1,92 @@
+package org.stjs.testing.driver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+@SuppressWarnings("restriction")
+public class CachedResourceTest {
+	private static final byte[] LARGE = Strings.repeat("var a = 1;\n", 200).getBytes(Charsets.UTF_8);
+	private static final byte[] SMALL = "var a = 1;\n".getBytes(Charsets.UTF_8);
+
+	private final Headers requestHeaders = new Headers();
+	private final Headers responseHeaders = new Headers();
+	private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+
+	private HttpExchange exchange() {
+		HttpExchange exchange = mock(HttpExchange.class);
+		when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+		when(exchange.getResponseHeaders()).thenReturn(responseHeaders);
+		when(exchange.getResponseBody()).thenReturn(responseBody);
+		return exchange;
+	}
+
+	@Test
+	public void testEtagDependsOnTheContent() throws IOException {
+		String etag = new CachedResource(LARGE, new Date(), true).getEtag();
+		assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+		assertEquals(etag, new CachedResource(Arrays.copyOf(LARGE, LARGE.length), new Date(0), false).getEtag());
+		assertFalse(etag.equals(new CachedResource(SMALL, new Date(), true).getEtag()));
+	}
+
+	@Test
+	public void testGzipWhenAccepted() throws IOException {
+		requestHeaders.add("Accept-Encoding", "gzip, deflate");
+		HttpExchange exchange = exchange();
+		new CachedResource(LARGE, new Date(), true).sendTo(exchange);
+
+		assertEquals("gzip", responseHeaders.getFirst("Content-Encoding"));
+		assertEquals("Accept-Encoding", responseHeaders.getFirst("Vary"));
+		byte[] body = responseBody.toByteArray();
+		assertTrue(body.length < LARGE.length);
+		verify(exchange).sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+		assertArrayEquals(LARGE, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body))));
+	}
+
+	@Test
+	public void testPlainWhenGzipIsNotAccepted() throws IOException {
+		HttpExchange exchange = exchange();
+		new CachedResource(LARGE, new Date(), true).sendTo(exchange);
+
+		assertNull(responseHeaders.getFirst("Content-Encoding"));
+		// the response still depends on the encodings accepted by the browser
+		assertEquals("Accept-Encoding", responseHeaders.getFirst("Vary"));
+		assertArrayEquals(LARGE, responseBody.toByteArray());
+		verify(exchange).sendResponseHeaders(HttpURLConnection.HTTP_OK, LARGE.length);
+	}
+
+	@Test
+	public void testNoGzipForSmallOrIncompressibleContent() throws IOException {
+		requestHeaders.add("Accept-Encoding", "gzip");
+		new CachedResource(SMALL, new Date(), true).sendTo(exchange());
+		assertNull(responseHeaders.getFirst("Content-Encoding"));
+		assertNull(responseHeaders.getFirst("Vary"));
+		assertArrayEquals(SMALL, responseBody.toByteArray());
+
+		responseBody.reset();
+		new CachedResource(LARGE, new Date(), false).sendTo(exchange());
+		assertNull(responseHeaders.getFirst("Content-Encoding"));
+		assertArrayEquals(LARGE, responseBody.toByteArray());
+	}
+}
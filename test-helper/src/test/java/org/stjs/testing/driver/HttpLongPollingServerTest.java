@@ -0,0 +1,199 @@
+package org.stjs.testing.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.InitializationError;
+import org.mockito.ArgumentCaptor;
+import org.stjs.testing.driver.browser.LongPollingBrowser;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+
+@SuppressWarnings("restriction")
+public class HttpLongPollingServerTest {
+	private static final long PARKED_MILLIS = 300;
+
+	/**
+	 * a browser session that answers with the names of the tests instead of their fixture
+	 */
+	private static class FakeBrowser extends LongPollingBrowser {
+		FakeBrowser(DriverConfiguration config) {
+			super(config);
+		}
+
+		@Override
+		protected void doStart() throws InitializationError {
+			// the requests are sent by the test
+		}
+
+		@Override
+		public void sendTestFixture(List<MultiTestMethod> methods, HttpExchange exchange) throws Exception {
+			sendResponse("tests " + methods.size(), exchange);
+		}
+
+		@Override
+		public void sendNoMoreTestFixture(HttpExchange exchange) throws IOException {
+			sendResponse("no more tests", exchange);
+		}
+	}
+
+	private final ExecutorService requests = Executors.newCachedThreadPool();
+	private int port;
+	private HttpLongPollingServer server;
+	private FakeBrowser browser;
+
+	@Before
+	public void setUp() throws Exception {
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		DriverConfiguration config = mock(DriverConfiguration.class);
+		when(config.getPort()).thenReturn(port);
+		when(config.getTestTimeout()).thenReturn(10);
+		server = new HttpLongPollingServer(config);
+		server.start();
+		browser = new FakeBrowser(config);
+		server.registerBrowserSession(browser);
+	}
+
+	@After
+	public void tearDown() {
+		if (server != null) {
+			server.stop();
+		}
+		requests.shutdownNow();
+	}
+
+	private Future<String> getNextTest(final String query) {
+		return requests.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				InputStream in = new URL("http://localhost:" + port + HttpLongPollingServer.NEXT_TEST_URI + "?browserId=0" + query)
+						.openStream();
+				try {
+					return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+				}
+				finally {
+					in.close();
+				}
+			}
+		});
+	}
+
+	private Future<String> postNextTest(final String body) {
+		return requests.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port
+						+ HttpLongPollingServer.NEXT_TEST_URI + "?browserId=0").openConnection();
+				connection.setRequestMethod("POST");
+				connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+				connection.setDoOutput(true);
+				OutputStream out = connection.getOutputStream();
+				try {
+					out.write(body.getBytes(Charsets.UTF_8));
+				}
+				finally {
+					out.close();
+				}
+				InputStream in = connection.getInputStream();
+				try {
+					return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+				}
+				finally {
+					in.close();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testParkedRequestCompletesWithTheNextTest() throws Exception {
+		Future<String> first = getNextTest("");
+		Thread.sleep(PARKED_MILLIS);
+		assertFalse(first.isDone());
+
+		MultiTestMethod method = mock(MultiTestMethod.class);
+		browser.executeTest(method);
+		assertEquals("tests 1", first.get(10, TimeUnit.SECONDS));
+
+		// the next request reports the result, then waits for the next test
+		Future<String> second = getNextTest("&result=OK&isAssert=false");
+		ArgumentCaptor<TestResult> result = ArgumentCaptor.forClass(TestResult.class);
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (browser.getMethodsUnderExecution() != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		verify(method).notifyExecutionResult(result.capture());
+		assertTrue(result.getValue().isOk());
+		Thread.sleep(PARKED_MILLIS);
+		assertFalse(second.isDone());
+
+		browser.notifyNoMoreTests();
+		assertEquals("no more tests", second.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testResultsArePostedInTheBody() throws Exception {
+		Future<String> first = getNextTest("");
+		MultiTestMethod method = mock(MultiTestMethod.class);
+		browser.executeTest(method);
+		assertEquals("tests 1", first.get(10, TimeUnit.SECONDS));
+
+		// the location of a failure may not fit in a URL
+		StringBuilder location = new StringBuilder();
+		for (int i = 0; i < 1000; ++i) {
+			location.append("method").append(i).append("@http://localhost:").append(port).append("/MyTest.js:").append(i).append(';');
+		}
+		String body = "count=1&result0=expected+1+but+was+2&isAssert0=true&timing0=0%2C1%2C2%2C3&location0="
+				+ URLEncoder.encode(location.toString(), "UTF-8");
+		Future<String> second = postNextTest(body);
+		ArgumentCaptor<TestResult> result = ArgumentCaptor.forClass(TestResult.class);
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (browser.getMethodsUnderExecution() != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		verify(method).notifyExecutionResult(result.capture());
+		assertEquals("expected 1 but was 2", result.getValue().getMessage());
+		assertEquals(2, result.getValue().getTiming().getTest());
+		assertTrue(result.getValue().toString().contains(location));
+
+		browser.notifyNoMoreTests();
+		assertEquals("no more tests", second.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testParkedRequestIsReleasedOnStop() throws Exception {
+		Future<String> request = getNextTest("");
+		Thread.sleep(PARKED_MILLIS);
+		assertFalse(request.isDone());
+
+		server.stop();
+		server = null;
+		assertEquals("no more tests", request.get(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,62 @@
+package org.stjs.testing.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestShardTest {
+	private static final List<Class<?>> CLASSES = Arrays.<Class<?>> asList(TestShardTest.class, TimingReportTest.class,
+			CachedResourceTest.class, HttpLongPollingServerTest.class, TestClassAttributesTest.class, String.class,
+			Integer.class, List.class);
+
+	@Test
+	public void testParse() {
+		TestShard shard = TestShard.parse(" 3 / 8 ");
+		assertEquals(2, shard.getIndex());
+		assertEquals(8, shard.getCount());
+
+		shard = TestShard.parse("1/1");
+		assertEquals(0, shard.getIndex());
+		assertEquals(1, shard.getCount());
+	}
+
+	@Test
+	public void testParseInvalid() {
+		for (String invalid : new String[] { "0/4", "5/4", "1/0", "3", "a/4", "1/2/3", "" }) {
+			try {
+				TestShard.parse(invalid);
+				fail(invalid + " was accepted");
+			}
+			catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("stjs.test.shard"));
+			}
+		}
+	}
+
+	@Test
+	public void testEachClassIsInOneShard() {
+		for (int count = 1; count <= 5; ++count) {
+			for (Class<?> testClass : CLASSES) {
+				int shards = 0;
+				for (int index = 1; index <= count; ++index) {
+					if (TestShard.parse(index + "/" + count).contains(testClass)) {
+						shards++;
+					}
+				}
+				assertEquals(testClass + " in " + count + " shards", 1, shards);
+			}
+		}
+	}
+
+	@Test
+	public void testAllContainsEveryClass() {
+		for (Class<?> testClass : CLASSES) {
+			assertTrue(TestShard.ALL.contains(testClass));
+		}
+	}
+}
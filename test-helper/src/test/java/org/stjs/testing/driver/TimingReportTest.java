@@ -0,0 +1,122 @@
+package org.stjs.testing.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class TimingReportTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static TestResultCollection results(String className, String methodName, TestResult... results) {
+		TestResultCollection collection = new TestResultCollection(className, methodName);
+		for (TestResult result : results) {
+			collection.addResult(result);
+		}
+		return collection;
+	}
+
+	@Test
+	public void testSlowestFirst() throws IOException {
+		TimingReport report = new TimingReport();
+		report.addResults(results("a.FastTest", "test1", new TestResult("firefox", "OK", null, false, new TestTiming(5, 1, 1, 2,
+				1))));
+		report.addResults(results("a.SlowTest", "test2", new TestResult("chrome", "OK", null, false, new TestTiming(100, 20, 3,
+				40, 2)), new TestResult("say \"hi\", firefox", "OK", null, false, new TestTiming(0, 0, 1, 50, 0))));
+		assertFalse(report.isEmpty());
+
+		File file = new File(folder.getRoot(), "reports/timing.csv");
+		report.write(file);
+
+		assertEquals(Arrays.asList("class,method,browser,total,pageLoad,scripts,before,test,after", //
+				"\"a.SlowTest\",\"test2\",\"chrome\",165,100,20,3,40,2", //
+				"\"a.SlowTest\",\"test2\",\"say \"\"hi\"\", firefox\",51,0,0,1,50,0", //
+				"\"a.FastTest\",\"test1\",\"firefox\",10,5,1,1,2,1"), Files.readLines(file, Charsets.UTF_8));
+		// the next run of the session starts a new report
+		assertTrue(report.isEmpty());
+	}
+
+	@Test
+	public void testReportsAreMerged() throws IOException {
+		File file = new File(folder.getRoot(), "timing.csv");
+		TimingReport fork1 = new TimingReport();
+		fork1.addResults(results("a.Test1", "test", new TestResult("firefox", "OK", null, false, new TestTiming(0, 1, 1, 1, 1))));
+		fork1.addResults(results("a.Test2", "test", new TestResult("say \"hi\", firefox", "OK", null, false, new TestTiming(0, 1,
+				1, 20, 1))));
+		fork1.write(file);
+
+		// the test executed again replaces its previous time, the other tests are kept
+		TimingReport fork2 = new TimingReport();
+		fork2.addResults(results("a.Test1", "test", new TestResult("firefox", "OK", null, false, new TestTiming(0, 1, 1, 50, 1))));
+		fork2.addResults(results("a.Test3", "test", new TestResult("firefox", "OK", null, false, new TestTiming(0, 1, 1, 2, 1))));
+		fork2.write(file);
+
+		assertEquals(Arrays.asList("class,method,browser,total,pageLoad,scripts,before,test,after", //
+				"\"a.Test1\",\"test\",\"firefox\",53,0,1,1,50,1", //
+				"\"a.Test2\",\"test\",\"say \"\"hi\"\", firefox\",23,0,1,1,20,1", //
+				"\"a.Test3\",\"test\",\"firefox\",5,0,1,1,2,1"), Files.readLines(file, Charsets.UTF_8));
+	}
+
+	@Test
+	public void testConcurrentReportsAreMerged() throws Exception {
+		final File file = new File(folder.getRoot(), "timing.csv");
+		ExecutorService forks = Executors.newFixedThreadPool(4);
+		List<Future<Void>> writes = new ArrayList<Future<Void>>();
+		for (int i = 0; i < 20; ++i) {
+			final TimingReport report = new TimingReport();
+			report.addResults(results("a.Test" + i, "test", new TestResult("firefox", "OK", null, false, new TestTiming(0, 1, 1, i,
+					1))));
+			writes.add(forks.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					report.write(file);
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> write : writes) {
+			write.get();
+		}
+		forks.shutdown();
+		assertEquals(21, Files.readLines(file, Charsets.UTF_8).size());
+	}
+
+	@Test
+	public void testResultsWithoutTimingAreSkipped() {
+		TimingReport report = new TimingReport();
+		report.addResults(results("a.Test", "test", new TestResult("firefox", "OK", null, false),
+				TestResult.deadBrowser("chrome", "dead")));
+		assertTrue(report.isEmpty());
+	}
+
+	@Test
+	public void testParseTiming() {
+		TestTiming timing = TestTiming.parse("10, 2,30,-1");
+		assertEquals(0, timing.getPageLoad());
+		assertEquals(10, timing.getScripts());
+		assertEquals(2, timing.getBefore());
+		assertEquals(30, timing.getTest());
+		// the clock of the browser went backwards
+		assertEquals(0, timing.getAfter());
+		assertNull(TestTiming.parse("10,2,30"));
+		assertNull(TestTiming.parse("a,b,c,d"));
+	}
+}
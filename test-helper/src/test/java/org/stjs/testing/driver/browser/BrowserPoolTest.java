@@ -0,0 +1,155 @@
+package org.stjs.testing.driver.browser;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.TestClass;
+import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.MultiTestMethod;
+import org.stjs.testing.driver.TestResult;
+
+import com.sun.net.httpserver.HttpExchange;
+
+@SuppressWarnings("restriction")
+public class BrowserPoolTest {
+	public static class TestA {
+	}
+
+	public static class TestB {
+	}
+
+	private final TestClass testA = new TestClass(TestA.class);
+	private final TestClass testB = new TestClass(TestB.class);
+
+	private DriverConfiguration config;
+	private LongPollingBrowser instance1;
+	private LongPollingBrowser instance2;
+	private HttpExchange exchange1;
+	private HttpExchange exchange2;
+
+	@Before
+	public void setUp() {
+		config = mock(DriverConfiguration.class);
+		when(config.getBatchSize()).thenReturn(10);
+		instance1 = mock(LongPollingBrowser.class);
+		instance2 = mock(LongPollingBrowser.class);
+		exchange1 = mock(HttpExchange.class);
+		exchange2 = mock(HttpExchange.class);
+	}
+
+	private MultiTestMethod method(TestClass testClass, boolean isolated) {
+		MultiTestMethod method = mock(MultiTestMethod.class);
+		when(method.getTestClass()).thenReturn(testClass);
+		when(method.isIsolated()).thenReturn(isolated);
+		return method;
+	}
+
+	@Test
+	public void testParkedRequestGetsTheNextTest() {
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1, instance2));
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1, never()).sendTests(anyListOf(MultiTestMethod.class), any(HttpExchange.class));
+
+		MultiTestMethod method = method(testA, false);
+		pool.executeTest(method);
+		verify(instance1).sendTests(Collections.singletonList(method), exchange1);
+	}
+
+	@Test
+	public void testBatchesAreSharedBetweenInstances() {
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1, instance2));
+		MultiTestMethod m1 = method(testA, false);
+		MultiTestMethod m2 = method(testA, false);
+		MultiTestMethod m3 = method(testA, false);
+		MultiTestMethod m4 = method(testA, false);
+		pool.executeTest(m1);
+		pool.executeTest(m2);
+		pool.executeTest(m3);
+		pool.executeTest(m4);
+
+		// the batch of the first instance leaves a share of the class to the second instance
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m1, m2), exchange1);
+		pool.parkRequest(instance2, exchange2);
+		verify(instance2).sendTests(Arrays.asList(m3), exchange2);
+	}
+
+	@Test
+	public void testBatchStopsAtAnotherClassOrAnIsolatedTest() {
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1));
+		MultiTestMethod m1 = method(testA, false);
+		MultiTestMethod m2 = method(testA, false);
+		MultiTestMethod m3 = method(testB, false);
+		MultiTestMethod m4 = method(testB, true);
+		MultiTestMethod m5 = method(testB, false);
+		for (MultiTestMethod m : Arrays.asList(m1, m2, m3, m4, m5)) {
+			pool.executeTest(m);
+		}
+
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m1, m2), exchange1);
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m3), exchange1);
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m4), exchange1);
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m5), exchange1);
+	}
+
+	@Test
+	public void testBatchSizeIsLimited() {
+		when(config.getBatchSize()).thenReturn(2);
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1));
+		MultiTestMethod m1 = method(testA, false);
+		MultiTestMethod m2 = method(testA, false);
+		MultiTestMethod m3 = method(testA, false);
+		pool.executeTest(m1);
+		pool.executeTest(m2);
+		pool.executeTest(m3);
+
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(Arrays.asList(m1, m2), exchange1);
+	}
+
+	@Test
+	public void testParkedRequestsAreReleasedWhenThereAreNoMoreTests() {
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1, instance2));
+		pool.parkRequest(instance1, exchange1);
+		pool.parkRequest(instance2, exchange2);
+		pool.notifyNoMoreTests();
+		verify(instance1).sendTests(null, exchange1);
+		verify(instance2).sendTests(null, exchange2);
+	}
+
+	@Test
+	public void testDeadInstanceIsReleasedWithoutTests() {
+		when(instance1.isDead()).thenReturn(true);
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1, instance2));
+		MultiTestMethod method = method(testA, false);
+		pool.executeTest(method);
+
+		pool.parkRequest(instance1, exchange1);
+		verify(instance1).sendTests(null, exchange1);
+		pool.parkRequest(instance2, exchange2);
+		verify(instance2).sendTests(Collections.singletonList(method), exchange2);
+	}
+
+	@Test
+	public void testTestsFailWhenAllInstancesAreDead() {
+		when(instance1.isDead()).thenReturn(true);
+		BrowserPool pool = new BrowserPool(config, Arrays.asList(instance1));
+		MultiTestMethod method = method(testA, false);
+		pool.executeTest(method);
+		verify(method).notifyExecutionResult(any(TestResult.class));
+		verify(instance1, never()).sendTests(anyListOf(MultiTestMethod.class), any(HttpExchange.class));
+	}
+}
@@ -0,0 +1,101 @@
+package org.stjs.testing.driver.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.InitializationError;
+import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.TestResult;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+@SuppressWarnings("restriction")
+public class LongPollingBrowserTest {
+	private LongPollingBrowser browser;
+	private HttpExchange exchange;
+	private final Map<String, String> params = new HashMap<String, String>();
+
+	@Before
+	public void setUp() {
+		browser = new LongPollingBrowser(mock(DriverConfiguration.class)) {
+			@Override
+			protected void doStart() throws InitializationError {
+				// nothing to start
+			}
+		};
+		Headers headers = new Headers();
+		headers.add("User-Agent", "firefox");
+		exchange = mock(HttpExchange.class);
+		when(exchange.getRequestHeaders()).thenReturn(headers);
+	}
+
+	@Test
+	public void testBatchResults() {
+		params.put("count", "2");
+		params.put("result0", "OK");
+		params.put("timing0", "1,2,3,4");
+		params.put("result1", "expected:<1> but was:<2>");
+		params.put("location1", "MyTest.js:12");
+		params.put("isAssert1", "true");
+		params.put("timing1", "0,5,6,7");
+
+		List<TestResult> results = browser.buildResults(params, exchange, 2);
+		assertEquals(2, results.size());
+		assertTrue(results.get(0).isOk());
+		assertEquals("firefox", results.get(0).getUserAgent());
+		assertEquals(3, results.get(0).getTiming().getTest());
+		assertFalse(results.get(1).isOk());
+		assertEquals("expected:<1> but was:<2>", results.get(1).getMessage());
+		assertEquals(6, results.get(1).getTiming().getTest());
+		// the page load is counted once, for the first test of the page
+		assertTrue(results.get(0).getTiming().getPageLoad() > 0);
+		assertEquals(0, results.get(1).getTiming().getPageLoad());
+	}
+
+	@Test
+	public void testMissingResultsFail() {
+		params.put("count", "1");
+		params.put("result0", "OK");
+
+		List<TestResult> results = browser.buildResults(params, exchange, 3);
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isOk());
+		assertFalse(results.get(1).isOk());
+		assertFalse(results.get(2).isOk());
+		// without the times of all the tests, the page load is unknown
+		assertNull(results.get(0).getTiming());
+	}
+
+	@Test
+	public void testExtraResultsAreIgnored() {
+		params.put("count", "3");
+		params.put("result0", "OK");
+		params.put("result1", "OK");
+		params.put("result2", "OK");
+
+		assertEquals(2, browser.buildResults(params, exchange, 2).size());
+	}
+
+	@Test
+	public void testSingleResultWithoutCount() {
+		params.put("result", "failed");
+		params.put("location", "MyTest.js:3");
+		params.put("isAssert", "false");
+
+		List<TestResult> results = browser.buildResults(params, exchange, 1);
+		assertEquals(1, results.size());
+		assertEquals("failed", results.get(0).getMessage());
+		assertFalse(results.get(0).isOk());
+	}
+}
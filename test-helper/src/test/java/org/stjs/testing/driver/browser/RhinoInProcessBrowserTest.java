@@ -0,0 +1,254 @@
+package org.stjs.testing.driver.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.TestClass;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.stjs.generator.ClassResolver;
+import org.stjs.generator.ClassWithJavascript;
+import org.stjs.testing.annotation.HTMLFixture;
+import org.stjs.testing.annotation.Isolated;
+import org.stjs.testing.driver.DriverConfiguration;
+import org.stjs.testing.driver.MultiTestMethod;
+import org.stjs.testing.driver.TestClassAttributes;
+import org.stjs.testing.driver.TestClassAttributesRepository;
+import org.stjs.testing.driver.TestResource;
+import org.stjs.testing.driver.TestResourceResolver;
+import org.stjs.testing.driver.TestResult;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class RhinoInProcessBrowserTest {
+	private static final String SCRIPT = "/my-test.js";
+
+	/**
+	 * the Java side of the tests of my-test.js
+	 */
+	public static class Fixture {
+		@Test
+		public void testPass() {
+		}
+
+		@Test
+		public void testFailingAssert() {
+		}
+
+		@Test(expected = MyError.class)
+		public void testExpectedThrown() {
+		}
+
+		@Test(expected = MyError.class)
+		public void testExpectedNotThrown() {
+		}
+
+		@Test
+		public void testLoop() {
+		}
+
+		@Test
+		public void testRuns() {
+		}
+
+		@Test
+		@Isolated
+		public void testIsolatedRuns() {
+		}
+
+		@After
+		public void tearDown() {
+		}
+	}
+
+	public static class MyError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final TestClass testClass = new TestClass(Fixture.class);
+	private DriverConfiguration config;
+	private TestClassAttributes attr;
+	private RhinoInProcessBrowser browser;
+
+	@Before
+	public void setUp() throws Exception {
+		final File script = folder.newFile("my-test.js");
+		Files.write("var runs = 0;\n" //
+				+ "function MyError() {}\n" //
+				+ "function MyTest() {}\n" //
+				+ "MyTest.prototype.testPass = function() {\n" //
+				+ "  assertEquals(2, 1 + 1);\n" //
+				+ "};\n" //
+				+ "MyTest.prototype.testFailingAssert = function() {\n" //
+				+ "  assertEquals(1, 2);\n" //
+				+ "};\n" //
+				+ "MyTest.prototype.testExpectedThrown = function() {\n" //
+				+ "  throw new MyError();\n" //
+				+ "};\n" //
+				+ "MyTest.prototype.testExpectedNotThrown = function() {};\n" //
+				+ "MyTest.prototype.testLoop = function() {\n" //
+				+ "  while (true) {}\n" //
+				+ "};\n" //
+				+ "MyTest.prototype.testRuns = function() {\n" //
+				+ "  runs++;\n" //
+				+ "  assertEquals(1, runs);\n" //
+				+ "};\n" //
+				+ "MyTest.prototype.testIsolatedRuns = MyTest.prototype.testRuns;\n" //
+				+ "MyTest.prototype.tearDown = function() {\n" //
+				+ "  throw new Error('tearDown failed');\n" //
+				+ "};\n", script, Charsets.UTF_8);
+
+		ClassWithJavascript stjsClass = mock(ClassWithJavascript.class);
+		when(stjsClass.getJavascriptClassName()).thenReturn("MyTest");
+		ClassWithJavascript errorClass = mock(ClassWithJavascript.class);
+		when(errorClass.getJavascriptClassName()).thenReturn("MyError");
+		ClassResolver classResolver = mock(ClassResolver.class);
+		when(classResolver.resolve(MyError.class.getName())).thenReturn(errorClass);
+
+		attr = mock(TestClassAttributes.class);
+		when(attr.getStjsClass()).thenReturn(stjsClass);
+		when(attr.getScripts()).thenReturn(Collections.singletonList(SCRIPT));
+		TestClassAttributesRepository testClasses = mock(TestClassAttributesRepository.class);
+		when(testClasses.getAttributes(testClass)).thenReturn(attr);
+
+		// stjs.js and junit.js come from the classpath
+		final TestResourceResolver resources = new TestResourceResolver(getClass().getClassLoader());
+		config = mock(DriverConfiguration.class);
+		when(config.getTestClasses()).thenReturn(testClasses);
+		when(config.getStjsClassResolver()).thenReturn(classResolver);
+		when(config.getTestTimeout()).thenReturn(1);
+		when(config.getServerURL()).thenReturn(new URL("http://localhost:8055/"));
+		when(config.getResource(anyString())).thenAnswer(new Answer<TestResource>() {
+			@Override
+			public TestResource answer(InvocationOnMock invocation) throws Throwable {
+				String path = (String) invocation.getArguments()[0];
+				if (SCRIPT.equals(path)) {
+					return new TestResource(getClass().getClassLoader(), path, script.toURI().toURL());
+				}
+				return resources.resolveResource(path);
+			}
+		});
+
+		browser = new RhinoInProcessBrowser(config);
+		browser.start();
+	}
+
+	@After
+	public void tearDown() {
+		browser.stop();
+	}
+
+	private TestResult execute(String methodName) throws NoSuchMethodException {
+		MultiTestMethod method = new MultiTestMethod(testClass, new FrameworkMethod(Fixture.class.getMethod(methodName)), 1);
+		browser.executeTest(method);
+		return method.awaitExecutionResult().getResult(0);
+	}
+
+	private boolean isAssert(TestResult result) {
+		return result.buildException(getClass().getClassLoader()) instanceof AssertionError;
+	}
+
+	@Test
+	public void testPassingTest() throws Exception {
+		TestResult result = execute("testPass");
+		assertTrue(result.getMessage(), result.isOk());
+		assertTrue(result.getUserAgent().endsWith("(in-process)"));
+		// there is no page to load
+		assertEquals(0, result.getTiming().getPageLoad());
+	}
+
+	@Test
+	public void testFailingAssert() throws Exception {
+		TestResult result = execute("testFailingAssert");
+		assertFalse(result.isOk());
+		assertEquals("AssertError: expected 1 but was 2", result.getMessage());
+		assertTrue(isAssert(result));
+		// the location starts with the assertion in junit.js, and goes through the line of the test
+		assertTrue(result.toString(), result.toString().contains("http://localhost:8055/junit.js:"));
+		assertTrue(result.toString(), result.toString().contains("http://localhost:8055/my-test.js:8"));
+	}
+
+	@Test
+	public void testExpectedException() throws Exception {
+		TestResult thrown = execute("testExpectedThrown");
+		assertTrue(thrown.getMessage(), thrown.isOk());
+
+		TestResult notThrown = execute("testExpectedNotThrown");
+		assertEquals("Expected an exception, but none was thrown", notThrown.getMessage());
+		assertFalse(isAssert(notThrown));
+	}
+
+	@Test
+	public void testExceptionInAfterMethod() throws Exception {
+		when(attr.getAfterMethods()).thenReturn(Arrays.asList(new FrameworkMethod(Fixture.class.getMethod("tearDown"))));
+
+		TestResult result = execute("testPass");
+		assertEquals("Error: tearDown failed", result.getMessage());
+		assertFalse(isAssert(result));
+
+		// the failure of the test is reported rather than the one of the after method
+		result = execute("testFailingAssert");
+		assertEquals("AssertError: expected 1 but was 2", result.getMessage());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		assertTrue(execute("testRuns").isOk());
+
+		long start = System.currentTimeMillis();
+		TestResult result = execute("testLoop");
+		assertEquals("The test testLoop did not finish within 1 seconds", result.getMessage());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+
+		// the scope of the interrupted test is dropped: the scripts are loaded again
+		TestResult next = execute("testRuns");
+		assertTrue(next.getMessage(), next.isOk());
+	}
+
+	@Test
+	public void testIsolatedTestGetsItsOwnScope() throws Exception {
+		assertTrue(execute("testRuns").isOk());
+		assertTrue(execute("testIsolatedRuns").isOk());
+		assertTrue(execute("testIsolatedRuns").isOk());
+
+		// the other tests of the class share their scope
+		TestResult shared = execute("testRuns");
+		assertEquals("AssertError: expected 1 but was 2", shared.getMessage());
+	}
+
+	@Test
+	public void testHtmlFixtureIsRejected() throws Exception {
+		when(attr.getHtmlFixture()).thenReturn(mock(HTMLFixture.class));
+
+		TestResult result = execute("testPass");
+		assertFalse(result.isOk());
+		assertTrue(result.getMessage(), result.getMessage().startsWith("There is no DOM for the HTML fixture"));
+	}
+
+	@Test
+	public void testScriptsAreReloadedAfterTheSession() throws IOException, NoSuchMethodException {
+		assertTrue(execute("testRuns").isOk());
+		browser.notifyNoMoreTests();
+		assertTrue(execute("testRuns").isOk());
+	}
+}